@@ -21,6 +21,8 @@ package org.apache.tools.ant;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Map;
 import java.util.WeakHashMap;
 
 import org.apache.tools.ant.util.FileUtils;
@@ -64,7 +66,8 @@ public class DemuxOutputStream extends OutputStream {
     private static final int LF = 0x0a;
 
     /** Mapping from thread to buffer (Thread to BufferInfo). */
-    private WeakHashMap<Thread, BufferInfo> buffers = new WeakHashMap<>();
+    private Map<Thread, BufferInfo> buffers =
+        Collections.synchronizedMap(new WeakHashMap<>());
 
     /**
      * The project to send output to.
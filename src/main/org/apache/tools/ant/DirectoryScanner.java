@@ -20,9 +20,12 @@ package org.apache.tools.ant;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -34,6 +37,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
@@ -46,7 +52,9 @@ import org.apache.tools.ant.types.selectors.SelectorScanner;
 import org.apache.tools.ant.types.selectors.SelectorUtils;
 import org.apache.tools.ant.types.selectors.TokenizedPath;
 import org.apache.tools.ant.types.selectors.TokenizedPattern;
+import org.apache.tools.ant.util.AttributedFile;
 import org.apache.tools.ant.util.FileUtils;
+import org.apache.tools.ant.util.ScanIndex;
 import org.apache.tools.ant.util.VectorSet;
 
 /**
@@ -229,6 +237,9 @@ public class DirectoryScanner
     /** Helper. */
     private static final FileUtils FILE_UTILS = FileUtils.getFileUtils();
 
+    /** Marker for prefetched entries that cannot be listed. */
+    private static final String[] NOT_A_DIRECTORY = new String[0];
+
     /**
      * Patterns which should be excluded by default.
      *
@@ -442,6 +453,46 @@ public class DirectoryScanner
      */
     private final Set<String> notFollowedSymlinks = new HashSet<>();
 
+    /**
+     * Index of directory listings shared between scanners, if any.
+     *
+     * @since Ant 1.10.6
+     */
+    private ScanIndex scanIndex = null;
+
+    /**
+     * Whether directory listings should be read by several threads
+     * before they get processed.
+     *
+     * @since Ant 1.10.6
+     */
+    private boolean parallelScan = false;
+
+    /**
+     * Listings read ahead of time by a parallel scan, keyed by the
+     * path of the listed file. Files that are not directories map to
+     * {@link #NOT_A_DIRECTORY}.
+     *
+     * @since Ant 1.10.6
+     */
+    private final Map<String, String[]> prefetchedListings = new ConcurrentHashMap<>();
+
+    /**
+     * Whether directories should be read via java.nio.file, reading
+     * the attributes of each entry once.
+     *
+     * @since Ant 1.10.6
+     */
+    private boolean prefetchAttributes = false;
+
+    /**
+     * Entries of directories read with attributes that have not been
+     * processed, yet, keyed by their path.
+     *
+     * @since Ant 1.10.6
+     */
+    private final Map<String, AttributedFile> prefetchedAttributes = new ConcurrentHashMap<>();
+
     /**
      * Test whether or not a given path matches the start of a given
      * pattern up to the first "**".
@@ -721,6 +772,17 @@ public class DirectoryScanner
         maxLevelsOfSymlinks = max;
     }
 
+    /**
+     * The maximum number of times a symbolic link may be followed
+     * during a scan.
+     *
+     * @return int
+     * @since Ant 1.10.6
+     */
+    /* package */ int getMaxLevelsOfSymlinks() {
+        return maxLevelsOfSymlinks;
+    }
+
     /**
      * Set the list of include patterns to use. All '/' and '\' characters
      * are replaced by <code>File.separatorChar</code>, so the separator used
@@ -819,6 +881,56 @@ public class DirectoryScanner
         this.selectors = selectors;
     }
 
+    /**
+     * Set the index of directory listings this scanner should use
+     * instead of listing every directory it visits.
+     *
+     * @param scanIndex the index to use, may be null.
+     * @since Ant 1.10.6
+     */
+    public synchronized void setScanIndex(final ScanIndex scanIndex) {
+        this.scanIndex = scanIndex;
+    }
+
+    /**
+     * Set whether the directory tree should be traversed by several
+     * threads.
+     *
+     * <p>If enabled, the directories that may hold included files are
+     * listed concurrently using a fork/join pool before the listings
+     * are processed in the same order as in a sequential scan, so
+     * the results are the same, including their order. Selectors are
+     * always evaluated by the scanning thread.</p>
+     *
+     * @param parallelScan whether to list directories concurrently.
+     * @since Ant 1.10.6
+     */
+    public synchronized void setParallelScan(final boolean parallelScan) {
+        this.parallelScan = parallelScan;
+    }
+
+    /**
+     * Set whether directories should be read using java.nio.file.
+     *
+     * <p>If enabled, the attributes of every directory entry are read
+     * with a single call while the directory is listed. The files
+     * passed to selectors are {@link AttributedFile}s, so selectors
+     * asking for the type, size or timestamp of a file (and the
+     * FileResources they may create for them) don't need to access the
+     * file system again.</p>
+     *
+     * <p>This setting is ignored if a {@link ScanIndex} is used, as
+     * the index knows the types of all entries of unchanged
+     * directories without accessing them at all.</p>
+     *
+     * @param prefetchAttributes whether to read attributes while
+     * listing directories.
+     * @since Ant 1.10.6
+     */
+    public synchronized void setPrefetchAttributes(final boolean prefetchAttributes) {
+        this.prefetchAttributes = prefetchAttributes;
+    }
+
     /**
      * Return whether or not the scanner has included all the files or
      * directories it has come across so far.
@@ -1181,7 +1293,10 @@ public class DirectoryScanner
         if (dir == null) {
             throw new BuildException("dir must not be null.");
         }
-        final String[] newfiles = dir.list();
+        if (parallelScan) {
+            ForkJoinPool.commonPool().invoke(new PrefetchListings(dir, path, fast));
+        }
+        final String[] newfiles = list(null, null, dir);
         if (newfiles == null) {
             if (!dir.exists()) {
                 throw new BuildException(dir + DOES_NOT_EXIST_POSTFIX);
@@ -1192,7 +1307,168 @@ public class DirectoryScanner
                     dir.getAbsolutePath());
             }
         }
-        scandir(dir, path, fast, newfiles, new LinkedList<>());
+        try {
+            scandir(dir, path, fast, newfiles, new LinkedList<>());
+        } finally {
+            prefetchedListings.clear();
+            prefetchedAttributes.clear();
+        }
+    }
+
+    /**
+     * Lists a file, using prefetched listings or the scan index if
+     * available.
+     *
+     * @param parent the directory holding the file if it has been
+     * listed just before, may be null.
+     * @param name the name of the file inside parent, ignored if parent is null.
+     * @param file the file to list.
+     * @return the same as {@link File#list}.
+     */
+    private String[] list(final File parent, final String name, final File file) {
+        if (!prefetchedListings.isEmpty()) {
+            final String[] listing = prefetchedListings.remove(file.getPath());
+            if (listing != null) {
+                return listing == NOT_A_DIRECTORY ? null : listing;
+            }
+        }
+        return readListing(parent, name, file);
+    }
+
+    /**
+     * Lists a file using the scan index, java.nio.file or {@link
+     * File#list}.
+     *
+     * @param parent the directory holding the file if it has been
+     * listed just before, may be null.
+     * @param name the name of the file inside parent, ignored if parent is null.
+     * @param file the file to list.
+     * @return the same as {@link File#list}.
+     */
+    private String[] readListing(final File parent, final String name, final File file) {
+        if (scanIndex != null) {
+            return parent == null ? scanIndex.list(file) : scanIndex.list(parent, name);
+        }
+        if (prefetchAttributes) {
+            if (file instanceof AttributedFile && !file.isDirectory()) {
+                return null;
+            }
+            final List<String> names = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(file.toPath())) {
+                for (final Path entry : entries) {
+                    final String entryName = entry.getFileName().toString();
+                    final AttributedFile f = AttributedFile.read(file, entryName);
+                    prefetchedAttributes.put(f.getPath(), f);
+                    names.add(entryName);
+                }
+            } catch (IOException | DirectoryIteratorException ex) {
+                return null;
+            }
+            return names.toArray(new String[names.size()]);
+        }
+        return file.list();
+    }
+
+    /**
+     * Creates the File for a directory entry, returning one carrying
+     * attributes read while listing the directory if available.
+     *
+     * @param dir the directory.
+     * @param name the name of the entry.
+     * @param consume whether the prefetched attributes are no longer
+     * needed afterwards.
+     * @return the File.
+     */
+    private File fileFor(final File dir, final String name, final boolean consume) {
+        final File file = new File(dir, name);
+        if (!prefetchedAttributes.isEmpty()) {
+            final AttributedFile f = consume ? prefetchedAttributes.remove(file.getPath())
+                : prefetchedAttributes.get(file.getPath());
+            if (f != null) {
+                return f;
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Whether a directory entry is a symbolic link, avoiding file
+     * system access if possible.
+     */
+    private boolean isSymbolicLink(final File dir, final String name, final File file) {
+        if (file instanceof AttributedFile) {
+            return ((AttributedFile) file).isSymbolicLink();
+        }
+        return scanIndex == null ? Files.isSymbolicLink(file.toPath())
+            : scanIndex.isSymbolicLink(dir, name);
+    }
+
+    /**
+     * Lists a directory and all subdirectories a scan would visit in
+     * parallel, storing the results in {@link #prefetchedListings}.
+     *
+     * <p>Runs while the scanning thread holds the lock on the
+     * scanner, so must not invoke any synchronized methods.</p>
+     */
+    private class PrefetchListings extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final File dir;
+        private final TokenizedPath path;
+        private final boolean fast;
+        private final String[] names;
+        private final Deque<String> directoryNamesFollowed;
+
+        PrefetchListings(final File dir, final TokenizedPath path, final boolean fast) {
+            this(dir, path, fast, null, new ArrayDeque<>());
+        }
+
+        private PrefetchListings(final File dir, final TokenizedPath path, final boolean fast,
+                                 final String[] names,
+                                 final Deque<String> directoryNamesFollowed) {
+            this.dir = dir;
+            this.path = path;
+            this.fast = fast;
+            this.names = names;
+            this.directoryNamesFollowed = directoryNamesFollowed;
+        }
+
+        @Override
+        protected void compute() {
+            String[] entries = names;
+            if (entries == null) {
+                entries = readListing(null, null, dir);
+                if (entries == null) {
+                    // let the scanning thread report the problem
+                    return;
+                }
+                prefetchedListings.put(dir.getPath(), entries);
+            }
+            if (followSymlinks) {
+                directoryNamesFollowed.addFirst(dir.getName());
+            }
+            final List<PrefetchListings> subtasks = new ArrayList<>();
+            for (final String entry : entries) {
+                final File file = fileFor(dir, entry, false);
+                if (!followSymlinks && isSymbolicLink(dir, entry, file)) {
+                    continue;
+                }
+                final String[] children = readListing(dir, entry, file);
+                prefetchedListings.put(file.getPath(),
+                                       children == null ? NOT_A_DIRECTORY : children);
+                if (children == null) {
+                    continue;
+                }
+                final TokenizedPath newPath = new TokenizedPath(path, entry);
+                if ((!fast || couldHoldIncluded(newPath) && !contentsExcluded(newPath))
+                    && !(followSymlinks
+                         && causesIllegalSymlinkLoop(entry, dir, directoryNamesFollowed))) {
+                    subtasks.add(new PrefetchListings(file, newPath, fast, children,
+                                                      new ArrayDeque<>(directoryNamesFollowed)));
+                }
+            }
+            invokeAll(subtasks);
+        }
     }
 
     private void scandir(final File dir, final TokenizedPath path, final boolean fast,
@@ -1209,15 +1485,9 @@ public class DirectoryScanner
         if (!followSymlinks) {
             final ArrayList<String> noLinks = new ArrayList<>();
             for (final String newFile : newFiles) {
-                final Path filePath;
-                if (dir == null) {
-                    filePath = Paths.get(newFile);
-                } else {
-                    filePath = Paths.get(dir.toPath().toString(), newFile);
-                }
-                if (Files.isSymbolicLink(filePath)) {
+                final File file = fileFor(dir, newFile, false);
+                if (isSymbolicLink(dir, newFile, file)) {
                     final String name = vpath + newFile;
-                    final File file = new File(dir, newFile);
                     if (file.isDirectory()) {
                         dirsExcluded.addElement(name);
                     } else if (file.isFile()) {
@@ -1236,8 +1506,8 @@ public class DirectoryScanner
         for (String newFile : newFiles) {
             final String name = vpath + newFile;
             final TokenizedPath newPath = new TokenizedPath(path, newFile);
-            final File file = new File(dir, newFile);
-            final String[] children = file.list();
+            final File file = fileFor(dir, newFile, true);
+            final String[] children = list(dir, newFile, file);
             if (children == null || (children.length == 0 && file.isFile())) {
                 if (isIncluded(newPath)) {
                     accountForIncludedFile(newPath, file);
@@ -1411,7 +1681,7 @@ public class DirectoryScanner
      */
     private boolean couldHoldIncluded(final TokenizedPath tokenizedName,
                                       final TokenizedPattern tokenizedInclude) {
-        return tokenizedInclude.matchStartOf(tokenizedName, isCaseSensitive())
+        return tokenizedInclude.matchStartOf(tokenizedName, isCaseSensitive)
             && isMorePowerfulThanExcludes(tokenizedName.toString())
             && isDeeper(tokenizedInclude, tokenizedName);
     }
@@ -1460,7 +1730,7 @@ public class DirectoryScanner
         return Stream.of(excludePatterns)
             .filter(p -> p.endsWith(SelectorUtils.DEEP_TREE_MATCH))
             .map(TokenizedPattern::withoutLastToken)
-            .anyMatch(wlt -> wlt.matchPath(path, isCaseSensitive()));
+            .anyMatch(wlt -> wlt.matchPath(path, isCaseSensitive));
     }
 
     /**
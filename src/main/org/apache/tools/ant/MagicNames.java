@@ -107,6 +107,54 @@ public final class MagicNames {
      */
     public static final String ANT_EXECUTOR_CLASSNAME = "ant.executor.class";
 
+    /**
+     * Property defining the maximum number of threads used by the
+     * parallel executor.
+     * Value: {@value}
+     * @since Ant 1.10.6
+     */
+    public static final String ANT_EXECUTOR_THREADS = "ant.executor.threads";
+
+    /**
+     * Property enabling the build-scoped index of directory listings
+     * used by DirectoryScanner.
+     * Value: {@value}
+     * @since Ant 1.10.6
+     */
+    public static final String SCAN_INDEX = "ant.scanindex";
+
+    /**
+     * Property naming the file the index of directory listings is
+     * persisted to. Setting it enables the index.
+     * Value: {@value}
+     * @since Ant 1.10.6
+     */
+    public static final String SCAN_INDEX_FILE = "ant.scanindex.file";
+
+    /**
+     * Property enabling parallel directory traversal in
+     * DirectoryScanner.
+     * Value: {@value}
+     * @since Ant 1.10.6
+     */
+    public static final String PARALLEL_SCAN = "ant.parallelscan";
+
+    /**
+     * Property making DirectoryScanner read directories via
+     * java.nio.file and prefetch the attributes of their entries.
+     * Value: {@value}
+     * @since Ant 1.10.6
+     */
+    public static final String SCAN_ATTRIBUTES = "ant.scanattributes";
+
+    /**
+     * Property enabling the build-scoped cache of DirectoryScanner
+     * results.
+     * Value: {@value}
+     * @since Ant 1.10.6
+     */
+    public static final String SCAN_CACHE = "ant.scancache";
+
     /**
      * property name for basedir of the project.
      * Value: {@value}
@@ -201,6 +249,20 @@ public final class MagicNames {
      */
     public static final String REFID_PROPERTY_HELPER = "ant.PropertyHelper";
 
+    /**
+     * Reference used to store the index of directory listings.
+     * Value: {@value}
+     * @since Ant 1.10.6
+     */
+    public static final String REFID_SCAN_INDEX = "ant.ScanIndex";
+
+    /**
+     * Reference used to store the cache of DirectoryScanner results.
+     * Value: {@value}
+     * @since Ant 1.10.6
+     */
+    public static final String REFID_SCAN_CACHE = "ant.ScanCache";
+
     /**
      * Reference used to store the local properties.
      * Value: {@value}
@@ -0,0 +1,304 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.tools.ant;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.tools.ant.types.selectors.FileSelector;
+import org.apache.tools.ant.types.selectors.TokenizedPattern;
+import org.apache.tools.ant.util.FileUtils;
+
+/**
+ * Build-scoped cache of {@link DirectoryScanner} results.
+ *
+ * <p>Filesets that scan the same base directory with the same
+ * (normalized) include and exclude patterns, the same selector
+ * instances and the same case sensitivity and symbolic link settings
+ * share a single scanner instead of scanning the tree again.</p>
+ *
+ * <p>A cached result is discarded if the modification time of any
+ * directory visited by the scan, or - for scans using selectors - of
+ * any file the selectors have been applied to, has changed. In
+ * addition {@link org.apache.tools.ant.util.FileUtils FileUtils} and
+ * {@link org.apache.tools.ant.util.ResourceUtils ResourceUtils}
+ * report every file they write or delete via {@link
+ * #fileWritten}, which discards all results for trees containing the
+ * file. Results of scans that started within the file system's
+ * timestamp granularity of the modification of any of these files
+ * are not trusted and will be replaced on the next lookup.</p>
+ *
+ * <p>The cache is enabled by setting the <code>ant.scancache</code>
+ * property to true.</p>
+ *
+ * @since Ant 1.10.6
+ */
+public class ScanCache {
+
+    /** All caches that may need to be told about writes. */
+    private static final Set<ScanCache> CACHES =
+        Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final long granularity = FileUtils.getFileUtils().getFileTimestampGranularity();
+
+    /**
+     * Creates a new, empty cache.
+     */
+    public ScanCache() {
+        CACHES.add(this);
+    }
+
+    /**
+     * Obtains the cache configured for the given project, if any.
+     *
+     * @param project the project, may be null.
+     * @return the cache or null if caching has not been enabled.
+     */
+    public static synchronized ScanCache getScanCache(Project project) {
+        if (project == null) {
+            return null;
+        }
+        ScanCache cache = project.getReference(MagicNames.REFID_SCAN_CACHE);
+        if (cache == null && Project.toBoolean(project.getProperty(MagicNames.SCAN_CACHE))) {
+            cache = new ScanCache();
+            project.addReference(MagicNames.REFID_SCAN_CACHE, cache);
+        }
+        return cache;
+    }
+
+    /**
+     * Tells all caches a file has been written, touched or deleted.
+     *
+     * @param file the file.
+     */
+    public static void fileWritten(File file) {
+        if (CACHES.isEmpty() || file == null) {
+            return;
+        }
+        final ScanCache[] caches;
+        synchronized (CACHES) {
+            caches = CACHES.toArray(new ScanCache[0]);
+        }
+        for (ScanCache cache : caches) {
+            cache.invalidate(file);
+        }
+    }
+
+    /**
+     * Returns a scanned scanner equivalent to the given one, scanning
+     * the given one if no valid cached result exists.
+     *
+     * @param ds a fully configured scanner.
+     * @return a scanner that has completed its scan, either ds or a
+     * cached one.
+     */
+    public DirectoryScanner scan(DirectoryScanner ds) {
+        final Key key;
+        synchronized (ds) {
+            if (ds.basedir == null) {
+                ds.scan();
+                return ds;
+            }
+            key = new Key(ds);
+        }
+        final Entry entry = entries.get(key);
+        if (entry != null && entry.isValid(granularity)) {
+            return entry.scanner;
+        }
+        final long scannedAt = System.currentTimeMillis();
+        ds.scan();
+        entries.put(key, new Entry(ds, scannedAt));
+        return ds;
+    }
+
+    /**
+     * Discards all results for trees the given file is part of or
+     * that are part of the given file.
+     *
+     * @param file the file that has been modified.
+     */
+    public void invalidate(File file) {
+        final String path = file.getAbsolutePath();
+        entries.keySet().removeIf(k -> isAncestorOrSame(k.basedir, path)
+                                  || isAncestorOrSame(path, k.basedir));
+    }
+
+    /**
+     * Number of results held in the cache.
+     * @return the number of results.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private static boolean isAncestorOrSame(String ancestor, String path) {
+        return path.startsWith(ancestor)
+            && (path.length() == ancestor.length()
+                || path.charAt(ancestor.length()) == File.separatorChar
+                || ancestor.endsWith(File.separator));
+    }
+
+    /**
+     * Identifies scans that will produce identical results.
+     */
+    private static final class Key {
+        private final String basedir;
+        private final String[] includes;
+        private final String[] excludes;
+        private final FileSelector[] selectors;
+        private final boolean caseSensitive;
+        private final boolean followSymlinks;
+        private final int maxLevelsOfSymlinks;
+        private final boolean errorOnMissingDir;
+        private final int hashCode;
+
+        private Key(DirectoryScanner ds) {
+            basedir = ds.basedir.getAbsolutePath();
+            includes = sortedCopy(ds.includes);
+            excludes = sortedCopy(ds.excludes);
+            selectors = ds.selectors == null || ds.selectors.length == 0
+                ? null : ds.selectors.clone();
+            caseSensitive = ds.isCaseSensitive;
+            followSymlinks = ds.isFollowSymlinks();
+            maxLevelsOfSymlinks = ds.getMaxLevelsOfSymlinks();
+            errorOnMissingDir = ds.errorOnMissingDir;
+            hashCode = Objects.hash(basedir, Arrays.hashCode(includes),
+                                    Arrays.hashCode(excludes), caseSensitive,
+                                    followSymlinks, maxLevelsOfSymlinks);
+        }
+
+        private static String[] sortedCopy(String[] patterns) {
+            if (patterns == null) {
+                return null;
+            }
+            String[] copy = new LinkedHashSet<>(Arrays.asList(patterns))
+                .toArray(new String[0]);
+            Arrays.sort(copy);
+            return copy;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            if (!(basedir.equals(other.basedir)
+                  && Arrays.equals(includes, other.includes)
+                  && Arrays.equals(excludes, other.excludes)
+                  && caseSensitive == other.caseSensitive
+                  && followSymlinks == other.followSymlinks
+                  && maxLevelsOfSymlinks == other.maxLevelsOfSymlinks
+                  && errorOnMissingDir == other.errorOnMissingDir)) {
+                return false;
+            }
+            if (selectors == null || other.selectors == null) {
+                return selectors == other.selectors;
+            }
+            if (selectors.length != other.selectors.length) {
+                return false;
+            }
+            // selectors are stateful, only the very same instances
+            // are known to select the same files
+            for (int i = 0; i < selectors.length; i++) {
+                if (selectors[i] != other.selectors[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A scanned scanner and the timestamps of all files its result
+     * depends upon.
+     */
+    private static final class Entry {
+        private final DirectoryScanner scanner;
+        private final File[] files;
+        private final long[] timestamps;
+        private final long scannedAt;
+
+        private Entry(DirectoryScanner ds, long scannedAt) {
+            scanner = ds;
+            this.scannedAt = scannedAt;
+            final Set<File> watched = new LinkedHashSet<>();
+            synchronized (ds) {
+                final File base = ds.basedir;
+                watched.add(base);
+                for (String dir : ds.getScannedDirs()) {
+                    watched.add(new File(base, dir));
+                }
+                // patterns without wildcards are checked directly and
+                // never scan their parent directory
+                if (ds.includes != null) {
+                    for (String include : ds.includes) {
+                        String root = new TokenizedPattern(include)
+                            .rtrimWildcardTokens().toString();
+                        File f = new File(base, root);
+                        watched.add(f);
+                        if (f.getParentFile() != null) {
+                            watched.add(f.getParentFile());
+                        }
+                    }
+                }
+                if (ds.selectors != null && ds.selectors.length > 0) {
+                    for (List<String> names : Arrays.asList(ds.filesIncluded,
+                                                            ds.filesDeselected,
+                                                            ds.dirsIncluded,
+                                                            ds.dirsDeselected)) {
+                        for (String name : new ArrayList<>(names)) {
+                            watched.add(new File(base, name));
+                        }
+                    }
+                }
+            }
+            files = watched.toArray(new File[0]);
+            timestamps = new long[files.length];
+            for (int i = 0; i < files.length; i++) {
+                timestamps[i] = files[i].lastModified();
+            }
+        }
+
+        private boolean isValid(long granularity) {
+            for (int i = 0; i < files.length; i++) {
+                if (files[i].lastModified() != timestamps[i]
+                    // a later change may not modify the timestamp
+                    || scannedAt - timestamps[i] <= granularity) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -21,6 +21,8 @@ import java.io.FilterReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.Deque;
 
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.util.FileUtils;
@@ -28,11 +30,22 @@ import org.apache.tools.ant.util.FileUtils;
 /**
  * Base class for core filter readers.
  *
+ * <p>Unless the reader to filter supports {@link Reader#mark mark},
+ * it is read ahead in chunks, so filters reading one character at a
+ * time don't call into the wrapped reader for each of them.</p>
+ *
  */
 public abstract class BaseFilterReader extends FilterReader {
     /** Buffer size used when reading */
     private static final int BUFFER_SIZE = 8192;
 
+    /** Maximum number of unused buffers kept per thread. */
+    private static final int MAX_POOLED_BUFFERS = 16;
+
+    /** Read buffers that are not in use right now. */
+    private static final ThreadLocal<Deque<char[]>> BUFFER_POOL =
+        ThreadLocal.withInitial(ArrayDeque::new);
+
     /** Have the parameters passed been interpreted? */
     private boolean initialized = false;
 
@@ -60,7 +73,8 @@ public abstract class BaseFilterReader extends FilterReader {
      *
      */
     public BaseFilterReader(final Reader in) {
-        super(in);
+        // reading ahead would break mark and reset
+        super(in.markSupported() ? in : new ReadAheadReader(in));
     }
 
     /**
@@ -68,6 +82,10 @@ public abstract class BaseFilterReader extends FilterReader {
      * until some input is available, an I/O error occurs, or the end of the
      * stream is reached.
      *
+     * <p>This implementation invokes {@link #read()} for each
+     * character, filters may override it to transfer the characters
+     * they have at hand in bulk.</p>
+     *
      * @param      cbuf  Destination buffer to write characters to.
      *                   Must not be <code>null</code>.
      * @param      off   Offset at which to start storing characters.
@@ -78,8 +96,9 @@ public abstract class BaseFilterReader extends FilterReader {
      *
      * @exception  IOException  If an I/O error occurs
      */
-    public final int read(final char[] cbuf, final int off,
-                          final int len) throws IOException {
+    @Override
+    public int read(final char[] cbuf, final int off,
+                    final int len) throws IOException {
         for (int i = 0; i < len; i++) {
             final int ch = read();
             if (ch == -1) {
@@ -167,13 +186,16 @@ public abstract class BaseFilterReader extends FilterReader {
      *                        reading
      */
     protected final String readLine() throws IOException {
+        if (in instanceof ReadAheadReader) {
+            return ((ReadAheadReader) in).readLine();
+        }
         int ch = in.read();
 
         if (ch == -1) {
             return null;
         }
 
-        StringBuffer line = new StringBuffer();
+        StringBuilder line = new StringBuilder();
 
         while (ch != -1) {
             line.append((char) ch);
@@ -196,4 +218,131 @@ public abstract class BaseFilterReader extends FilterReader {
     protected final String readFully() throws IOException {
         return FileUtils.readFully(in, BUFFER_SIZE);
     }
+
+    /**
+     * Reads ahead from the wrapped reader in chunks so that filters
+     * reading a character at a time don't pay for a call into the
+     * (often synchronized) wrapped reader for each character.
+     *
+     * <p>The buffer is taken from a per-thread pool when the first
+     * character is read and returned to the pool once the end of the
+     * wrapped reader has been reached or this reader is closed.</p>
+     */
+    private static final class ReadAheadReader extends Reader {
+        private final Reader in;
+        private char[] buffer;
+        private int pos;
+        private int limit;
+        private boolean eof;
+
+        private ReadAheadReader(final Reader in) {
+            super(in);
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (pos == limit && !fill()) {
+                return -1;
+            }
+            return buffer[pos++];
+        }
+
+        @Override
+        public int read(final char[] cbuf, final int off, final int len)
+            throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (pos == limit && !fill()) {
+                return -1;
+            }
+            final int n = Math.min(len, limit - pos);
+            System.arraycopy(buffer, pos, cbuf, off, n);
+            pos += n;
+            return n;
+        }
+
+        /**
+         * Reads a line including its '\n' terminator.
+         * @return the line or null at the end of the stream
+         */
+        private String readLine() throws IOException {
+            if (pos == limit && !fill()) {
+                return null;
+            }
+            StringBuilder line = null;
+            while (true) {
+                int end = pos;
+                while (end < limit && buffer[end] != '\n') {
+                    end++;
+                }
+                final boolean complete = end < limit;
+                if (complete) {
+                    end++;
+                }
+                if (line == null && complete) {
+                    final String result = new String(buffer, pos, end - pos);
+                    pos = end;
+                    return result;
+                }
+                if (line == null) {
+                    line = new StringBuilder(end - pos + 80);
+                }
+                line.append(buffer, pos, end - pos);
+                pos = end;
+                if (complete || !fill()) {
+                    return line.toString();
+                }
+            }
+        }
+
+        @Override
+        public boolean ready() throws IOException {
+            return pos < limit || (!eof && in.ready());
+        }
+
+        @Override
+        public void close() throws IOException {
+            release();
+            in.close();
+        }
+
+        /**
+         * Refills the empty buffer.
+         * @return false if the end of the wrapped reader has been reached.
+         */
+        private boolean fill() throws IOException {
+            if (eof) {
+                return false;
+            }
+            if (buffer == null) {
+                final char[] pooled = BUFFER_POOL.get().poll();
+                buffer = pooled == null ? new char[BUFFER_SIZE] : pooled;
+            }
+            int n;
+            do {
+                n = in.read(buffer, 0, buffer.length);
+            } while (n == 0);
+            if (n < 0) {
+                eof = true;
+                release();
+                return false;
+            }
+            pos = 0;
+            limit = n;
+            return true;
+        }
+
+        private void release() {
+            if (buffer != null) {
+                final Deque<char[]> pool = BUFFER_POOL.get();
+                if (pool.size() < MAX_POOLED_BUFFERS) {
+                    pool.push(buffer);
+                }
+                buffer = null;
+                pos = limit = 0;
+            }
+        }
+    }
 }
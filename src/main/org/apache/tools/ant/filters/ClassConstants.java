@@ -50,6 +50,9 @@ public final class ClassConstants
     /** Data that must be read from, if not null. */
     private String queuedData = null;
 
+    /** The position of the next character to return in queuedData. */
+    private int queuePos = 0;
+
     /** Helper Class to be invoked via reflection. */
     private static final String JAVA_CLASS_HELPER =
         "org.apache.tools.ant.filters.util.JavaClassHelper";
@@ -128,10 +131,10 @@ public final class ClassConstants
                 }
             }
         } else {
-            ch = queuedData.charAt(0);
-            queuedData = queuedData.substring(1);
-            if (queuedData.isEmpty()) {
+            ch = queuedData.charAt(queuePos++);
+            if (queuePos == queuedData.length()) {
                 queuedData = null;
+                queuePos = 0;
             }
         }
         return ch;
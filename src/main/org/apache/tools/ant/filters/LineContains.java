@@ -78,6 +78,9 @@ public final class LineContains
      */
     private String line = null;
 
+    /** The position of the next character to return in line. */
+    private int linePos = 0;
+
     private boolean negate = false;
 
     private boolean matchAny = false;
@@ -120,11 +123,10 @@ public final class LineContains
         int ch = -1;
 
         if (line != null) {
-            ch = line.charAt(0);
-            if (line.length() == 1) {
+            ch = line.charAt(linePos++);
+            if (linePos == line.length()) {
                 line = null;
-            } else {
-                line = line.substring(1);
+                linePos = 0;
             }
         } else {
             final int containsSize = contains.size();
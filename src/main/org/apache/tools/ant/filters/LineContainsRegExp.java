@@ -67,6 +67,9 @@ public final class LineContainsRegExp
      */
     private String line = null;
 
+    /** The position of the next character to return in line. */
+    private int linePos = 0;
+
     private boolean negate = false;
     private int regexpOptions = Regexp.MATCH_DEFAULT;
 
@@ -109,11 +112,10 @@ public final class LineContainsRegExp
         int ch = -1;
 
         if (line != null) {
-            ch = line.charAt(0);
-            if (line.length() == 1) {
+            ch = line.charAt(linePos++);
+            if (linePos == line.length()) {
                 line = null;
-            } else {
-                line = line.substring(1);
+                linePos = 0;
             }
         } else {
             for (line = readLine(); line != null; line = readLine()) {
@@ -47,6 +47,9 @@ public final class PrefixLines
     /** Data that must be read from, if not null. */
     private String queuedData = null;
 
+    /** The position of the next character to return in queuedData. */
+    private int queuePos = 0;
+
     /**
      * Constructor for "dummy" instances.
      *
@@ -91,10 +94,10 @@ public final class PrefixLines
         }
 
         if (queuedData != null) {
-            ch = queuedData.charAt(0);
-            queuedData = queuedData.substring(1);
-            if (queuedData.isEmpty()) {
+            ch = queuedData.charAt(queuePos++);
+            if (queuePos == queuedData.length()) {
                 queuedData = null;
+                queuePos = 0;
             }
         } else {
             queuedData = readLine();
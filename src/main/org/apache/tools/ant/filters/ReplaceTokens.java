@@ -21,17 +21,18 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.util.ArrayList;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.SortedMap;
-import java.util.TreeMap;
 
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.types.Parameter;
 import org.apache.tools.ant.types.Resource;
 import org.apache.tools.ant.types.resources.FileResource;
 import org.apache.tools.ant.util.FileUtils;
+import org.apache.tools.ant.util.MultiStringMatcher;
 
 /**
  * Replaces tokens in the original input with user-supplied values.
@@ -60,14 +61,32 @@ public final class ReplaceTokens
     /** Default "end token" character. */
     private static final String DEFAULT_END_TOKEN = "@";
 
+    /** Number of characters read from the original stream at once. */
+    private static final int READ_CHUNK_SIZE = 1024;
+
     /** Hashtable to holds the original replacee-replacer pairs (String to String). */
     private Hashtable<String, String> hash = new Hashtable<>();
 
-    /** This map holds the "resolved" tokens (begin- and end-tokens are added to make searching simpler) */
-    private final TreeMap<String, String> resolvedTokens = new TreeMap<>();
-    private boolean resolvedTokensBuilt = false;
-    /** Used for comparisons and lookup into the resolvedTokens map. */
-    private String readBuffer = "";
+    /**
+     * The "resolved" tokens (begin- and end-tokens are added) and
+     * their values, null if they have to be built (again).
+     */
+    private ResolvedTokens resolvedTokens;
+
+    /** Input that has been read but not been returned, yet. */
+    private final StringBuilder readBuffer = new StringBuilder();
+
+    /** Position of the next character to return from readBuffer. */
+    private int readPos = 0;
+
+    /** Characters before this position in readBuffer are not part of a token. */
+    private int readLimit = 0;
+
+    /** Token found at readLimit, if any. */
+    private MultiStringMatcher.Match nextToken;
+
+    /** Whether the end of the original stream has been reached. */
+    private boolean eof = false;
 
     /** replacement test from a token */
     private String replaceData = null;
@@ -115,66 +134,116 @@ public final class ReplaceTokens
             setInitialized(true);
         }
 
-        if (!resolvedTokensBuilt) {
-            // build the resolved tokens tree map.
-            for (Map.Entry<String, String> entry : hash.entrySet()) {
-                resolvedTokens.put(beginToken + entry.getKey() + endToken, entry.getValue());
-            }
-            resolvedTokensBuilt = true;
+        final ResolvedTokens tokens = getResolvedTokens();
+        if (tokens.matcher == null) {
+            return in.read();
         }
 
-        // are we currently serving replace data?
-        if (replaceData != null) {
-            if (replaceIndex < replaceData.length()) {
-                return replaceData.charAt(replaceIndex++);
-            } else {
+        for (;;) {
+            // are we currently serving replace data?
+            if (replaceData != null) {
+                if (replaceIndex < replaceData.length()) {
+                    return replaceData.charAt(replaceIndex++);
+                }
                 replaceData = null;
             }
-        }
-
-        // is the read buffer empty?
-        if (readBuffer.isEmpty()) {
-            int next = in.read();
-            if (next == -1) {
-                return next; // end of stream. all buffers empty.
+            if (readPos < readLimit) {
+                return readBuffer.charAt(readPos++);
             }
-            readBuffer += (char) next;
-        }
-
-        for (;;) {
-            // get the closest tokens
-            SortedMap<String, String> possibleTokens = resolvedTokens.tailMap(readBuffer);
-            if (possibleTokens.isEmpty() || !possibleTokens.firstKey().startsWith(readBuffer)) { // if there is none, then deliver the first char from the buffer.
-                return getFirstCharacterFromReadBuffer();
-            } else if (readBuffer.equals(possibleTokens.firstKey())) { // there exists a nearest token - is it an exact match?
+            if (nextToken != null) {
                 // we have found a token. prepare the replaceData buffer.
-                replaceData = resolvedTokens.get(readBuffer);
+                replaceData = tokens.values[nextToken.getPattern()];
                 replaceIndex = 0;
-                readBuffer = ""; // destroy the readBuffer - it's contents are being replaced entirely.
-                // get the first character via recursive call.
-                return read();
-            } else { // nearest token is not matching exactly - read one character more.
-                int next = in.read();
-                if (next != -1) {
-                    readBuffer += (char) next;
-                } else {
-                    return getFirstCharacterFromReadBuffer(); // end of stream. deliver remaining characters from buffer.
+                readPos = nextToken.getEnd();
+                readLimit = readPos;
+                nextToken = null;
+                continue;
+            }
+            final MultiStringMatcher.Match m =
+                tokens.matcher.find(readBuffer, readPos, readBuffer.length(), eof);
+            readLimit = m.getStart();
+            if (m.isMatch()) {
+                nextToken = m;
+            } else if (readLimit == readPos) {
+                if (eof) {
+                    return -1; // end of stream. all buffers empty.
                 }
+                fillReadBuffer();
             }
         }
     }
 
     /**
-     * @return the first character from the read buffer or -1 if read buffer is empty.
+     * Reads characters into a portion of an array, copying text
+     * without tokens and replacement values in bulk.
+     *
+     * @param cbuf destination buffer
+     * @param off offset at which to start storing characters
+     * @param len maximum number of characters to read
+     * @return the number of characters read, or -1 if the end of the
+     * stream has been reached
+     * @exception IOException if the underlying stream throws an
+     * IOException during reading
+     * @since Ant 1.10.6
      */
-    private int getFirstCharacterFromReadBuffer() {
-        if (readBuffer.isEmpty()) {
-            return -1;
+    @Override
+    public int read(final char[] cbuf, final int off, final int len) throws IOException {
+        if (!getInitialized()) {
+            initialize();
+            setInitialized(true);
         }
+        if (getResolvedTokens().matcher == null) {
+            return in.read(cbuf, off, len);
+        }
+        int n = 0;
+        while (n < len) {
+            if (replaceData != null && replaceIndex < replaceData.length()) {
+                final int count = Math.min(len - n, replaceData.length() - replaceIndex);
+                replaceData.getChars(replaceIndex, replaceIndex + count, cbuf, off + n);
+                replaceIndex += count;
+                n += count;
+            } else if (replaceData == null && readPos < readLimit) {
+                final int count = Math.min(len - n, readLimit - readPos);
+                readBuffer.getChars(readPos, readPos + count, cbuf, off + n);
+                readPos += count;
+                n += count;
+            } else {
+                // looks for the next token
+                final int ch = read();
+                if (ch == -1) {
+                    return n == 0 ? -1 : n;
+                }
+                cbuf[off + n++] = (char) ch;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Reads the next chunk of the original stream, discarding
+     * everything that has already been returned.
+     */
+    private void fillReadBuffer() throws IOException {
+        readBuffer.delete(0, readPos);
+        readLimit -= readPos;
+        readPos = 0;
+        final char[] chunk = new char[READ_CHUNK_SIZE];
+        final int n = in.read(chunk, 0, chunk.length);
+        if (n < 0) {
+            eof = true;
+        } else {
+            readBuffer.append(chunk, 0, n);
+        }
+    }
 
-        int chr = readBuffer.charAt(0);
-        readBuffer = readBuffer.substring(1);
-        return chr;
+    /**
+     * Returns the resolved tokens, building them if necessary.
+     */
+    private synchronized ResolvedTokens getResolvedTokens() {
+        if (resolvedTokens == null) {
+            resolvedTokens = new ResolvedTokens(hash, beginToken, endToken);
+        }
+        return resolvedTokens;
     }
 
     /**
@@ -182,8 +251,9 @@ public final class ReplaceTokens
      *
      * @param beginToken the character used to denote the beginning of a token
      */
-    public void setBeginToken(final String beginToken) {
+    public synchronized void setBeginToken(final String beginToken) {
         this.beginToken = beginToken;
+        resolvedTokens = null;
     }
 
     /**
@@ -200,8 +270,9 @@ public final class ReplaceTokens
      *
      * @param endToken the character used to denote the end of a token
      */
-    public void setEndToken(final String endToken) {
+    public synchronized void setEndToken(final String endToken) {
         this.endToken = endToken;
+        resolvedTokens = null;
     }
 
     /**
@@ -230,9 +301,9 @@ public final class ReplaceTokens
      * @param token The token to add to the map of replacements.
      *              Must not be <code>null</code>.
      */
-    public void addConfiguredToken(final Token token) {
+    public synchronized void addConfiguredToken(final Token token) {
         hash.put(token.getKey(), token.getValue());
-        resolvedTokensBuilt = false; // invalidate to build them again if they have been built already.
+        resolvedTokens = null; // invalidate to build them again if they have been built already.
     }
 
     /**
@@ -265,8 +336,9 @@ public final class ReplaceTokens
      * @param hash A map (String->String) of token keys to replacement
      * values. Must not be <code>null</code>.
      */
-    private void setTokens(final Hashtable<String, String> hash) {
+    private synchronized void setTokens(final Hashtable<String, String> hash) {
         this.hash = hash;
+        resolvedTokens = null;
     }
 
     /**
@@ -294,6 +366,8 @@ public final class ReplaceTokens
         newFilter.setBeginToken(getBeginToken());
         newFilter.setEndToken(getEndToken());
         newFilter.setTokens(getTokens());
+        // share the automaton between all readers created from this one
+        newFilter.resolvedTokens = getResolvedTokens();
         newFilter.setInitialized(true);
         return newFilter;
     }
@@ -327,9 +401,37 @@ public final class ReplaceTokens
         }
     }
 
-    private void makeTokensFromProperties(Resource r) {
+    private synchronized void makeTokensFromProperties(Resource r) {
         Properties props = getProperties(r);
         props.stringPropertyNames().forEach(key -> hash.put(key, props.getProperty(key)));
+        resolvedTokens = null;
+    }
+
+    /**
+     * The tokens including begin- and end-tokens compiled into a
+     * matcher that finds all of them in a single pass.
+     */
+    private static final class ResolvedTokens {
+        /** null if there are no tokens */
+        private final MultiStringMatcher matcher;
+        private final String[] values;
+
+        private ResolvedTokens(final Map<String, String> hash,
+                               final String beginToken, final String endToken) {
+            final List<String> keys = new ArrayList<>(hash.size());
+            final List<String> vals = new ArrayList<>(hash.size());
+            for (Map.Entry<String, String> entry : hash.entrySet()) {
+                final String key = beginToken + entry.getKey() + endToken;
+                if (!key.isEmpty()) {
+                    keys.add(key);
+                    vals.add(entry.getValue());
+                }
+            }
+            // the shortest token wins, just like the original lookup
+            // which stopped at the first complete token
+            matcher = keys.isEmpty() ? null : new MultiStringMatcher(keys, false);
+            values = vals.toArray(new String[0]);
+        }
     }
 
     /**
@@ -157,6 +157,9 @@ public final class SortFilter extends BaseParamFilterReader
      */
     private String line = null;
 
+    /** The position of the next character to return in line. */
+    private int linePos = 0;
+
     private Iterator<String> iterator = null;
 
     /**
@@ -204,11 +207,10 @@ public final class SortFilter extends BaseParamFilterReader
              * We are on the state: "reading the current line", lines are
              * already sorted
              */
-            ch = line.charAt(0);
-            if (line.length() == 1) {
+            ch = line.charAt(linePos++);
+            if (linePos == line.length()) {
                 line = null;
-            } else {
-                line = line.substring(1);
+                linePos = 0;
             }
         } else {
             if (lines == null) {
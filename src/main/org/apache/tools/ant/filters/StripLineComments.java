@@ -60,6 +60,9 @@ public final class StripLineComments
     /** The line that has been read ahead. */
     private String line = null;
 
+    /** The position of the next character to return in line. */
+    private int linePos = 0;
+
     /**
      * Constructor for "dummy" instances.
      *
@@ -99,11 +102,10 @@ public final class StripLineComments
         int ch = -1;
 
         if (line != null) {
-            ch = line.charAt(0);
-            if (line.length() == 1) {
+            ch = line.charAt(linePos++);
+            if (linePos == line.length()) {
                 line = null;
-            } else {
-                line = line.substring(1);
+                linePos = 0;
             }
         } else {
             line = readLine();
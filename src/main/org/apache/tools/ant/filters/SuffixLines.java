@@ -48,6 +48,9 @@ public final class SuffixLines
     /** Data that must be read from, if not null. */
     private String queuedData = null;
 
+    /** The position of the next character to return in queuedData. */
+    private int queuePos = 0;
+
     /**
      * Constructor for "dummy" instances.
      *
@@ -111,10 +114,10 @@ public final class SuffixLines
                 return read();
             }
         } else {
-            ch = queuedData.charAt(0);
-            queuedData = queuedData.substring(1);
-            if (queuedData.isEmpty()) {
+            ch = queuedData.charAt(queuePos++);
+            if (queuePos == queuedData.length()) {
                 queuedData = null;
+                queuePos = 0;
             }
         }
         return ch;
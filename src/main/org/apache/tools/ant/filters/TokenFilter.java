@@ -132,6 +132,43 @@ public class TokenFilter extends BaseFilterReader
         return ch;
     }
 
+    /**
+     * Reads characters into a portion of an array, copying the
+     * filtered tokens in bulk.
+     *
+     * @param cbuf destination buffer
+     * @param off offset at which to start storing characters
+     * @param len maximum number of characters to read
+     * @return the number of characters read, or -1 if the end of the
+     * stream has been reached
+     * @exception IOException if the underlying stream throws an
+     * IOException during reading
+     * @since Ant 1.10.6
+     */
+    @Override
+    public int read(final char[] cbuf, final int off, final int len) throws IOException {
+        int n = 0;
+        while (n < len) {
+            if (line == null || line.isEmpty()) {
+                // reads the next token
+                final int ch = read();
+                if (ch == -1) {
+                    return n == 0 ? -1 : n;
+                }
+                cbuf[off + n++] = (char) ch;
+                continue;
+            }
+            final int count = Math.min(len - n, line.length() - linePos);
+            line.getChars(linePos, linePos + count, cbuf, off + n);
+            n += count;
+            linePos += count;
+            if (linePos == line.length()) {
+                line = null;
+            }
+        }
+        return n;
+    }
+
     /**
      * Creates a new TokenFilter using the passed in
      * Reader for instantiation.
@@ -0,0 +1,278 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.tools.ant.helper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Executor;
+import org.apache.tools.ant.MagicNames;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Target;
+
+/**
+ * Target executor implementation that runs targets without a
+ * dependency relationship concurrently. Like the
+ * {@link SingleCheckExecutor} it runs the merged set of depended
+ * targets for all targets called exactly once, but instead of walking
+ * the topologically sorted list sequentially it starts every target
+ * as soon as all of its dependencies have succeeded, using a pool of
+ * at most <code>ant.executor.threads</code> worker threads (defaults
+ * to the number of available processors).
+ *
+ * <p>If/unless conditions are evaluated by each target when it is
+ * started. Tasks register themselves with the worker thread they run
+ * on so output written to <code>System.out</code> and
+ * <code>System.err</code> is still attributed to the task producing
+ * it. If an error occurs, behavior is determined by the Project's
+ * "keep-going" mode; without it no further targets are started and
+ * the first failure is rethrown once all running targets are
+ * finished.</p>
+ *
+ * <p>Build files that rely on the order of the <code>depends</code>
+ * attribute of a target rather than on explicit dependencies may
+ * behave differently with this executor.</p>
+ *
+ * @since Ant 1.10.6
+ */
+public class ParallelExecutor implements Executor {
+
+    private static final SingleCheckExecutor SUB_EXECUTOR = new SingleCheckExecutor();
+
+    /** {@inheritDoc}. */
+    public void executeTargets(Project project, String[] targetNames)
+        throws BuildException {
+        Vector<Target> sortedTargets =
+            project.topoSort(targetNames, project.getTargets(), false);
+        int threads = getThreadCount(project);
+        if (threads <= 1 || sortedTargets.size() <= 1) {
+            project.executeSortedTargets(sortedTargets);
+        } else {
+            new Scheduler(project, sortedTargets, threads).run();
+        }
+    }
+
+    /** {@inheritDoc}. */
+    public Executor getSubProjectExecutor() {
+        return SUB_EXECUTOR;
+    }
+
+    /**
+     * Determine the number of worker threads to use.
+     * @param project the Ant Project.
+     * @return the value of the <code>ant.executor.threads</code>
+     * property or the number of available processors if it is not set.
+     */
+    private static int getThreadCount(Project project) {
+        String threads = project.getProperty(MagicNames.ANT_EXECUTOR_THREADS);
+        if (threads == null) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        try {
+            return Integer.parseInt(threads.trim());
+        } catch (NumberFormatException ex) {
+            throw new BuildException("Invalid value '" + threads
+                + "' for " + MagicNames.ANT_EXECUTOR_THREADS, ex);
+        }
+    }
+
+    /**
+     * Runs a topologically sorted list of targets on a bounded pool.
+     * Whenever several targets can be started the one that comes
+     * first in the sorted list wins.
+     */
+    private static class Scheduler {
+        private final Project project;
+        private final Vector<Target> sortedTargets;
+        private final int threads;
+        private final Map<String, Integer> positions = new HashMap<>();
+        private final Map<String, Set<String>> pendingDependencies = new HashMap<>();
+        private final Map<String, List<Target>> dependents = new HashMap<>();
+        private final Set<String> succeededTargets = new HashSet<>();
+        private final PriorityQueue<Target> readyTargets;
+        private BuildException buildException = null;
+        private RuntimeException runtimeException = null;
+
+        Scheduler(Project project, Vector<Target> sortedTargets, int threads) {
+            this.project = project;
+            this.sortedTargets = sortedTargets;
+            this.threads = threads;
+            for (Target target : sortedTargets) {
+                positions.put(target.getName(), positions.size());
+            }
+            readyTargets = new PriorityQueue<>(sortedTargets.size(),
+                (t1, t2) -> positions.get(t1.getName()) - positions.get(t2.getName()));
+            for (Target target : sortedTargets) {
+                Set<String> deps = new HashSet<>();
+                for (String dependencyName : Collections.list(target.getDependencies())) {
+                    deps.add(dependencyName);
+                    dependents.computeIfAbsent(dependencyName, k -> new ArrayList<>())
+                        .add(target);
+                }
+                pendingDependencies.put(target.getName(), deps);
+                if (deps.isEmpty()) {
+                    readyTargets.add(target);
+                }
+            }
+        }
+
+        void run() throws BuildException {
+            ExecutorService pool =
+                Executors.newFixedThreadPool(threads, new WorkerFactory());
+            CompletionService<Target> completion = new ExecutorCompletionService<>(pool);
+            Map<Future<Target>, Target> running = new HashMap<>();
+            try {
+                while (true) {
+                    while (running.size() < threads && !readyTargets.isEmpty()
+                           && !isStopped()) {
+                        final Target target = readyTargets.poll();
+                        running.put(completion.submit(() -> {
+                            target.performTasks();
+                            return target;
+                        }), target);
+                    }
+                    if (running.isEmpty()) {
+                        break;
+                    }
+                    Future<Target> result = completion.take();
+                    completed(running.remove(result), result);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new BuildException("Interrupted while executing targets", ex);
+            } finally {
+                pool.shutdownNow();
+            }
+            if (runtimeException != null) {
+                throw runtimeException;
+            }
+            if (buildException != null) {
+                if (project.isKeepGoingMode()) {
+                    logSkippedTargets();
+                }
+                throw buildException;
+            }
+        }
+
+        private boolean isStopped() {
+            return !project.isKeepGoingMode()
+                && (buildException != null || runtimeException != null);
+        }
+
+        private void completed(Target target, Future<Target> result)
+            throws InterruptedException {
+            try {
+                result.get();
+            } catch (ExecutionException ex) {
+                failed(target, ex.getCause());
+                return;
+            }
+            succeededTargets.add(target.getName());
+            for (Target dependent : dependents.getOrDefault(target.getName(),
+                                                            Collections.emptyList())) {
+                Set<String> deps = pendingDependencies.get(dependent.getName());
+                deps.remove(target.getName());
+                if (deps.isEmpty()) {
+                    readyTargets.add(dependent);
+                }
+            }
+        }
+
+        private void failed(Target target, Throwable thrownException) {
+            if (!project.isKeepGoingMode()) {
+                if (buildException == null && runtimeException == null) {
+                    if (thrownException instanceof RuntimeException) {
+                        runtimeException = (RuntimeException) thrownException;
+                    } else {
+                        buildException = new BuildException(thrownException);
+                    }
+                }
+                return;
+            }
+            project.log(target,
+                "Target '" + target.getName()
+                + "' failed with message '"
+                + thrownException.getMessage() + "'.", Project.MSG_ERR);
+            if (thrownException instanceof BuildException) {
+                if (buildException == null) {
+                    buildException = (BuildException) thrownException;
+                }
+            } else {
+                thrownException.printStackTrace(System.err); //NOSONAR
+                if (buildException == null) {
+                    buildException = new BuildException(thrownException);
+                }
+            }
+        }
+
+        /**
+         * Logs the same message {@link Project#executeSortedTargets}
+         * would for every target that could not be started because
+         * one of its dependencies failed.
+         */
+        private void logSkippedTargets() {
+            for (Target target : sortedTargets) {
+                if (succeededTargets.contains(target.getName())) {
+                    continue;
+                }
+                for (String dependencyName : Collections.list(target.getDependencies())) {
+                    if (!succeededTargets.contains(dependencyName)) {
+                        project.log(target,
+                            "Cannot execute '" + target.getName() + "' - '"
+                            + dependencyName + "' failed or was not executed.",
+                            Project.MSG_ERR);
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates daemon worker threads with recognizable names.
+     */
+    private static class WorkerFactory implements ThreadFactory {
+        private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+        private final int poolNumber = POOL_NUMBER.incrementAndGet();
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "ant-executor-" + poolNumber + "-"
+                                  + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
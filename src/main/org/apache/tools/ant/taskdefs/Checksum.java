@@ -17,28 +17,41 @@
  */
 package org.apache.tools.ant.taskdefs;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
-import java.security.DigestInputStream;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import java.text.MessageFormat;
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.taskdefs.condition.Condition;
+import org.apache.tools.ant.taskdefs.condition.Os;
 import org.apache.tools.ant.types.EnumeratedAttribute;
 import org.apache.tools.ant.types.FileSet;
 import org.apache.tools.ant.types.Resource;
@@ -62,6 +75,12 @@ public class Checksum extends MatchingTask implements Condition {
     private static final int WORD = 16;
     private static final int BUFFER_SIZE = 8 * 1024;
     private static final int BYTE_MASK = 0xFF;
+    /** files at least this big are memory mapped */
+    private static final long MAP_THRESHOLD = 1024 * 1024;
+    /** size of the regions mapped at once */
+    private static final long MAX_MAPPING = 64 * 1024 * 1024;
+    /** live mappings keep files from being deleted on Windows */
+    private static final boolean MAP_FILES = !Os.isFamily("windows");
 
     private static class FileUnion extends Restrict {
         private Union u;
@@ -156,6 +175,18 @@ public class Checksum extends MatchingTask implements Condition {
      * Formatter for the checksum file.
      */
     private MessageFormat format = FormatElement.getDefault().getFormat();
+    /**
+     * Number of threads calculating checksums.
+     */
+    private int threads = 1;
+    /**
+     * File holding the digests calculated by earlier runs.
+     */
+    private File cacheFile;
+    /**
+     * Digests calculated by earlier runs, null if not used.
+     */
+    private DigestCache cache;
 
     /**
      * Sets the file for which the checksum is to be calculated.
@@ -248,6 +279,30 @@ public class Checksum extends MatchingTask implements Condition {
         this.readBufferSize = size;
     }
 
+    /**
+     * Number of threads used to calculate checksums of different files.
+     * @param threads the number of threads, defaults to 1.
+     * @since Ant 1.10.6
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * File to cache the checksums of files in.
+     *
+     * <p>If set, the checksum of a file whose size and modification
+     * time are the same as when its checksum has been calculated for
+     * the cache is taken from the cache rather than calculated
+     * again.</p>
+     *
+     * @param cacheFile the file, it is rewritten after each run.
+     * @since Ant 1.10.6
+     */
+    public void setCacheFile(File cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
     /**
      * Select the in/output pattern via a well know format name.
      * @param e an <code>enumerated</code> value
@@ -366,23 +421,7 @@ public class Checksum extends MatchingTask implements Condition {
             throw new BuildException(
                 "ForceOverwrite cannot be used when conditions are being used.");
         }
-        messageDigest = null;
-        if (provider != null) {
-            try {
-                messageDigest = MessageDigest.getInstance(algorithm, provider);
-            } catch (NoSuchAlgorithmException | NoSuchProviderException noalgo) {
-                throw new BuildException(noalgo, getLocation());
-            }
-        } else {
-            try {
-                messageDigest = MessageDigest.getInstance(algorithm);
-            } catch (NoSuchAlgorithmException noalgo) {
-                throw new BuildException(noalgo, getLocation());
-            }
-        }
-        if (messageDigest == null) {
-            throw new BuildException("Unable to create Message Digest", getLocation());
-        }
+        messageDigest = createMessageDigest();
         if (fileext == null) {
             fileext = "." + algorithm;
         } else if (fileext.trim().isEmpty()) {
@@ -408,11 +447,45 @@ public class Checksum extends MatchingTask implements Condition {
                 }
                 addToIncludeFileMap(file);
             }
-            return generateChecksums();
+            if (cacheFile != null) {
+                cache = DigestCache.load(cacheFile, algorithm, provider);
+            }
+            boolean result = generateChecksums();
+            if (cache != null) {
+                try {
+                    cache.save(cacheFile);
+                } catch (IOException ex) {
+                    log("Failed to save checksum cache " + cacheFile + ": "
+                        + ex.getMessage(), Project.MSG_WARN);
+                }
+            }
+            return result;
         } finally {
             fileext = savedFileExt;
             includeFileMap.clear();
+            cache = null;
+        }
+    }
+
+    private MessageDigest createMessageDigest() {
+        MessageDigest md = null;
+        if (provider != null) {
+            try {
+                md = MessageDigest.getInstance(algorithm, provider);
+            } catch (NoSuchAlgorithmException | NoSuchProviderException noalgo) {
+                throw new BuildException(noalgo, getLocation());
+            }
+        } else {
+            try {
+                md = MessageDigest.getInstance(algorithm);
+            } catch (NoSuchAlgorithmException noalgo) {
+                throw new BuildException(noalgo, getLocation());
+            }
+        }
+        if (md == null) {
+            throw new BuildException("Unable to create Message Digest", getLocation());
         }
+        return md;
     }
 
     /**
@@ -469,26 +542,12 @@ public class Checksum extends MatchingTask implements Condition {
      */
     private boolean generateChecksums() throws BuildException {
         boolean checksumMatches = true;
-        InputStream fis = null;
         OutputStream fos = null;
-        byte[] buf = new byte[readBufferSize];
         try {
+            Map<File, byte[]> fileDigests = calculateDigests();
             for (Map.Entry<File, Object> e : includeFileMap.entrySet()) {
-                messageDigest.reset();
                 File src = e.getKey();
-                if (!isCondition) {
-                    log("Calculating " + algorithm + " checksum for " + src, Project.MSG_VERBOSE);
-                }
-                fis = Files.newInputStream(src.toPath());
-                DigestInputStream dis = new DigestInputStream(fis,
-                                                              messageDigest);
-                while (dis.read(buf, 0, readBufferSize) != -1) {
-                    // Empty statement
-                }
-                dis.close();
-                fis.close();
-                fis = null;
-                byte[] fileDigest = messageDigest.digest();
+                byte[] fileDigest = fileDigests.get(src);
                 if (totalproperty != null) {
                     allDigests.put(src, fileDigest);
                 }
@@ -567,12 +626,113 @@ public class Checksum extends MatchingTask implements Condition {
         } catch (Exception e) {
             throw new BuildException(e, getLocation());
         } finally {
-            FileUtils.close(fis);
             FileUtils.close(fos);
         }
         return checksumMatches;
     }
 
+    /**
+     * Calculates the digests of all files to process, using several
+     * threads if requested.
+     */
+    private Map<File, byte[]> calculateDigests() throws IOException {
+        List<File> files = new ArrayList<>(includeFileMap.keySet());
+        Map<File, byte[]> digests = new ConcurrentHashMap<>();
+        if (threads <= 1 || files.size() <= 1) {
+            byte[] buf = new byte[readBufferSize];
+            for (File src : files) {
+                digests.put(src, calculateDigest(src, messageDigest, buf));
+            }
+            return digests;
+        }
+        ThreadLocal<MessageDigest> localDigest = ThreadLocal.withInitial(this::createMessageDigest);
+        ThreadLocal<byte[]> localBuffer = ThreadLocal.withInitial(() -> new byte[readBufferSize]);
+        ExecutorService pool =
+            Executors.newFixedThreadPool(Math.min(threads, files.size()), r -> {
+                Thread t = new Thread(r, getTaskName() + "-worker");
+                t.setDaemon(true);
+                return t;
+            });
+        try {
+            List<Future<?>> futures = new ArrayList<>(files.size());
+            for (File src : files) {
+                futures.add(pool.submit(() -> digests.put(src,
+                    calculateDigest(src, localDigest.get(), localBuffer.get()))));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    }
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new BuildException(cause, getLocation());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new BuildException("interrupted while waiting for "
+                                             + getTaskName() + " to complete",
+                                             ex, getLocation());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return digests;
+    }
+
+    /**
+     * Calculates the digest of a single file or takes it from the
+     * cache.
+     */
+    private byte[] calculateDigest(File src, MessageDigest md, byte[] buf)
+        throws IOException {
+        long size = src.length();
+        long lastModified = src.lastModified();
+        long hashedAt = System.currentTimeMillis();
+        if (cache != null) {
+            byte[] cached = cache.get(src, size, lastModified);
+            if (cached != null) {
+                if (!isCondition) {
+                    log("Using cached " + algorithm + " checksum for " + src,
+                        Project.MSG_VERBOSE);
+                }
+                return cached;
+            }
+        }
+        if (!isCondition) {
+            log("Calculating " + algorithm + " checksum for " + src, Project.MSG_VERBOSE);
+        }
+        md.reset();
+        try (FileChannel channel = FileChannel.open(src.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (MAP_FILES && length >= MAP_THRESHOLD) {
+                for (long pos = 0; pos < length; pos += MAX_MAPPING) {
+                    md.update(channel.map(FileChannel.MapMode.READ_ONLY, pos,
+                                          Math.min(MAX_MAPPING, length - pos)));
+                }
+            } else {
+                ByteBuffer buffer = ByteBuffer.wrap(buf);
+                while (channel.read(buffer) != -1) {
+                    buffer.flip();
+                    md.update(buffer);
+                    buffer.clear();
+                }
+            }
+        }
+        byte[] digest = md.digest();
+        if (cache != null) {
+            cache.put(src, size, lastModified, hashedAt, digest);
+        }
+        return digest;
+    }
+
     private String createDigestString(byte[] fileDigest) {
         StringBuilder checksumSb = new StringBuilder();
         for (byte digestByte : fileDigest) {
@@ -644,6 +804,128 @@ public class Checksum extends MatchingTask implements Condition {
         return path;
     }
 
+    /**
+     * Digests of files keyed by their absolute path, valid as long as
+     * the files' size and modification time don't change.
+     *
+     * <p>Digests of files modified within the timestamp granularity
+     * of the file system before they have been hashed are neither
+     * stored nor trusted as the file may have been changed again
+     * without changing its modification time.</p>
+     *
+     * @since Ant 1.10.6
+     */
+    private static final class DigestCache {
+        private static final int MAGIC = 0x414e4353; // "ANCS"
+        private static final int VERSION = 2;
+
+        private final String algorithm;
+        private final String provider;
+        private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+        private final long granularity =
+            FileUtils.getFileUtils().getFileTimestampGranularity();
+
+        private static final class Entry {
+            private final long size;
+            private final long lastModified;
+            private final long hashedAt;
+            private final byte[] digest;
+
+            private Entry(long size, long lastModified, long hashedAt, byte[] digest) {
+                this.size = size;
+                this.lastModified = lastModified;
+                this.hashedAt = hashedAt;
+                this.digest = digest;
+            }
+        }
+
+        private DigestCache(String algorithm, String provider) {
+            this.algorithm = algorithm;
+            this.provider = provider == null ? "" : provider;
+        }
+
+        private byte[] get(File f, long size, long lastModified) {
+            Entry e = entries.get(f.getAbsolutePath());
+            return e != null && e.size == size && e.lastModified == lastModified
+                && isSettled(lastModified, e.hashedAt) ? e.digest : null;
+        }
+
+        private void put(File f, long size, long lastModified, long hashedAt,
+                         byte[] digest) {
+            if (isSettled(lastModified, hashedAt)) {
+                entries.put(f.getAbsolutePath(),
+                            new Entry(size, lastModified, hashedAt, digest));
+            } else {
+                entries.remove(f.getAbsolutePath());
+            }
+        }
+
+        /**
+         * Whether a later change of a file hashed at the given time
+         * is guaranteed to modify its timestamp.
+         */
+        private boolean isSettled(long lastModified, long hashedAt) {
+            return hashedAt - lastModified > granularity;
+        }
+
+        /**
+         * Loads the cache, starting with an empty one if the file
+         * doesn't exist, can't be read or holds digests of a different
+         * algorithm.
+         */
+        private static DigestCache load(File cacheFile, String algorithm, String provider) {
+            DigestCache cache = new DigestCache(algorithm, provider);
+            if (!cacheFile.isFile()) {
+                return cache;
+            }
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                     Files.newInputStream(cacheFile.toPath())))) {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION
+                    || !in.readUTF().equals(cache.algorithm)
+                    || !in.readUTF().equals(cache.provider)) {
+                    return cache;
+                }
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    String path = in.readUTF();
+                    long size = in.readLong();
+                    long lastModified = in.readLong();
+                    long hashedAt = in.readLong();
+                    byte[] digest = new byte[in.readUnsignedShort()];
+                    in.readFully(digest);
+                    cache.entries.put(path, new Entry(size, lastModified, hashedAt, digest));
+                }
+            } catch (IOException ex) {
+                // corrupt or outdated, calculate all digests again
+                cache.entries.clear();
+            }
+            return cache;
+        }
+
+        private void save(File cacheFile) throws IOException {
+            File parent = cacheFile.getParentFile();
+            if (parent != null) {
+                parent.mkdirs();
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                     Files.newOutputStream(cacheFile.toPath())))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(algorithm);
+                out.writeUTF(provider);
+                out.writeInt(entries.size());
+                for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                    out.writeUTF(e.getKey());
+                    out.writeLong(e.getValue().size);
+                    out.writeLong(e.getValue().lastModified);
+                    out.writeLong(e.getValue().hashedAt);
+                    out.writeShort(e.getValue().digest.length);
+                    out.write(e.getValue().digest);
+                }
+            }
+        }
+    }
+
     /**
      * Helper class for the format attribute.
      *
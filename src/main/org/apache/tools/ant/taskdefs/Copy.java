@@ -22,18 +22,26 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.DirectoryScanner;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.Task;
+import org.apache.tools.ant.types.EnumeratedAttribute;
 import org.apache.tools.ant.types.FileSet;
 import org.apache.tools.ant.types.FilterChain;
 import org.apache.tools.ant.types.FilterSet;
@@ -105,6 +113,8 @@ public class Copy extends Task {
     private long granularity = 0;
     private boolean force = false;
     private boolean quiet = false;
+    private int threads = 1;
+    private ResourceUtils.CopyStrategy strategy = ResourceUtils.CopyStrategy.COPY;
 
     // used to store the single non-file resource to copy when the
     // tofile attribute has been used
@@ -290,6 +300,56 @@ public class Copy extends Task {
         this.includeEmpty = includeEmpty;
     }
 
+    /**
+     * Number of threads used to copy files.
+     *
+     * <p>If bigger than 1 the files are copied in parallel. Files are
+     * still copied in the order they have been found, but copies may
+     * complete in a different order.</p>
+     *
+     * @param threads the number of threads, defaults to 1.
+     * @since Ant 1.10.6
+     */
+    public void setThreads(final int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Number of threads used to copy files.
+     *
+     * @return int
+     * @since Ant 1.10.6
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * How unfiltered files are duplicated.
+     *
+     * <p><code>clone</code> uses the platform's native copy which may
+     * share data blocks with the source on copy-on-write file
+     * systems, <code>hardlink</code> creates hard links to the source
+     * files. Both fall back to copying if the file system doesn't
+     * support them.</p>
+     *
+     * @param strategy the strategy, defaults to copy.
+     * @since Ant 1.10.6
+     */
+    public void setStrategy(final Strategy strategy) {
+        this.strategy = strategy.getStrategy();
+    }
+
+    /**
+     * How unfiltered files are duplicated.
+     *
+     * @return the strategy
+     * @since Ant 1.10.6
+     */
+    public ResourceUtils.CopyStrategy getStrategy() {
+        return strategy;
+    }
+
     /**
      * Set quiet mode. Used to hide messages when a file or directory to be
      * copied does not exist.
@@ -859,6 +919,8 @@ public class Copy extends Task {
                 + " file" + (fileCopyMap.size() == 1 ? "" : "s")
                 + " to " + destDir.getAbsolutePath());
 
+            final FilterSetCollection executionFilters = createExecutionFilters();
+            final Map<Runnable, String[]> copies = new LinkedHashMap<>();
             for (final Map.Entry<String, String[]> e : fileCopyMap.entrySet()) {
                 final String fromFile = e.getKey();
 
@@ -867,41 +929,11 @@ public class Copy extends Task {
                         log("Skipping self-copy of " + fromFile, verbosity);
                         continue;
                     }
-                    try {
-                        log("Copying " + fromFile + " to " + toFile, verbosity);
-
-                        final FilterSetCollection executionFilters =
-                            new FilterSetCollection();
-                        if (filtering) {
-                            executionFilters
-                                .addFilterSet(getProject().getGlobalFilterSet());
-                        }
-                        for (final FilterSet filterSet : filterSets) {
-                            executionFilters.addFilterSet(filterSet);
-                        }
-                        fileUtils.copyFile(new File(fromFile), new File(toFile),
-                                           executionFilters,
-                                           filterChains, forceOverwrite,
-                                           preserveLastModified,
-                                           /* append: */ false, inputEncoding,
-                                           outputEncoding, getProject(),
-                                           getForce());
-                    } catch (final IOException ioe) {
-                        String msg = "Failed to copy " + fromFile + " to " + toFile
-                            + " due to " + getDueTo(ioe);
-                        final File targetFile = new File(toFile);
-                        if (!(ioe instanceof
-                              ResourceUtils.ReadOnlyTargetFileException)
-                            && targetFile.exists() && !targetFile.delete()) {
-                            msg += " and I couldn't delete the corrupt " + toFile;
-                        }
-                        if (failonerror) {
-                            throw new BuildException(msg, ioe, getLocation());
-                        }
-                        log(msg, Project.MSG_ERR);
-                    }
+                    copies.put(() -> copyFile(fromFile, toFile, executionFilters),
+                               new String[] {toFile});
                 }
             }
+            runFileOperations(copies);
         }
         if (includeEmpty) {
             int createCount = 0;
@@ -942,50 +974,217 @@ public class Copy extends Task {
                 + " resource" + (map.size() == 1 ? "" : "s")
                 + " to " + destDir.getAbsolutePath());
 
+            final FilterSetCollection executionFilters = createExecutionFilters();
+            final Map<Runnable, String[]> copies = new LinkedHashMap<>();
             for (final Map.Entry<Resource, String[]> e : map.entrySet()) {
                 final Resource fromResource = e.getKey();
                 for (final String toFile : e.getValue()) {
-                    try {
-                        log("Copying " + fromResource + " to " + toFile,
-                            verbosity);
+                    copies.put(() -> copyResource(fromResource, toFile, executionFilters),
+                               new String[] {toFile});
+                }
+            }
+            runFileOperations(copies);
+        }
+    }
 
-                        final FilterSetCollection executionFilters = new FilterSetCollection();
-                        if (filtering) {
-                            executionFilters
-                                .addFilterSet(getProject().getGlobalFilterSet());
-                        }
-                        for (final FilterSet filterSet : filterSets) {
-                            executionFilters.addFilterSet(filterSet);
-                        }
-                        ResourceUtils.copyResource(fromResource,
-                                                   new FileResource(destDir,
-                                                                    toFile),
-                                                   executionFilters,
-                                                   filterChains,
-                                                   forceOverwrite,
-                                                   preserveLastModified,
-                                                   /* append: */ false,
-                                                   inputEncoding,
-                                                   outputEncoding,
-                                                   getProject(),
-                                                   getForce());
-                    } catch (final IOException ioe) {
-                        String msg = "Failed to copy " + fromResource
-                            + " to " + toFile
-                            + " due to " + getDueTo(ioe);
-                        final File targetFile = new File(toFile);
-                        if (!(ioe instanceof
-                              ResourceUtils.ReadOnlyTargetFileException)
-                            && targetFile.exists() && !targetFile.delete()) {
-                            msg += " and I couldn't delete the corrupt " + toFile;
+    /**
+     * Creates the filters applied to all copied files.
+     */
+    private FilterSetCollection createExecutionFilters() {
+        final FilterSetCollection executionFilters = new FilterSetCollection();
+        if (filtering) {
+            executionFilters.addFilterSet(getProject().getGlobalFilterSet());
+        }
+        for (final FilterSet filterSet : filterSets) {
+            executionFilters.addFilterSet(filterSet);
+        }
+        return executionFilters;
+    }
+
+    /**
+     * Copies a single file, fails or logs an error depending on
+     * failonerror.
+     */
+    private void copyFile(final String fromFile, final String toFile,
+                          final FilterSetCollection executionFilters) {
+        try {
+            log("Copying " + fromFile + " to " + toFile, verbosity);
+            fileUtils.copyFile(new File(fromFile), new File(toFile),
+                               executionFilters,
+                               filterChains, forceOverwrite,
+                               preserveLastModified,
+                               /* append: */ false, inputEncoding,
+                               outputEncoding, getProject(),
+                               getForce(), strategy);
+        } catch (final IOException ioe) {
+            handleCopyFailure(fromFile, toFile, ioe);
+        }
+    }
+
+    /**
+     * Copies a single resource, fails or logs an error depending on
+     * failonerror.
+     */
+    private void copyResource(final Resource fromResource, final String toFile,
+                              final FilterSetCollection executionFilters) {
+        try {
+            log("Copying " + fromResource + " to " + toFile,
+                verbosity);
+            ResourceUtils.copyResource(fromResource,
+                                       new FileResource(destDir,
+                                                        toFile),
+                                       executionFilters,
+                                       filterChains,
+                                       forceOverwrite,
+                                       preserveLastModified,
+                                       /* append: */ false,
+                                       inputEncoding,
+                                       outputEncoding,
+                                       getProject(),
+                                       getForce(),
+                                       strategy);
+        } catch (final IOException ioe) {
+            handleCopyFailure(fromResource, toFile, ioe);
+        }
+    }
+
+    private void handleCopyFailure(final Object from, final String toFile,
+                                   final IOException ioe) {
+        String msg = "Failed to copy " + from + " to " + toFile
+            + " due to " + getDueTo(ioe);
+        final File targetFile = new File(toFile);
+        if (!(ioe instanceof
+              ResourceUtils.ReadOnlyTargetFileException)
+            && targetFile.exists() && !targetFile.delete()) {
+            msg += " and I couldn't delete the corrupt " + toFile;
+        }
+        if (failonerror) {
+            throw new BuildException(msg, ioe, getLocation());
+        }
+        log(msg, Project.MSG_ERR);
+    }
+
+    /**
+     * Creates the parent directories of all destination files up
+     * front so parallel copies don't compete creating them.
+     */
+    private void createParentDirectories(final Collection<String[]> destinations) {
+        final Set<File> parents = new HashSet<>();
+        for (final String[] toFiles : destinations) {
+            for (final String toFile : toFiles) {
+                final File parent = new File(toFile).getParentFile();
+                if (parent != null && parents.add(parent) && !parent.isDirectory()) {
+                    // failures are reported by the copy itself
+                    parent.mkdirs();
+                }
+            }
+        }
+    }
+
+    /**
+     * Combines all operations writing a destination that another
+     * operation writes as well - for example because a mapper maps
+     * several sources to the same file - into a single operation
+     * that runs them one after another in their original order.
+     */
+    private static List<Runnable> serializeSharedDestinations(
+        final Map<? extends Runnable, String[]> operations) {
+        final Map<String, Integer> writers = new HashMap<>();
+        for (final String[] toFiles : operations.values()) {
+            for (final String toFile : new HashSet<>(Arrays.asList(toFiles))) {
+                writers.merge(toFile, 1, Integer::sum);
+            }
+        }
+        final List<Runnable> independent = new ArrayList<>();
+        final List<Runnable> shared = new ArrayList<>();
+        for (final Map.Entry<? extends Runnable, String[]> e : operations.entrySet()) {
+            if (Arrays.stream(e.getValue()).anyMatch(toFile -> writers.get(toFile) > 1)) {
+                shared.add(e.getKey());
+            } else {
+                independent.add(e.getKey());
+            }
+        }
+        if (!shared.isEmpty()) {
+            independent.add(0, () -> shared.forEach(Runnable::run));
+        }
+        return independent;
+    }
+
+    /**
+     * Runs the given file operations using up to {@link #setThreads
+     * threads} threads.
+     *
+     * <p>Operations signal failures that should stop the task by
+     * throwing a BuildException. Once an operation has failed no
+     * further operations are started and the first failure is
+     * rethrown after all running operations have completed.</p>
+     *
+     * <p>The parent directories of all destinations are created
+     * before the operations start and operations writing the same
+     * destination never run concurrently.</p>
+     *
+     * @param operations the operations in the order they would be
+     * run by a single thread, each mapped to the destination files it
+     * writes.
+     * @since Ant 1.10.6
+     */
+    protected void runFileOperations(final Map<? extends Runnable, String[]> operations) {
+        if (threads <= 1 || operations.size() <= 1) {
+            operations.keySet().forEach(Runnable::run);
+            return;
+        }
+        createParentDirectories(operations.values());
+        runInParallel(serializeSharedDestinations(operations));
+    }
+
+    private void runInParallel(final List<Runnable> operations) {
+        final ExecutorService pool =
+            Executors.newFixedThreadPool(Math.min(threads, operations.size()), r -> {
+                final Thread t = new Thread(r, getTaskName() + "-worker");
+                t.setDaemon(true);
+                return t;
+            });
+        final AtomicBoolean failed = new AtomicBoolean();
+        try {
+            final List<Future<?>> futures = new ArrayList<>(operations.size());
+            for (final Runnable operation : operations) {
+                futures.add(pool.submit(() -> {
+                    if (!failed.get()) {
+                        try {
+                            operation.run();
+                        } catch (final RuntimeException | Error ex) { //NOSONAR
+                            failed.set(true);
+                            throw ex;
                         }
-                        if (failonerror) {
-                            throw new BuildException(msg, ioe, getLocation());
+                    }
+                }));
+            }
+            RuntimeException firstFailure = null;
+            for (final Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (final ExecutionException ex) {
+                    if (firstFailure == null) {
+                        final Throwable cause = ex.getCause();
+                        if (cause instanceof Error) {
+                            throw (Error) cause;
                         }
-                        log(msg, Project.MSG_ERR);
+                        firstFailure = cause instanceof RuntimeException
+                            ? (RuntimeException) cause
+                            : new BuildException(cause, getLocation());
                     }
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new BuildException("interrupted while waiting for "
+                                             + getTaskName() + " to complete",
+                                             ex, getLocation());
                 }
             }
+            if (firstFailure != null) {
+                throw firstFailure;
+            }
+        } finally {
+            pool.shutdownNow();
         }
     }
 
@@ -1089,4 +1288,42 @@ public class Copy extends Task {
         }
         return message.toString();
     }
+
+    /**
+     * Enumerated type for the strategy attribute.
+     *
+     * @since Ant 1.10.6
+     */
+    public static class Strategy extends EnumeratedAttribute {
+        /**
+         * Default constructor.
+         */
+        public Strategy() {
+        }
+
+        /**
+         * Constructor using a string.
+         * @param value the value of the attribute
+         */
+        public Strategy(final String value) {
+            setValue(value);
+        }
+
+        /**
+         * Get the values.
+         * @return an array of the allowed values for this attribute.
+         */
+        @Override
+        public String[] getValues() {
+            return new String[] {"copy", "clone", "hardlink"};
+        }
+
+        /**
+         * The strategy represented by the value.
+         * @return the strategy
+         */
+        public ResourceUtils.CopyStrategy getStrategy() {
+            return ResourceUtils.CopyStrategy.values()[getIndex()];
+        }
+    }
 }
@@ -19,17 +19,35 @@
 package org.apache.tools.ant.taskdefs;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
-
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.tools.ant.BuildEvent;
 import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.BuildListener;
 import org.apache.tools.ant.DirectoryScanner;
 import org.apache.tools.ant.Project;
+import org.apache.tools.ant.SubBuildListener;
 import org.apache.tools.ant.taskdefs.condition.Os;
 import org.apache.tools.ant.types.FileSet;
 import org.apache.tools.ant.types.PatternSet;
@@ -128,6 +146,13 @@ public class Delete extends MatchingTask {
     private boolean removeNotFollowedSymlinks = false;
     private Resources rcs = null;
     private boolean performGc = Os.isFamily("windows");
+    private int threads = 1;
+    private boolean background = false;
+
+    // pool used while executing with more than one thread
+    private ForkJoinPool pool;
+    // pools of all running parallel deletions, including background ones
+    private final Set<ForkJoinPool> deletionPools = ConcurrentHashMap.newKeySet();
 
     /**
      * Set the name of a single file to be removed.
@@ -219,6 +244,37 @@ public class Delete extends MatchingTask {
         performGc = b;
     }
 
+    /**
+     * Number of threads used to delete files.
+     *
+     * <p>Directory trees are walked and their contents deleted by all
+     * threads at the same time.</p>
+     *
+     * @param threads the number of threads, defaults to 1.
+     * @since Ant 1.10.6
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Whether the directory specified by the dir attribute should be
+     * deleted while the build continues.
+     *
+     * <p>If true the directory is renamed and the renamed directory
+     * is deleted by a background thread. The build waits for all
+     * background deletions to complete before it finishes. Failures
+     * of a background deletion are logged but do not fail the
+     * build. If the directory cannot be renamed it is deleted
+     * immediately.</p>
+     *
+     * @param background boolean, defaults to false.
+     * @since Ant 1.10.6
+     */
+    public void setBackground(boolean background) {
+        this.background = background;
+    }
+
     /**
      * Adds a set of files to be deleted.
      * @param set the set of files to be deleted
@@ -598,6 +654,22 @@ public class Delete extends MatchingTask {
                 "quiet and failonerror cannot both be set to true", getLocation());
         }
 
+        if (threads > 1) {
+            pool = new ForkJoinPool(threads);
+            deletionPools.add(pool);
+        }
+        try {
+            deleteAll();
+        } finally {
+            if (pool != null) {
+                deletionPools.remove(pool);
+                pool.shutdownNow();
+                pool = null;
+            }
+        }
+    }
+
+    private void deleteAll() {
         // delete the single file
         if (file != null) {
             if (file.exists()) {
@@ -638,7 +710,9 @@ public class Delete extends MatchingTask {
                 if (verbosity == Project.MSG_VERBOSE) {
                     log("Deleting directory " + dir.getAbsolutePath());
                 }
-                removeDir(dir);
+                if (!background || !removeDirInBackground(dir)) {
+                    removeDir(dir);
+                }
             } else if (isDanglingSymlink(dir)) {
                 log("Trying to delete directory " + dir.getAbsolutePath()
                     + " which looks like a broken symlink.",
@@ -740,6 +814,7 @@ public class Delete extends MatchingTask {
         }
         try {
             if (resourcesToDelete.isFilesystemOnly()) {
+                List<File> batch = new ArrayList<>();
                 for (Resource r : resourcesToDelete) {
                     // nonexistent resources could only occur if we already
                     // deleted something from a fileset:
@@ -747,6 +822,13 @@ public class Delete extends MatchingTask {
                     if (!f.exists()) {
                         continue;
                     }
+                    if (pool != null && !f.isDirectory()) {
+                        batch.add(f);
+                        continue;
+                    }
+                    // directories may only become empty once the
+                    // files collected so far are gone
+                    removeFilesInParallel(batch);
                     if (!f.isDirectory() || f.list().length == 0) {
                         log("Deleting " + f, verbosity);
                         if (!delete(f) && failonerror) {
@@ -755,6 +837,7 @@ public class Delete extends MatchingTask {
                         }
                     }
                 }
+                removeFilesInParallel(batch);
             } else {
                  handle(getTaskName() + " handles only filesystem resources");
             }
@@ -805,9 +888,22 @@ public class Delete extends MatchingTask {
     /**
      * Delete a directory
      *
+     * <p>When deleting with more than one thread this method is
+     * invoked for the subdirectories by the threads of the parallel
+     * deletion.</p>
+     *
      * @param d the directory to delete
      */
     protected void removeDir(File d) {
+        ForkJoinPool current = ForkJoinTask.getPool();
+        if (current != null && deletionPools.contains(current)) {
+            runInParallel(current, new RemoveDir(d, new AtomicReference<>()));
+            return;
+        }
+        if (pool != null) {
+            runInParallel(pool, new RemoveDir(d, new AtomicReference<>()));
+            return;
+        }
         String[] list = d.list();
         if (list == null) {
             list = new String[0];
@@ -875,6 +971,362 @@ public class Delete extends MatchingTask {
         }
     }
 
+    /**
+     * Deletes files collected from the resources to delete using the
+     * pool and clears the list.
+     */
+    private void removeFilesInParallel(List<File> files) {
+        if (!files.isEmpty()) {
+            runInParallel(pool, new RemoveFiles(files.toArray(new File[0]), 0, files.size(),
+                                                new AtomicReference<>()));
+            files.clear();
+        }
+    }
+
+    /**
+     * Runs a task in a pool and rethrows the first failure.
+     */
+    private static void runInParallel(ForkJoinPool pool, ParallelRemoval action) {
+        if (ForkJoinTask.getPool() == pool) {
+            // already running in one of the pool's threads
+            action.invoke();
+        } else {
+            pool.invoke(action);
+        }
+        BuildException failure = action.failure.get();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Renames a directory and deletes it in a background thread.
+     *
+     * @param d the directory to delete
+     * @return false if the directory could not be renamed.
+     */
+    private boolean removeDirInBackground(File d) {
+        File parent = d.getAbsoluteFile().getParentFile();
+        if (parent == null) {
+            return false;
+        }
+        File renamed = FILE_UTILS.createTempFile(d.getName() + ".", ".deleting",
+                                                 parent, false, false);
+        try {
+            Files.move(d.toPath(), renamed.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | UnsupportedOperationException ex) {
+            log("Failed to rename " + d + ", deleting it now: " + ex.getMessage(),
+                Project.MSG_VERBOSE);
+            return false;
+        }
+        log("Deleting " + renamed + " in the background", verbosity);
+        final int backgroundThreads = threads;
+        BackgroundDeletion.get(getProject()).submit(() -> {
+            ForkJoinPool backgroundPool = new ForkJoinPool(Math.max(1, backgroundThreads));
+            deletionPools.add(backgroundPool);
+            try {
+                runInParallel(backgroundPool, new RemoveDir(renamed, new AtomicReference<>()));
+            } catch (BuildException ex) {
+                log("Failed to delete " + renamed + ": " + ex.getMessage(),
+                    Project.MSG_WARN);
+            } finally {
+                deletionPools.remove(backgroundPool);
+                backgroundPool.shutdownNow();
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Base class of deletions performed by several threads.
+     */
+    private abstract class ParallelRemoval extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        // first failure that should stop the deletion
+        protected final AtomicReference<BuildException> failure;
+
+        ParallelRemoval(AtomicReference<BuildException> failure) {
+            this.failure = failure;
+        }
+
+        protected boolean failed() {
+            return failure.get() != null;
+        }
+
+        /**
+         * Passes a problem to {@link #handle(String)}, remembering
+         * the failure instead of throwing it.
+         *
+         * @return false if the deletion should stop.
+         */
+        protected boolean handleInParallel(String msg) {
+            try {
+                handle(msg);
+                return true;
+            } catch (BuildException ex) {
+                failure.compareAndSet(null, ex);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Removes the contents of a directory and the directory itself,
+     * processing subdirectories in parallel via {@link
+     * #removeDir(File)}.
+     */
+    private class RemoveDir extends ParallelRemoval {
+        private static final long serialVersionUID = 1L;
+
+        private final File d;
+
+        RemoveDir(File d, AtomicReference<BuildException> failure) {
+            super(failure);
+            this.d = d;
+        }
+
+        @Override
+        protected void compute() {
+            String[] list = d.list();
+            if (list == null) {
+                list = new String[0];
+            }
+            List<RemoveSubdir> subdirs = new ArrayList<>();
+            for (String s : list) {
+                if (failed()) {
+                    return;
+                }
+                File f = new File(d, s);
+                if (f.isDirectory()) {
+                    subdirs.add(new RemoveSubdir(f, failure));
+                } else {
+                    log("Deleting " + f.getAbsolutePath(),
+                        quiet ? Project.MSG_VERBOSE : verbosity);
+                    if (!delete(f)
+                        && !handleInParallel("Unable to delete file " + f.getAbsolutePath())) {
+                        return;
+                    }
+                }
+            }
+            invokeAll(subdirs);
+            if (failed()) {
+                return;
+            }
+            log("Deleting directory " + d.getAbsolutePath(), verbosity);
+            if (!delete(d)) {
+                handleInParallel("Unable to delete directory " + d.getAbsolutePath());
+            }
+        }
+    }
+
+    /**
+     * Removes a subdirectory of a parallel deletion.
+     */
+    private class RemoveSubdir extends ParallelRemoval {
+        private static final long serialVersionUID = 1L;
+
+        private final File d;
+
+        RemoveSubdir(File d, AtomicReference<BuildException> failure) {
+            super(failure);
+            this.d = d;
+        }
+
+        @Override
+        protected void compute() {
+            if (failed()) {
+                return;
+            }
+            try {
+                removeDir(d);
+            } catch (BuildException ex) {
+                failure.compareAndSet(null, ex);
+            }
+        }
+    }
+
+    /**
+     * Deletes a range of files, splitting it between threads.
+     */
+    private class RemoveFiles extends ParallelRemoval {
+        private static final long serialVersionUID = 1L;
+        private static final int BATCH_SIZE = 64;
+
+        private final File[] files;
+        private final int from;
+        private final int to;
+
+        RemoveFiles(File[] files, int from, int to,
+                    AtomicReference<BuildException> failure) {
+            super(failure);
+            this.files = files;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > BATCH_SIZE) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RemoveFiles(files, from, middle, failure),
+                          new RemoveFiles(files, middle, to, failure));
+                return;
+            }
+            for (int i = from; i < to && !failed(); i++) {
+                File f = files[i];
+                log("Deleting " + f, verbosity);
+                if (!delete(f) && failonerror) {
+                    handleInParallel("Unable to delete file " + f);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes directories on a daemon thread and waits for the
+     * deletions to complete when the (sub-)build finishes.
+     *
+     * <p>There is one instance per project. It isn't a project
+     * reference, so sub-builds don't inherit it and wait for their
+     * own deletions only.</p>
+     */
+    private static final class BackgroundDeletion implements SubBuildListener {
+        private static final Map<Project, BackgroundDeletion> INSTANCES =
+            new WeakHashMap<>();
+
+        private final Project project;
+        private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "delete-background");
+            t.setDaemon(true);
+            return t;
+        });
+
+        private BackgroundDeletion(Project project) {
+            this.project = project;
+        }
+
+        private static BackgroundDeletion get(Project project) {
+            synchronized (INSTANCES) {
+                BackgroundDeletion deletion = INSTANCES.get(project);
+                if (deletion == null) {
+                    deletion = new BackgroundDeletion(project);
+                    INSTANCES.put(project, deletion);
+                    addFirst(project, deletion);
+                }
+                return deletion;
+            }
+        }
+
+        /**
+         * Makes the deletion the first listener of the project, so
+         * it waits before loggers see the end of the build.
+         */
+        private static void addFirst(Project project, BuildListener deletion) {
+            List<BuildListener> others = project.getBuildListeners();
+            others.forEach(project::removeBuildListener);
+            project.addBuildListener(deletion);
+            others.forEach(project::addBuildListener);
+        }
+
+        private void submit(Runnable deletion) {
+            executor.submit(deletion);
+        }
+
+        private void await() {
+            synchronized (INSTANCES) {
+                INSTANCES.remove(project);
+            }
+            project.removeBuildListener(this);
+            executor.shutdown();
+            try {
+                while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    project.log("Waiting for background deletions to complete",
+                                Project.MSG_INFO);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Waits for all deletions.
+         * @param event ignored.
+         */
+        @Override
+        public void buildFinished(BuildEvent event) {
+            await();
+        }
+
+        /**
+         * Waits for all deletions if the sub-build is the one the
+         * deletions have been started by.
+         * @param event the event.
+         */
+        @Override
+        public void subBuildFinished(BuildEvent event) {
+            if (event.getProject() == project) {
+                await();
+            }
+        }
+
+        /**
+         * Empty implementation.
+         * @param event ignored.
+         */
+        @Override
+        public void subBuildStarted(BuildEvent event) {
+        }
+
+        /**
+         * Empty implementation.
+         * @param event ignored.
+         */
+        @Override
+        public void buildStarted(BuildEvent event) {
+        }
+
+        /**
+         * Empty implementation.
+         * @param event ignored.
+         */
+        @Override
+        public void targetStarted(BuildEvent event) {
+        }
+
+        /**
+         * Empty implementation.
+         * @param event ignored.
+         */
+        @Override
+        public void targetFinished(BuildEvent event) {
+        }
+
+        /**
+         * Empty implementation.
+         * @param event ignored.
+         */
+        @Override
+        public void taskStarted(BuildEvent event) {
+        }
+
+        /**
+         * Empty implementation.
+         * @param event ignored.
+         */
+        @Override
+        public void taskFinished(BuildEvent event) {
+        }
+
+        /**
+         * Empty implementation.
+         * @param event ignored.
+         */
+        @Override
+        public void messageLogged(BuildEvent event) {
+        }
+    }
+
     private boolean isDanglingSymlink(final File f) {
         if (!Files.isSymbolicLink(f.toPath())) {
             // it's not a symlink, so clearly it's not a dangling one
@@ -0,0 +1,946 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.tools.ant.taskdefs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Task;
+
+/**
+ * Decides which sources <code>&lt;javac&gt;</code> has to compile
+ * when it runs incrementally.
+ *
+ * <p>The cache records the size and modification time of every
+ * source, the class files compiled from it and for each class file a
+ * fingerprint of its API, the compile time constants it defines, its
+ * super types and the classes it refers to. Sources that have changed
+ * are compiled first, afterwards the sources of classes that refer to
+ * a class whose API has changed - directly or via one of its super
+ * types - are compiled in further rounds. As the compiler inlines
+ * constants without recording where they came from, all sources that
+ * haven't been compiled by the same round are compiled once a
+ * constant has been changed or removed.</p>
+ *
+ * <p>Sources compiled by an earlier round may have been compiled
+ * against class files that have changed later, so only the sources
+ * of the current round are exempt from the next round. As the class
+ * files of unchanged sources only change with the constants they
+ * inline, the rounds end once no API has changed any more.</p>
+ */
+final class IncrementalJavacCache {
+
+    /** "ANJI" */
+    private static final int MAGIC = 0x414e4a49;
+    private static final int VERSION = 2;
+
+    private static final int CLASS_MAGIC = 0xCAFEBABE;
+    private static final int ACC_PRIVATE = 0x0002;
+    private static final int ACC_SUPER = 0x0020;
+    private static final int ACC_SYNTHETIC = 0x1000;
+    /** synchronized, native and strictfp don't affect callers */
+    private static final int METHOD_IMPLEMENTATION_FLAGS = 0x0020 | 0x0100 | 0x0800;
+
+    /** class names inside descriptors and signatures */
+    private static final Pattern TYPE_NAME = Pattern.compile("L([^;<>()\\[]+)[;<]");
+
+    private static final Pattern COMMENT = Pattern.compile("(?s)/\\*.*?\\*/|//[^\\n]*");
+    private static final Pattern PACKAGE =
+        Pattern.compile("\\bpackage\\s+([\\p{javaJavaIdentifierPart}.\\s]+?)\\s*;");
+
+    private final File cacheFile;
+    private final Task task;
+
+    /** recorded sources by absolute path */
+    private final Map<String, SourceEntry> sources = new HashMap<>();
+    /** recorded class files by absolute path */
+    private final Map<String, ClassEntry> classes = new HashMap<>();
+
+    /** the sources to compile by absolute path */
+    private final Map<String, Source> current = new LinkedHashMap<>();
+    /** the sources to compile by destination directory and relative path */
+    private final Map<String, Source> byClassLocation = new HashMap<>();
+    /** the sources to compile by file name */
+    private final Map<String, List<Source>> byFileName = new HashMap<>();
+
+    /** whether the cache has to be saved */
+    private boolean dirty;
+
+    /**
+     * A source file that is part of the compilation.
+     */
+    static final class Source {
+        private final File srcDir;
+        private final File file;
+        private final File destDir;
+        private final long length;
+        private final long lastModified;
+        /** the declared package, read on demand */
+        private String pkg;
+
+        private Source(final File srcDir, final File file, final File destDir) {
+            this.srcDir = srcDir;
+            this.file = file;
+            this.destDir = destDir;
+            length = file.length();
+            lastModified = file.lastModified();
+        }
+
+        /**
+         * The source directory the file has been found in.
+         * @return File
+         */
+        File getSrcDir() {
+            return srcDir;
+        }
+
+        /**
+         * The source file.
+         * @return File
+         */
+        File getFile() {
+            return file;
+        }
+    }
+
+    private static final class SourceEntry {
+        private final long length;
+        private final long lastModified;
+        private final Set<String> classFiles = new TreeSet<>();
+
+        private SourceEntry(final long length, final long lastModified) {
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private static final class ClassEntry {
+        private long length;
+        private long lastModified;
+        private String name;
+        /** absolute path of the source or the empty string if unknown */
+        private String source = "";
+        private long api;
+        private Set<Long> constants = new HashSet<>();
+        private List<String> superTypes = new ArrayList<>();
+        private Set<String> references = new HashSet<>();
+    }
+
+    /**
+     * @param cacheFile the file holding the state of earlier runs
+     * @param task the task to log to
+     */
+    IncrementalJavacCache(final File cacheFile, final Task task) {
+        this.cacheFile = cacheFile;
+        this.task = task;
+    }
+
+    /**
+     * Adds a source to the compilation.
+     * @param srcDir the source directory
+     * @param name the name of the source relative to srcDir
+     * @param destDir the directory the class files are written to
+     */
+    void addSource(final File srcDir, final String name, final File destDir) {
+        final Source s = new Source(srcDir, new File(srcDir, name), destDir);
+        current.put(s.file.getAbsolutePath(), s);
+        byClassLocation.put(classLocation(destDir, name.replace(File.separatorChar, '/')), s);
+        byFileName.computeIfAbsent(s.file.getName(), k -> new ArrayList<>()).add(s);
+    }
+
+    /**
+     * Compiles all sources that need to be compiled.
+     *
+     * @param compiler compiles the given sources and returns whether
+     * the compilation has succeeded
+     * @return false if a compilation has failed
+     */
+    boolean compile(final Predicate<List<Source>> compiler) {
+        load();
+        try {
+            final Map<String, ClassEntry> previous = new HashMap<>();
+            for (String removed : new ArrayList<>(sources.keySet())) {
+                if (!current.containsKey(removed)) {
+                    task.log("Removing class files of " + removed, Project.MSG_VERBOSE);
+                    forget(removed, previous);
+                }
+            }
+
+            List<Source> round = new ArrayList<>();
+            for (Source s : current.values()) {
+                if (isOutOfDate(s)) {
+                    round.add(s);
+                }
+            }
+            if (!previous.isEmpty() && round.isEmpty()) {
+                round = getDependents(previous, new HashSet<>());
+            }
+            int rounds = 0;
+            while (!round.isEmpty()) {
+                if (++rounds > current.size() + 1) {
+                    throw new BuildException("Incremental compilation doesn't terminate,"
+                                             + " delete " + cacheFile + " to compile all"
+                                             + " sources");
+                }
+                final Set<String> recompiled = new HashSet<>();
+                for (Source s : round) {
+                    recompiled.add(s.file.getAbsolutePath());
+                    forget(s.file.getAbsolutePath(), previous);
+                }
+                if (!compiler.test(round)) {
+                    return false;
+                }
+                for (Source s : round) {
+                    sources.computeIfAbsent(s.file.getAbsolutePath(),
+                                            k -> new SourceEntry(s.length, s.lastModified));
+                }
+                scanClassFiles(previous);
+                round = getDependents(previous, recompiled);
+                previous.clear();
+            }
+            return true;
+        } finally {
+            if (dirty) {
+                save();
+            }
+        }
+    }
+
+    /**
+     * Whether a source or any of its class files has changed since
+     * it has been compiled.
+     */
+    private boolean isOutOfDate(final Source s) {
+        final SourceEntry e = sources.get(s.file.getAbsolutePath());
+        if (e == null || e.length != s.length || e.lastModified != s.lastModified) {
+            return true;
+        }
+        for (String classFile : e.classFiles) {
+            final ClassEntry c = classes.get(classFile);
+            final File f = new File(classFile);
+            if (c == null || f.length() != c.length || f.lastModified() != c.lastModified) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Deletes the class files of a source and remembers their entries.
+     */
+    private void forget(final String source, final Map<String, ClassEntry> previous) {
+        final SourceEntry e = sources.remove(source);
+        if (e == null) {
+            return;
+        }
+        dirty = true;
+        for (String classFile : e.classFiles) {
+            final ClassEntry c = classes.remove(classFile);
+            if (c != null) {
+                previous.putIfAbsent(c.name, c);
+            }
+            new File(classFile).delete();
+        }
+    }
+
+    /**
+     * Reads the class files that are new or have been changed by the
+     * last compilation and attributes them to their sources.
+     */
+    private void scanClassFiles(final Map<String, ClassEntry> previous) {
+        final Set<File> destDirs = new HashSet<>();
+        current.values().forEach(s -> destDirs.add(s.destDir));
+        for (File destDir : destDirs) {
+            if (!destDir.isDirectory()) {
+                continue;
+            }
+            try {
+                Files.walkFileTree(destDir.toPath(), new SimpleFileVisitor<java.nio.file.Path>() {
+                    @Override
+                    public FileVisitResult visitFile(final java.nio.file.Path file,
+                                                     final BasicFileAttributes attrs)
+                        throws IOException {
+                        if (attrs.isRegularFile() && file.toString().endsWith(".class")) {
+                            scanClassFile(destDir, file.toFile(), attrs, previous);
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException ex) {
+                throw new BuildException("Error reading class files in " + destDir, ex);
+            }
+        }
+    }
+
+    private void scanClassFile(final File destDir, final File file,
+                               final BasicFileAttributes attrs,
+                               final Map<String, ClassEntry> previous) throws IOException {
+        final String path = file.getAbsolutePath();
+        final ClassEntry old = classes.get(path);
+        final long lastModified = attrs.lastModifiedTime().toMillis();
+        if (old != null && old.length == attrs.size() && old.lastModified == lastModified) {
+            return;
+        }
+        final ClassEntry c;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()))) {
+            c = readClass(in);
+        } catch (ClassFormatError ex) {
+            task.log("Ignoring " + file + ": " + ex.getMessage(), Project.MSG_VERBOSE);
+            return;
+        }
+        c.length = attrs.size();
+        c.lastModified = lastModified;
+        dirty = true;
+        if (old != null) {
+            previous.putIfAbsent(old.name, old);
+        }
+        classes.put(path, c);
+
+        final Source s = findSource(destDir, c.source);
+        c.source = "";
+        if (s != null) {
+            c.source = s.file.getAbsolutePath();
+            sources.computeIfAbsent(c.source, k -> new SourceEntry(s.length, s.lastModified))
+                .classFiles.add(path);
+        }
+    }
+
+    /**
+     * Determines the sources that have to be compiled because a
+     * class they refer to has changed.
+     *
+     * @param previous the former entries of the classes that have
+     * been compiled or removed
+     * @param recompiled the sources compiled by the last round
+     */
+    private List<Source> getDependents(final Map<String, ClassEntry> previous,
+                                       final Set<String> recompiled) {
+        final Set<String> changed = new HashSet<>();
+        boolean constantChanged = false;
+        final Map<String, ClassEntry> byName = new HashMap<>();
+        classes.values().forEach(c -> byName.put(c.name, c));
+        for (ClassEntry old : previous.values()) {
+            final ClassEntry c = byName.get(old.name);
+            if (c == null || c.api != old.api) {
+                changed.add(old.name);
+            }
+            if (!old.constants.isEmpty()
+                && (c == null || !c.constants.containsAll(old.constants))) {
+                constantChanged = true;
+            }
+        }
+        for (ClassEntry c : classes.values()) {
+            // classes that are new may hide classes of the same name
+            if (!previous.containsKey(c.name) && recompiled.contains(c.source)) {
+                changed.add(c.name);
+            }
+        }
+        if (changed.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // members are inherited by subtypes
+        boolean grown = true;
+        while (grown) {
+            grown = false;
+            for (ClassEntry c : classes.values()) {
+                if (!changed.contains(c.name)
+                    && c.superTypes.stream().anyMatch(changed::contains)) {
+                    changed.add(c.name);
+                    grown = true;
+                }
+            }
+        }
+
+        final Set<String> dependents = new HashSet<>();
+        for (ClassEntry c : classes.values()) {
+            if (constantChanged || c.references.stream().anyMatch(changed::contains)) {
+                dependents.add(c.source);
+            }
+        }
+        final List<Source> result = new ArrayList<>();
+        for (Source s : current.values()) {
+            final String path = s.file.getAbsolutePath();
+            if (!recompiled.contains(path) && (constantChanged || dependents.contains(path))) {
+                result.add(s);
+            }
+        }
+        if (!result.isEmpty()) {
+            task.log(constantChanged
+                     ? "Compiling all sources as a constant has changed"
+                     : "Compiling " + result.size() + " dependent source"
+                       + (result.size() == 1 ? "" : "s"),
+                     Project.MSG_VERBOSE);
+        }
+        return result;
+    }
+
+    private static String classLocation(final File destDir, final String relativePath) {
+        return destDir.getAbsolutePath() + File.separator + relativePath;
+    }
+
+    /**
+     * The source a class file has been compiled from.
+     *
+     * @param destDir the directory holding the class file
+     * @param relativePath the package directory and file name of the
+     * source as recorded in the class file
+     */
+    private Source findSource(final File destDir, final String relativePath) {
+        final Source s = byClassLocation.get(classLocation(destDir, relativePath));
+        if (s != null) {
+            return s;
+        }
+        // the source's directory doesn't match its package
+        final int slash = relativePath.lastIndexOf('/');
+        final List<Source> candidates = byFileName.get(relativePath.substring(slash + 1));
+        if (candidates == null) {
+            return null;
+        }
+        final String pkg = slash < 0 ? "" : relativePath.substring(0, slash).replace('/', '.');
+        for (Source candidate : candidates) {
+            if (candidate.destDir.getAbsoluteFile().equals(destDir.getAbsoluteFile())
+                && pkg.equals(getPackage(candidate))) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private String getPackage(final Source s) {
+        if (s.pkg == null) {
+            s.pkg = "";
+            try {
+                final String text = COMMENT.matcher(new String(
+                    Files.readAllBytes(s.file.toPath()), StandardCharsets.ISO_8859_1))
+                    .replaceAll(" ");
+                final Matcher m = PACKAGE.matcher(text);
+                if (m.find()) {
+                    s.pkg = m.group(1).replaceAll("\\s", "");
+                }
+            } catch (IOException ex) {
+                task.log("Can't read " + s.file + ": " + ex, Project.MSG_VERBOSE);
+            }
+        }
+        return s.pkg;
+    }
+
+    // -----  persistence  -----
+
+    private void load() {
+        if (!cacheFile.isFile()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                 Files.newInputStream(cacheFile.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return;
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                final String path = in.readUTF();
+                final SourceEntry e = new SourceEntry(in.readLong(), in.readLong());
+                for (int j = in.readInt(); j > 0; j--) {
+                    e.classFiles.add(in.readUTF());
+                }
+                sources.put(path, e);
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                final String path = in.readUTF();
+                final ClassEntry c = new ClassEntry();
+                c.length = in.readLong();
+                c.lastModified = in.readLong();
+                c.name = in.readUTF();
+                c.source = in.readUTF();
+                c.api = in.readLong();
+                for (int j = in.readInt(); j > 0; j--) {
+                    c.constants.add(in.readLong());
+                }
+                for (int j = in.readInt(); j > 0; j--) {
+                    c.superTypes.add(in.readUTF());
+                }
+                for (int j = in.readInt(); j > 0; j--) {
+                    c.references.add(in.readUTF());
+                }
+                classes.put(path, c);
+            }
+        } catch (IOException ex) {
+            task.log("Ignoring incremental compilation cache " + cacheFile + ": " + ex,
+                     Project.MSG_VERBOSE);
+            sources.clear();
+            classes.clear();
+        }
+    }
+
+    private void save() {
+        final File parent = cacheFile.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                 Files.newOutputStream(cacheFile.toPath())))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(sources.size());
+            for (Map.Entry<String, SourceEntry> e : sources.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeLong(e.getValue().length);
+                out.writeLong(e.getValue().lastModified);
+                writeStrings(out, e.getValue().classFiles);
+            }
+            out.writeInt(classes.size());
+            for (Map.Entry<String, ClassEntry> e : classes.entrySet()) {
+                final ClassEntry c = e.getValue();
+                out.writeUTF(e.getKey());
+                out.writeLong(c.length);
+                out.writeLong(c.lastModified);
+                out.writeUTF(c.name);
+                out.writeUTF(c.source);
+                out.writeLong(c.api);
+                out.writeInt(c.constants.size());
+                for (long constant : c.constants) {
+                    out.writeLong(constant);
+                }
+                writeStrings(out, c.superTypes);
+                writeStrings(out, c.references);
+            }
+        } catch (IOException ex) {
+            throw new BuildException("Error writing incremental compilation cache "
+                                     + cacheFile, ex);
+        }
+    }
+
+    private static void writeStrings(final DataOutputStream out, final Collection<String> s)
+        throws IOException {
+        out.writeInt(s.size());
+        for (String value : s) {
+            out.writeUTF(value);
+        }
+    }
+
+    // -----  class file parsing  -----
+
+    /**
+     * Reads the name, the source, the API fingerprint, the constants,
+     * the super types and the references of a class.
+     *
+     * <p>The returned entry's source is the path of the source
+     * relative to the root of the package hierarchy.</p>
+     */
+    private static ClassEntry readClass(final InputStream stream) throws IOException {
+        final DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != CLASS_MAGIC) {
+            throw new ClassFormatError("not a class file");
+        }
+        in.readUnsignedShort();
+        in.readUnsignedShort();
+        final ConstantPool pool = new ConstantPool(in);
+
+        final ClassEntry c = new ClassEntry();
+        final List<String> api = new ArrayList<>();
+        final int access = in.readUnsignedShort() & ~ACC_SUPER;
+        c.name = pool.className(in.readUnsignedShort());
+        final int superIndex = in.readUnsignedShort();
+        if (superIndex != 0) {
+            c.superTypes.add(pool.className(superIndex));
+        }
+        for (int i = in.readUnsignedShort(); i > 0; i--) {
+            c.superTypes.add(pool.className(in.readUnsignedShort()));
+        }
+        api.add("class " + access + " " + c.superTypes);
+
+        final List<String> members = new ArrayList<>();
+        for (int i = in.readUnsignedShort(); i > 0; i--) {
+            final int flags = in.readUnsignedShort();
+            final String member = "field " + flags + " " + pool.utf8(in.readUnsignedShort())
+                + " " + pool.utf8(in.readUnsignedShort());
+            final StringBuilder attributes = new StringBuilder();
+            String constant = null;
+            for (int j = in.readUnsignedShort(); j > 0; j--) {
+                final String name = pool.utf8(in.readUnsignedShort());
+                final int length = in.readInt();
+                if ("ConstantValue".equals(name)) {
+                    constant = pool.constant(in.readUnsignedShort());
+                    attributes.append(" = ").append(constant);
+                } else if ("Signature".equals(name)) {
+                    attributes.append(" ").append(pool.utf8(in.readUnsignedShort()));
+                } else if (!readAnnotations(in, pool, name, attributes)) {
+                    skip(in, length);
+                }
+            }
+            if ((flags & (ACC_PRIVATE | ACC_SYNTHETIC)) == 0) {
+                members.add(member + attributes);
+            }
+            if (constant != null) {
+                c.constants.add(hash(Arrays.asList(member + attributes)));
+            }
+        }
+        for (int i = in.readUnsignedShort(); i > 0; i--) {
+            final int flags = in.readUnsignedShort();
+            final String member = "method " + (flags & ~METHOD_IMPLEMENTATION_FLAGS) + " "
+                + pool.utf8(in.readUnsignedShort()) + " " + pool.utf8(in.readUnsignedShort());
+            final StringBuilder attributes = new StringBuilder();
+            for (int j = in.readUnsignedShort(); j > 0; j--) {
+                final String name = pool.utf8(in.readUnsignedShort());
+                final int length = in.readInt();
+                if ("Exceptions".equals(name)) {
+                    attributes.append(" throws");
+                    for (int k = in.readUnsignedShort(); k > 0; k--) {
+                        attributes.append(" ").append(pool.className(in.readUnsignedShort()));
+                    }
+                } else if ("Signature".equals(name)) {
+                    attributes.append(" ").append(pool.utf8(in.readUnsignedShort()));
+                } else if ("AnnotationDefault".equals(name)) {
+                    attributes.append(" default ");
+                    readElementValue(in, pool, attributes);
+                } else if (!readAnnotations(in, pool, name, attributes)) {
+                    skip(in, length);
+                }
+            }
+            if ((flags & (ACC_PRIVATE | ACC_SYNTHETIC)) == 0) {
+                members.add(member + attributes);
+            }
+        }
+        members.sort(null);
+        api.addAll(members);
+
+        String sourceFile = null;
+        for (int i = in.readUnsignedShort(); i > 0; i--) {
+            final String name = pool.utf8(in.readUnsignedShort());
+            final int length = in.readInt();
+            if ("SourceFile".equals(name)) {
+                sourceFile = pool.utf8(in.readUnsignedShort());
+            } else if ("Signature".equals(name)) {
+                api.add("signature " + pool.utf8(in.readUnsignedShort()));
+            } else if ("InnerClasses".equals(name)) {
+                for (int j = in.readUnsignedShort(); j > 0; j--) {
+                    final int inner = in.readUnsignedShort();
+                    in.readUnsignedShort();
+                    in.readUnsignedShort();
+                    final int flags = in.readUnsignedShort();
+                    if (c.name.equals(pool.className(inner))) {
+                        api.add("nested " + flags);
+                    }
+                }
+            } else if ("PermittedSubclasses".equals(name)) {
+                final List<String> permitted = new ArrayList<>();
+                for (int j = in.readUnsignedShort(); j > 0; j--) {
+                    permitted.add(pool.className(in.readUnsignedShort()));
+                }
+                permitted.sort(null);
+                api.add("permits " + permitted);
+            } else if ("Record".equals(name)) {
+                final StringBuilder record = new StringBuilder("record");
+                for (int j = in.readUnsignedShort(); j > 0; j--) {
+                    record.append(' ').append(pool.utf8(in.readUnsignedShort()))
+                        .append(' ').append(pool.utf8(in.readUnsignedShort()));
+                    for (int k = in.readUnsignedShort(); k > 0; k--) {
+                        final String componentAttribute = pool.utf8(in.readUnsignedShort());
+                        final int componentLength = in.readInt();
+                        if ("Signature".equals(componentAttribute)) {
+                            record.append(' ').append(pool.utf8(in.readUnsignedShort()));
+                        } else if (!readAnnotations(in, pool, componentAttribute, record)) {
+                            skip(in, componentLength);
+                        }
+                    }
+                    record.append(';');
+                }
+                api.add(record.toString());
+            } else {
+                final StringBuilder annotations = new StringBuilder("annotations");
+                if (readAnnotations(in, pool, name, annotations)) {
+                    api.add(annotations.toString());
+                } else {
+                    skip(in, length);
+                }
+            }
+        }
+        c.api = hash(api);
+
+        final int slash = c.name.lastIndexOf('/');
+        final String pkg = slash < 0 ? "" : c.name.substring(0, slash + 1);
+        if (sourceFile == null) {
+            // compiled without debug information, guess
+            final int dollar = c.name.indexOf('$', slash + 1);
+            sourceFile = c.name.substring(slash + 1, dollar < 0 ? c.name.length() : dollar)
+                + ".java";
+        }
+        c.source = pkg + sourceFile;
+
+        c.references = pool.references();
+        c.references.remove(c.name);
+        return c;
+    }
+
+    /**
+     * Appends the annotations of an attribute if it holds
+     * declaration annotations.
+     *
+     * @return false if the attribute doesn't hold annotations and
+     * hasn't been read
+     */
+    private static boolean readAnnotations(final DataInputStream in, final ConstantPool pool,
+                                           final String attribute, final StringBuilder sb)
+        throws IOException {
+        switch (attribute) {
+        case "RuntimeVisibleAnnotations":
+        case "RuntimeInvisibleAnnotations":
+            sb.append(' ').append(attribute);
+            readAnnotationList(in, pool, sb);
+            return true;
+        case "RuntimeVisibleParameterAnnotations":
+        case "RuntimeInvisibleParameterAnnotations":
+            sb.append(' ').append(attribute);
+            for (int i = in.readUnsignedByte(); i > 0; i--) {
+                sb.append(" (");
+                readAnnotationList(in, pool, sb);
+                sb.append(')');
+            }
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    private static void readAnnotationList(final DataInputStream in, final ConstantPool pool,
+                                           final StringBuilder sb) throws IOException {
+        final List<String> annotations = new ArrayList<>();
+        for (int i = in.readUnsignedShort(); i > 0; i--) {
+            final StringBuilder annotation = new StringBuilder();
+            readAnnotation(in, pool, annotation);
+            annotations.add(annotation.toString());
+        }
+        // the order of annotations doesn't matter
+        annotations.sort(null);
+        annotations.forEach(a -> sb.append(' ').append(a));
+    }
+
+    private static void readAnnotation(final DataInputStream in, final ConstantPool pool,
+                                       final StringBuilder sb) throws IOException {
+        sb.append('@').append(pool.utf8(in.readUnsignedShort())).append('(');
+        for (int i = in.readUnsignedShort(); i > 0; i--) {
+            sb.append(pool.utf8(in.readUnsignedShort())).append('=');
+            readElementValue(in, pool, sb);
+            sb.append(',');
+        }
+        sb.append(')');
+    }
+
+    private static void readElementValue(final DataInputStream in, final ConstantPool pool,
+                                         final StringBuilder sb) throws IOException {
+        final char tag = (char) in.readUnsignedByte();
+        switch (tag) {
+        case 'e':
+            sb.append(pool.utf8(in.readUnsignedShort())).append('.')
+                .append(pool.utf8(in.readUnsignedShort()));
+            break;
+        case 'c':
+            sb.append(pool.utf8(in.readUnsignedShort())).append(".class");
+            break;
+        case '@':
+            readAnnotation(in, pool, sb);
+            break;
+        case '[':
+            sb.append('{');
+            for (int i = in.readUnsignedShort(); i > 0; i--) {
+                readElementValue(in, pool, sb);
+                sb.append(',');
+            }
+            sb.append('}');
+            break;
+        default:
+            sb.append(tag).append(pool.constant(in.readUnsignedShort()));
+            break;
+        }
+    }
+
+    private static void skip(final DataInputStream in, final int length) throws IOException {
+        int remaining = length;
+        while (remaining > 0) {
+            final int skipped = in.skipBytes(remaining);
+            if (skipped <= 0) {
+                throw new ClassFormatError("truncated class file");
+            }
+            remaining -= skipped;
+        }
+    }
+
+    private static long hash(final List<String> parts) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new BuildException(ex);
+        }
+        for (String part : parts) {
+            digest.update(part.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        final byte[] d = digest.digest();
+        long h = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            h = h << Byte.SIZE | (d[i] & 0xff);
+        }
+        return h;
+    }
+
+    /**
+     * The parts of a constant pool needed to describe a class.
+     */
+    private static final class ConstantPool {
+        private static final int UTF8 = 1;
+        private static final int INTEGER = 3;
+        private static final int FLOAT = 4;
+        private static final int LONG = 5;
+        private static final int DOUBLE = 6;
+        private static final int CLASS = 7;
+        private static final int STRING = 8;
+
+        private final int[] tags;
+        private final Object[] values;
+
+        private ConstantPool(final DataInputStream in) throws IOException {
+            final int count = in.readUnsignedShort();
+            tags = new int[count];
+            values = new Object[count];
+            for (int i = 1; i < count; i++) {
+                tags[i] = in.readUnsignedByte();
+                switch (tags[i]) {
+                case UTF8:
+                    values[i] = in.readUTF();
+                    break;
+                case INTEGER:
+                    values[i] = in.readInt();
+                    break;
+                case FLOAT:
+                    values[i] = in.readFloat();
+                    break;
+                case LONG:
+                    values[i++] = in.readLong();
+                    break;
+                case DOUBLE:
+                    values[i++] = in.readDouble();
+                    break;
+                case CLASS:
+                case STRING:
+                    values[i] = in.readUnsignedShort();
+                    break;
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    in.readUnsignedShort();
+                    break;
+                case 15: // MethodHandle
+                    in.readUnsignedByte();
+                    in.readUnsignedShort();
+                    break;
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    in.readInt();
+                    break;
+                default:
+                    throw new ClassFormatError("unknown constant pool tag " + tags[i]);
+                }
+            }
+        }
+
+        private String utf8(final int index) {
+            if (index <= 0 || index >= tags.length || tags[index] != UTF8) {
+                throw new ClassFormatError("bad constant pool index " + index);
+            }
+            return (String) values[index];
+        }
+
+        private String className(final int index) {
+            if (index <= 0 || index >= tags.length || tags[index] != CLASS) {
+                throw new ClassFormatError("bad constant pool index " + index);
+            }
+            return utf8((Integer) values[index]);
+        }
+
+        private String constant(final int index) {
+            if (index <= 0 || index >= tags.length) {
+                throw new ClassFormatError("bad constant pool index " + index);
+            }
+            return tags[index] == STRING ? "\"" + utf8((Integer) values[index]) + "\""
+                : String.valueOf(values[index]);
+        }
+
+        /**
+         * All classes referenced as classes or inside descriptors and
+         * signatures.
+         */
+        private Set<String> references() {
+            final Set<String> result = new HashSet<>();
+            for (int i = 1; i < tags.length; i++) {
+                if (tags[i] == CLASS) {
+                    final String name = utf8((Integer) values[i]);
+                    if (name.startsWith("[")) {
+                        addTypeNames(name, result);
+                    } else {
+                        result.add(name);
+                    }
+                } else if (tags[i] == UTF8) {
+                    addTypeNames((String) values[i], result);
+                }
+            }
+            return result;
+        }
+
+        private static void addTypeNames(final String descriptor, final Set<String> result) {
+            if (descriptor.indexOf('L') < 0) {
+                return;
+            }
+            final Matcher m = TYPE_NAME.matcher(descriptor);
+            while (m.find()) {
+                result.add(m.group(1));
+            }
+        }
+    }
+}
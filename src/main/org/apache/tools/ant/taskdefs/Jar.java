@@ -570,6 +570,22 @@ public class Jar extends Zip {
         }
     }
 
+    /**
+     * Every update writes the manifest again, appending it would
+     * leave the old manifest ahead of the new one where
+     * JarInputStream finds it, so jars are always rewritten in full.
+     * @return false
+     * @since Ant 1.10.6
+     */
+    @Override
+    protected boolean canUpdateInPlace() {
+        if (getUpdateInPlace()) {
+            logWhenWriting("Rewriting " + zipFile + " as its manifest is written again",
+                           Project.MSG_VERBOSE);
+        }
+        return false;
+    }
+
     /**
      * Create the index list to speed up classloading.
      * This is a JDK 1.3+ specific feature and is enabled by default. See
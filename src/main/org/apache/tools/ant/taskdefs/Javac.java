@@ -21,14 +21,28 @@ package org.apache.tools.ant.taskdefs;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.DirectoryScanner;
@@ -99,12 +113,18 @@ public class Javac extends MatchingTask {
     private static final String MODERN = "modern";
     private static final String CLASSIC = "classic";
     private static final String EXTJAVAC = "extJavac";
+    private static final String JAVAX_TOOLS = "javax.tools";
+    private static final String DAEMON = "daemon";
 
     private static final char GROUP_START_MARK = '{';   //modulesourcepath group start character
     private static final char GROUP_END_MARK = '}';   //modulesourcepath group end character
     private static final char GROUP_SEP_MARK = ',';   //modulesourcepath group element separator character
     private static final String MODULE_MARKER = "*";    //modulesourcepath module name marker
 
+    private static final Pattern COMMENT = Pattern.compile("(?s)/\\*.*?\\*/|//[^\\n]*");
+    private static final Pattern REQUIRES = Pattern.compile(
+        "\\brequires\\s+(?:(?:transitive|static)\\s+)*([\\p{javaJavaIdentifierPart}.]+)\\s*;");
+
     private static final FileUtils FILE_UTILS = FileUtils.getFileUtils();
 
     private Path src;
@@ -152,6 +172,12 @@ public class Javac extends MatchingTask {
 
     private boolean createMissingPackageInfoClass = true;
 
+    private File incrementalCache;
+    private IncrementalJavacCache incremental;
+    private int threads = 1;
+    // the module of the modulesourcepath a copy of the task compiles
+    private String compiledModule;
+
     /**
      * Javac task for compilation of Java files.
      */
@@ -890,7 +916,8 @@ public class Javac extends MatchingTask {
      * @return true if this is a forked invocation
      */
     public boolean isForkedJavac() {
-        return fork || EXTJAVAC.equalsIgnoreCase(getCompiler());
+        return fork || EXTJAVAC.equalsIgnoreCase(getCompiler())
+            || DAEMON.equalsIgnoreCase(getCompiler());
     }
 
     /**
@@ -946,6 +973,15 @@ public class Javac extends MatchingTask {
      * @return array of command line arguments, guaranteed to be non-null.
      */
     public String[] getCurrentCompilerArgs() {
+        final String[] args;
+        // copies compiling modules in parallel share the facade
+        synchronized (facade) {
+            args = getFacadeArgs();
+        }
+        return compiledModule == null ? args : getModuleCompilerArgs(args);
+    }
+
+    private String[] getFacadeArgs() {
         final String chosen = facade.getExplicitChoice();
         try {
             // make sure facade knows about magic properties and fork setting
@@ -968,6 +1004,23 @@ public class Javac extends MatchingTask {
         }
     }
 
+    /**
+     * Places the output of -s and -h in a subdirectory named after
+     * the module, as javac does when compiling a modulesourcepath.
+     */
+    private String[] getModuleCompilerArgs(final String[] args) {
+        final String[] result = args.clone();
+        for (int i = 0; i < result.length - 1; i++) {
+            if ("-s".equals(result[i]) || "-h".equals(result[i])) {
+                final File dir = new File(getProject().resolveFile(result[++i]),
+                                          compiledModule);
+                dir.mkdirs();
+                result[i] = dir.getPath();
+            }
+        }
+        return result;
+    }
+
     private String getAltCompilerName(final String anImplementation) {
         if (JAVAC10_PLUS.equalsIgnoreCase(anImplementation)
                 || JAVAC9.equalsIgnoreCase(anImplementation)
@@ -984,6 +1037,9 @@ public class Javac extends MatchingTask {
                 || JAVAC11.equalsIgnoreCase(anImplementation)) {
             return CLASSIC;
         }
+        if (JAVAX_TOOLS.equalsIgnoreCase(anImplementation)) {
+            return MODERN;
+        }
         if (MODERN.equalsIgnoreCase(anImplementation)) {
             final String nextSelected = assumedJavaVersion();
             if (JAVAC10_PLUS.equalsIgnoreCase(anImplementation)
@@ -1003,6 +1059,9 @@ public class Javac extends MatchingTask {
         if (EXTJAVAC.equalsIgnoreCase(anImplementation)) {
             return assumedJavaVersion();
         }
+        if (DAEMON.equalsIgnoreCase(anImplementation)) {
+            return EXTJAVAC;
+        }
         return null;
     }
 
@@ -1113,6 +1172,58 @@ public class Javac extends MatchingTask {
         createMissingPackageInfoClass = b;
     }
 
+    /**
+     * Enables incremental compilation and sets the file that holds
+     * its state.
+     *
+     * <p>Rather than comparing the timestamps of sources and class
+     * files the task compiles all sources that have changed since the
+     * last compilation and then the sources that depend on a class
+     * whose API has changed. Class files of sources that are no
+     * longer part of the compilation are deleted.</p>
+     *
+     * @param file the cache file, must not be shared with other
+     * tasks.
+     * @since Ant 1.10.6
+     */
+    public void setIncrementalCache(final File file) {
+        incrementalCache = file;
+    }
+
+    /**
+     * The file that holds the state of the incremental compilation.
+     * @return the file or null if the compilation isn't incremental
+     * @since Ant 1.10.6
+     */
+    public File getIncrementalCache() {
+        return incrementalCache;
+    }
+
+    /**
+     * Number of modules of a modulesourcepath that are compiled
+     * concurrently.
+     *
+     * <p>If greater than 1 each module is compiled by a compiler
+     * invocation of its own with only the modules it requires on the
+     * module path. Modules are compiled once all modules they require
+     * have been compiled.</p>
+     *
+     * @param threads the number of threads, defaults to 1
+     * @since Ant 1.10.6
+     */
+    public void setThreads(final int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Number of modules that are compiled concurrently.
+     * @return int
+     * @since Ant 1.10.6
+     */
+    public int getThreads() {
+        return threads;
+    }
+
     /**
      * Executes the task.
      * @exception BuildException if an error occurs
@@ -1128,10 +1239,22 @@ public class Javac extends MatchingTask {
             collectFileListFromSourcePath();
         } else {
             assert hasPath(moduleSourcepath) : "Either srcDir or moduleSourcepath must be given";
-            collectFileListFromModulePath();
+            if (threads <= 1) {
+                collectFileListFromModulePath();
+            }
         }
 
-        compile();
+        if (threads > 1 && !hasPath(moduleSourcepath)) {
+            log("threads is ignored as there is no modulesourcepath",
+                Project.MSG_VERBOSE);
+        }
+        if (hasPath(moduleSourcepath) && threads > 1) {
+            compileModulesInParallel();
+        } else if (incremental != null) {
+            compileIncrementally();
+        } else {
+            compile();
+        }
         if (updatedProperty != null
             && taskSuccess
             && compileList.length != 0) {
@@ -1145,6 +1268,8 @@ public class Javac extends MatchingTask {
     protected void resetFileLists() {
         compileList = new File[0];
         packageInfos = new HashMap<>();
+        incremental = incrementalCache == null ? null
+            : new IncrementalJavacCache(incrementalCache, this);
     }
 
     /**
@@ -1161,6 +1286,15 @@ public class Javac extends MatchingTask {
         for (String extension : findSupportedFileExtensions()) {
             m.setFrom(extension);
             m.setTo("*.class");
+            if (incremental != null) {
+                // the cache decides which files are out of date
+                for (String name : files) {
+                    if (m.mapFileName(name) != null) {
+                        incremental.addSource(srcDir, name, destDir);
+                    }
+                }
+                continue;
+            }
             final SourceFileScanner sfs = new SourceFileScanner(this);
             final File[] newFiles = sfs.restrictAsFiles(files, srcDir, destDir, m);
 
@@ -1256,10 +1390,12 @@ public class Javac extends MatchingTask {
      * @param compilerImpl the name of the compiler implementation
      * @return true if compilerImpl is "modern", "classic",
      * "javac1.1", "javac1.2", "javac1.3", "javac1.4", "javac1.5",
-     * "javac1.6", "javac1.7", "javac1.8", "javac1.9", "javac9" or "javac10+".
+     * "javac1.6", "javac1.7", "javac1.8", "javac1.9", "javac9", "javac10+"
+     * or "javax.tools".
      */
     protected boolean isJdkCompiler(final String compilerImpl) {
         return MODERN.equals(compilerImpl)
+            || JAVAX_TOOLS.equals(compilerImpl)
             || CLASSIC.equals(compilerImpl)
             || JAVAC10_PLUS.equals(compilerImpl)
             || JAVAC9.equals(compilerImpl)
@@ -1297,7 +1433,8 @@ public class Javac extends MatchingTask {
      *
      * <p>If fork has been set to true, the result will be extJavac
      * and not classic or java1.2 - no matter what the compiler
-     * attribute looks like.</p>
+     * attribute looks like - unless the compiler is daemon, which
+     * always forks.</p>
      *
      * @see #getCompilerVersion
      * @return the compiler.
@@ -1308,7 +1445,7 @@ public class Javac extends MatchingTask {
         if (fork) {
             if (isJdkCompiler(compilerImpl)) {
                 compilerImpl = EXTJAVAC;
-            } else {
+            } else if (!DAEMON.equalsIgnoreCase(compilerImpl)) {
                 log("Since compiler setting isn't classic or modern, ignoring fork setting.",
                     Project.MSG_WARN);
             }
@@ -1430,6 +1567,242 @@ public class Javac extends MatchingTask {
         }
     }
 
+    /**
+     * Compiles each module of the modulesourcepath on its own,
+     * independent modules concurrently.
+     */
+    private void compileModulesInParallel() {
+        if (incrementalCache != null) {
+            throw new BuildException(
+                "incrementalcache can't be used when compiling modules in parallel",
+                getLocation());
+        }
+        final Map<String, List<File>> modules = new TreeMap<>();
+        for (String pathElement : moduleSourcepath.list()) {
+            boolean valid = false;
+            for (Map.Entry<String, Collection<File>> module : resolveModuleSourcePathElement(
+                getProject().getBaseDir(), pathElement).entrySet()) {
+                for (File srcDir : module.getValue()) {
+                    if (srcDir.exists()) {
+                        valid = true;
+                        modules.computeIfAbsent(module.getKey(), k -> new ArrayList<>())
+                            .add(srcDir);
+                    }
+                }
+            }
+            if (!valid) {
+                throw new BuildException("modulesourcepath \""
+                                         + pathElement
+                                         + "\" does not exist!", getLocation());
+            }
+        }
+
+        // the modules each module requires directly or indirectly
+        final Map<String, Set<String>> requires = new HashMap<>();
+        for (Map.Entry<String, List<File>> module : modules.entrySet()) {
+            final Set<String> direct = readRequires(module.getValue());
+            direct.retainAll(modules.keySet());
+            requires.put(module.getKey(), direct);
+        }
+        final List<String> order = new ArrayList<>();
+        for (String module : modules.keySet()) {
+            sortModules(module, requires, new HashSet<>(), order);
+        }
+
+        final Map<String, Javac> compilations = new LinkedHashMap<>();
+        final List<File> allFiles = new ArrayList<>();
+        for (String module : order) {
+            final Javac compilation = createModuleCompilation(module, modules.get(module),
+                                                              requires.get(module));
+            compilation.collectFileListFromSourcePath();
+            if (compilation.compileList.length > 0) {
+                compilations.put(module, compilation);
+                allFiles.addAll(Arrays.asList(compilation.compileList));
+            }
+        }
+        compileList = allFiles.toArray(new File[0]);
+        if (compilations.isEmpty()) {
+            return;
+        }
+
+        // a shared adapter can't be used by several compilations at once
+        final int poolSize = nestedAdapter != null ? 1 : Math.min(threads, compilations.size());
+        final ExecutorService pool = Executors.newFixedThreadPool(poolSize, r -> {
+            final Thread t = new Thread(r, getTaskName() + "-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        final Set<String> failed = ConcurrentHashMap.newKeySet();
+        final Map<String, CompletableFuture<Void>> futures = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<String, Javac> compilation : compilations.entrySet()) {
+                final String module = compilation.getKey();
+                // all required modules compiled in this run must be complete
+                final CompletableFuture<?>[] required = requires.get(module).stream()
+                    .map(futures::get).filter(Objects::nonNull)
+                    .toArray(CompletableFuture[]::new);
+                futures.put(module, CompletableFuture.allOf(required).thenRunAsync(() -> {
+                    try {
+                        compileModule(compilation.getValue());
+                    } catch (RuntimeException | Error ex) { //NOSONAR
+                        failed.add(module);
+                        throw ex;
+                    }
+                }, pool));
+            }
+            Throwable failure = null;
+            for (Map.Entry<String, CompletableFuture<Void>> future : futures.entrySet()) {
+                try {
+                    future.getValue().get();
+                } catch (ExecutionException ex) {
+                    if (failure == null) {
+                        failure = ex.getCause();
+                    }
+                    if (!failed.contains(future.getKey())) {
+                        log("Module " + future.getKey()
+                            + " hasn't been compiled as a module it requires failed",
+                            Project.MSG_WARN);
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new BuildException("interrupted while waiting for "
+                                             + getTaskName() + " to complete",
+                                             ex, getLocation());
+                }
+            }
+            if (failure != null) {
+                taskSuccess = false;
+                if (failOnError) {
+                    if (failure instanceof RuntimeException) {
+                        throw (RuntimeException) failure;
+                    }
+                    if (failure instanceof Error) {
+                        throw (Error) failure;
+                    }
+                    throw new BuildException(failure, getLocation());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Creates a copy of this task that compiles a single module of
+     * the modulesourcepath.
+     */
+    private Javac createModuleCompilation(final String module, final List<File> srcDirs,
+                                          final Set<String> required) {
+        final Javac compilation;
+        try {
+            compilation = (Javac) clone();
+        } catch (CloneNotSupportedException ex) {
+            throw new BuildException(ex, getLocation());
+        }
+        compilation.moduleSourcepath = null;
+        compilation.src = new Path(getProject());
+        srcDirs.forEach(d -> compilation.src.createPathElement().setLocation(d));
+        compilation.destDir = new File(destDir, module);
+        if (nativeHeaderDir != null) {
+            compilation.nativeHeaderDir = new File(nativeHeaderDir, module);
+        }
+        compilation.compiledModule = module;
+        compilation.modulepath = new Path(getProject());
+        required.forEach(r -> compilation.modulepath.createPathElement()
+                         .setLocation(new File(destDir, r)));
+        if (modulepath != null) {
+            compilation.modulepath.append(modulepath);
+        }
+        compilation.threads = 1;
+        compilation.taskSuccess = true;
+        compilation.resetFileLists();
+        return compilation;
+    }
+
+    private void compileModule(final Javac compilation) {
+        compilation.destDir.mkdirs();
+        if (compilation.nativeHeaderDir != null) {
+            compilation.nativeHeaderDir.mkdirs();
+        }
+        // in-process compilers write to System.out and System.err
+        getProject().registerThreadTask(Thread.currentThread(), this);
+        try {
+            compilation.compile();
+        } finally {
+            getProject().registerThreadTask(Thread.currentThread(), null);
+        }
+        if (!compilation.taskSuccess) {
+            throw new BuildException(FAIL_MSG, getLocation());
+        }
+    }
+
+    /**
+     * Adds a module to the order after all modules it requires and
+     * replaces its direct requirements with all modules it requires
+     * directly or indirectly.
+     */
+    private void sortModules(final String module, final Map<String, Set<String>> requires,
+                             final Set<String> visiting, final List<String> order) {
+        if (order.contains(module)) {
+            return;
+        }
+        if (!visiting.add(module)) {
+            throw new BuildException("Cycle in the requirements of module " + module,
+                                     getLocation());
+        }
+        final Set<String> all = new TreeSet<>();
+        for (String required : requires.get(module)) {
+            sortModules(required, requires, visiting, order);
+            all.add(required);
+            all.addAll(requires.get(required));
+        }
+        requires.put(module, all);
+        visiting.remove(module);
+        order.add(module);
+    }
+
+    /**
+     * The names of the modules a module-info.java in one of the
+     * directories requires.
+     */
+    private Set<String> readRequires(final List<File> srcDirs) {
+        final Set<String> result = new TreeSet<>();
+        for (File srcDir : srcDirs) {
+            final File moduleInfo = new File(srcDir, "module-info.java");
+            if (!moduleInfo.isFile()) {
+                continue;
+            }
+            final String text;
+            try {
+                text = new String(Files.readAllBytes(moduleInfo.toPath()),
+                                  encoding == null ? Charset.defaultCharset()
+                                  : Charset.forName(encoding));
+            } catch (IOException ex) {
+                throw new BuildException("Error reading " + moduleInfo, ex, getLocation());
+            }
+            final Matcher m = REQUIRES.matcher(COMMENT.matcher(text).replaceAll(" "));
+            while (m.find()) {
+                result.add(m.group(1));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Compiles the sources the incremental compilation cache
+     * considers out of date in as many rounds as necessary.
+     */
+    private void compileIncrementally() {
+        incremental.compile(sources -> {
+            compileList = sources.stream().map(IncrementalJavacCache.Source::getFile)
+                .toArray(File[]::new);
+            packageInfos.clear();
+            sources.forEach(s -> lookForPackageInfos(s.getSrcDir(), new File[] {s.getFile()}));
+            compile();
+            return taskSuccess;
+        });
+    }
+
     /**
      * Adds an "compiler" attribute to Commandline$Attribute used to
      * filter command line attributes based on the current
@@ -19,6 +19,7 @@ package org.apache.tools.ant.taskdefs;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.apache.tools.ant.BuildException;
@@ -134,34 +135,13 @@ public class Move extends Copy {
             log("Moving " + moveCount + " file" + ((moveCount == 1) ? "" : "s")
                     + " to " + destDir.getAbsolutePath());
 
+            Map<Runnable, String[]> moves = new LinkedHashMap<>();
             for (Map.Entry<String, String[]> entry : fileCopyMap.entrySet()) {
                 String fromFile = entry.getKey();
-                File f = new File(fromFile);
-                boolean selfMove = false;
-                if (f.exists()) { //Is this file still available to be moved?
-                    String[] toFiles = entry.getValue();
-                    for (int i = 0; i < toFiles.length; i++) {
-                        String toFile = toFiles[i];
-
-                        if (fromFile.equals(toFile)) {
-                            log("Skipping self-move of " + fromFile, verbosity);
-                            selfMove = true;
-
-                            // if this is the last time through the loop then
-                            // move will not occur, but that's what we want
-                            continue;
-                        }
-                        File d = new File(toFile);
-                        if ((i + 1) == toFiles.length && !selfMove) {
-                            // Only try to move if this is the last mapped file
-                            // and one of the mappings isn't to itself
-                            moveFile(f, d, filtering, forceOverwrite);
-                        } else {
-                            copyFile(f, d, filtering, forceOverwrite);
-                        }
-                    }
-                }
+                String[] toFiles = entry.getValue();
+                moves.put(() -> moveFile(fromFile, toFiles), toFiles);
             }
+            runFileOperations(moves);
         }
 
         if (includeEmpty) {
@@ -202,6 +182,37 @@ public class Move extends Copy {
         }
     }
 
+    /**
+     * Moves a file to the last of its destinations and copies it to
+     * all others.
+     */
+    private void moveFile(String fromFile, String[] toFiles) {
+        File f = new File(fromFile);
+        boolean selfMove = false;
+        if (f.exists()) { //Is this file still available to be moved?
+            for (int i = 0; i < toFiles.length; i++) {
+                String toFile = toFiles[i];
+
+                if (fromFile.equals(toFile)) {
+                    log("Skipping self-move of " + fromFile, verbosity);
+                    selfMove = true;
+
+                    // if this is the last time through the loop then
+                    // move will not occur, but that's what we want
+                    continue;
+                }
+                File d = new File(toFile);
+                if ((i + 1) == toFiles.length && !selfMove) {
+                    // Only try to move if this is the last mapped file
+                    // and one of the mappings isn't to itself
+                    moveFile(f, d, filtering, forceOverwrite);
+                } else {
+                    copyFile(f, d, filtering, forceOverwrite);
+                }
+            }
+        }
+    }
+
     /**
      * Try to move the file via a rename, but if this fails or filtering
      * is enabled, copy the file then delete the sourceFile.
@@ -248,7 +259,7 @@ public class Move extends Copy {
                                     /* append: */ false,
                                     getEncoding(),
                                     getOutputEncoding(),
-                                    getProject(), getForce());
+                                    getProject(), getForce(), getStrategy());
         } catch (IOException ioe) {
             throw new BuildException("Failed to copy " + fromFile + " to "
                 + toFile + " due to " + ioe.getMessage(), ioe, getLocation());
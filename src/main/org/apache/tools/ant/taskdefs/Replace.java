@@ -30,6 +30,7 @@ import java.io.Reader;
 import java.io.Writer;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
@@ -44,6 +45,7 @@ import org.apache.tools.ant.types.resources.FileProvider;
 import org.apache.tools.ant.types.resources.FileResource;
 import org.apache.tools.ant.types.resources.Union;
 import org.apache.tools.ant.util.FileUtils;
+import org.apache.tools.ant.util.MultiStringMatcher;
 import org.apache.tools.ant.util.StreamUtils;
 
 /**
@@ -69,6 +71,7 @@ public class Replace extends MatchingTask {
     private Resource replaceFilterResource = null;
     private Properties properties = null;
     private List<Replacefilter> replacefilters = new ArrayList<>();
+    private FilterSelector filterSelector;
 
     private File dir = null;
 
@@ -484,6 +487,101 @@ public class Replace extends MatchingTask {
 
     }
 
+    /**
+     * Selects the filters that may change a file.
+     *
+     * <p>Looks for all tokens at the same time in the start of the
+     * file, so that files containing none of the tokens are not
+     * rewritten and filters whose token doesn't occur don't take part
+     * in the replacement. The text that has been read stays in the
+     * buffer of the input and is replaced from there, the file is
+     * read only once. Files longer than {@link #PRESCAN_LIMIT}
+     * characters are not scanned to the end, all filters are applied
+     * to them.</p>
+     *
+     * <p>As filters are applied one after the other, a replacement
+     * value may create an occurrence of a token that is replaced by a
+     * later filter; all filters following such a value are
+     * used.</p>
+     * @since Ant 1.10.6
+     */
+    private class FilterSelector {
+        /** number of characters scanned at most */
+        private static final int PRESCAN_LIMIT = 256 * 1024;
+
+        private final List<Replacefilter> filters;
+        private final MultiStringMatcher tokens;
+        private final boolean[] mayCreateToken;
+
+        FilterSelector(List<Replacefilter> filters) {
+            this.filters = filters;
+            List<String> forward = new ArrayList<>();
+            List<String> backward = new ArrayList<>();
+            for (Replacefilter filter : filters) {
+                forward.add(filter.getToken());
+                backward.add(new StringBuilder(filter.getToken()).reverse().toString());
+            }
+            tokens = new MultiStringMatcher(forward, true);
+            MultiStringMatcher reversedTokens = new MultiStringMatcher(backward, true);
+            String allTokens = String.join("\0", forward);
+            mayCreateToken = new boolean[filters.size()];
+            for (int i = 0; i < mayCreateToken.length; i++) {
+                mayCreateToken[i] =
+                    mayCreateToken(filters.get(i).replaceValue, reversedTokens, allTokens);
+            }
+        }
+
+        /**
+         * Whether a token may occur in the text after value has been
+         * inserted into it.
+         */
+        private boolean mayCreateToken(String value, MultiStringMatcher reversedTokens,
+                                       String allTokens) {
+            if (value.isEmpty()) {
+                // the text around the replaced token is joined
+                return true;
+            }
+            int end = value.length();
+            // contains a token or ends with the start of a token
+            return tokens.find(value, 0, end, false).getStart() < end
+                // starts with the end of a token
+                || reversedTokens.find(new StringBuilder(value).reverse(), 0, end, false)
+                    .getStart() < end
+                // is part of a token
+                || allTokens.contains(value);
+        }
+
+        /**
+         * Scans the start of the file, the text read is left in the
+         * output buffer of the input.
+         * @param in the input of the file, nothing has been read from
+         * it yet.
+         * @return the filters to apply in order, may be empty.
+         * @throws IOException When the file cannot be read from.
+         */
+        List<Replacefilter> select(FileInput in) throws IOException {
+            StringBuffer buffer = in.getOutputBuffer();
+            boolean more;
+            do {
+                more = in.readChunk();
+            } while (more && buffer.length() < PRESCAN_LIMIT);
+            if (more) {
+                return filters;
+            }
+            BitSet found = new BitSet();
+            tokens.collect(buffer, 0, buffer.length(), 0, found);
+            List<Replacefilter> selected = new ArrayList<>();
+            boolean all = false;
+            for (int i = 0; i < mayCreateToken.length; i++) {
+                if (all || found.get(i)) {
+                    selected.add(filters.get(i));
+                    all |= mayCreateToken[i];
+                }
+            }
+            return selected;
+        }
+    }
+
     /**
      * Do the execution.
      * @throws BuildException if we can't build
@@ -526,6 +624,7 @@ public class Replace extends MatchingTask {
             }
 
             validateReplacefilters();
+            filterSelector = new FilterSelector(replacefilters);
             fileCount = 0;
             replaceCount = 0;
 
@@ -557,6 +656,7 @@ public class Replace extends MatchingTask {
         } finally {
             replacefilters = savedFilters;
             properties = savedProperties;
+            filterSelector = null;
         } // end of finally
 
     }
@@ -649,22 +749,32 @@ public class Replace extends MatchingTask {
         logFilterChain(src.getPath());
 
         try {
-            File temp = FILE_UTILS.createTempFile("rep", ".tmp",
-                    src.getParentFile(), false, true);
+            File temp = null;
             try {
-                try (FileInput in = new FileInput(src);
-                     FileOutput out = new FileOutput(temp)) {
-                    out.setInputBuffer(buildFilterChain(in.getOutputBuffer()));
-
-                    while (in.readChunk()) {
-                        if (processFilterChain()) {
-                            out.process();
-                        }
+                try (FileInput in = new FileInput(src)) {
+                    List<Replacefilter> filters = filterSelector == null
+                        ? replacefilters : filterSelector.select(in);
+                    if (filters.isEmpty()) {
+                        return;
                     }
+                    temp = FILE_UTILS.createTempFile("rep", ".tmp",
+                            src.getParentFile(), false, true);
+                    try (FileOutput out = new FileOutput(temp)) {
+                        out.setInputBuffer(buildFilterChain(filters, in.getOutputBuffer()));
+
+                        // the selector may have read the start of the file
+                        boolean more = in.getOutputBuffer().length() > 0 || in.readChunk();
+                        while (more) {
+                            if (processFilterChain(filters)) {
+                                out.process();
+                            }
+                            more = in.readChunk();
+                        }
 
-                    flushFilterChain();
+                        flushFilterChain(filters);
 
-                    out.flush();
+                        out.flush();
+                    }
                 }
                 boolean changes = (replaceCount != repCountStart);
                 if (changes) {
@@ -676,7 +786,7 @@ public class Replace extends MatchingTask {
                     }
                 }
             } finally {
-                if (temp.isFile() && !temp.delete()) {
+                if (temp != null && temp.isFile() && !temp.delete()) {
                     temp.deleteOnExit();
                 }
             }
@@ -689,28 +799,32 @@ public class Replace extends MatchingTask {
 
     /**
      * Flushes all filters.
+     * @param filters the filters of the chain.
      */
-    private void flushFilterChain() {
-        replacefilters.forEach(Replacefilter::flush);
+    private void flushFilterChain(List<Replacefilter> filters) {
+        filters.forEach(Replacefilter::flush);
     }
 
     /**
      * Performs the normal processing of the filters.
+     * @param filters the filters of the chain.
      * @return true if the filter chain produced new output.
      */
-    private boolean processFilterChain() {
-        return replacefilters.stream().allMatch(Replacefilter::process);
+    private boolean processFilterChain(List<Replacefilter> filters) {
+        return filters.stream().allMatch(Replacefilter::process);
     }
 
     /**
      * Creates the chain of filters to operate.
+     * @param filters the filters of the chain.
      * @param inputBuffer <code>StringBuffer</code> containing the input for the
      *                    first filter.
      * @return <code>StringBuffer</code> containing the output of the last filter.
      */
-    private StringBuffer buildFilterChain(StringBuffer inputBuffer) {
+    private StringBuffer buildFilterChain(List<Replacefilter> filters,
+                                          StringBuffer inputBuffer) {
         StringBuffer buf = inputBuffer;
-        for (Replacefilter filter : replacefilters) {
+        for (Replacefilter filter : filters) {
             filter.setInputBuffer(buf);
             buf = filter.getOutputBuffer();
         }
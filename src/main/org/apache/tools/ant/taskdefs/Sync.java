@@ -18,10 +18,22 @@
 
 package org.apache.tools.ant.taskdefs;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Stream;
@@ -35,6 +47,7 @@ import org.apache.tools.ant.types.FileSet;
 import org.apache.tools.ant.types.PatternSet;
 import org.apache.tools.ant.types.Resource;
 import org.apache.tools.ant.types.ResourceCollection;
+import org.apache.tools.ant.types.resources.FileResource;
 import org.apache.tools.ant.types.resources.Resources;
 import org.apache.tools.ant.types.resources.Restrict;
 import org.apache.tools.ant.types.resources.selectors.Exists;
@@ -67,6 +80,9 @@ public class Sync extends Task {
 
     private Resources resources = null;
 
+    // File recording the content of the destination directory
+    private File manifest;
+
     // Override Task#init
     /**
      * Initialize the sync task.
@@ -112,6 +128,16 @@ public class Sync extends Task {
         // or was empty, then no previous file removal is necessary!
         boolean noRemovalNecessary = !toDir.exists() || toDir.list().length < 1;
 
+        Map<String, ManifestEntry> recorded = null;
+        if (manifest != null) {
+            recorded = noRemovalNecessary ? null : SyncManifest.load(manifest, toDir);
+            if (recorded == null) {
+                log("No usable manifest " + manifest + ", synchronizing all files",
+                    Project.MSG_VERBOSE);
+            }
+            myCopy.useManifest(recorded);
+        }
+
         // Copy all the necessary out-of-date files
         log("PASS#1: Copying files to " + toDir, Project.MSG_DEBUG);
         myCopy.execute();
@@ -119,9 +145,32 @@ public class Sync extends Task {
         // Do we need to perform further processing?
         if (noRemovalNecessary) {
             log("NO removing necessary in " + toDir, Project.MSG_DEBUG);
-            return; // nope ;-)
+        } else if (recorded != null && syncTarget == null) {
+            log("PASS#2: Removing orphan files recorded in " + manifest,
+                Project.MSG_DEBUG);
+            removeRecordedOrphans(recorded, allFiles, toDir);
+        } else {
+            removeOrphans(allFiles, toDir);
         }
 
+        if (manifest != null) {
+            try {
+                SyncManifest.save(manifest, toDir, myCopy.getManifestEntries());
+            } catch (IOException ex) {
+                log("Failed to save manifest " + manifest + ": " + ex.getMessage(),
+                    Project.MSG_WARN);
+            }
+        }
+    }
+
+    /**
+     * Removes orphan files and empty directories by scanning the
+     * destination directory.
+     *
+     * @param  allFiles the names of all non-orphan files and directories.
+     * @param  toDir the destination directory.
+     */
+    private void removeOrphans(Set<String> allFiles, File toDir) {
         // will hold the directories matched by SyncTarget in reversed
         // lexicographic order (order is important, that's why we use
         // a LinkedHashSet
@@ -152,6 +201,70 @@ public class Sync extends Task {
         }
     }
 
+    /**
+     * Removes the files and directories recorded in the manifest that
+     * are no longer present in the sources, without scanning the
+     * destination directory.
+     *
+     * <p>Directories that become empty are removed as well unless
+     * empty directories are included in the sync.</p>
+     *
+     * @param  recorded the entries of the manifest.
+     * @param  nonOrphans the names of all non-orphan files and directories.
+     * @param  toDir the destination directory.
+     * @since Ant 1.10.6
+     */
+    private void removeRecordedOrphans(Map<String, ManifestEntry> recorded,
+                                       Set<String> nonOrphans, File toDir) {
+        List<String> orphans = new ArrayList<>();
+        for (String name : recorded.keySet()) {
+            if (!nonOrphans.contains(name)) {
+                orphans.add(name);
+            }
+        }
+        // children before their parents
+        orphans.sort(Collections.reverseOrder());
+
+        int removedFiles = 0;
+        int removedDirs = 0;
+        int removedEmptyDirs = 0;
+        for (String name : orphans) {
+            File f = new File(toDir, name);
+            if (recorded.get(name).isDirectory()) {
+                String[] children = f.list();
+                if (children != null && children.length == 0) {
+                    log("Removing orphan directory: " + f, Project.MSG_DEBUG);
+                    f.delete();
+                    ++removedDirs;
+                }
+                continue;
+            }
+            if (!f.isFile()) {
+                continue;
+            }
+            log("Removing orphan file: " + f, Project.MSG_DEBUG);
+            f.delete();
+            ++removedFiles;
+            if (!myCopy.getIncludeEmptyDirs()) {
+                for (File dir = f.getParentFile(); dir != null && !dir.equals(toDir);
+                     dir = dir.getParentFile()) {
+                    String[] children = dir.list();
+                    if (children == null || children.length > 0) {
+                        break;
+                    }
+                    log("Removing empty directory: " + dir, Project.MSG_DEBUG);
+                    dir.delete();
+                    ++removedEmptyDirs;
+                }
+            }
+        }
+        logRemovedCount(removedDirs, "dangling director", "y", "ies");
+        logRemovedCount(removedFiles, "dangling file", "", "s");
+        if (!myCopy.getIncludeEmptyDirs()) {
+            logRemovedCount(removedEmptyDirs, "empty director", "y", "ies");
+        }
+    }
+
     private void logRemovedCount(int count, String prefix,
                                  String singularSuffix, String pluralSuffix) {
         File toDir = myCopy.getToDir();
@@ -423,6 +536,43 @@ public class Sync extends Task {
         myCopy.setGranularity(granularity);
     }
 
+    /**
+     * Number of threads used to copy files.
+     * @param threads the number of threads, defaults to 1.
+     * @since Ant 1.10.6
+     */
+    public void setThreads(int threads) {
+        myCopy.setThreads(threads);
+    }
+
+    /**
+     * How unfiltered files are duplicated.
+     * @param strategy the strategy, defaults to copy.
+     * @since Ant 1.10.6
+     */
+    public void setStrategy(Copy.Strategy strategy) {
+        myCopy.setStrategy(strategy);
+    }
+
+    /**
+     * File to record the content of the destination directory in.
+     *
+     * <p>If the file exists and belongs to the destination directory,
+     * the files to copy and to remove are determined by comparing the
+     * sources to the manifest instead of the destination directory,
+     * which isn't scanned at all. Files whose size or modification time
+     * differ from the manifest are only copied if their content has
+     * changed. Recorded files that have been modified or removed in the
+     * destination directory by other means are copied again, files
+     * added to it by other means are not detected.</p>
+     *
+     * @param manifest the file, it is rewritten after each sync.
+     * @since Ant 1.10.6
+     */
+    public void setManifest(File manifest) {
+        this.manifest = manifest;
+    }
+
     /**
      * A container for patterns and selectors that can be used to
      * specify files that should be kept in the target even if they
@@ -459,6 +609,16 @@ public class Sync extends Task {
         // fact that they are newer or not than the destination.
         private Set<String> nonOrphans = new HashSet<>();
 
+        // Entries of the manifest of the previous sync, null if all
+        // files are to be compared to the destination directory.
+        private Map<String, ManifestEntry> recorded;
+
+        // Entries of the manifest to write, null if no manifest is used.
+        private Map<String, ManifestEntry> manifestEntries;
+
+        // Names of the sources that may have been copied.
+        private List<String> copyCandidates = new ArrayList<>();
+
         /**
          * @see Copy#scan(File, File, String[], String[])
          * {@inheritDoc}
@@ -468,7 +628,17 @@ public class Sync extends Task {
                             String[] dirs) {
             assertTrue("No mapper", mapperElement == null);
 
-            super.scan(fromDir, toDir, files, dirs);
+            if (manifestEntries == null) {
+                super.scan(fromDir, toDir, files, dirs);
+            } else {
+                String[] modified = Stream.of(files)
+                    .filter(name -> record(name, new FileResource(fromDir, name)))
+                    .toArray(String[]::new);
+                super.scan(fromDir, toDir, modified, dirs);
+                for (String dir : dirs) {
+                    manifestEntries.put(dir, ManifestEntry.DIRECTORY);
+                }
+            }
 
             Collections.addAll(nonOrphans, files);
             Collections.addAll(nonOrphans, dirs);
@@ -484,9 +654,98 @@ public class Sync extends Task {
 
             Stream.of(resources).map(Resource::getName).forEach(nonOrphans::add);
 
+            if (manifestEntries != null) {
+                resources = Stream.of(resources).filter(r -> record(r.getName(), r))
+                    .toArray(Resource[]::new);
+            }
             return super.scan(resources, toDir);
         }
 
+        /**
+         * Makes the selection of files to copy use a manifest.
+         * @param recorded the entries of the manifest written by the
+         * previous sync, null if it doesn't exist.
+         * @since Ant 1.10.6
+         */
+        void useManifest(Map<String, ManifestEntry> recorded) {
+            this.recorded = forceOverwrite ? null : recorded;
+            manifestEntries = new HashMap<>();
+            copyCandidates.clear();
+        }
+
+        /**
+         * Overwrites all files selected by the manifest while
+         * executing.
+         * @since Ant 1.10.6
+         */
+        @Override
+        public void execute() throws BuildException {
+            boolean overwrite = forceOverwrite;
+            if (recorded != null) {
+                // the manifest has the final word
+                forceOverwrite = true;
+            }
+            try {
+                super.execute();
+            } finally {
+                forceOverwrite = overwrite;
+            }
+        }
+
+        /**
+         * The entries of the manifest for the current sync.
+         * @since Ant 1.10.6
+         */
+        Map<String, ManifestEntry> getManifestEntries() {
+            for (String name : copyCandidates) {
+                File f = new File(destDir, name);
+                ManifestEntry entry = manifestEntries.get(name);
+                if (!f.isFile() || (!failonerror && f.length() != entry.size)) {
+                    // don't claim files have been copied if copying failed
+                    manifestEntries.remove(name);
+                } else {
+                    manifestEntries.put(name, entry.withDestination(f));
+                }
+            }
+            return manifestEntries;
+        }
+
+        /**
+         * Records a source in the manifest.
+         * @return whether the source may have to be copied.
+         */
+        private boolean record(String name, Resource r) {
+            ManifestEntry previous = recorded == null ? null : recorded.get(name);
+            if (previous == null || previous.isDirectory()) {
+                manifestEntries.put(name, new ManifestEntry(r.getSize(), r.getLastModified(),
+                                                            null, -1, 0));
+                copyCandidates.add(name);
+                return true;
+            }
+            if (!previous.matchesDestination(new File(destDir, name))) {
+                log(name + " has been modified in " + destDir, Project.MSG_VERBOSE);
+                manifestEntries.put(name, new ManifestEntry(r.getSize(), r.getLastModified(),
+                                                            null, -1, 0));
+                copyCandidates.add(name);
+                return true;
+            }
+            if (previous.matches(r)) {
+                manifestEntries.put(name, previous);
+                return false;
+            }
+            ManifestEntry entry = new ManifestEntry(r.getSize(), r.getLastModified(),
+                SyncManifest.digest(r, this), previous.destSize, previous.destLastModified);
+            manifestEntries.put(name, entry);
+            if (entry.digest != null && previous.digest != null
+                && MessageDigest.isEqual(entry.digest, previous.digest)) {
+                log(name + " has a new timestamp but has not been modified",
+                    Project.MSG_VERBOSE);
+                return false;
+            }
+            copyCandidates.add(name);
+            return true;
+        }
+
         /**
          * Get the destination directory.
          * @return the destination directory
@@ -589,6 +848,157 @@ public class Sync extends Task {
         }
     }
 
+    /**
+     * What the manifest knows about a file or directory of the
+     * destination and the source it has been copied from.
+     *
+     * @since Ant 1.10.6
+     */
+    private static final class ManifestEntry {
+        private static final ManifestEntry DIRECTORY = new ManifestEntry(-1, 0, null, -1, 0);
+
+        private final long size;
+        private final long lastModified;
+        // may be null if the content didn't need to be compared
+        private final byte[] digest;
+        // the destination file as it has been left by the sync
+        private final long destSize;
+        private final long destLastModified;
+
+        private ManifestEntry(long size, long lastModified, byte[] digest,
+                              long destSize, long destLastModified) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.digest = digest;
+            this.destSize = destSize;
+            this.destLastModified = destLastModified;
+        }
+
+        private boolean isDirectory() {
+            return size < 0;
+        }
+
+        private boolean matches(Resource source) {
+            return size == source.getSize() && lastModified == source.getLastModified();
+        }
+
+        private boolean matchesDestination(File dest) {
+            return dest.isFile() && destSize == dest.length()
+                && destLastModified == dest.lastModified();
+        }
+
+        private ManifestEntry withDestination(File dest) {
+            return new ManifestEntry(size, lastModified, digest,
+                                     dest.length(), dest.lastModified());
+        }
+    }
+
+    /**
+     * Reads and writes the manifest of a destination directory.
+     *
+     * @since Ant 1.10.6
+     */
+    private static final class SyncManifest {
+        private static final int MAGIC = 0x414e534d; // "ANSM"
+        private static final int VERSION = 2;
+        private static final String ALGORITHM = "SHA-256";
+        private static final int BUFFER_SIZE = 8192;
+
+        /**
+         * Calculates the digest of a resource's content.
+         * @return the digest or null if the resource can't be read.
+         */
+        private static byte[] digest(Resource r, Task task) {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance(ALGORITHM);
+            } catch (NoSuchAlgorithmException ex) {
+                throw new BuildException(ex);
+            }
+            try (InputStream in = r.getInputStream()) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int count;
+                while ((count = in.read(buffer, 0, buffer.length)) != -1) {
+                    digest.update(buffer, 0, count);
+                }
+            } catch (IOException ex) {
+                task.log("Failed to read " + r + ": " + ex.getMessage(),
+                         Project.MSG_VERBOSE);
+                return null;
+            }
+            return digest.digest();
+        }
+
+        /**
+         * Loads the manifest.
+         * @return the entries or null if the file doesn't exist, can't
+         * be read or has been written for a different directory.
+         */
+        private static Map<String, ManifestEntry> load(File manifest, File toDir) {
+            if (!manifest.isFile()) {
+                return null;
+            }
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                     Files.newInputStream(manifest.toPath())))) {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION
+                    || !in.readUTF().equals(toDir.getAbsolutePath())) {
+                    return null;
+                }
+                int count = in.readInt();
+                Map<String, ManifestEntry> entries = new HashMap<>();
+                for (int i = 0; i < count; i++) {
+                    String name = in.readUTF();
+                    long size = in.readLong();
+                    long lastModified = in.readLong();
+                    byte[] digest = null;
+                    int length = in.readUnsignedByte();
+                    if (length > 0) {
+                        digest = new byte[length];
+                        in.readFully(digest);
+                    }
+                    long destSize = in.readLong();
+                    long destLastModified = in.readLong();
+                    entries.put(name, size < 0 ? ManifestEntry.DIRECTORY
+                                : new ManifestEntry(size, lastModified, digest,
+                                                    destSize, destLastModified));
+                }
+                return entries;
+            } catch (IOException ex) {
+                // corrupt or outdated, fall back to scanning
+                return null;
+            }
+        }
+
+        private static void save(File manifest, File toDir,
+                                 Map<String, ManifestEntry> entries) throws IOException {
+            File parent = manifest.getParentFile();
+            if (parent != null) {
+                parent.mkdirs();
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                     Files.newOutputStream(manifest.toPath())))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(toDir.getAbsolutePath());
+                out.writeInt(entries.size());
+                for (Map.Entry<String, ManifestEntry> e : entries.entrySet()) {
+                    ManifestEntry entry = e.getValue();
+                    out.writeUTF(e.getKey());
+                    out.writeLong(entry.size);
+                    out.writeLong(entry.lastModified);
+                    if (entry.digest == null) {
+                        out.writeByte(0);
+                    } else {
+                        out.writeByte(entry.digest.length);
+                        out.write(entry.digest);
+                    }
+                    out.writeLong(entry.destSize);
+                    out.writeLong(entry.destLastModified);
+                }
+            }
+        }
+    }
+
     /**
      * Pseudo-assert method.
      */
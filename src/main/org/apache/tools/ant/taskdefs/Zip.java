@@ -18,11 +18,16 @@
 package org.apache.tools.ant.taskdefs;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -33,6 +38,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Stack;
 import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Stream;
 import java.util.zip.CRC32;
 
@@ -77,6 +84,13 @@ import org.apache.tools.zip.ZipOutputStream.UnicodeExtraFieldPolicy;
  */
 public class Zip extends MatchingTask {
     private static final int BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * Entries bigger than this are compressed by the task's own
+     * thread even if threads has been set.
+     */
+    private static final long MAX_BACKGROUND_ENTRY_SIZE = 16 * 1024 * 1024;
+    private static final double DEFAULT_COMPACTION_THRESHOLD = 0.5;
     /**
      * The granularity of timestamps inside a ZIP archive.
      */
@@ -227,6 +241,48 @@ public class Zip extends MatchingTask {
      */
     private Zip64ModeAttribute zip64Mode = Zip64ModeAttribute.AS_NEEDED;
 
+    /**
+     * Number of threads used to compress entries.
+     *
+     * @since Ant 1.10.6
+     */
+    private int threads = 1;
+
+    /**
+     * Whether new entries are appended to the existing archive when
+     * updating.
+     *
+     * @since Ant 1.10.6
+     */
+    private boolean updateInPlace = false;
+
+    /**
+     * Ratio of unused bytes inside the archive that makes an in-place
+     * update rewrite the whole archive.
+     *
+     * @since Ant 1.10.6
+     */
+    private double compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+
+    /**
+     * File holding the content hashes of the archive's entries.
+     *
+     * @since Ant 1.10.6
+     */
+    private File contentHashFile;
+
+    /**
+     * Content hashes recorded for the existing archive, null if
+     * unknown.
+     */
+    private Map<String, byte[]> previousHashes;
+
+    /**
+     * Content hashes of the archive being written, null if they are
+     * not recorded.
+     */
+    private Map<String, byte[]> contentHashes;
+
     /**
      * This is the name/location of where to
      * create the .zip file.
@@ -588,6 +644,106 @@ public class Zip extends MatchingTask {
         return zip64Mode;
     }
 
+    /**
+     * Number of threads used to compress the entries.
+     *
+     * <p>If bigger than 1 the contents of files are compressed in
+     * parallel and written in the original order, the archive is the
+     * same as the one created by a single thread.</p>
+     *
+     * @param threads the number of threads, defaults to 1.
+     * @since Ant 1.10.6
+     */
+    public void setThreads(final int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Number of threads used to compress the entries.
+     * @return int
+     * @since Ant 1.10.6
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Whether new and modified entries are appended to the existing
+     * archive when updating it instead of copying all entries into a
+     * new archive.
+     *
+     * <p>Only has an effect if update is true. The replaced entries
+     * remain inside the archive as unused bytes until their share
+     * exceeds the {@link #setCompactionThreshold compaction
+     * threshold}.</p>
+     *
+     * @param b boolean, defaults to false.
+     * @since Ant 1.10.6
+     */
+    public void setUpdateInPlace(final boolean b) {
+        updateInPlace = b;
+    }
+
+    /**
+     * Whether new and modified entries are appended to the existing
+     * archive when updating it.
+     * @return boolean
+     * @since Ant 1.10.6
+     */
+    public boolean getUpdateInPlace() {
+        return updateInPlace;
+    }
+
+    /**
+     * Ratio of unused bytes inside an archive updated in place that
+     * makes the task rewrite the whole archive instead.
+     *
+     * @param ratio a number between 0 and 1, defaults to 0.5.
+     * @since Ant 1.10.6
+     */
+    public void setCompactionThreshold(final double ratio) {
+        if (ratio < 0 || ratio > 1) {
+            throw new BuildException("compactionthreshold must be between 0 and 1");
+        }
+        compactionThreshold = ratio;
+    }
+
+    /**
+     * Ratio of unused bytes inside an archive updated in place that
+     * makes the task rewrite the whole archive instead.
+     * @return double
+     * @since Ant 1.10.6
+     */
+    public double getCompactionThreshold() {
+        return compactionThreshold;
+    }
+
+    /**
+     * File to record the content hashes of the archive's entries in.
+     *
+     * <p>If set, files that are newer than the archive's entries but
+     * have the same content as recorded when the archive has been
+     * written are not considered out of date. This way touching files
+     * or checking them out again doesn't force the archive to be
+     * rebuilt. The recorded hashes are ignored if the archive has
+     * been modified by anything else.</p>
+     *
+     * @param f the file, it is rewritten whenever the archive is.
+     * @since Ant 1.10.6
+     */
+    public void setContentHashFile(final File f) {
+        contentHashFile = f;
+    }
+
+    /**
+     * File to record the content hashes of the archive's entries in.
+     * @return File
+     * @since Ant 1.10.6
+     */
+    public File getContentHashFile() {
+        return contentHashFile;
+    }
+
     /**
      * Set all stored file modification times to {@code time}.
      * @param time Milliseconds since 1970-01-01 00:00, or
@@ -667,6 +823,10 @@ public class Zip extends MatchingTask {
         final ResourceCollection[] fss =
             vfss.toArray(new ResourceCollection[vfss.size()]);
 
+        if (contentHashFile != null) {
+            previousHashes = ContentHashes.load(contentHashFile, zipFile);
+        }
+
         boolean success = false;
         try {
             // can also handle empty archives
@@ -692,7 +852,8 @@ public class Zip extends MatchingTask {
             }
             final Resource[][] addThem = state.getResourcesToAdd();
 
-            if (doUpdate) {
+            final boolean inPlace = doUpdate && canUpdateInPlace();
+            if (doUpdate && !inPlace) {
                 renamedFile = renameFile();
             }
 
@@ -703,9 +864,17 @@ public class Zip extends MatchingTask {
             }
 
             ZipOutputStream zOut = null;
+            ExecutorService deflateExecutor = null;
             try {
                 if (!skipWriting) {
-                    zOut = new ZipOutputStream(zipFile);
+                    if (contentHashFile != null) {
+                        // unchanged entries keep their hashes when
+                        // updating
+                        contentHashes = doUpdate && previousHashes != null
+                            ? new HashMap<>(previousHashes) : new HashMap<>();
+                    }
+                    zOut = inPlace ? new ZipOutputStream(zipFile, true)
+                        : new ZipOutputStream(zipFile);
 
                     zOut.setEncoding(encoding);
                     zOut.setUseLanguageEncodingFlag(useLanguageEncodingFlag);
@@ -716,6 +885,14 @@ public class Zip extends MatchingTask {
                         ? ZipOutputStream.DEFLATED : ZipOutputStream.STORED);
                     zOut.setLevel(level);
                     zOut.setUseZip64(zip64Mode.getMode());
+                    if (threads > 1) {
+                        deflateExecutor = Executors.newFixedThreadPool(threads, r -> {
+                            final Thread t = new Thread(r, "zip-deflate");
+                            t.setDaemon(true);
+                            return t;
+                        });
+                        zOut.setDeflateExecutor(deflateExecutor);
+                    }
                 }
                 initZipOutputStream(zOut);
 
@@ -726,7 +903,7 @@ public class Zip extends MatchingTask {
                     }
                 }
 
-                if (doUpdate) {
+                if (doUpdate && !inPlace) {
                     addingNewFiles = false;
                     final ZipFileSet oldFiles = new ZipFileSet();
                     oldFiles.setProject(getProject());
@@ -761,7 +938,7 @@ public class Zip extends MatchingTask {
 
                 // If we've been successful on an update, delete the
                 // temporary file
-                if (doUpdate) {
+                if (renamedFile != null) {
                     if (!renamedFile.delete()) {
                         log("Warning: unable to delete temporary file "
                             + renamedFile.getName(), Project.MSG_WARN);
@@ -770,7 +947,26 @@ public class Zip extends MatchingTask {
                 success = true;
             } finally {
                 // Close the output stream.
-                closeZout(zOut, success);
+                try {
+                    if (inPlace && !success && zOut != null) {
+                        // restore the original archive
+                        zOut.abort();
+                    } else {
+                        closeZout(zOut, success);
+                    }
+                } finally {
+                    if (deflateExecutor != null) {
+                        deflateExecutor.shutdownNow();
+                    }
+                }
+            }
+            if (contentHashes != null) {
+                try {
+                    ContentHashes.save(contentHashFile, zipFile, contentHashes);
+                } catch (final IOException ex) {
+                    log("Failed to save content hashes to " + contentHashFile
+                        + ": " + ex.getMessage(), Project.MSG_WARN);
+                }
             }
         } catch (final IOException ioe) {
             String msg = "Problem creating " + archiveType + ": "
@@ -797,6 +993,37 @@ public class Zip extends MatchingTask {
         }
     }
 
+    /**
+     * Whether the archive can be updated by appending to it.
+     *
+     * <p>Subclasses that generate entries from the whole content of
+     * the archive must return false as the retained entries are not
+     * passed through {@link #zipFile zipFile}.</p>
+     *
+     * @return true if updateInPlace has been set and the archive
+     * hasn't accumulated too many unused bytes.
+     * @since Ant 1.10.6
+     */
+    protected boolean canUpdateInPlace() {
+        if (!updateInPlace || doubleFilePass || !zipFile.isFile()) {
+            return false;
+        }
+        try (ZipFile zf = new ZipFile(zipFile, encoding, true, true)) {
+            final long unused = zf.getUnusedBytes();
+            if (unused > compactionThreshold * zipFile.length()) {
+                logWhenWriting("Rewriting " + archiveType + " archive " + zipFile
+                               + " as " + unused + " bytes are unused",
+                               Project.MSG_VERBOSE);
+                return false;
+            }
+            return true;
+        } catch (final IOException ex) {
+            logWhenWriting("Can't update " + zipFile + " in place: "
+                           + ex.getMessage(), Project.MSG_VERBOSE);
+            return false;
+        }
+    }
+
     /** rename the zip file. */
     private File renameFile() {
         final File renamedFile = FILE_UTILS.createTempFile(
@@ -962,7 +1189,7 @@ public class Zip extends MatchingTask {
                 dealingWithFiles = true;
                 base = fileset.getDir(getProject());
             } else if (zfs instanceof ZipFileSet) {
-                zf = new ZipFile(zfs.getSrc(getProject()), encoding);
+                zf = new ZipFile(zfs.getSrc(getProject()), encoding, true, true);
             }
 
             for (Resource resource : resources) {
@@ -1043,7 +1270,8 @@ public class Zip extends MatchingTask {
      * Determine a Resource's Unix mode or return the given default
      * value if not available.
      */
-    private int getUnixMode(final Resource r, final ZipFile zf, final int defaultMode) {
+    private int getUnixMode(final Resource r, final ZipFile zf, final int defaultMode)
+        throws IOException {
 
         int unixMode = defaultMode;
         if (zf != null) {
@@ -1076,9 +1304,11 @@ public class Zip extends MatchingTask {
                     doCompress = (ze.getMethod() == ZipEntry.DEFLATED);
                 }
                 try (final BufferedInputStream is = new BufferedInputStream(zf.getInputStream(ze))) {
+                    CURRENT_RAW_SOURCE.set(new RawSource(zf, ze, is));
                     zipFile(is, zOut, prefix + name, ze.getTime(),
                             fromArchive, mode, ze.getExtraFields(true));
                 } finally {
+                    CURRENT_RAW_SOURCE.remove();
                     doCompress = oldCompress;
                 }
             }
@@ -1552,6 +1782,10 @@ public class Zip extends MatchingTask {
             ResourceUtils.selectOutOfDateSources(this, rs, mapper,
                                                  getZipScanner(),
                                                  ZIP_FILE_TIMESTAMP_GRANULARITY);
+        if (previousHashes != null && result.length > 0) {
+            result = Stream.of(result).filter(r -> !hasRecordedContent(r, mapper))
+                .toArray(Resource[]::new);
+        }
         if (!doFilesonly) {
             final Union u = new Union();
             u.addAll(Arrays.asList(selectDirectoryResources(initial)));
@@ -1569,6 +1803,38 @@ public class Zip extends MatchingTask {
         return result;
     }
 
+    /**
+     * Whether the resource has the same content as the entry it maps
+     * to had when the archive was written.
+     */
+    private boolean hasRecordedContent(final Resource r, final FileNameMapper mapper) {
+        final String[] targets = mapper.mapFileName(r.getName());
+        if (targets == null || targets.length != 1) {
+            return false;
+        }
+        final byte[] recorded =
+            previousHashes.get(targets[0].replace(File.separatorChar, '/'));
+        if (recorded == null) {
+            return false;
+        }
+        final MessageDigest digest = ContentHashes.newDigest();
+        try (InputStream in = r.getInputStream()) {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int count;
+            while ((count = in.read(buffer, 0, buffer.length)) != -1) {
+                digest.update(buffer, 0, count);
+            }
+        } catch (final IOException ex) {
+            return false;
+        }
+        if (MessageDigest.isEqual(recorded, digest.digest())) {
+            logWhenWriting(r.getName() + " is newer than its entry but has"
+                           + " not been modified", Project.MSG_VERBOSE);
+            return true;
+        }
+        return false;
+    }
+
     /**
      * Fetch all included and not excluded resources from the sets.
      *
@@ -1753,6 +2019,13 @@ public class Zip extends MatchingTask {
         CURRENT_ZIP_EXTRA.set(extra);
     }
 
+    /*
+     * Same construct as CURRENT_ZIP_EXTRA, tells zipFile the stream
+     * it gets passed reads an entry of an archive that may be copied
+     * without decompressing it.
+     */
+    private static final ThreadLocal<RawSource> CURRENT_RAW_SOURCE = new ThreadLocal<>();
+
     /**
      * Adds a new entry to the archive, takes care of duplicates as well.
      *
@@ -1798,6 +2071,24 @@ public class Zip extends MatchingTask {
             final ZipEntry ze = new ZipEntry(vPath);
             ze.setTime(fixedModTime != null ? modTimeMillis : lastModified);
             ze.setMethod(doCompress ? ZipEntry.DEFLATED : ZipEntry.STORED);
+            ze.setUnixMode(mode);
+            final ZipExtraField[] extra = getCurrentExtraFields();
+            if (extra != null) {
+                ze.setExtraFields(extra);
+            }
+
+            final RawSource raw = CURRENT_RAW_SOURCE.get();
+            if (raw != null && raw.stream == in
+                && raw.entry.getMethod() == ze.getMethod()
+                && raw.zipFile.canReadEntryData(raw.entry)) {
+                // already compressed the way we want it, copy the
+                // data without inflating and deflating it again
+                zOut.addRawEntry(ze, raw.zipFile, raw.entry);
+                addedFiles.add(vPath);
+                recordContentHash(vPath, null);
+                return;
+            }
+
             // if the input stream doesn't support mark/reset ability, we wrap it in a
             // stream that adds that support.
             // Note: We do *not* close this newly created wrapping input stream, since
@@ -1827,26 +2118,69 @@ public class Zip extends MatchingTask {
                 ze.setCrc(cal.getValue());
             }
 
-            ze.setUnixMode(mode);
-            final ZipExtraField[] extra = getCurrentExtraFields();
-            if (extra != null) {
-                ze.setExtraFields(extra);
-            }
-
-            zOut.putNextEntry(ze);
-
+            final MessageDigest digest = contentHashes != null && addingNewFiles
+                ? ContentHashes.newDigest() : null;
             final byte[] buffer = new byte[BUFFER_SIZE];
             int count = 0;
+            if (threads > 1 && doCompress) {
+                // collect the data so it can be compressed in the
+                // background unless the entry is too big
+                final List<byte[]> chunks = new ArrayList<>();
+                long size = 0;
+                while (size < MAX_BACKGROUND_ENTRY_SIZE
+                       && (count = markableInputStream.read(buffer, 0, buffer.length)) != -1) {
+                    if (count != 0) {
+                        chunks.add(Arrays.copyOf(buffer, count));
+                        size += count;
+                        if (digest != null) {
+                            digest.update(buffer, 0, count);
+                        }
+                    }
+                }
+                if (count == -1) {
+                    zOut.addDeflatedEntry(ze, chunks);
+                    addedFiles.add(vPath);
+                    recordContentHash(vPath, digest);
+                    return;
+                }
+                zOut.putNextEntry(ze);
+                for (byte[] chunk : chunks) {
+                    zOut.write(chunk, 0, chunk.length);
+                }
+                count = 0;
+            } else {
+                zOut.putNextEntry(ze);
+            }
+
             do {
                 if (count != 0) {
                     zOut.write(buffer, 0, count);
+                    if (digest != null) {
+                        digest.update(buffer, 0, count);
+                    }
                 }
                 count = markableInputStream.read(buffer, 0, buffer.length);
             } while (count != -1);
+            recordContentHash(vPath, digest);
         }
         addedFiles.add(vPath);
     }
 
+    /**
+     * Records the content hash of an entry that has just been
+     * written or forgets the entry's hash if it is unknown.
+     */
+    private void recordContentHash(final String vPath, final MessageDigest digest) {
+        if (contentHashes == null || !addingNewFiles) {
+            return;
+        }
+        if (digest == null) {
+            contentHashes.remove(vPath);
+        } else {
+            contentHashes.put(vPath, digest.digest());
+        }
+    }
+
     /**
      * Adds a new entry to the archive, takes care of duplicates as well.
      *
@@ -1967,6 +2301,8 @@ public class Zip extends MatchingTask {
         resources.removeAll(filesetsFromGroupfilesets);
         filesetsFromGroupfilesets.clear();
         HAVE_NON_FILE_SET_RESOURCES_TO_ADD.set(Boolean.FALSE);
+        previousHashes = null;
+        contentHashes = null;
     }
 
     /**
@@ -2175,6 +2511,96 @@ public class Zip extends MatchingTask {
         }
     }
 
+    /**
+     * An entry of an archive together with the stream reading it.
+     */
+    private static final class RawSource {
+        private final ZipFile zipFile;
+        private final ZipEntry entry;
+        private final InputStream stream;
+
+        private RawSource(final ZipFile zipFile, final ZipEntry entry,
+                          final InputStream stream) {
+            this.zipFile = zipFile;
+            this.entry = entry;
+            this.stream = stream;
+        }
+    }
+
+    /**
+     * Reads and writes the file holding the content hashes of an
+     * archive's entries.
+     *
+     * <p>The file records the size and modification time of the
+     * archive it has been written for and is only trusted if the
+     * archive still matches them.</p>
+     */
+    private static final class ContentHashes {
+        private static final int MAGIC = 0x414e5a48; // "ANZH"
+        private static final int VERSION = 1;
+        private static final String ALGORITHM = "SHA-256";
+
+        private static MessageDigest newDigest() {
+            try {
+                return MessageDigest.getInstance(ALGORITHM);
+            } catch (final NoSuchAlgorithmException ex) {
+                throw new BuildException(ex);
+            }
+        }
+
+        /**
+         * Loads the hashes.
+         * @return the hashes or null if the file doesn't exist, can't
+         * be read or doesn't belong to the current archive.
+         */
+        private static Map<String, byte[]> load(final File hashFile, final File archive) {
+            if (!hashFile.isFile() || !archive.isFile()) {
+                return null;
+            }
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                     Files.newInputStream(hashFile.toPath())))) {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION
+                    || in.readLong() != archive.length()
+                    || in.readLong() != archive.lastModified()) {
+                    return null;
+                }
+                final int count = in.readInt();
+                final Map<String, byte[]> hashes = new HashMap<>();
+                for (int i = 0; i < count; i++) {
+                    final String name = in.readUTF();
+                    final byte[] hash = new byte[in.readUnsignedByte()];
+                    in.readFully(hash);
+                    hashes.put(name, hash);
+                }
+                return hashes;
+            } catch (final IOException ex) {
+                // corrupt or outdated, fall back to timestamps
+                return null;
+            }
+        }
+
+        private static void save(final File hashFile, final File archive,
+                                 final Map<String, byte[]> hashes) throws IOException {
+            final File parent = hashFile.getParentFile();
+            if (parent != null) {
+                parent.mkdirs();
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                     Files.newOutputStream(hashFile.toPath())))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(archive.length());
+                out.writeLong(archive.lastModified());
+                out.writeInt(hashes.size());
+                for (Map.Entry<String, byte[]> e : hashes.entrySet()) {
+                    out.writeUTF(e.getKey());
+                    out.writeByte(e.getValue().length);
+                    out.write(e.getValue());
+                }
+            }
+        }
+    }
+
     /**
      * The choices for Zip64 extensions.
      *
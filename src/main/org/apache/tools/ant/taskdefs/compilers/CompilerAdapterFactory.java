@@ -46,6 +46,10 @@ public final class CompilerAdapterFactory {
      * <li>classic, javac1.1, javac1.2 = the standard compiler from JDK
      * 1.1/1.2
      * <li>modern, javac1.3, javac1.4, javac1.5 = the compiler of JDK 1.3+
+     * <li>javax.tools = the compiler of the current JDK, run in-process
+     * using the javax.tools API and reusing its file managers</li>
+     * <li>daemon = the compiler of the JDK, run in long-lived JVMs that
+     * are shared between compilations and builds</li>
      * <li>jvc, microsoft = the command line compiler from Microsoft's SDK
      * for Java / Visual J++
      * <li>kjc = the kopi compiler</li>
@@ -76,6 +80,10 @@ public final class CompilerAdapterFactory {
      * <li>classic, javac1.1, javac1.2 = the standard compiler from JDK
      * 1.1/1.2
      * <li>modern, javac1.3, javac1.4, javac1.5 = the compiler of JDK 1.3+
+     * <li>javax.tools = the compiler of the current JDK, run in-process
+     * using the javax.tools API and reusing its file managers</li>
+     * <li>daemon = the compiler of the JDK, run in long-lived JVMs that
+     * are shared between compilations and builds</li>
      * <li>jvc, microsoft = the command line compiler from Microsoft's SDK
      * for Java / Visual J++
      * <li>kjc = the kopi compiler</li>
@@ -132,6 +140,12 @@ public final class CompilerAdapterFactory {
                 MODERN_COMPILER, JavaEnvUtils.getJavaHome());
         }
 
+        if ("javax.tools".equalsIgnoreCase(compilerType)) {
+            return new JavaxToolsJavac();
+        }
+        if ("daemon".equalsIgnoreCase(compilerType)) {
+            return new DaemonJavac();
+        }
         if ("jvc".equalsIgnoreCase(compilerType)
             || "microsoft".equalsIgnoreCase(compilerType)) {
             return new Jvc();
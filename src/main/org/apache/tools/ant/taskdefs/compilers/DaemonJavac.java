@@ -0,0 +1,345 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.tools.ant.taskdefs.compilers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.taskdefs.Execute;
+import org.apache.tools.ant.types.Commandline;
+import org.apache.tools.ant.util.JavaEnvUtils;
+import org.apache.tools.ant.util.LoaderUtils;
+
+/**
+ * Performs a compile in a forked JVM that is kept running and reused
+ * by later compilations.
+ *
+ * <p>Unlike {@link JavacExternal} this adapter doesn't pay for
+ * starting and warming up a new JVM for every compilation. The
+ * compilations run in {@link JavacWorker}s that are shared by all
+ * builds of the current user on the same machine, a new worker is
+ * started if all workers suitable for the compilation are busy.
+ * Workers are suitable if they run the same Java executable with the
+ * same JVM options - i.e. the options specified via
+ * memoryInitialSize, memoryMaximumSize or as <code>-J</code> compiler
+ * arguments - and the same settings.</p>
+ *
+ * <p>The following properties control the workers:</p>
+ * <ul>
+ * <li>build.compiler.daemon.dir - the directory the workers register
+ * in, defaults to <code>${user.home}/.ant/javac-daemons</code></li>
+ * <li>build.compiler.daemon.maxcompilations - the number of
+ * compilations after which a worker retires, 0 for no limit, defaults
+ * to 100</li>
+ * <li>build.compiler.daemon.maxheap - the percentage of the maximum
+ * heap a worker may still use after garbage collection before it
+ * retires, 0 for no limit, defaults to 75</li>
+ * <li>build.compiler.daemon.idletimeout - the number of seconds an
+ * idle worker waits for compilations before it exits, defaults to
+ * 1800</li>
+ * </ul>
+ *
+ * @since Ant 1.10.6
+ */
+public class DaemonJavac extends DefaultCompilerAdapter {
+
+    private static final String DIR_PROPERTY = "build.compiler.daemon.dir";
+    private static final String MAX_COMPILATIONS_PROPERTY =
+        "build.compiler.daemon.maxcompilations";
+    private static final String MAX_HEAP_PROPERTY = "build.compiler.daemon.maxheap";
+    private static final String IDLE_TIMEOUT_PROPERTY = "build.compiler.daemon.idletimeout";
+
+    private static final int DEFAULT_MAX_COMPILATIONS = 100;
+    private static final int DEFAULT_MAX_HEAP = 75;
+    private static final int DEFAULT_IDLE_TIMEOUT = 1800;
+
+    /** how long to wait for a new worker to register */
+    private static final long STARTUP_TIMEOUT = 60000;
+    private static final long POLL_INTERVAL = 50;
+
+    /** how often to start a new worker if others get hold of it first */
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * Performs the compilation in a worker.
+     * @return true if the compilation succeeded
+     * @throws BuildException on error
+     */
+    @Override
+    public boolean execute() throws BuildException {
+        attributes.log("Using javac daemon", Project.MSG_VERBOSE);
+
+        final Commandline cmd = setupModernJavacCommand();
+        final List<String> jvmArgs = new ArrayList<>();
+        final List<String> args = new ArrayList<>();
+        for (String arg : cmd.getArguments()) {
+            if (arg.startsWith("-J")) {
+                jvmArgs.add(arg.substring(2));
+            } else {
+                args.add(arg);
+            }
+        }
+
+        final File dir = getDaemonDir();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new BuildException("Failed to create " + dir, location);
+        }
+        final String java = getJavaExecutable();
+        final String[] settings = {
+            String.valueOf(getIntProperty(MAX_COMPILATIONS_PROPERTY, DEFAULT_MAX_COMPILATIONS)),
+            String.valueOf(getIntProperty(MAX_HEAP_PROPERTY, DEFAULT_MAX_HEAP)),
+            String.valueOf(getIntProperty(IDLE_TIMEOUT_PROPERTY, DEFAULT_IDLE_TIMEOUT))
+        };
+        // relative file names in the arguments are resolved against
+        // the working directory of the worker
+        final File workingDir = getProject().getBaseDir();
+        final String key = getKey(java, jvmArgs, workingDir, settings);
+
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            final File[] registrations =
+                dir.listFiles((d, name) -> name.endsWith(JavacWorker.REGISTRATION_SUFFIX));
+            if (registrations != null) {
+                for (File registration : registrations) {
+                    final Integer exitCode = compile(registration, key, args);
+                    if (exitCode != null) {
+                        return exitCode == 0;
+                    }
+                }
+            }
+            final File registration =
+                startWorker(dir, java, jvmArgs, workingDir, key, settings);
+            final Integer exitCode = compile(registration, key, args);
+            if (exitCode != null) {
+                return exitCode == 0;
+            }
+        }
+        throw new BuildException("Couldn't get hold of a javac worker", location);
+    }
+
+    /**
+     * Runs the compilation in the worker of the given registration
+     * if the worker is suitable and not busy.
+     *
+     * @return the exit code of the compilation or null if the worker
+     * hasn't run it.
+     */
+    private Integer compile(final File registration, final String key,
+                            final List<String> args) {
+        final Properties p = new Properties();
+        try (InputStream in = Files.newInputStream(registration.toPath())) {
+            p.load(in);
+        } catch (IOException ex) {
+            // the worker has just exited
+            return null;
+        }
+        if (!key.equals(p.getProperty(JavacWorker.KEY))) {
+            return null;
+        }
+        final byte[] token = JavacWorker.fromHex(p.getProperty(JavacWorker.TOKEN, ""));
+        final int port;
+        try {
+            port = Integer.parseInt(p.getProperty(JavacWorker.PORT));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+        if (token.length != JavacWorker.TOKEN_LENGTH) {
+            return null;
+        }
+
+        boolean accepted = false;
+        try (Socket s = new Socket(InetAddress.getLoopbackAddress(), port);
+             DataInputStream in =
+                 new DataInputStream(new BufferedInputStream(s.getInputStream()));
+             DataOutputStream out =
+                 new DataOutputStream(new BufferedOutputStream(s.getOutputStream()))) {
+            out.writeInt(JavacWorker.MAGIC);
+            out.writeInt(JavacWorker.VERSION);
+            out.write(token);
+            out.writeInt(args.size());
+            for (String arg : args) {
+                JavacWorker.writeString(out, arg);
+            }
+            out.flush();
+            if (in.readByte() != JavacWorker.RESULT) {
+                return null;
+            }
+            accepted = true;
+            final int exitCode = in.readInt();
+            log(JavacWorker.readString(in), Project.MSG_INFO);
+            log(JavacWorker.readString(in), Project.MSG_WARN);
+            attributes.log("Compiled by worker " + registration.getName(),
+                           Project.MSG_VERBOSE);
+            return exitCode;
+        } catch (ConnectException ex) {
+            // the worker has died without removing its registration
+            registration.delete();
+            return null;
+        } catch (IOException ex) {
+            if (accepted) {
+                throw new BuildException("Lost the connection to the javac worker",
+                                         ex, location);
+            }
+            // the worker has retired in the meantime
+            return null;
+        }
+    }
+
+    /**
+     * Starts a new worker and waits for it to register.
+     *
+     * @return the registration file of the worker.
+     */
+    private File startWorker(final File dir, final String java, final List<String> jvmArgs,
+                             final File workingDir, final String key,
+                             final String[] settings) {
+        final File classSource = LoaderUtils.getClassSource(JavacWorker.class);
+        if (classSource == null) {
+            throw new BuildException("Couldn't locate the javac worker", location);
+        }
+        final String id = UUID.randomUUID().toString();
+        final Commandline cmd = new Commandline();
+        cmd.setExecutable(java);
+        jvmArgs.forEach(a -> cmd.createArgument().setValue(a));
+        cmd.createArgument().setValue("-classpath");
+        cmd.createArgument().setFile(classSource);
+        cmd.createArgument().setValue(JavacWorker.class.getName());
+        cmd.createArgument().setFile(dir);
+        cmd.createArgument().setValue(id);
+        cmd.createArgument().setValue(key);
+        for (String setting : settings) {
+            cmd.createArgument().setValue(setting);
+        }
+        attributes.log("Starting javac worker: " + cmd,
+                       Project.MSG_VERBOSE);
+
+        final Execute exe = new Execute();
+        exe.setAntRun(getProject());
+        exe.setWorkingDirectory(workingDir);
+        exe.setCommandline(cmd.getCommandline());
+        try {
+            exe.spawn();
+        } catch (IOException ex) {
+            throw new BuildException("Error starting javac worker", ex, location);
+        }
+
+        final File registration = new File(dir, id + JavacWorker.REGISTRATION_SUFFIX);
+        final long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT;
+        while (!registration.exists()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new BuildException("The javac worker hasn't started within "
+                                         + STARTUP_TIMEOUT / 1000 + " seconds",
+                                         location);
+            }
+            try {
+                Thread.sleep(POLL_INTERVAL);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new BuildException("Interrupted while starting javac worker",
+                                         ex, location);
+            }
+        }
+        return registration;
+    }
+
+    private void log(final String output, final int level) {
+        for (String line : output.split("\\R")) {
+            if (!line.isEmpty()) {
+                attributes.log(line, level);
+            }
+        }
+    }
+
+    /**
+     * The java executable next to the javac executable if one has
+     * been specified, the java executable of the current JDK
+     * otherwise.
+     */
+    private String getJavaExecutable() {
+        final String javac = getJavac().getExecutable();
+        if (javac == null) {
+            return JavaEnvUtils.getJreExecutable("java");
+        }
+        final File parent = new File(javac).getParentFile();
+        return parent == null ? "java" : new File(parent, "java").getPath();
+    }
+
+    private File getDaemonDir() {
+        final String dir = getProject().getProperty(DIR_PROPERTY);
+        if (dir != null) {
+            return getProject().resolveFile(dir);
+        }
+        return new File(System.getProperty("user.home"), ".ant/javac-daemons");
+    }
+
+    private int getIntProperty(final String name, final int defaultValue) {
+        final String value = getProject().getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException ex) {
+            throw new BuildException(name + " must be an integer but is " + value,
+                                     location);
+        }
+    }
+
+    /**
+     * Identifies the workers that may run a compilation.
+     */
+    private static String getKey(final String java, final List<String> jvmArgs,
+                                 final File workingDir, final String[] settings) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new BuildException(ex);
+        }
+        final List<String> parts = new ArrayList<>();
+        parts.add(String.valueOf(JavacWorker.VERSION));
+        parts.add(java);
+        parts.add(String.valueOf(LoaderUtils.getClassSource(JavacWorker.class)));
+        parts.addAll(jvmArgs);
+        parts.add(String.valueOf(workingDir));
+        parts.add(String.join(" ", settings));
+        for (String part : parts) {
+            digest.update(part.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        return JavacWorker.toHex(digest.digest());
+    }
+}
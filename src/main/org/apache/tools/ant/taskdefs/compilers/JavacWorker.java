@@ -0,0 +1,310 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.tools.ant.taskdefs.compilers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+/**
+ * A long-lived JVM that runs compilations for {@link DaemonJavac}.
+ *
+ * <p>The worker listens on a socket of the loopback interface and
+ * announces itself by writing a registration file - holding the
+ * port, a secret token and the key describing the JVM - to the
+ * directory shared by all workers. It runs one compilation at a time
+ * and rejects requests while it is busy. The worker retires once it
+ * has run a given number of compilations or when the heap still in
+ * use after garbage collection exceeds a given share of the maximum
+ * heap size, and exits once it has been idle for too long.</p>
+ *
+ * <p>This class must only depend on classes of the Java class
+ * library as it is run without the rest of Ant.</p>
+ *
+ * @since Ant 1.10.6
+ */
+public final class JavacWorker {
+
+    /** "ANJW" */
+    static final int MAGIC = 0x414e4a57;
+    static final int VERSION = 1;
+
+    /** response to a request the worker doesn't run */
+    static final int BUSY = 0;
+    /** response to a request the worker has run */
+    static final int RESULT = 1;
+
+    /** the exit code of javac for abnormal terminations */
+    private static final int ABNORMAL = 4;
+
+    static final String REGISTRATION_SUFFIX = ".worker";
+    static final String PORT = "port";
+    static final String TOKEN = "token";
+    static final String KEY = "key";
+    static final int TOKEN_LENGTH = 16;
+
+    /** maximum time to block in accept before checking the idle time */
+    private static final long CHECK_INTERVAL = 10000;
+
+    private final File registration;
+    private final String key;
+    private final int maxCompilations;
+    private final int maxHeapPercent;
+    private final long idleTimeout;
+    private final byte[] token = new byte[TOKEN_LENGTH];
+
+    private final AtomicBoolean busy = new AtomicBoolean();
+    private volatile boolean retired;
+    private volatile long lastUsed = System.currentTimeMillis();
+    private int compilations;
+    private ServerSocket server;
+
+    private JavacWorker(final File registration, final String key,
+                        final int maxCompilations, final int maxHeapPercent,
+                        final long idleTimeout) {
+        this.registration = registration;
+        this.key = key;
+        this.maxCompilations = maxCompilations;
+        this.maxHeapPercent = maxHeapPercent;
+        this.idleTimeout = idleTimeout;
+        new SecureRandom().nextBytes(token);
+    }
+
+    /**
+     * Starts a worker.
+     *
+     * @param args the directory of the registration files, the id
+     * and the key of the worker, the maximum number of compilations
+     * (0 for no limit), the maximum percentage of the heap in use
+     * after a garbage collection (0 for no limit) and the idle
+     * timeout in seconds.
+     * @throws IOException if the worker cannot listen or register
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 6) {
+            System.err.println("Usage: JavacWorker dir id key maxCompilations"
+                               + " maxHeapPercent idleTimeout");
+            System.exit(1);
+        }
+        new JavacWorker(new File(args[0], args[1] + REGISTRATION_SUFFIX), args[2],
+                        Integer.parseInt(args[3]), Integer.parseInt(args[4]),
+                        Long.parseLong(args[5]) * 1000).run();
+        // compilations may have left non-daemon threads behind
+        System.exit(0);
+    }
+
+    private void run() throws IOException {
+        try (ServerSocket s = new ServerSocket(0, 0, InetAddress.getLoopbackAddress())) {
+            server = s;
+            s.setSoTimeout((int) Math.min(idleTimeout, CHECK_INTERVAL));
+            register(s.getLocalPort());
+            try {
+                while (!retired) {
+                    try {
+                        final Socket client = s.accept();
+                        final Thread t = new Thread(() -> serve(client), "javac-worker");
+                        t.setDaemon(true);
+                        t.start();
+                    } catch (SocketTimeoutException ex) {
+                        if (!busy.get()
+                            && System.currentTimeMillis() - lastUsed >= idleTimeout
+                            && busy.compareAndSet(false, true)) {
+                            retired = true;
+                        }
+                    } catch (SocketException ex) {
+                        if (!retired) {
+                            throw ex;
+                        }
+                    }
+                }
+            } finally {
+                registration.delete();
+            }
+        }
+    }
+
+    /**
+     * Writes the registration file, it only becomes visible once it
+     * is complete.
+     */
+    private void register(final int port) throws IOException {
+        final Properties p = new Properties();
+        p.setProperty(PORT, String.valueOf(port));
+        p.setProperty(TOKEN, toHex(token));
+        p.setProperty(KEY, key);
+        final File tmp = new File(registration.getParentFile(),
+                                  registration.getName() + ".tmp");
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            // only the owner may read the token
+            Files.createFile(tmp.toPath(), PosixFilePermissions
+                .asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        }
+        try (OutputStream out = Files.newOutputStream(tmp.toPath())) {
+            p.store(out, "javac worker");
+        }
+        Files.move(tmp.toPath(), registration.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void serve(final Socket socket) {
+        try (Socket s = socket;
+             DataInputStream in =
+                 new DataInputStream(new BufferedInputStream(s.getInputStream()));
+             DataOutputStream out =
+                 new DataOutputStream(new BufferedOutputStream(s.getOutputStream()))) {
+            final byte[] clientToken = new byte[TOKEN_LENGTH];
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return;
+            }
+            in.readFully(clientToken);
+            if (!MessageDigest.isEqual(token, clientToken)) {
+                return;
+            }
+            final String[] args = new String[in.readInt()];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = readString(in);
+            }
+            if (retired || !busy.compareAndSet(false, true)) {
+                out.writeByte(BUSY);
+                return;
+            }
+            try {
+                final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+                final ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+                final int exitCode = compile(args, stdout, stderr);
+                if (exitCode == ABNORMAL || (maxCompilations > 0
+                    && ++compilations >= maxCompilations) || isHeapExhausted()) {
+                    // no new client must find this worker
+                    retired = true;
+                    registration.delete();
+                }
+                out.writeByte(RESULT);
+                out.writeInt(exitCode);
+                writeString(out, stdout.toString());
+                writeString(out, stderr.toString());
+                out.flush();
+            } finally {
+                lastUsed = System.currentTimeMillis();
+                if (retired) {
+                    server.close();
+                } else {
+                    busy.set(false);
+                }
+            }
+        } catch (IOException ex) {
+            // the client has gone away
+        }
+    }
+
+    private static int compile(final String[] args, final OutputStream stdout,
+                               final OutputStream stderr) {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            new PrintStream(stderr, true).println("The JVM of the worker is not a JDK.");
+            return ABNORMAL;
+        }
+        try {
+            return compiler.run(null, stdout, stderr, args);
+        } catch (RuntimeException | Error ex) { //NOSONAR
+            ex.printStackTrace(new PrintStream(stderr, true));
+            return ABNORMAL;
+        }
+    }
+
+    /**
+     * Whether the heap still in use after the last garbage
+     * collections exceeds the configured share of the maximum heap.
+     */
+    private boolean isHeapExhausted() {
+        final long max = Runtime.getRuntime().maxMemory();
+        if (maxHeapPercent <= 0 || max == Long.MAX_VALUE) {
+            return false;
+        }
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            final MemoryUsage usage = pool.getCollectionUsage();
+            if (pool.getType() == MemoryType.HEAP && usage != null) {
+                used += usage.getUsed();
+            }
+        }
+        return used * 100 > max * maxHeapPercent;
+    }
+
+    static String readString(final DataInputStream in) throws IOException {
+        final byte[] b = new byte[in.readInt()];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    static void writeString(final DataOutputStream out, final String s) throws IOException {
+        final byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    static String toHex(final byte[] b) {
+        final StringBuilder sb = new StringBuilder();
+        for (byte x : b) {
+            sb.append(String.format("%02x", x & 0xff));
+        }
+        return sb.toString();
+    }
+
+    static byte[] fromHex(final String s) {
+        if (s.length() % 2 != 0) {
+            return new byte[0];
+        }
+        final byte[] b = new byte[s.length() / 2];
+        for (int i = 0; i < b.length; i++) {
+            final int hi = Character.digit(s.charAt(2 * i), 16);
+            final int lo = Character.digit(s.charAt(2 * i + 1), 16);
+            if (hi < 0 || lo < 0) {
+                return new byte[0];
+            }
+            b[i] = (byte) (hi << 4 | lo);
+        }
+        return b;
+    }
+}
@@ -0,0 +1,320 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.tools.ant.taskdefs.compilers;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.SubBuildListener;
+import org.apache.tools.ant.types.Commandline;
+import org.apache.tools.ant.types.Path;
+import org.apache.tools.ant.util.JavaEnvUtils;
+
+/**
+ * Runs the compiler of the current JDK in-process using the
+ * javax.tools API.
+ *
+ * <p>Unlike {@link Javac13} this adapter doesn't start a new compiler
+ * from scratch for every compilation. The file managers of the
+ * compiler - which keep the archives of the classpath open and
+ * indexed - are kept for the whole build and reused by later
+ * compilations. A file manager is discarded once one of the archives
+ * it has seen has been changed.</p>
+ *
+ * @since Ant 1.10.6
+ */
+public class JavaxToolsJavac extends DefaultCompilerAdapter {
+
+    /** options of the locations that are reverted between compilations */
+    private static final List<String> RESET_OPTIONS =
+        Arrays.asList("-d", "-s", "-h", "-classpath", "-sourcepath");
+
+    private static final StandardLocation[] RESET_LOCATIONS = {
+        StandardLocation.CLASS_OUTPUT, StandardLocation.SOURCE_OUTPUT,
+        StandardLocation.NATIVE_HEADER_OUTPUT, StandardLocation.CLASS_PATH,
+        StandardLocation.SOURCE_PATH
+    };
+
+    /**
+     * Run the compilation.
+     * @return true if the compilation succeeded
+     * @exception BuildException if the compilation has problems.
+     */
+    @Override
+    public boolean execute() throws BuildException {
+        attributes.log("Using javax.tools compiler", Project.MSG_VERBOSE);
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new BuildException(
+                "Unable to find a javac compiler;\nthe javax.tools API doesn't provide one.\nPerhaps JAVA_HOME does not point to the JDK.\nIt is currently set to \"%s\"",
+                JavaEnvUtils.getJavaHome());
+        }
+        final Commandline cmd = setupModernJavacCommand();
+        final String[] args = cmd.getArguments();
+        final List<String> options =
+            Arrays.asList(args).subList(0, args.length - compileList.length);
+
+        final FileManagers managers = FileManagers.get(getProject());
+        final String key = getFileManagerKey(options);
+        final PooledFileManager manager = managers.borrow(compiler, key);
+        boolean reusable = false;
+        try {
+            manager.reset();
+            final Iterable<? extends JavaFileObject> units =
+                manager.fileManager.getJavaFileObjects(compileList);
+            final boolean result =
+                compiler.getTask(null, manager.fileManager, null, options, null, units).call();
+            manager.recordArchives(getCompileClasspath(), getBootClassPath(),
+                                   getModulepath(), getUpgrademodulepath());
+            reusable = true;
+            return result;
+        } catch (IllegalArgumentException | IllegalStateException ex) {
+            throw new BuildException("Error running javax.tools compiler", ex, location);
+        } finally {
+            managers.release(key, manager, reusable);
+        }
+    }
+
+    /**
+     * File managers remember the options they have been configured
+     * with, so they are only reused for compilations that differ in
+     * the locations {@link PooledFileManager#reset} reverts.
+     */
+    private static String getFileManagerKey(final List<String> options) {
+        final StringBuilder key = new StringBuilder();
+        for (int i = 0; i < options.size(); i++) {
+            if (RESET_OPTIONS.contains(options.get(i))) {
+                i++;
+            } else {
+                key.append(options.get(i)).append('\0');
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * A file manager together with the state of the archives it has
+     * read.
+     */
+    private static final class PooledFileManager {
+        private final StandardJavaFileManager fileManager;
+        /** size and modification time of each archive seen */
+        private final Map<File, long[]> archives = new HashMap<>();
+
+        private PooledFileManager(final StandardJavaFileManager fileManager) {
+            this.fileManager = fileManager;
+        }
+
+        /**
+         * Reverts the locations that differ between compilations to
+         * their defaults, so they don't leak from one compilation to
+         * the next.
+         */
+        private void reset() {
+            for (StandardLocation location : RESET_LOCATIONS) {
+                try {
+                    fileManager.setLocation(location, null);
+                } catch (IOException ex) {
+                    throw new BuildException(ex);
+                }
+            }
+        }
+
+        private void recordArchives(final Path... paths) {
+            Stream.of(paths).flatMap(p -> Stream.of(p.list())).map(File::new)
+                .filter(File::isFile)
+                .forEach(f -> archives.put(f, new long[] {f.length(), f.lastModified()}));
+        }
+
+        /**
+         * Whether none of the archives has changed since it has been
+         * read.
+         */
+        private boolean isUpToDate() {
+            return archives.entrySet().stream()
+                .allMatch(e -> e.getKey().length() == e.getValue()[0]
+                          && e.getKey().lastModified() == e.getValue()[1]);
+        }
+
+        private void close() {
+            try {
+                fileManager.close();
+            } catch (IOException ex) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * The idle file managers of a build keyed by the options they
+     * have been used with.
+     *
+     * <p>Registers itself with sub-builds, so they share the file
+     * managers of the build, and closes all file managers when the
+     * build it has been created by finishes.</p>
+     */
+    private static final class FileManagers implements SubBuildListener {
+        private static final String REFID = "ant.javac.javax.tools.filemanagers";
+
+        private final Project project;
+        private final Map<String, Deque<PooledFileManager>> idle = new HashMap<>();
+        private boolean closed;
+
+        private FileManagers(final Project project) {
+            this.project = project;
+        }
+
+        private static synchronized FileManagers get(final Project project) {
+            FileManagers managers = project.getReference(REFID);
+            if (managers == null) {
+                managers = new FileManagers(project);
+                project.addReference(REFID, managers);
+                project.addBuildListener(managers);
+            }
+            return managers;
+        }
+
+        private synchronized PooledFileManager borrow(final JavaCompiler compiler,
+                                                      final String key) {
+            final Deque<PooledFileManager> managers = idle.get(key);
+            while (managers != null && !managers.isEmpty()) {
+                final PooledFileManager manager = managers.pop();
+                if (manager.isUpToDate()) {
+                    return manager;
+                }
+                project.log("Discarding file manager as an archive has changed",
+                            Project.MSG_VERBOSE);
+                manager.close();
+            }
+            return new PooledFileManager(compiler.getStandardFileManager(null, null, null));
+        }
+
+        private synchronized void release(final String key, final PooledFileManager manager,
+                                          final boolean reusable) {
+            if (reusable && !closed) {
+                idle.computeIfAbsent(key, k -> new ArrayDeque<>()).push(manager);
+            } else {
+                manager.close();
+            }
+        }
+
+        private synchronized void closeAll() {
+            closed = true;
+            idle.values().forEach(managers -> managers.forEach(PooledFileManager::close));
+            idle.clear();
+        }
+
+        /**
+         * Closes all file managers.
+         * @param event ignored.
+         */
+        @Override
+        public void buildFinished(final BuildEvent event) {
+            closeAll();
+        }
+
+        /**
+         * Shares the file managers with the sub-build.
+         * @param event the event.
+         */
+        @Override
+        public void subBuildStarted(final BuildEvent event) {
+            final Project subProject = event.getProject();
+            if (subProject != project && subProject.getReference(REFID) == null) {
+                subProject.addReference(REFID, this);
+            }
+        }
+
+        /**
+         * Closes all file managers if the sub-build is the one that
+         * has created them.
+         * @param event the event.
+         */
+        @Override
+        public void subBuildFinished(final BuildEvent event) {
+            if (event.getProject() == project) {
+                closeAll();
+            }
+        }
+
+        /**
+         * Empty implementation.
+         * @param event ignored.
+         */
+        @Override
+        public void buildStarted(final BuildEvent event) {
+        }
+
+        /**
+         * Empty implementation.
+         * @param event ignored.
+         */
+        @Override
+        public void targetStarted(final BuildEvent event) {
+        }
+
+        /**
+         * Empty implementation.
+         * @param event ignored.
+         */
+        @Override
+        public void targetFinished(final BuildEvent event) {
+        }
+
+        /**
+         * Empty implementation.
+         * @param event ignored.
+         */
+        @Override
+        public void taskStarted(final BuildEvent event) {
+        }
+
+        /**
+         * Empty implementation.
+         * @param event ignored.
+         */
+        @Override
+        public void taskFinished(final BuildEvent event) {
+        }
+
+        /**
+         * Empty implementation.
+         * @param event ignored.
+         */
+        @Override
+        public void messageLogged(final BuildEvent event) {
+        }
+    }
+}
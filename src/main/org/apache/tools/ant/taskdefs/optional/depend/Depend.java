@@ -17,15 +17,19 @@
  */
 package org.apache.tools.ant.taskdefs.optional.depend;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
@@ -33,6 +37,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
@@ -49,7 +57,6 @@ import org.apache.tools.ant.types.Resource;
 import org.apache.tools.ant.types.ResourceCollection;
 import org.apache.tools.ant.types.resources.FileProvider;
 import org.apache.tools.ant.util.FileUtils;
-import org.apache.tools.ant.util.depend.DependencyAnalyzer;
 
 /**
  * Generates a dependency file for a given set of classes.
@@ -124,10 +131,11 @@ public class Depend extends MatchingTask {
     /** The classpath to look for additional dependencies */
     private Path dependClasspath;
 
+    /** number of threads used to analyze class files */
+    private int threads = 1;
+
     /** constants used with the cache file */
-    private static final String CACHE_FILE_NAME = "dependencies.txt";
-    /** String Used to separate classnames in the dependency file */
-    private static final String CLASSNAME_PREPEND = "||:";
+    private static final String CACHE_FILE_NAME = "dependencies.bin";
 
     /**
      * Set the classpath to be used for this dependency check.
@@ -184,58 +192,6 @@ public class Depend extends MatchingTask {
         this.warnOnRmiStubs = warnOnRmiStubs;
     }
 
-    /**
-     * Read the dependencies from cache file
-     *
-     * @return a collection of class dependencies
-     * @exception IOException if the dependency file cannot be read
-     */
-    private Map<String, List<String>> readCachedDependencies(File depFile) throws IOException {
-        Map<String, List<String>> dependencyMap = new HashMap<>();
-
-        int prependLength = CLASSNAME_PREPEND.length();
-
-        try (BufferedReader in = new BufferedReader(new FileReader(depFile))) {
-            List<String> dependencyList = null;
-            String line;
-            while ((line = in.readLine()) != null) {
-                if (line.startsWith(CLASSNAME_PREPEND)) {
-                    String className = line.substring(prependLength);
-                    dependencyList = dependencyMap.computeIfAbsent(className,
-                        k -> new ArrayList<>());
-                } else if (dependencyList != null) {
-                    dependencyList.add(line);
-                }
-            }
-        }
-        return dependencyMap;
-    }
-
-    /**
-     * Write the dependencies to cache file
-     *
-     * @param dependencyMap the map of dependencies to be written out.
-     * @exception IOException if the dependency file cannot be written out.
-     */
-    private void writeCachedDependencies(Map<String, List<String>> dependencyMap)
-        throws IOException {
-        if (cache != null) {
-            cache.mkdirs();
-            File depFile = new File(cache, CACHE_FILE_NAME);
-            try (BufferedWriter pw =
-                new BufferedWriter(new FileWriter(depFile))) {
-                for (Map.Entry<String, List<String>> e : dependencyMap
-                    .entrySet()) {
-                    pw.write(String.format("%s%s%n", CLASSNAME_PREPEND, e.getKey()));
-                    for (String s : e.getValue()) {
-                        pw.write(s);
-                        pw.newLine();
-                    }
-                }
-            }
-        }
-    }
-
     /**
      * Get the classpath for dependency checking.
      *
@@ -283,51 +239,30 @@ public class Depend extends MatchingTask {
     private void determineDependencies() throws IOException {
         affectedClassMap = new HashMap<>();
         classFileInfoMap = new HashMap<>();
-        boolean cacheDirty = false;
 
-        Map<String, List<String>> dependencyMap = new HashMap<>();
+        List<ClassFileInfo> classFiles = getClassFiles();
         File cacheFile = null;
-        boolean cacheFileExists = true;
-        long cacheLastModified = Long.MAX_VALUE;
+        DependencyCache previous = new DependencyCache();
 
         // read the dependency cache from the disk
         if (cache != null) {
             cacheFile = new File(cache, CACHE_FILE_NAME);
-            cacheFileExists = cacheFile.exists();
-            cacheLastModified = cacheFile.lastModified();
-            if (cacheFileExists) {
-                dependencyMap = readCachedDependencies(cacheFile);
-            }
+            previous = DependencyCache.load(cacheFile);
         }
-        for (ClassFileInfo info : getClassFiles()) {
+        CacheEntry[] entries = analyzeClassFiles(classFiles, previous);
+        boolean cacheDirty = false;
+
+        DependencyCache current = new DependencyCache();
+        Map<String, List<String>> dependencyMap = new HashMap<>();
+        for (int i = 0; i < entries.length; i++) {
+            ClassFileInfo info = classFiles.get(i);
             log("Adding class info for " + info.className, Project.MSG_DEBUG);
             classFileInfoMap.put(info.className, info);
+            current.entries.put(info.className, entries[i]);
+            cacheDirty |= entries[i] != previous.entries.get(info.className);
 
-            List<String> dependencyList = null;
-
-            if (cache != null) {
-                // try to read the dependency info from the map if it is
-                // not out of date
-                if (cacheFileExists
-                    && cacheLastModified > info.absoluteFile.lastModified()) {
-                    // depFile exists and is newer than the class file
-                    // need to get dependency list from the map.
-                    dependencyList = dependencyMap.get(info.className);
-                }
-            }
-
-            if (dependencyList == null) {
-                // not cached - so need to read directly from the class file
-                DependencyAnalyzer analyzer = new AntAnalyzer();
-                analyzer.addRootClass(info.className);
-                analyzer.addClassPath(destPath);
-                analyzer.setClosure(false);
-                dependencyList = Collections.list(analyzer.getClassDependencies());
-                dependencyList.forEach(o -> log("Class " + info.className + " depends on " + o,
-                        Project.MSG_DEBUG));
-                cacheDirty = true;
-                dependencyMap.put(info.className, dependencyList);
-            }
+            List<String> dependencyList = entries[i].dependencies;
+            dependencyMap.put(info.className, dependencyList);
 
             // This class depends on each class in the dependency list. For each
             // one of those, add this class into their affected classes list
@@ -412,11 +347,122 @@ public class Depend extends MatchingTask {
         }
 
         // write the dependency cache to the disk
-        if (cache != null && cacheDirty) {
-            writeCachedDependencies(dependencyMap);
+        // entries of classes that have been removed are dropped
+        cacheDirty |= current.entries.size() != previous.entries.size();
+        if (cacheFile != null && cacheDirty) {
+            current.save(cacheFile);
         }
     }
 
+    /**
+     * Determines the direct dependencies of all class files, reusing
+     * the cached ones of class files that haven't changed.
+     *
+     * @param classFiles the class files to analyze
+     * @param previous the dependencies recorded by the last run
+     * @return the dependencies of each class file
+     */
+    private CacheEntry[] analyzeClassFiles(List<ClassFileInfo> classFiles,
+                                           DependencyCache previous)
+        throws IOException {
+        CacheEntry[] entries = new CacheEntry[classFiles.size()];
+        if (threads <= 1 || classFiles.size() <= 1) {
+            for (int i = 0; i < entries.length; i++) {
+                ClassFileInfo info = classFiles.get(i);
+                entries[i] = analyzeClassFile(info, previous.entries.get(info.className));
+            }
+            return entries;
+        }
+        ExecutorService pool =
+            Executors.newFixedThreadPool(Math.min(threads, classFiles.size()), r -> {
+                Thread t = new Thread(r, getTaskName() + "-worker");
+                t.setDaemon(true);
+                return t;
+            });
+        try {
+            List<Future<?>> futures = new ArrayList<>(entries.length);
+            for (int i = 0; i < entries.length; i++) {
+                final int index = i;
+                final ClassFileInfo info = classFiles.get(i);
+                futures.add(pool.submit(() -> {
+                    entries[index] =
+                        analyzeClassFile(info, previous.entries.get(info.className));
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    }
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new BuildException(cause, getLocation());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new BuildException("interrupted while waiting for "
+                                             + getTaskName() + " to complete",
+                                             ex, getLocation());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return entries;
+    }
+
+    /**
+     * Determines the direct dependencies of a class file unless the
+     * cached entry still applies.
+     *
+     * <p>The class file is only read if its size or modification time
+     * differ from the cached ones and only parsed if its content
+     * differs as well.</p>
+     *
+     * @param info the class file
+     * @param cached the entry recorded by the last run, may be null
+     * @return the entry for the class file
+     */
+    private CacheEntry analyzeClassFile(ClassFileInfo info, CacheEntry cached)
+        throws IOException {
+        long size = info.absoluteFile.length();
+        long lastModified = info.absoluteFile.lastModified();
+        if (cached != null && cached.size == size && cached.lastModified == lastModified) {
+            return cached;
+        }
+        byte[] content = Files.readAllBytes(info.absoluteFile.toPath());
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance(CacheEntry.DIGEST_ALGORITHM).digest(content);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new BuildException(ex, getLocation());
+        }
+        if (cached != null && Arrays.equals(cached.digest, digest)) {
+            return new CacheEntry(size, lastModified, digest, cached.dependencies);
+        }
+
+        // a class depends on itself, so it is deleted when it is out of date
+        Set<String> dependencies = new HashSet<>();
+        dependencies.add(info.className);
+        try {
+            ClassFile classFile = new ClassFile();
+            classFile.read(new ByteArrayInputStream(content));
+            dependencies.addAll(classFile.getClassRefs());
+        } catch (IOException ioe) {
+            // ignore
+        }
+        dependencies.forEach(o -> log("Class " + info.className + " depends on " + o,
+                Project.MSG_DEBUG));
+        return new CacheEntry(size, lastModified, digest, new ArrayList<>(dependencies));
+    }
+
     /**
      * Delete all the class files which are out of date, by way of their
      * dependency on a class which is out of date
@@ -814,6 +860,17 @@ public class Depend extends MatchingTask {
         this.closure = closure;
     }
 
+    /**
+     * Number of threads used to analyze class files that are not
+     * covered by the cache.
+     *
+     * @param threads the number of threads, defaults to 1
+     * @since Ant 1.10.6
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
     /**
      * If true, the dependency information will be written
      * to the debug level log.
@@ -829,4 +886,97 @@ public class Depend extends MatchingTask {
             .filter(Objects::nonNull).map(FileProvider::getFile)
             .filter(File::isDirectory);
     }
+
+    /**
+     * The direct dependencies of a class file together with the
+     * attributes that tell whether the class file has changed.
+     */
+    private static final class CacheEntry {
+        private static final String DIGEST_ALGORITHM = "SHA-256";
+
+        private final long size;
+        private final long lastModified;
+        private final byte[] digest;
+        private final List<String> dependencies;
+
+        private CacheEntry(long size, long lastModified, byte[] digest,
+                           List<String> dependencies) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.digest = digest;
+            this.dependencies = dependencies;
+        }
+    }
+
+    /**
+     * The dependencies of all class files by class name, stored in a
+     * binary file.
+     */
+    private static final class DependencyCache {
+        private static final int MAGIC = 0x414e4450; // "ANDP"
+        private static final int VERSION = 1;
+
+        private final Map<String, CacheEntry> entries = new HashMap<>();
+
+        /**
+         * Loads the cache, starting with an empty one if the file
+         * doesn't exist or can't be read.
+         */
+        private static DependencyCache load(File cacheFile) {
+            DependencyCache cache = new DependencyCache();
+            if (!cacheFile.isFile()) {
+                return cache;
+            }
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                     Files.newInputStream(cacheFile.toPath())))) {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    return cache;
+                }
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    String className = in.readUTF();
+                    long size = in.readLong();
+                    long lastModified = in.readLong();
+                    byte[] digest = new byte[in.readUnsignedShort()];
+                    in.readFully(digest);
+                    int dependencyCount = in.readInt();
+                    List<String> dependencies = new ArrayList<>(dependencyCount);
+                    for (int j = 0; j < dependencyCount; j++) {
+                        dependencies.add(in.readUTF());
+                    }
+                    cache.entries.put(className,
+                        new CacheEntry(size, lastModified, digest, dependencies));
+                }
+            } catch (IOException ex) {
+                // corrupt, analyze all class files again
+                cache.entries.clear();
+            }
+            return cache;
+        }
+
+        private void save(File cacheFile) throws IOException {
+            File parent = cacheFile.getParentFile();
+            if (parent != null) {
+                parent.mkdirs();
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                     Files.newOutputStream(cacheFile.toPath())))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(entries.size());
+                for (Map.Entry<String, CacheEntry> e : entries.entrySet()) {
+                    CacheEntry entry = e.getValue();
+                    out.writeUTF(e.getKey());
+                    out.writeLong(entry.size);
+                    out.writeLong(entry.lastModified);
+                    out.writeShort(entry.digest.length);
+                    out.write(entry.digest);
+                    out.writeInt(entry.dependencies.size());
+                    for (String dependency : entry.dependencies) {
+                        out.writeUTF(dependency);
+                    }
+                }
+            }
+        }
+    }
 }
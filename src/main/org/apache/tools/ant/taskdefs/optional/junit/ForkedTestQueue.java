@@ -0,0 +1,271 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.tools.ant.taskdefs.optional.junit;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.util.FileUtils;
+
+/**
+ * The tests of a &lt;junit&gt; task with forkmode "perThread" that
+ * still have to be run.
+ *
+ * <p>Forked {@link JUnitTestRunner}s request their tests one at a
+ * time from the queue, so a runner only receives a new test once it
+ * has finished the previous one. The queue hands out the tests that
+ * have taken longest in previous runs first and remembers how long
+ * each test has taken in an optional file.</p>
+ *
+ * <p>Only tests sharing the same configuration may run in the same
+ * forked VM, the configuration is opaque to this class.</p>
+ *
+ * @since Ant 1.10.6
+ */
+final class ForkedTestQueue {
+
+    /** "ANJQ" */
+    static final int MAGIC = 0x414e4a51;
+    static final int VERSION = 1;
+    /** request of a runner for its next test */
+    static final int NEXT = 1;
+
+    static final String PORT = "port";
+    static final String TOKEN = "token";
+    static final int TOKEN_LENGTH = 16;
+
+    /** "ANJD" */
+    private static final int DURATIONS_MAGIC = 0x414e4a44;
+    private static final int DURATIONS_VERSION = 1;
+
+    private final File durationsFile;
+    /** duration in milliseconds of each test seen in this or a previous run */
+    private final Map<String, Long> durations = new HashMap<>();
+    private final Map<Object, List<JUnitTest>> pending = new LinkedHashMap<>();
+    private boolean closed;
+    private boolean dirty;
+
+    /**
+     * @param durationsFile the file holding the durations of previous
+     * runs, may be null.
+     */
+    ForkedTestQueue(final File durationsFile) {
+        this.durationsFile = durationsFile;
+        load();
+    }
+
+    /**
+     * Adds a test.
+     * @param configuration the configuration of the forked VM
+     * required by the test.
+     * @param test the test.
+     */
+    synchronized void add(final Object configuration, final JUnitTest test) {
+        pending.computeIfAbsent(configuration, k -> new ArrayList<>()).add(test);
+    }
+
+    /**
+     * Orders the tests of each configuration by descending duration,
+     * tests that haven't been seen before come first.
+     */
+    synchronized void sort() {
+        pending.values().forEach(tests -> tests.sort(
+            Comparator.comparingLong(this::getDuration).reversed()));
+    }
+
+    /**
+     * Removes the next test.
+     * @param configuration the configuration the test must have, null
+     * for the longest test of any configuration.
+     * @return the test or null if there are no more tests or the
+     * queue has been closed.
+     */
+    synchronized JUnitTest take(final Object configuration) {
+        if (closed) {
+            return null;
+        }
+        List<JUnitTest> tests = null;
+        if (configuration != null) {
+            tests = pending.get(configuration);
+        } else {
+            for (List<JUnitTest> candidate : pending.values()) {
+                if (tests == null
+                    || getDuration(candidate.get(0)) > getDuration(tests.get(0))) {
+                    tests = candidate;
+                }
+            }
+        }
+        if (tests == null) {
+            return null;
+        }
+        final JUnitTest test = tests.remove(0);
+        if (tests.isEmpty()) {
+            pending.values().remove(tests);
+        }
+        return test;
+    }
+
+    /**
+     * Stops handing out tests, runners finish their current test
+     * and exit.
+     */
+    synchronized void close() {
+        closed = true;
+    }
+
+    /**
+     * Records how long a test has taken.
+     * @param test the test.
+     * @param millis the duration in milliseconds.
+     */
+    synchronized void finished(final JUnitTest test, final long millis) {
+        durations.put(getKey(test), millis);
+        dirty = true;
+    }
+
+    /**
+     * Feeds the runner connecting to the given socket until it
+     * disconnects or the queue runs out of tests.
+     *
+     * @param server the socket the runner connects to.
+     * @param token the secret the runner must present.
+     * @param first the first test to run, it has already been taken
+     * from the queue.
+     * @param configuration the configuration of first.
+     * @param spec creates the line describing a test to the runner.
+     * @return the test the runner has been running when it
+     * disconnected, null if it has asked for a test after running
+     * its last one.
+     */
+    JUnitTest serve(final ServerSocket server, final byte[] token, final JUnitTest first,
+                    final Object configuration, final Function<JUnitTest, String> spec) {
+        JUnitTest current = first;
+        try (Socket s = server.accept();
+             DataInputStream in =
+                 new DataInputStream(new BufferedInputStream(s.getInputStream()));
+             DataOutputStream out =
+                 new DataOutputStream(new BufferedOutputStream(s.getOutputStream()))) {
+            final byte[] clientToken = new byte[TOKEN_LENGTH];
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return current;
+            }
+            in.readFully(clientToken);
+            if (!MessageDigest.isEqual(token, clientToken)) {
+                return current;
+            }
+            boolean running = false;
+            long started = 0;
+            while (in.read() == NEXT) {
+                final long now = System.currentTimeMillis();
+                if (running) {
+                    finished(current, now - started);
+                    current = take(configuration);
+                }
+                running = true;
+                started = now;
+                out.writeUTF(current == null ? "" : spec.apply(current));
+                out.flush();
+                if (current == null) {
+                    return null;
+                }
+            }
+        } catch (IOException ex) {
+            // the forked VM has gone away
+        }
+        return current;
+    }
+
+    /**
+     * Writes the durations if they have changed.
+     */
+    synchronized void save() {
+        if (durationsFile == null || !dirty) {
+            return;
+        }
+        final File parent = durationsFile.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        final File tmp = FileUtils.getFileUtils()
+            .createTempFile(durationsFile.getName(), ".tmp", parent, false, false);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(tmp.toPath())))) {
+                out.writeInt(DURATIONS_MAGIC);
+                out.writeInt(DURATIONS_VERSION);
+                out.writeInt(durations.size());
+                for (Map.Entry<String, Long> e : durations.entrySet()) {
+                    out.writeUTF(e.getKey());
+                    out.writeLong(e.getValue());
+                }
+            }
+            Files.move(tmp.toPath(), durationsFile.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING);
+            dirty = false;
+        } catch (IOException ex) {
+            tmp.delete();
+            throw new BuildException("Failed to write " + durationsFile, ex);
+        }
+    }
+
+    private void load() {
+        if (durationsFile == null || !durationsFile.isFile()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+            Files.newInputStream(durationsFile.toPath())))) {
+            if (in.readInt() != DURATIONS_MAGIC || in.readInt() != DURATIONS_VERSION) {
+                return;
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                final String key = in.readUTF();
+                durations.put(key, in.readLong());
+            }
+        } catch (IOException ex) {
+            // an unreadable file only affects the order of the tests
+            durations.clear();
+        }
+    }
+
+    private long getDuration(final JUnitTest test) {
+        return durations.getOrDefault(getKey(test), Long.MAX_VALUE);
+    }
+
+    private static String getKey(final JUnitTest test) {
+        return test.getMethods() == null ? test.getName()
+            : test.getName() + ":" + test.getMethodsString();
+    }
+}
@@ -27,11 +27,15 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.lang.reflect.Constructor;
+import java.net.InetAddress;
+import java.net.ServerSocket;
 import java.net.URL;
 import java.nio.file.Files;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.security.SecureRandom;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
@@ -43,6 +47,10 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -179,6 +187,7 @@ public class JUnitTask extends Task {
     private boolean logFailedTests = true;
 
     private File tmpDir;
+    private File durationsFile;
     private AntClassLoader classLoader = null;
     private Permissions perm = null;
     private ForkMode forkMode = new ForkMode("perTest");
@@ -192,7 +201,8 @@ public class JUnitTask extends Task {
     private boolean forkedPathChecked = false;
 
     /* set when a test fails/errs with haltonfailure/haltonerror and >1 thread to stop other threads */
-    private volatile BuildException caughtBuildException = null;
+    private final AtomicReference<BuildException> caughtBuildException =
+        new AtomicReference<>();
 
     //   Attributes for basetest
     private boolean haltOnError = false;
@@ -307,11 +317,14 @@ public class JUnitTask extends Task {
     /**
      * Set the behavior when {@link #setFork fork} fork has been enabled.
      *
-     * <p>Possible values are "once", "perTest" and "perBatch".  If
-     * set to "once", only a single Java VM will be forked for all
-     * tests, with "perTest" (the default) each test will run in a
-     * fresh Java VM and "perBatch" will run all tests from the same
-     * &lt;batchtest&gt; in the same Java VM.</p>
+     * <p>Possible values are "once", "perTest", "perBatch" and
+     * "perThread".  If set to "once", only a single Java VM will be
+     * forked for all tests, with "perTest" (the default) each test
+     * will run in a fresh Java VM and "perBatch" will run all tests
+     * from the same &lt;batchtest&gt; in the same Java VM.  With
+     * "perThread" each thread forks a Java VM that keeps requesting
+     * tests from a queue shared by all threads until the queue is
+     * empty.</p>
      *
      * <p>This attribute will be ignored if tests run in the same VM
      * as Ant.</p>
@@ -393,6 +406,10 @@ public class JUnitTask extends Task {
      * <p>If the test is running for more than this value, the test
      * will be canceled. (works only when in 'fork' mode).</p>
      *
+     * <p>With forkmode "perThread" the timeout applies to the
+     * forked Java VM, which runs as many tests as it can take from
+     * the shared queue, rather than to an individual test.</p>
+     *
      * @param value the maximum time (in milliseconds) allowed before
      * declaring the test as 'timed-out'
      * @see #setFork(boolean)
@@ -729,6 +746,19 @@ public class JUnitTask extends Task {
         this.tmpDir = tmpDir;
     }
 
+    /**
+     * File to record the duration of each test in.
+     *
+     * <p>With forkmode "perThread" the tests that have taken longest
+     * in previous runs are started first.</p>
+     *
+     * @param durationsFile File
+     * @since Ant 1.10.6
+     */
+    public void setDurationsFile(final File durationsFile) {
+        this.durationsFile = durationsFile;
+    }
+
     /**
      * Whether test listener events shall be generated.
      *
@@ -848,6 +878,15 @@ public class JUnitTask extends Task {
         /* parallel test execution is only supported for multi-process execution */
         final int threads = !fork || forkMode.getValue().equals(ForkMode.ONCE) ? 1 : this.threads;
 
+        if (ForkMode.PER_THREAD.equals(forkMode.getValue())) {
+            try {
+                runTestsFromQueue(Math.max(threads, 1));
+            } finally {
+                cleanup();
+            }
+            return;
+        }
+
         final boolean forkPerTest = ForkMode.PER_TEST.equals(forkMode.getValue());
         if (forkPerTest || ForkMode.ONCE.equals(forkMode.getValue())) {
             testLists.addAll(executeOrQueue(getIndividualTests(),
@@ -894,7 +933,7 @@ public class JUnitTask extends Task {
                 masterTask.oneJunitThread(iterator, id);
             } catch (final BuildException b) {
                 /* saved to rethrow in main thread to be like single-threaded case */
-                caughtBuildException = b;
+                caughtBuildException.compareAndSet(null, b);
             }
         }
 
@@ -934,7 +973,7 @@ public class JUnitTask extends Task {
 
         List<JUnitTest> l;
         log("Starting test thread " + threadId, Project.MSG_VERBOSE);
-        while ((caughtBuildException == null) && ((l = getNextTest(iter)) != null)) {
+        while ((caughtBuildException.get() == null) && ((l = getNextTest(iter)) != null)) {
             log("Running test " + l.get(0).toString() + "(" + l.size() + ") in thread " + threadId, Project.MSG_VERBOSE);
             if (l.size() == 1) {
                 execute(l.get(0), threadId);
@@ -998,8 +1037,8 @@ public class JUnitTask extends Task {
 
            /* an exception occurred in one of the threads - usually a haltOnError/Failure.
               throw the exception again so it behaves like the single-thread case */
-           if (caughtBuildException != null) {
-               throw new BuildException(caughtBuildException);
+           if (caughtBuildException.get() != null) {
+               throw new BuildException(caughtBuildException.get());
            }
 
             /* all threads are completed - that's all there is to do. */
@@ -1007,6 +1046,163 @@ public class JUnitTask extends Task {
         }
     }
 
+    /*
+     * With forkmode "perThread" the tests are not split up front.  Each thread takes the
+     * longest test left in the queue, forks a VM for it and feeds the VM the remaining
+     * tests of the same configuration one at a time as the VM asks for them.  Once there
+     * are no more tests the VM can run, the thread starts over with the next test.
+     */
+    private void runTestsFromQueue(final int numThreads) {
+        final ForkedTestQueue queue = new ForkedTestQueue(durationsFile);
+        for (final JUnitTest test : Collections.list(getIndividualTests())) {
+            if (!test.shouldRun(getProject())) {
+                continue;
+            }
+            if (test.getFork()) {
+                queue.add(new ForkedTestConfiguration(test), test);
+            } else {
+                execute(test, 0);
+            }
+        }
+        queue.sort();
+
+        try {
+            if (numThreads == 1) {
+                oneQueueThread(queue, 0);
+            } else {
+                final Thread[] threads = new Thread[numThreads];
+                for (int i = 0; i < numThreads; i++) {
+                    final int threadId = i + 1;
+                    threads[i] = new Thread(() -> {
+                        try {
+                            oneQueueThread(queue, threadId);
+                        } catch (final BuildException b) {
+                            /* saved to rethrow in main thread to be like single-threaded case */
+                            caughtBuildException.compareAndSet(null, b);
+                            queue.close();
+                        }
+                    });
+                    threads[i].start();
+                }
+                for (final Thread thread : threads) {
+                    boolean joined = false;
+                    while (!joined) {
+                        try {
+                            thread.join();
+                            joined = true;
+                        } catch (final InterruptedException e) {
+                            // keep waiting like runTestsInThreads does
+                        }
+                    }
+                }
+                if (caughtBuildException.get() != null) {
+                    throw new BuildException(caughtBuildException.get());
+                }
+            }
+        } finally {
+            queue.save();
+        }
+    }
+
+    private void oneQueueThread(final ForkedTestQueue queue, final int threadId) {
+        JUnitTest first;
+        log("Starting test thread " + threadId, Project.MSG_VERBOSE);
+        while (caughtBuildException.get() == null && (first = queue.take(null)) != null) {
+            log("Running tests starting with " + first.getName() + " in thread " + threadId,
+                Project.MSG_VERBOSE);
+            execute(queue, first, threadId);
+        }
+        log("Ending test thread " + threadId, Project.MSG_VERBOSE);
+    }
+
+    /**
+     * Execute tests from a queue in a single forked Java VM.
+     * @param queue the queue holding the tests.
+     * @param first the first test to run, all further tests share its configuration.
+     * @param thread Identifies which thread is test running in (0 for single-threaded runs)
+     * @throws BuildException on error.
+     */
+    private void execute(final ForkedTestQueue queue, final JUnitTest first, final int thread)
+        throws BuildException {
+        final File queueFile = createTempPropertiesFile("junittestqueue");
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            final byte[] token = new byte[ForkedTestQueue.TOKEN_LENGTH];
+            new SecureRandom().nextBytes(token);
+            final Properties p = new Properties();
+            p.setProperty(ForkedTestQueue.PORT, String.valueOf(server.getLocalPort()));
+            p.setProperty(ForkedTestQueue.TOKEN, Base64.getEncoder().encodeToString(token));
+            try (OutputStream out = Files.newOutputStream(queueFile.toPath())) {
+                p.store(out, "Ant JUnitTask test queue");
+            }
+
+            final ForkedTestConfiguration configuration = new ForkedTestConfiguration(first);
+            final FutureTask<JUnitTest> feeder = new FutureTask<>(() -> queue.serve(server,
+                token, first, configuration, t -> {
+                    t.setThread(thread);
+                    final String spec = getTestSpec(t);
+                    log("Running test " + spec + " in thread " + thread, Project.MSG_VERBOSE);
+                    return spec;
+                }));
+            final Thread feederThread = new Thread(feeder, getTaskName() + "-feeder-" + thread);
+            feederThread.setDaemon(true);
+            feederThread.start();
+
+            // the test the VM has been running when it crashed or timed out
+            final Supplier<JUnitTest> running = () -> {
+                // unblocks the feeder if the VM has never connected
+                FileUtils.close(server);
+                JUnitTest test = null;
+                try {
+                    test = feeder.get();
+                } catch (final ExecutionException e) {
+                    log(e.getCause().toString(), Project.MSG_VERBOSE);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (test == null) {
+                    // the VM has run all of its tests before it exited
+                    test = createDummyTestForBatchTest(first);
+                    test.setOutfile(null);
+                }
+                // the same default getTestSpec passes to the runner
+                if (test.getOutfile() == null) {
+                    test.setOutfile("TEST-" + test.getName());
+                }
+                return test;
+            };
+
+            first.setThread(thread);
+            final ExecuteWatchdog watchdog = createWatchdog();
+            final TestResultHolder result =
+                executeAsForked(first, watchdog, queueFile, Constants.TESTSQUEUE, running);
+            actOnTestResult(result, result.timedOut || result.crashed ? running.get() : first,
+                            "Tests");
+        } catch (final IOException e) {
+            log(e.toString(), Project.MSG_ERR);
+            throw new BuildException(e);
+        } finally {
+            FILE_UTILS.tryHardToDelete(queueFile);
+        }
+    }
+
+    /**
+     * Describes a test to a runner executing multiple tests.
+     * @param test the test.
+     * @return name and methods of the test followed by the directory
+     * and name of its output files.
+     */
+    private String getTestSpec(final JUnitTest test) {
+        final StringBuilder spec = new StringBuilder(test.getName());
+        if (test.getMethods() != null) {
+            spec.append(':').append(test.getMethodsString().replace(',', '+'));
+        }
+        spec.append(',').append(test.getTodir() == null
+                                ? getProject().resolveFile(".") : test.getTodir());
+        spec.append(',').append(test.getOutfile() == null
+                                ? "TEST-" + test.getName() : test.getOutfile());
+        return spec.toString();
+    }
+
     /**
      * Run the tests.
      * @param arg one JUnitTest
@@ -1033,7 +1229,7 @@ public class JUnitTask extends Task {
         TestResultHolder result;
         if (test.getFork()) {
             final ExecuteWatchdog watchdog = createWatchdog();
-            result = executeAsForked(test, watchdog, null);
+            result = executeAsForked(test, watchdog, null, null);
             // null watchdog means no timeout, you'd better not check with null
         } else {
             result = executeInVM(test);
@@ -1086,30 +1282,14 @@ public class JUnitTask extends Task {
             for (JUnitTest t : testList) {
                 test = t;
                 test.setThread(thread);
-                printDual(writer, logWriter, test.getName());
-                if (test.getMethods() != null) {
-                    printDual(writer, logWriter, ":" + test.getMethodsString().replace(',', '+'));
-                }
-                if (test.getTodir() == null) {
-                    printDual(writer, logWriter,
-                              "," + getProject().resolveFile("."));
-                } else {
-                    printDual(writer, logWriter, "," + test.getTodir());
-                }
-
-                if (test.getOutfile() == null) {
-                    printlnDual(writer, logWriter,
-                                "," + "TEST-" + test.getName());
-                } else {
-                    printlnDual(writer, logWriter, "," + test.getOutfile());
-                }
+                printlnDual(writer, logWriter, getTestSpec(test));
             }
             writer.flush();
 
             // execute the test and get the return code
             final ExecuteWatchdog watchdog = createWatchdog();
             final TestResultHolder result =
-                executeAsForked(test, watchdog, casesFile);
+                executeAsForked(test, watchdog, casesFile, Constants.TESTSFILE);
             actOnTestResult(result, test, "Tests");
         } catch (final IOException e) {
             log(e.toString(), Project.MSG_ERR);
@@ -1143,13 +1323,34 @@ public class JUnitTask extends Task {
      * the test could probably hang forever.
      * @param casesFile list of test cases to execute. Can be <tt>null</tt>,
      * in this case only one test is executed.
+     * @param casesPrefix prefix of the argument passing casesFile to
+     * the runner.
      * @return the test results from the JVM itself.
      * @throws BuildException in case of error creating a temporary property file,
      * or if the junit process can not be forked
      */
+    private TestResultHolder executeAsForked(final JUnitTest test,
+                                             final ExecuteWatchdog watchdog,
+                                             final File casesFile,
+                                             final String casesPrefix)
+        throws BuildException {
+        return executeAsForked(test, watchdog, casesFile, casesPrefix,
+                               casesFile == null ? () -> test
+                               : () -> createDummyTestForBatchTest(test));
+    }
+
+    /**
+     * Execute a testcase by forking a new JVM.
+     * @param crashedTest provides the test to report a timeout or
+     * crash of the JVM against, it is only consulted after the JVM
+     * has exited.
+     * @see #executeAsForked(JUnitTest, ExecuteWatchdog, File, String)
+     */
     private TestResultHolder executeAsForked(JUnitTest test,
                                              final ExecuteWatchdog watchdog,
-                                             final File casesFile)
+                                             final File casesFile,
+                                             final String casesPrefix,
+                                             final Supplier<JUnitTest> crashedTest)
         throws BuildException {
 
         if (perm != null) {
@@ -1170,7 +1371,7 @@ public class JUnitTask extends Task {
             }
         } else {
             log("Running multiple tests in the same VM", Project.MSG_VERBOSE);
-            cmd.createArgument().setValue(Constants.TESTSFILE + casesFile);
+            cmd.createArgument().setValue(casesPrefix + casesFile);
         }
 
         cmd.createArgument().setValue(Constants.SKIP_NON_TESTS + String.valueOf(test.isSkipNonTests()));
@@ -1289,8 +1490,8 @@ public class JUnitTask extends Task {
             final boolean crash = (watchdog != null && watchdog.killedProcess())
                 || !Constants.TERMINATED_SUCCESSFULLY.equals(vmCrashString);
 
-            if (casesFile != null && crash) {
-                test = createDummyTestForBatchTest(test);
+            if (crash) {
+                test = crashedTest.get();
             }
 
             if (watchdog != null && watchdog.killedProcess()) {
@@ -2118,6 +2319,11 @@ public class JUnitTask extends Task {
          * fork once per batch of tests
          */
         public static final String PER_BATCH = "perBatch";
+        /**
+         * fork once per thread and feed the tests on demand
+         * @since Ant 1.10.6
+         */
+        public static final String PER_THREAD = "perThread";
 
         /** No arg constructor. */
         public ForkMode() {
@@ -2126,7 +2332,7 @@ public class JUnitTask extends Task {
 
         /**
          * Constructor using a value.
-         * @param value the value to use - once, perTest or perBatch.
+         * @param value the value to use - once, perTest, perBatch or perThread.
          */
         public ForkMode(final String value) {
             super();
@@ -2136,7 +2342,7 @@ public class JUnitTask extends Task {
         /** {@inheritDoc}. */
         @Override
         public String[] getValues() {
-            return new String[] {ONCE, PER_TEST, PER_BATCH};
+            return new String[] {ONCE, PER_TEST, PER_BATCH, PER_THREAD};
         }
     }
 
@@ -2321,12 +2527,6 @@ public class JUnitTask extends Task {
         return t;
     }
 
-    private static void printDual(final BufferedWriter w, final PrintStream s, final String text)
-        throws IOException {
-        w.write(String.valueOf(text));
-        s.print(text);
-    }
-
     private static void printlnDual(final BufferedWriter w, final PrintStream s, final String text)
         throws IOException {
         w.write(String.valueOf(text));
@@ -18,9 +18,13 @@
 
 package org.apache.tools.ant.taskdefs.optional.junit;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
@@ -28,13 +32,17 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.net.InetAddress;
+import java.net.Socket;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.Base64;
 import java.util.Enumeration;
 import java.util.Properties;
 import java.util.StringTokenizer;
@@ -925,9 +933,14 @@ public class JUnitTestRunner implements TestListener, JUnitTaskMirror.JUnitTestR
             System.exit(ERRORS);
         }
 
+        boolean testsQueue = false;
         if (args[0].startsWith(Constants.TESTSFILE)) {
             multipleTests = true;
             args[0] = args[0].substring(Constants.TESTSFILE.length());
+        } else if (args[0].startsWith(Constants.TESTSQUEUE)) {
+            multipleTests = true;
+            testsQueue = true;
+            args[0] = args[0].substring(Constants.TESTSQUEUE.length());
         }
 
         for (String arg : args) {
@@ -984,7 +997,8 @@ public class JUnitTestRunner implements TestListener, JUnitTaskMirror.JUnitTestR
 
         int returnCode = SUCCESS;
         if (multipleTests) {
-            try (final BufferedReader reader = new BufferedReader(new FileReader(args[0]))) {
+            try (final BufferedReader reader = new BufferedReader(testsQueue
+                ? new TestQueueReader(args[0]) : new FileReader(args[0]))) {
                 int code = 0;
                 boolean errorOccurred = false;
                 boolean failureOccurred = false;
@@ -1305,4 +1319,73 @@ public class JUnitTestRunner implements TestListener, JUnitTaskMirror.JUnitTestR
         return new int[] {failures, errors};
     }
 
+    /**
+     * Reads the tests to run from a {@link ForkedTestQueue}.
+     *
+     * <p>A new test is only requested once the previous one has been
+     * read completely, i.e. once the runner is ready to run it.</p>
+     *
+     * @since Ant 1.10.6
+     */
+    private static final class TestQueueReader extends Reader {
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private String line = "";
+        private int pos;
+        private boolean exhausted;
+
+        /**
+         * @param queueFile properties file holding the port and the
+         * token of the queue.
+         */
+        TestQueueReader(final String queueFile) throws IOException {
+            final Properties p = new Properties();
+            try (InputStream is = Files.newInputStream(Paths.get(queueFile))) {
+                p.load(is);
+            }
+            final byte[] token;
+            final int port;
+            try {
+                token = Base64.getDecoder().decode(p.getProperty(ForkedTestQueue.TOKEN, ""));
+                port = Integer.parseInt(p.getProperty(ForkedTestQueue.PORT));
+            } catch (final IllegalArgumentException ex) {
+                throw new IOException("Invalid test queue file " + queueFile, ex);
+            }
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(ForkedTestQueue.MAGIC);
+            out.writeInt(ForkedTestQueue.VERSION);
+            out.write(token);
+            out.flush();
+        }
+
+        @Override
+        public int read(final char[] cbuf, final int off, final int len) throws IOException {
+            if (pos == line.length()) {
+                if (exhausted) {
+                    return -1;
+                }
+                out.write(ForkedTestQueue.NEXT);
+                out.flush();
+                final String next = in.readUTF();
+                if (next.isEmpty()) {
+                    exhausted = true;
+                    return -1;
+                }
+                line = next + "\n";
+                pos = 0;
+            }
+            final int n = Math.min(len, line.length() - pos);
+            line.getChars(pos, pos + n, cbuf, off);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
 }
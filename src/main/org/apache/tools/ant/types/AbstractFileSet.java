@@ -28,7 +28,9 @@ import java.util.stream.Collectors;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.DirectoryScanner;
 import org.apache.tools.ant.FileScanner;
+import org.apache.tools.ant.MagicNames;
 import org.apache.tools.ant.Project;
+import org.apache.tools.ant.ScanCache;
 import org.apache.tools.ant.types.selectors.AndSelector;
 import org.apache.tools.ant.types.selectors.ContainsRegexpSelector;
 import org.apache.tools.ant.types.selectors.ContainsSelector;
@@ -57,6 +59,7 @@ import org.apache.tools.ant.types.selectors.SymlinkSelector;
 import org.apache.tools.ant.types.selectors.TypeSelector;
 import org.apache.tools.ant.types.selectors.WritableSelector;
 import org.apache.tools.ant.types.selectors.modifiedselector.ModifiedSelector;
+import org.apache.tools.ant.util.ScanIndex;
 
 /**
  * Class that holds an implicit patternset and supports nested
@@ -522,9 +525,17 @@ public abstract class AbstractFileSet extends DataType
                 ds.setFollowSymlinks(followSymlinks);
                 ds.setErrorOnMissingDir(errorOnMissingDir);
                 ds.setMaxLevelsOfSymlinks(maxLevelsOfSymlinks);
+                ds.setScanIndex(ScanIndex.getScanIndex(p));
+                ds.setParallelScan(Project.toBoolean(p.getProperty(MagicNames.PARALLEL_SCAN)));
+                ds.setPrefetchAttributes(Project.toBoolean(
+                    p.getProperty(MagicNames.SCAN_ATTRIBUTES)));
                 directoryScanner = (p == getProject()) ? ds : directoryScanner;
             }
         }
+        final ScanCache cache = ScanCache.getScanCache(p);
+        if (cache != null) {
+            return cache.scan(ds);
+        }
         ds.scan();
         return ds;
     }
@@ -20,7 +20,9 @@ package org.apache.tools.ant.types;
 import java.io.File;
 import java.io.InputStream;
 import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
@@ -28,6 +30,7 @@ import java.util.Vector;
 
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Project;
+import org.apache.tools.ant.util.MultiStringMatcher;
 import org.apache.tools.ant.util.VectorSet;
 
 /**
@@ -185,6 +188,12 @@ public class FilterSet extends DataType implements Cloneable {
 
     private int recurseDepth = 0;
 
+    /**
+     * Locates the tokens of the filter hash, built once on demand and
+     * discarded whenever filters or delimiters change.
+     */
+    private volatile TokenIndex tokenIndex;
+
     /**
      * List of ordered filters and filter files.
      */
@@ -283,6 +292,7 @@ public class FilterSet extends DataType implements Cloneable {
             throw new BuildException("beginToken must not be empty");
         }
         this.startOfToken = startOfToken;
+        tokenIndex = null;
     }
 
     /**
@@ -310,6 +320,7 @@ public class FilterSet extends DataType implements Cloneable {
             throw new BuildException("endToken must not be empty");
         }
         this.endOfToken = endOfToken;
+        tokenIndex = null;
     }
 
     /**
@@ -370,6 +381,7 @@ public class FilterSet extends DataType implements Cloneable {
                 + "the filtersfile attribute:" + filtersFile);
         }
         filterHash = null;
+        tokenIndex = null;
     }
 
     /**
@@ -382,7 +394,7 @@ public class FilterSet extends DataType implements Cloneable {
      * @param line  The line in which to process embedded tokens.
      * @return      The input string after token replacement.
      */
-    public synchronized String replaceTokens(String line) {
+    public String replaceTokens(String line) {
         return iReplaceTokens(line);
     }
 
@@ -397,6 +409,7 @@ public class FilterSet extends DataType implements Cloneable {
         }
         filters.addElement(filter);
         filterHash = null;
+        tokenIndex = null;
     }
 
     /**
@@ -512,60 +525,83 @@ public class FilterSet extends DataType implements Cloneable {
      * @param line  The line to process the tokens in.
      * @return      The string with the tokens replaced.
      */
-    private synchronized String iReplaceTokens(String line) {
+    private String iReplaceTokens(String line) {
         String beginToken = getBeginToken();
         String endToken = getEndToken();
         int index = line.indexOf(beginToken);
 
         if (index > -1) {
-            Hashtable<String, String> tokens = getFilterHash();
-            try {
-                StringBuilder b = new StringBuilder();
-                int i = 0;
-
-                while (index > -1) {
-                    //can't have zero-length token
-                    int endIndex = line.indexOf(endToken,
-                        index + beginToken.length() + 1);
-                    if (endIndex == -1) {
-                        break;
-                    }
-                    String token =
-                        line.substring(index + beginToken.length(), endIndex);
-                    b.append(line, i, index);
-                    if (tokens.containsKey(token)) {
-                        String value = tokens.get(token);
-                        if (recurse && !value.equals(token)) {
-                            // we have another token, let's parse it.
-                            value = replaceTokens(value, token);
-                        }
-                        log("Replacing: " + beginToken + token + endToken
-                            + " -> " + value, Project.MSG_VERBOSE);
-                        b.append(value);
-                        i = index + beginToken.length() + token.length()
-                            + endToken.length();
-                    } else {
-                        // just append first character of beginToken
-                        // and search further
-                        // we can't skip the complete beginToken since
-                        // it may contain the start of another
-                        // candidate begin token (Bugzilla 45094)
-                        b.append(beginToken.charAt(0));
-                        i = index + 1;
-                    }
-                    index = line.indexOf(beginToken, i);
+            TokenIndex lookup = getTokenIndex();
+            StringBuilder b = new StringBuilder();
+            int i = 0;
+            MultiStringMatcher.Match match =
+                lookup.matcher == null ? null : lookup.matcher.find(line, index);
+
+            while (match != null) {
+                int start = match.getStart();
+                String token = lookup.tokens[match.getPattern()];
+                int endIndex = start + beginToken.length() + token.length();
+                // the token ends with the first end token following
+                // the begin token - can't have zero-length token
+                if (line.indexOf(endToken, start + beginToken.length() + 1)
+                    != endIndex) {
+                    // just skip the first character of beginToken
+                    // and search further
+                    // we can't skip the complete beginToken since
+                    // it may contain the start of another
+                    // candidate begin token (Bugzilla 45094)
+                    match = lookup.matcher.find(line, start + 1);
+                    continue;
                 }
-
-                b.append(line.substring(i));
-                return b.toString();
-            } catch (StringIndexOutOfBoundsException e) {
-                return line;
+                String value = lookup.source.get(token);
+                if (value == null) {
+                    // removed from the hash behind our back
+                    match = lookup.matcher.find(line, start + 1);
+                    continue;
+                }
+                if (recurse && !value.equals(token) && value.contains(beginToken)) {
+                    // we have another token, let's parse it.
+                    value = replaceTokens(value, token);
+                }
+                log("Replacing: " + beginToken + token + endToken
+                    + " -> " + value, Project.MSG_VERBOSE);
+                b.append(line, i, start).append(value);
+                i = endIndex + endToken.length();
+                match = lookup.matcher.find(line, i);
             }
+
+            b.append(line, i, line.length());
+            return b.toString();
         } else {
            return line;
         }
     }
 
+    /**
+     * Returns the index of the current tokens, building it if the
+     * filters or delimiters have changed since it has been built.
+     *
+     * <p>The hash may have been modified directly as it is handed out
+     * by {@link #getFilterHash}, so its size is compared as well.</p>
+     */
+    private TokenIndex getTokenIndex() {
+        if (isReference()) {
+            return getRef().getTokenIndex();
+        }
+        TokenIndex lookup = tokenIndex;
+        if (lookup == null || lookup.source.size() != lookup.size) {
+            synchronized (this) {
+                lookup = tokenIndex;
+                if (lookup == null || lookup.source.size() != lookup.size) {
+                    lookup = new TokenIndex(getFilterHash(), getBeginToken(),
+                                            getEndToken());
+                    tokenIndex = lookup;
+                }
+            }
+        }
+        return lookup;
+    }
+
     /**
      * This parses tokens which point to tokens.
      * It also maintains a list of currently used tokens, so we cannot
@@ -612,6 +648,36 @@ public class FilterSet extends DataType implements Cloneable {
         return value;
     }
 
+    /**
+     * All tokens of a filter hash including their delimiters
+     * compiled into a matcher that finds them in a single pass.
+     */
+    private static final class TokenIndex {
+        private final Hashtable<String, String> source;
+        /** the size of source at the time the index has been built */
+        private final int size;
+        private final String[] tokens;
+        /** null if there are no tokens */
+        private final MultiStringMatcher matcher;
+
+        private TokenIndex(Hashtable<String, String> source, String beginToken,
+                           String endToken) {
+            this.source = source;
+            List<String> keys = new ArrayList<>(source.keySet());
+            size = keys.size();
+            List<String> matched = new ArrayList<>(size);
+            List<String> patterns = new ArrayList<>(size);
+            for (String token : keys) {
+                if (!token.isEmpty()) {
+                    matched.add(token);
+                    patterns.add(beginToken + token + endToken);
+                }
+            }
+            tokens = matched.toArray(new String[0]);
+            matcher = patterns.isEmpty() ? null : new MultiStringMatcher(patterns, false);
+        }
+    }
+
     private void handleMissingFile(String message) {
         switch (onMissingFiltersFile.getIndex()) {
         case OnMissing.IGNORE_INDEX:
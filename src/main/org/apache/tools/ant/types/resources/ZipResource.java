@@ -129,7 +129,8 @@ public class ZipResource extends ArchiveResource {
         if (isReference()) {
             return getRef().getInputStream();
         }
-        return getZipEntryStream(new ZipFile(getZipfile(), getEncoding()), getName());
+        return getZipEntryStream(new ZipFile(getZipfile(), getEncoding(), true, true),
+                                 getName());
     }
 
     /**
@@ -209,7 +210,7 @@ public class ZipResource extends ArchiveResource {
     protected void fetchEntry() {
         ZipFile z = null;
         try {
-            z = new ZipFile(getZipfile(), getEncoding());
+            z = new ZipFile(getZipfile(), getEncoding(), true, true);
             setEntry(z.getEntry(getName()));
         } catch (IOException e) {
             log(e.getMessage(), Project.MSG_DEBUG);
@@ -19,7 +19,8 @@
 package org.apache.tools.ant.types.selectors;
 
 import java.io.File;
-import java.nio.file.Files;
+
+import org.apache.tools.ant.util.AttributedFile;
 
 /**
  * A selector that selects symbolic links.
@@ -33,7 +34,7 @@ import java.nio.file.Files;
 public class SymlinkSelector implements FileSelector {
 
     public boolean isSelected(File basedir, String filename, File file) {
-        return file != null && Files.isSymbolicLink(file.toPath());
+        return file != null && AttributedFile.isSymbolicLink(file);
     }
 
 }
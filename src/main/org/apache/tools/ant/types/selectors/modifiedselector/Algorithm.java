@@ -45,4 +45,38 @@ public interface Algorithm {
      * @return        The value for that file
      */
     String getValue(File file);
+
+    /**
+     * Get the value for a file that had the given value when it has
+     * been checked before.
+     *
+     * <p>Algorithms may use the previous value to avoid expensive
+     * computations and return it unchanged if the file is known not
+     * to have changed. The default implementation ignores it.</p>
+     *
+     * @param file    File object for which the value should be evaluated.
+     * @param previousValue the cached value of the file, never null
+     * @return        The value for that file
+     * @since Ant 1.10.6
+     */
+    default String getValue(File file, String previousValue) {
+        return getValue(file);
+    }
+
+    /**
+     * The part of a value that describes the file's content.
+     *
+     * <p>Algorithms whose values also hold metadata of the file
+     * return the part that doesn't change if the file is only
+     * touched. Values are compared by this part, but a value whose
+     * metadata differs from the cached one is still written to the
+     * cache. The default implementation returns the value.</p>
+     *
+     * @param value a value computed by this algorithm, may be null
+     * @return the content part of the value
+     * @since Ant 1.10.6
+     */
+    default String getContentValue(String value) {
+        return value;
+    }
 }
@@ -0,0 +1,328 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.tools.ant.types.selectors.modifiedselector;
+
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.tools.ant.util.FileUtils;
+
+
+/**
+ * Stores the values in a compact binary file.
+ *
+ * <p>Unlike the {@link PropertiesfileCache} this cache doesn't rewrite
+ * the whole file when it is saved. The file is a log of key-value
+ * records, saving appends the entries that have been put since the
+ * last save and the last record of a key wins when the file is
+ * loaded. Once the file contains more outdated records than current
+ * ones it is compacted by writing all current entries to a new
+ * file. The cache may be used by several threads concurrently.</p>
+ *
+ * Supported &lt;param&gt;s are:
+ * <table>
+ * <caption>Cache parameters</caption>
+ * <tr>
+ *   <th>name</th><th>values</th><th>description</th><th>required</th>
+ * </tr>
+ * <tr>
+ *   <td>cache.cachefile</td>
+ *   <td><i>path to file</i></td>
+ *   <td>the name of the cache file</td>
+ *   <td>yes</td>
+ * </tr>
+ * </table>
+ *
+ * @since  Ant 1.10.6
+ */
+public class BinaryfileCache implements Cache {
+
+    /** "ANMS" */
+    private static final int MAGIC = 0x414e4d53;
+    private static final int VERSION = 1;
+    private static final int PUT = 1;
+
+    /** Number of outdated records that is always tolerated. */
+    private static final int MIN_GARBAGE = 1024;
+
+
+    // -----  member variables - configuration  -----
+
+
+    /** Where to store the values? */
+    private File cachefile = null;
+
+    /** Object for storing the key-value-pairs. */
+    private final Map<String, String> cache = new ConcurrentHashMap<>();
+
+
+    // -----  member variables - internal use  -----
+
+
+    /** Entries that have not been written to the file, yet. */
+    private final Map<String, String> pending = new ConcurrentHashMap<>();
+
+    /** Is the cache already loaded? Prevents from multiple load operations. */
+    private volatile boolean cacheLoaded = false;
+
+    /** Number of records in the file, including outdated ones. */
+    private long records = 0;
+
+    /** Can't records be appended to the file? */
+    private boolean rewrite = true;
+
+
+    // -----  Constructors  -----
+
+
+    /** Bean-Constructor. */
+    public BinaryfileCache() {
+    }
+
+    /**
+     * Constructor.
+     * @param cachefile set the cachefile
+     */
+    public BinaryfileCache(File cachefile) {
+        this.cachefile = cachefile;
+    }
+
+
+    // -----  Cache-Configuration  -----
+
+
+    /**
+     * Setter.
+     * @param file new value
+     */
+    public void setCachefile(File file) {
+        cachefile = file;
+    }
+
+
+    /**
+     * Getter.
+     * @return the cachefile
+     */
+    public File getCachefile() {
+        return cachefile;
+    }
+
+    /**
+     * This cache is valid if the cachefile is set.
+     * @return true if all is ok false otherwise
+     */
+    @Override
+    public boolean isValid() {
+        return (cachefile != null);
+    }
+
+
+    // -----  Data Access
+
+
+    /**
+     * Load the cache from the underlying file.
+     */
+    @Override
+    public synchronized void load() {
+        if (cacheLoaded) {
+            return;
+        }
+        rewrite = true;
+        records = 0;
+        if (cachefile != null && cachefile.isFile() && cachefile.canRead()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(cachefile.toPath())))) {
+                if (in.readInt() == MAGIC && in.readInt() == VERSION) {
+                    int type;
+                    while ((type = in.read()) == PUT) {
+                        String key = in.readUTF();
+                        cache.put(key, in.readUTF());
+                        records++;
+                    }
+                    // anything but a clean end means the file has
+                    // been damaged and must not be appended to
+                    rewrite = type != -1;
+                }
+            } catch (EOFException e) {
+                // a record has only been written partially
+            } catch (Exception e) {
+                e.printStackTrace(); //NOSONAR
+            }
+        }
+        cacheLoaded = true;
+    }
+
+    /**
+     * Saves modification of the cache.
+     */
+    @Override
+    public synchronized void save() {
+        if (cachefile == null || (pending.isEmpty() && !rewrite)
+            || (cache.isEmpty() && !cachefile.exists())) {
+            return;
+        }
+        try {
+            if (rewrite || records - cache.size() > Math.max(MIN_GARBAGE, cache.size())) {
+                compact();
+            } else {
+                append();
+            }
+        } catch (Exception e) {
+            e.printStackTrace(); //NOSONAR
+        }
+    }
+
+    /** Deletes the cache and its underlying file. */
+    @Override
+    public synchronized void delete() {
+        cache.clear();
+        pending.clear();
+        cachefile.delete();
+        records = 0;
+        rewrite = true;
+        cacheLoaded = true;
+    }
+
+    /**
+     * Returns a value for a given key from the cache.
+     * @param key the key
+     * @return the stored value
+     */
+    @Override
+    public Object get(Object key) {
+        if (!cacheLoaded) {
+            load();
+        }
+        return cache.get(String.valueOf(key));
+    }
+
+    /**
+     * Saves a key-value-pair in the cache.
+     * @param key the key
+     * @param value the value
+     */
+    @Override
+    public void put(Object key, Object value) {
+        if (!cacheLoaded) {
+            // values loaded later would replace this one
+            load();
+        }
+        String k = String.valueOf(key);
+        String v = String.valueOf(value);
+        if (!v.equals(cache.put(k, v))) {
+            pending.put(k, v);
+        }
+    }
+
+    /**
+     * Returns an iterator over the keys in the cache.
+     * @return An iterator over the keys.
+     */
+    @Override
+    public Iterator<String> iterator() {
+        if (!cacheLoaded) {
+            load();
+        }
+        return cache.keySet().iterator();
+    }
+
+
+    // -----  additional  -----
+
+
+    /**
+     * Override Object.toString().
+     * @return information about this cache
+     */
+    @Override
+    public String toString() {
+        return String.format("<BinaryfileCache:cachefile=%s;noOfEntries=%d>",
+                cachefile, cache.size());
+    }
+
+    /**
+     * Writes all entries to a new file that replaces the cachefile.
+     */
+    private void compact() throws IOException {
+        File parent = cachefile.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        File tmp = FileUtils.getFileUtils()
+            .createTempFile(cachefile.getName(), ".tmp", parent, false, false);
+        Map<String, String> saved = new HashMap<>(pending);
+        long written = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+            Files.newOutputStream(tmp.toPath())))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            for (Map.Entry<String, String> e : cache.entrySet()) {
+                writeRecord(out, e.getKey(), e.getValue());
+                written++;
+            }
+        }
+        Files.move(tmp.toPath(), cachefile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        saved.forEach(pending::remove);
+        records = written;
+        rewrite = false;
+    }
+
+    /**
+     * Appends the entries that have been put since the last save.
+     */
+    private void append() throws IOException {
+        try (OutputStream os = Files.newOutputStream(cachefile.toPath(),
+                 StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os))) {
+            for (Map.Entry<String, String> e : pending.entrySet()) {
+                writeRecord(out, e.getKey(), e.getValue());
+                records++;
+                // keep entries that have been replaced concurrently
+                pending.remove(e.getKey(), e.getValue());
+            }
+        } catch (IOException e) {
+            // the file may end with a partial record now
+            rewrite = true;
+            throw e;
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, String key, String value)
+        throws IOException {
+        out.write(PUT);
+        out.writeUTF(key);
+        out.writeUTF(value);
+    }
+}
@@ -327,6 +327,8 @@ public class ModifiedSelector extends BaseExtendSelector
                 algorithm = new ChecksumAlgorithm();
             } else if ("lastmodified".equals(algoName.getValue())) {
                 algorithm = new LastModifiedAlgorithm();
+            } else if ("statdigest".equals(algoName.getValue())) {
+                algorithm = new StatDigestAlgorithm();
             }
         } else if (algorithmClass != null) {
             // use Algorithm specified by classname
@@ -344,6 +346,8 @@ public class ModifiedSelector extends BaseExtendSelector
             // use Cache defined via name
             if ("propertyfile".equals(cacheName.getValue())) {
                 cache = new PropertiesfileCache();
+            } else if ("binaryfile".equals(cacheName.getValue())) {
+                cache = new BinaryfileCache();
             }
         } else if (cacheClass != null) {
             // use Cache specified by classname
@@ -500,13 +504,20 @@ public class ModifiedSelector extends BaseExtendSelector
         }
 
         // Get the values and do the comparison
-        String cachedValue = String.valueOf(cache.get(f.getAbsolutePath()));
-        String newValue = algorithm.getValue(f);
-
-        boolean rv = comparator.compare(cachedValue, newValue) != 0;
+        Object cached = cache.get(f.getAbsolutePath());
+        String cachedValue = String.valueOf(cached);
+        String newValue = cached == null ? algorithm.getValue(f)
+            : algorithm.getValue(f, cachedValue);
+
+        String cachedContent = algorithm.getContentValue(cachedValue);
+        String newContent = algorithm.getContentValue(newValue);
+        boolean rv = comparator.compare(cachedContent, newContent) != 0;
+        // only the metadata held by the value has changed
+        boolean touched = !rv && newValue != null && !newValue.equals(cachedValue)
+            && newContent.equals(cachedContent);
 
         // Maybe update the cache
-        if (update && rv) {
+        if (update && (rv || touched)) {
             cache.put(f.getAbsolutePath(), newValue);
             setModified(getModified() + 1);
             if (!getDelayUpdate()) {
@@ -884,7 +895,7 @@ public class ModifiedSelector extends BaseExtendSelector
 
     /**
      * The enumerated type for cache.
-     * The values are "propertyfile".
+     * The values are "propertyfile" and "binaryfile".
      */
     public static class CacheName extends EnumeratedAttribute {
         /**
@@ -893,7 +904,7 @@ public class ModifiedSelector extends BaseExtendSelector
          */
         @Override
         public String[] getValues() {
-            return new String[] {"propertyfile"};
+            return new String[] {"propertyfile", "binaryfile"};
         }
     }
 
@@ -915,7 +926,8 @@ public class ModifiedSelector extends BaseExtendSelector
 
     /**
      * The enumerated type for algorithm.
-     * The values are "hashValue", "digest", "checksum" and "lastmodified".
+     * The values are "hashValue", "digest", "checksum", "lastmodified"
+     * and "statdigest".
      */
     public static class AlgorithmName extends EnumeratedAttribute {
         /**
@@ -924,7 +936,8 @@ public class ModifiedSelector extends BaseExtendSelector
          */
         @Override
         public String[] getValues() {
-            return new String[] {"hashvalue", "digest", "checksum", "lastmodified"};
+            return new String[] {"hashvalue", "digest", "checksum", "lastmodified",
+                                 "statdigest"};
         }
     }
 
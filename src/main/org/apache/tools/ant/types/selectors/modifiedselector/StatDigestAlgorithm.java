@@ -0,0 +1,116 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.tools.ant.types.selectors.modifiedselector;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Computes a 'hashvalue' for the content of a file like the
+ * {@link DigestAlgorithm} but only reads the file if its size,
+ * modification time or - where the file system provides it - its
+ * identity have changed since the previous value has been computed.
+ *
+ * <p>The value consists of these attributes followed by the digest.
+ * Only the digest is compared, so a file that has been touched
+ * without changing its content isn't considered to be modified, but
+ * its new attributes are cached. Supports the same &lt;param&gt;s as
+ * the DigestAlgorithm.</p>
+ *
+ * @since  Ant 1.10.6
+ */
+public class StatDigestAlgorithm extends DigestAlgorithm {
+
+    private static final char SEPARATOR = ':';
+
+    /**
+     * Computes a value for a file content with the specified digest
+     * algorithm.
+     * @param file    File object for which the value should be evaluated.
+     * @return        The value for that file
+     */
+    @Override
+    public String getValue(File file) {
+        return getValue(file, null);
+    }
+
+    /**
+     * Computes a value for a file content with the specified digest
+     * algorithm unless the file's attributes match the previous value.
+     * @param file    File object for which the value should be evaluated.
+     * @param previousValue the cached value of the file, may be null
+     * @return        The value for that file
+     */
+    @Override
+    public String getValue(File file, String previousValue) {
+        String stat = stat(file);
+        if (stat == null) {
+            return null;
+        }
+        int digestStart = previousValue == null ? -1
+            : previousValue.lastIndexOf(SEPARATOR) + 1;
+        if (digestStart > 0 && previousValue.regionMatches(0, stat, 0, stat.length())
+            && digestStart == stat.length()) {
+            return previousValue;
+        }
+        String digest = super.getValue(file);
+        return digest == null ? null : stat + digest;
+    }
+
+    /**
+     * The digest part of a value.
+     * @param value a value computed by this algorithm, may be null
+     * @return the digest
+     */
+    @Override
+    public String getContentValue(String value) {
+        return value == null ? null : value.substring(value.lastIndexOf(SEPARATOR) + 1);
+    }
+
+    /**
+     * Override Object.toString().
+     * @return some information about this algorithm.
+     */
+    @Override
+    public String toString() {
+        return super.toString().replace("<DigestAlgorithm:", "<StatDigestAlgorithm:");
+    }
+
+    /**
+     * Size, modification time and identity of the file, each followed
+     * by the separator.
+     */
+    private static String stat(File file) {
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        } catch (IOException ex) {
+            return null;
+        }
+        Object key = attrs.fileKey();
+        return String.valueOf(attrs.size()) + SEPARATOR
+            + attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS) + SEPARATOR
+            + (key == null ? "" : key.toString().replace(SEPARATOR, '_')) + SEPARATOR;
+    }
+}
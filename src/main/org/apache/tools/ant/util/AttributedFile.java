@@ -0,0 +1,163 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.tools.ant.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * A File that remembers the attributes it had when it was created.
+ *
+ * <p>{@link #exists}, {@link #isFile}, {@link #isDirectory}, {@link
+ * #lastModified} and {@link #length} answer from the attributes read
+ * once instead of asking the file system again. This allows
+ * DirectoryScanner to read all attributes of a directory entry with
+ * a single call and pass them on to the selectors of the scan.</p>
+ *
+ * <p>Instances are snapshots and should only be used for a short
+ * time - like the duration of a scan. The attributes are not
+ * serialized, a deserialized instance reads them again when they are
+ * first needed.</p>
+ *
+ * @since Ant 1.10.6
+ */
+public class AttributedFile extends File {
+    private static final long serialVersionUID = 1L;
+
+    /** attributes of the link target, null if it doesn't exist */
+    private transient BasicFileAttributes attributes;
+    /** false if attributes has to be read, after deserialization */
+    private transient boolean attributesKnown;
+    private final boolean symbolicLink;
+
+    /**
+     * Creates a file with the given attributes.
+     *
+     * @param parent the parent directory.
+     * @param child the name of the file.
+     * @param attributes the attributes of the file (following
+     * symbolic links), null if the file doesn't exist.
+     * @param symbolicLink whether the file itself is a symbolic link.
+     */
+    public AttributedFile(File parent, String child, BasicFileAttributes attributes,
+                          boolean symbolicLink) {
+        super(parent, child);
+        this.attributes = attributes;
+        this.attributesKnown = true;
+        this.symbolicLink = symbolicLink;
+    }
+
+    /**
+     * Reads the attributes of a file.
+     *
+     * <p>This requires a single system call unless the file is a
+     * symbolic link.</p>
+     *
+     * @param parent the parent directory.
+     * @param child the name of the file.
+     * @return the file with its current attributes.
+     */
+    public static AttributedFile read(File parent, String child) {
+        final Path path = new File(parent, child).toPath();
+        BasicFileAttributes attrs;
+        boolean link = false;
+        try {
+            attrs = Files.readAttributes(path, BasicFileAttributes.class,
+                                         LinkOption.NOFOLLOW_LINKS);
+            if (attrs.isSymbolicLink()) {
+                link = true;
+                attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            }
+        } catch (IOException ex) {
+            // doesn't exist (anymore) or is a dangling link
+            attrs = null;
+        }
+        return new AttributedFile(parent, child, attrs, link);
+    }
+
+    /**
+     * Whether the given file is a symbolic link, using the remembered
+     * attributes if the file is an AttributedFile.
+     *
+     * @param file the file to test.
+     * @return whether the file is a symbolic link.
+     */
+    public static boolean isSymbolicLink(File file) {
+        if (file instanceof AttributedFile) {
+            return ((AttributedFile) file).isSymbolicLink();
+        }
+        return Files.isSymbolicLink(file.toPath());
+    }
+
+    /**
+     * Whether the file is a symbolic link.
+     * @return boolean
+     */
+    public boolean isSymbolicLink() {
+        return symbolicLink;
+    }
+
+    /**
+     * The remembered attributes.
+     * @return the attributes, null if the file didn't exist.
+     */
+    public BasicFileAttributes getAttributes() {
+        if (!attributesKnown) {
+            try {
+                attributes = Files.readAttributes(toPath(), BasicFileAttributes.class);
+            } catch (IOException ex) {
+                attributes = null;
+            }
+            attributesKnown = true;
+        }
+        return attributes;
+    }
+
+    @Override
+    public boolean exists() {
+        return getAttributes() != null;
+    }
+
+    @Override
+    public boolean isDirectory() {
+        final BasicFileAttributes attrs = getAttributes();
+        return attrs != null && attrs.isDirectory();
+    }
+
+    @Override
+    public boolean isFile() {
+        final BasicFileAttributes attrs = getAttributes();
+        return attrs != null && attrs.isRegularFile();
+    }
+
+    @Override
+    public long lastModified() {
+        final BasicFileAttributes attrs = getAttributes();
+        return attrs == null ? 0L : attrs.lastModifiedTime().toMillis();
+    }
+
+    @Override
+    public long length() {
+        final BasicFileAttributes attrs = getAttributes();
+        return attrs == null ? 0L : attrs.size();
+    }
+}
@@ -52,6 +52,7 @@ import java.util.stream.Collectors;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.PathTokenizer;
 import org.apache.tools.ant.Project;
+import org.apache.tools.ant.ScanCache;
 import org.apache.tools.ant.launch.Locator;
 import org.apache.tools.ant.taskdefs.condition.Os;
 import org.apache.tools.ant.types.FilterChain;
@@ -565,11 +566,54 @@ public class FileUtils {
                          boolean append,
                          String inputEncoding, String outputEncoding,
                          Project project, boolean force) throws IOException {
+        copyFile(sourceFile, destFile, filters, filterChains, overwrite,
+                 preserveLastModified, append, inputEncoding, outputEncoding,
+                 project, force, ResourceUtils.CopyStrategy.COPY);
+    }
+
+    /**
+     * Convenience method to copy a file from a source to a
+     * destination specifying if token filtering must be used, if
+     * filter chains must be used, if source files may overwrite
+     * newer destination files and the last modified time of
+     * <code>destFile</code> file should be made equal
+     * to the last modified time of <code>sourceFile</code>.
+     *
+     * @param sourceFile the file to copy from.
+     *                   Must not be <code>null</code>.
+     * @param destFile the file to copy to.
+     *                 Must not be <code>null</code>.
+     * @param filters the collection of filters to apply to this copy.
+     * @param filterChains filterChains to apply during the copy.
+     * @param overwrite Whether or not the destination file should be
+     *                  overwritten if it already exists.
+     * @param preserveLastModified Whether or not the last modified time of
+     *                             the resulting file should be set to that
+     *                             of the source file.
+     * @param append whether to append to the destination file.
+     * @param inputEncoding the encoding used to read the files.
+     * @param outputEncoding the encoding used to write the files.
+     * @param project the project instance.
+     * @param force whether to overwrite read-only destination files.
+     * @param strategy how to duplicate the content of unfiltered
+     *                 files.
+     *
+     * @throws IOException if the copying fails.
+     *
+     * @since Ant 1.10.6
+     */
+    public void copyFile(File sourceFile, File destFile,
+                         FilterSetCollection filters, Vector<FilterChain> filterChains,
+                         boolean overwrite, boolean preserveLastModified,
+                         boolean append,
+                         String inputEncoding, String outputEncoding,
+                         Project project, boolean force,
+                         ResourceUtils.CopyStrategy strategy) throws IOException {
         ResourceUtils.copyResource(new FileResource(sourceFile),
                                    new FileResource(destFile),
                                    filters, filterChains, overwrite,
                                    preserveLastModified, append, inputEncoding,
-                                   outputEncoding, project, force);
+                                   outputEncoding, project, force, strategy);
     }
 
     // CheckStyle:ParameterNumberCheck ON
@@ -584,6 +628,7 @@ public class FileUtils {
      */
     public void setFileLastModified(File file, long time) {
         ResourceUtils.setLastModified(new FileResource(file), time);
+        ScanCache.fileWritten(file);
     }
 
     /**
@@ -1115,6 +1160,7 @@ public class FileUtils {
      * @since Ant 1.5
      */
     public boolean createNewFile(File f) throws IOException {
+        ScanCache.fileWritten(f);
         return f.createNewFile();
     }
 
@@ -1132,6 +1178,7 @@ public class FileUtils {
         if (mkdirs && !(parent.exists())) {
             parent.mkdirs();
         }
+        ScanCache.fileWritten(f);
         return f.createNewFile();
     }
 
@@ -1375,6 +1422,8 @@ public class FileUtils {
             throw new IOException("Failed to create directory " + parent
                                   + " while trying to rename " + from);
         }
+        ScanCache.fileWritten(from);
+        ScanCache.fileWritten(to);
         if (!from.renameTo(to)) {
             copyFile(from, to);
             if (!tryHardToDelete(from)) {
@@ -1625,6 +1674,7 @@ public class FileUtils {
      * @since Ant 1.8.3
      */
     public boolean tryHardToDelete(File f, boolean runGC) {
+        ScanCache.fileWritten(f);
         if (!f.delete()) {
             if (runGC) {
                 System.gc();
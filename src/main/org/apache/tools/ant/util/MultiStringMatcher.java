@@ -0,0 +1,336 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.tools.ant.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Finds occurrences of any of a fixed set of strings in a single pass
+ * over a text, using an Aho-Corasick automaton.
+ *
+ * <p>Matches are reported leftmost first. If several patterns match
+ * at the same position either the shortest or the longest one wins,
+ * depending on how the matcher has been constructed. Instances are
+ * immutable and may be shared between threads.</p>
+ *
+ * @since Ant 1.10.6
+ */
+public final class MultiStringMatcher {
+
+    private static final int ROOT = 0;
+    private static final int ASCII = 128;
+
+    private final String[] patterns;
+    private final boolean longest;
+    private final int maxLength;
+
+    /** transitions of each node, sorted by character */
+    private final char[][] keys;
+    private final int[][] targets;
+    /** transitions of the root node for ASCII characters */
+    private final int[] rootTable = new int[ASCII];
+    private final int[] fail;
+    private final int[] depth;
+    /** longest pattern that is a suffix of the node's string or -1 */
+    private final int[] output;
+    /** node representing each pattern */
+    private final int[] patternNode;
+
+    /**
+     * Creates a matcher for the given patterns.
+     *
+     * @param patterns the strings to look for, must not be empty.
+     * The index of a pattern in this list is reported for its
+     * matches. If a pattern occurs more than once, the first
+     * occurrence is reported.
+     * @param longest whether the longest or the shortest pattern
+     * wins if several patterns match at the same position.
+     * @throws IllegalArgumentException if one of the patterns is empty.
+     */
+    public MultiStringMatcher(final List<String> patterns, final boolean longest) {
+        this.patterns = patterns.toArray(new String[0]);
+        this.longest = longest;
+        patternNode = new int[this.patterns.length];
+
+        final List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        final List<Integer> terminal = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        terminal.add(-1);
+        int max = 0;
+        for (int i = 0; i < this.patterns.length; i++) {
+            final String p = this.patterns[i];
+            if (p.isEmpty()) {
+                throw new IllegalArgumentException("patterns must not be empty");
+            }
+            max = Math.max(max, p.length());
+            int node = ROOT;
+            for (int j = 0; j < p.length(); j++) {
+                Integer next = trie.get(node).get(p.charAt(j));
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new TreeMap<>());
+                    terminal.add(-1);
+                    trie.get(node).put(p.charAt(j), next);
+                }
+                node = next;
+            }
+            if (terminal.get(node) < 0) {
+                terminal.set(node, i);
+            }
+            patternNode[i] = node;
+        }
+        maxLength = max;
+
+        final int size = trie.size();
+        keys = new char[size][];
+        targets = new int[size][];
+        fail = new int[size];
+        depth = new int[size];
+        output = new int[size];
+        for (int n = 0; n < size; n++) {
+            final Map<Character, Integer> children = trie.get(n);
+            keys[n] = new char[children.size()];
+            targets[n] = new int[children.size()];
+            int k = 0;
+            for (Map.Entry<Character, Integer> e : children.entrySet()) {
+                keys[n][k] = e.getKey();
+                targets[n][k++] = e.getValue();
+            }
+        }
+        for (int c = 0; c < ASCII; c++) {
+            rootTable[c] = Math.max(ROOT, child(ROOT, (char) c));
+        }
+
+        // breadth first so fail links of shorter strings are known
+        final int[] queue = new int[size];
+        int head = 0;
+        int tail = 0;
+        output[ROOT] = -1;
+        for (int child : targets[ROOT]) {
+            fail[child] = ROOT;
+            depth[child] = 1;
+            output[child] = terminal.get(child);
+            queue[tail++] = child;
+        }
+        while (head < tail) {
+            final int node = queue[head++];
+            for (int k = 0; k < keys[node].length; k++) {
+                final char c = keys[node][k];
+                final int child = targets[node][k];
+                fail[child] = step(fail[node], c);
+                depth[child] = depth[node] + 1;
+                final int own = terminal.get(child);
+                output[child] = own >= 0 ? own : output[fail[child]];
+                queue[tail++] = child;
+            }
+        }
+    }
+
+    /**
+     * The number of patterns.
+     * @return int
+     */
+    public int getPatternCount() {
+        return patterns.length;
+    }
+
+    /**
+     * The pattern with the given index.
+     * @param index the index
+     * @return the pattern
+     */
+    public String getPattern(final int index) {
+        return patterns[index];
+    }
+
+    /**
+     * The length of the longest pattern.
+     * @return int
+     */
+    public int getMaxPatternLength() {
+        return maxLength;
+    }
+
+    /**
+     * Finds the leftmost match in a complete text.
+     *
+     * @param text the text to search
+     * @param from the position to start searching at
+     * @return the match or null if no pattern occurs in the text at or
+     * after from.
+     */
+    public Match find(final CharSequence text, final int from) {
+        final Match m = find(text, from, text.length(), true);
+        return m.isMatch() ? m : null;
+    }
+
+    /**
+     * Finds the leftmost match in a part of a text that may be
+     * followed by more input.
+     *
+     * <p>If no match can be reported - either because there is none
+     * or because more input could change which pattern matches - the
+     * result's {@link Match#isMatch isMatch} returns false and its
+     * start and end are the position before which no match will ever
+     * start, the characters up to there can be passed on
+     * unchanged.</p>
+     *
+     * @param text the text to search
+     * @param from the position to start searching at
+     * @param to the end of the available text
+     * @param endOfInput whether the text is complete.
+     * @return the result, never null.
+     */
+    public Match find(final CharSequence text, final int from, final int to,
+                      final boolean endOfInput) {
+        int state = ROOT;
+        int bestStart = -1;
+        int bestPattern = -1;
+        for (int i = from; i < to; i++) {
+            final char c = text.charAt(i);
+            state = c < ASCII && state == ROOT ? rootTable[c] : step(state, c);
+            final int liveStart = i + 1 - depth[state];
+            final int found = output[state];
+            if (found >= 0) {
+                final int start = i + 1 - patterns[found].length();
+                if (bestPattern < 0 || start < bestStart
+                    || (longest && start == bestStart)) {
+                    bestStart = start;
+                    bestPattern = found;
+                }
+            }
+            // in longest mode a match may only be extended while the
+            // current state starts at the same position and can grow
+            if (bestPattern >= 0
+                && (liveStart > bestStart
+                    || (liveStart == bestStart && (!longest || keys[state].length == 0)))) {
+                return new Match(bestStart, bestPattern);
+            }
+        }
+        if (bestPattern >= 0 && endOfInput) {
+            return new Match(bestStart, bestPattern);
+        }
+        if (endOfInput) {
+            return new Match(to);
+        }
+        return new Match(bestPattern >= 0 ? bestStart : to - depth[state]);
+    }
+
+    /**
+     * Marks all patterns that occur in the text, including
+     * overlapping occurrences.
+     *
+     * <p>A text may be scanned in several parts by passing the
+     * result of the scan of the previous part as state.</p>
+     *
+     * @param text the text to scan
+     * @param from the position to start scanning at
+     * @param to the end of the part to scan
+     * @param state the state returned for the preceding part, 0 at
+     * the start of the text.
+     * @param found the indexes of the patterns found are set here. If
+     * a pattern occurs more than once in the list of patterns, only
+     * the index of the first occurrence is set.
+     * @return the state to use for the next part of the text.
+     */
+    public int collect(final CharSequence text, final int from, final int to,
+                       int state, final BitSet found) {
+        for (int i = from; i < to; i++) {
+            final char c = text.charAt(i);
+            state = c < ASCII && state == ROOT ? rootTable[c] : step(state, c);
+            // all shorter patterns have been marked together with p
+            for (int p = output[state]; p >= 0 && !found.get(p);
+                 p = output[fail[patternNode[p]]]) {
+                found.set(p);
+            }
+        }
+        return state;
+    }
+
+    private int step(int state, final char c) {
+        while (true) {
+            final int next = child(state, c);
+            if (next >= 0) {
+                return next;
+            }
+            if (state == ROOT) {
+                return ROOT;
+            }
+            state = fail[state];
+        }
+    }
+
+    private int child(final int node, final char c) {
+        final int k = Arrays.binarySearch(keys[node], c);
+        return k < 0 ? -1 : targets[node][k];
+    }
+
+    /**
+     * The result of a search.
+     */
+    public final class Match {
+        private final int start;
+        private final int pattern;
+
+        private Match(final int start, final int pattern) {
+            this.start = start;
+            this.pattern = pattern;
+        }
+
+        private Match(final int safe) {
+            this(safe, -1);
+        }
+
+        /**
+         * Whether a pattern has been found.
+         * @return boolean
+         */
+        public boolean isMatch() {
+            return pattern >= 0;
+        }
+
+        /**
+         * The index of the pattern that has been found.
+         * @return the index or -1 if nothing has been found
+         */
+        public int getPattern() {
+            return pattern;
+        }
+
+        /**
+         * The position of the match's first character.
+         * @return int
+         */
+        public int getStart() {
+            return start;
+        }
+
+        /**
+         * The position after the match's last character.
+         * @return int
+         */
+        public int getEnd() {
+            return pattern >= 0 ? start + patterns[pattern].length() : start;
+        }
+    }
+}
@@ -29,12 +29,17 @@ import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
+import java.util.Locale;
 import java.util.Vector;
 
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.ProjectComponent;
+import org.apache.tools.ant.ScanCache;
 import org.apache.tools.ant.filters.util.ChainReaderHelper;
 import org.apache.tools.ant.types.FilterChain;
 import org.apache.tools.ant.types.FilterSetCollection;
@@ -77,6 +82,33 @@ public class ResourceUtils {
 
     private static final long MAX_IO_CHUNK_SIZE = 16 * 1024 * 1024L; // 16 MB
 
+    /**
+     * How the content of a file is duplicated when neither filtering
+     * nor transcoding is required and both source and destination
+     * are files.
+     *
+     * <p>Strategies other than {@link #COPY} fall back to copying the
+     * bytes if the file system doesn't support them, for example
+     * when source and destination live on different devices.</p>
+     *
+     * @since Ant 1.10.6
+     */
+    public enum CopyStrategy {
+        /** Copy the bytes using file channels. */
+        COPY,
+        /**
+         * Use the platform's native file copy, which creates a
+         * copy-on-write clone sharing the data blocks of the source
+         * on file systems and JVMs supporting it.
+         */
+        CLONE,
+        /**
+         * Create a hard link to the source, source and destination
+         * share their content afterwards.
+         */
+        HARDLINK
+    }
+
     /**
      * Tells which source files should be reprocessed based on the
      * last modification date of target files.
@@ -372,6 +404,49 @@ public class ResourceUtils {
                                     final String inputEncoding, final String outputEncoding,
                                     final Project project, final boolean force)
         throws IOException {
+        copyResource(source, dest, filters, filterChains, overwrite,
+                     preserveLastModified, append, inputEncoding,
+                     outputEncoding, project, force, CopyStrategy.COPY);
+    }
+
+    /**
+     * Convenience method to copy content from one Resource to another
+     * specifying whether token filtering must be used, whether filter chains
+     * must be used, whether newer destination files may be overwritten and
+     * whether the last modified time of <code>dest</code> file should be made
+     * equal to the last modified time of <code>source</code>.
+     *
+     * @param source the Resource to copy from.
+     *                   Must not be <code>null</code>.
+     * @param dest   the Resource to copy to.
+     *                 Must not be <code>null</code>.
+     * @param filters the collection of filters to apply to this copy.
+     * @param filterChains filterChains to apply during the copy.
+     * @param overwrite Whether or not the destination Resource should be
+     *                  overwritten if it already exists.
+     * @param preserveLastModified Whether or not the last modified time of
+     *                             the destination Resource should be set to that
+     *                             of the source.
+     * @param append Whether to append to an Appendable Resource.
+     * @param inputEncoding the encoding used to read the files.
+     * @param outputEncoding the encoding used to write the files.
+     * @param project the project instance.
+     * @param force whether read-only target files will be overwritten
+     * @param strategy how to duplicate the content of unfiltered
+     *                 files, must not be <code>null</code>.
+     *
+     * @throws IOException if the copying fails.
+     *
+     * @since Ant 1.10.6
+     */
+    public static void copyResource(final Resource source, final Resource dest,
+                            final FilterSetCollection filters, final Vector<FilterChain> filterChains,
+                            final boolean overwrite, final boolean preserveLastModified,
+                                    final boolean append,
+                                    final String inputEncoding, final String outputEncoding,
+                                    final Project project, final boolean force,
+                                    final CopyStrategy strategy)
+        throws IOException {
         if (!overwrite && !SelectorUtils.isOutOfDate(source, dest,
                 FileUtils.getFileUtils().getFileTimestampGranularity())) {
             return;
@@ -399,6 +474,9 @@ public class ResourceUtils {
                     "failed to delete read-only destination file " + destFile);
             }
         }
+        if (destFile != null && source.as(FileProvider.class) != null) {
+            unlinkFromSource(source.as(FileProvider.class).getFile(), destFile, append);
+        }
 
         if (filterSetsAvailable) {
             copyWithFilterSets(source, dest, filters, filterChains,
@@ -419,7 +497,11 @@ public class ResourceUtils {
                 final File sourceFile =
                     source.as(FileProvider.class).getFile();
                 try {
-                    copyUsingFileChannels(sourceFile, destFile, project);
+                    if (strategy == CopyStrategy.COPY
+                        || !copyUsingStrategy(sourceFile, destFile, strategy,
+                                              project)) {
+                        copyUsingFileChannels(sourceFile, destFile, project);
+                    }
                     copied = true;
                 } catch (final IOException ex) {
                     String msg = "Attempt to copy " + sourceFile
@@ -443,6 +525,7 @@ public class ResourceUtils {
                 setLastModified(t, source.getLastModified());
             }
         }
+        ScanCache.fileWritten(destFile);
     }
     // CheckStyle:ParameterNumberCheck ON
 
@@ -730,12 +813,7 @@ public class ResourceUtils {
             log(project, "Skipping (self) copy of " + sourceFile +  " to " + destFile);
             return;
         }
-        final File parent = destFile.getParentFile();
-        if (parent != null && !parent.isDirectory()
-            && !(parent.mkdirs() || parent.isDirectory())) {
-            throw new IOException("failed to create the parent directory"
-                                  + " for " + destFile);
-        }
+        createParentDirectory(destFile);
 
         try (FileChannel srcChannel =
             FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ);
@@ -754,6 +832,87 @@ public class ResourceUtils {
         }
     }
 
+    /**
+     * Duplicates the file using the given strategy.
+     *
+     * @return false if the strategy isn't supported for the given
+     * files and the content should be copied instead.
+     */
+    private static boolean copyUsingStrategy(final File sourceFile,
+                                             final File destFile,
+                                             final CopyStrategy strategy,
+                                             final Project project)
+        throws IOException {
+        final Path source = sourceFile.toPath();
+        final Path target = destFile.toPath();
+        if (destFile.exists() && Files.isSameFile(source, target)) {
+            // let copyUsingFileChannels skip it, deleting the
+            // destination would remove the source
+            return false;
+        }
+        createParentDirectory(destFile);
+        try {
+            switch (strategy) {
+            case CLONE:
+                Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+                break;
+            case HARDLINK:
+                Files.deleteIfExists(target);
+                Files.createLink(target, source);
+                break;
+            default:
+                return false;
+            }
+            return true;
+        } catch (final IOException | UnsupportedOperationException ex) {
+            log(project, "Can't " + strategy.name().toLowerCase(Locale.ENGLISH) + " "
+                + sourceFile + " to " + destFile + " due to '"
+                + ex.getMessage() + "', copying it.");
+            return false;
+        }
+    }
+
+    /**
+     * Writing to a destination that is a hard link to the source -
+     * for example created by an earlier copy using the HARDLINK
+     * strategy - would modify the source as well, so the link is
+     * broken up first.
+     */
+    private static void unlinkFromSource(final File sourceFile, final File destFile,
+                                         final boolean append)
+        throws IOException {
+        if (!sourceFile.exists() || !destFile.exists()
+            || FILE_UTILS.areSame(sourceFile, destFile)
+            || !Files.isSameFile(sourceFile.toPath(), destFile.toPath())) {
+            return;
+        }
+        final Path target = destFile.toPath();
+        if (append) {
+            // keep the content that is appended to
+            final File copy = FILE_UTILS.createTempFile(destFile.getName(), ".tmp",
+                destFile.getAbsoluteFile().getParentFile(), false, false);
+            try {
+                Files.copy(target, copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                Files.move(copy.toPath(), target, StandardCopyOption.REPLACE_EXISTING);
+            } catch (final IOException | RuntimeException ex) {
+                FILE_UTILS.tryHardToDelete(copy);
+                throw ex;
+            }
+        } else {
+            Files.delete(target);
+        }
+    }
+
+    private static void createParentDirectory(final File destFile)
+        throws IOException {
+        final File parent = destFile.getParentFile();
+        if (parent != null && !parent.isDirectory()
+            && !(parent.mkdirs() || parent.isDirectory())) {
+            throw new IOException("failed to create the parent directory"
+                                  + " for " + destFile);
+        }
+    }
+
     private static void copyUsingStreams(final Resource source, final Resource dest,
                                          final boolean append, final Project project)
         throws IOException {
@@ -0,0 +1,403 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.tools.ant.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildListener;
+import org.apache.tools.ant.MagicNames;
+import org.apache.tools.ant.Project;
+
+/**
+ * Build-scoped index of directory listings used by {@link
+ * org.apache.tools.ant.DirectoryScanner DirectoryScanner}.
+ *
+ * <p>The index remembers the names found inside a directory together
+ * with the type of each entry and only lists a directory again if
+ * its modification time has changed. Listings taken within the file
+ * system's timestamp granularity of the directory's last modification
+ * are not trusted and will be refreshed on the next lookup.</p>
+ *
+ * <p>The index is enabled by setting the <code>ant.scanindex</code>
+ * property to true or by pointing <code>ant.scanindex.file</code> to
+ * a file the index is loaded from and saved to when the build has
+ * finished.</p>
+ *
+ * @since Ant 1.10.6
+ */
+public class ScanIndex implements BuildListener {
+
+    private static final FileUtils FILE_UTILS = FileUtils.getFileUtils();
+
+    private static final int MAGIC = 0x414e5349; // "ANSI"
+    private static final int VERSION = 1;
+
+    private static final byte DIRECTORY = 1;
+    private static final byte SYMLINK = 2;
+
+    private final Map<String, Listing> listings = new ConcurrentHashMap<>();
+    private final File cacheFile;
+    private final long granularity = FILE_UTILS.getFileTimestampGranularity();
+    private volatile boolean dirty = false;
+
+    /**
+     * Creates an index that is only held in memory.
+     */
+    public ScanIndex() {
+        this(null);
+    }
+
+    /**
+     * Creates an index that is loaded from and can be saved to the
+     * given file.
+     * @param cacheFile the file holding the persistent index, may be
+     * null.
+     */
+    public ScanIndex(File cacheFile) {
+        this.cacheFile = cacheFile;
+        if (cacheFile != null && cacheFile.isFile()) {
+            try {
+                load();
+            } catch (IOException ex) {
+                // corrupt or outdated cache, start afresh
+                listings.clear();
+            }
+        }
+    }
+
+    /**
+     * Obtains the index configured for the given project, if any.
+     *
+     * <p>The index is shared with all subprojects created
+     * via <code>&lt;ant&gt;</code> or <code>&lt;subant&gt;</code> as it
+     * is registered as a build listener which is inherited by
+     * them.</p>
+     *
+     * @param project the project, may be null.
+     * @return the index or null if indexing has not been enabled.
+     */
+    public static synchronized ScanIndex getScanIndex(Project project) {
+        if (project == null) {
+            return null;
+        }
+        ScanIndex index = project.getReference(MagicNames.REFID_SCAN_INDEX);
+        if (index != null) {
+            return index;
+        }
+        String file = project.getProperty(MagicNames.SCAN_INDEX_FILE);
+        if (file == null && !Project.toBoolean(project.getProperty(MagicNames.SCAN_INDEX))) {
+            return null;
+        }
+        File cacheFile = file == null ? null : project.resolveFile(file);
+        for (BuildListener l : project.getBuildListeners()) {
+            if (l instanceof ScanIndex
+                && (cacheFile == null || cacheFile.equals(((ScanIndex) l).cacheFile))) {
+                index = (ScanIndex) l;
+                break;
+            }
+        }
+        if (index == null) {
+            index = new ScanIndex(cacheFile);
+            project.addBuildListener(index);
+        }
+        project.addReference(MagicNames.REFID_SCAN_INDEX, index);
+        return index;
+    }
+
+    /**
+     * Lists the given directory.
+     *
+     * @param dir the directory to list.
+     * @return the names of the directory's entries or null if dir is
+     * not a readable directory - the same as {@link File#list}.
+     */
+    public String[] list(File dir) {
+        final Path path = dir.toPath();
+        final BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException ex) {
+            listings.remove(dir.getAbsolutePath());
+            return null;
+        }
+        if (!attrs.isDirectory()) {
+            listings.remove(dir.getAbsolutePath());
+            return null;
+        }
+        final long lastModified = attrs.lastModifiedTime().toMillis();
+        final String key = dir.getAbsolutePath();
+        Listing listing = listings.get(key);
+        if (listing == null || listing.lastModified != lastModified
+            || listing.listedAt - lastModified <= granularity) {
+            listing = createListing(dir, lastModified);
+            if (listing == null) {
+                listings.remove(key);
+                return null;
+            }
+            listings.put(key, listing);
+            dirty = true;
+        }
+        return listing.names.clone();
+    }
+
+    /**
+     * Lists an entry of a directory that has been listed just
+     * before, avoiding any file system access if the previous listing
+     * knows the entry is not a directory.
+     *
+     * @param parent the directory that has been listed.
+     * @param name the name of the entry.
+     * @return the names of the entry's children or null if it is not a
+     * readable directory - the same as {@link File#list}.
+     */
+    public String[] list(File parent, String name) {
+        Listing listing = listings.get(parent.getAbsolutePath());
+        if (listing != null) {
+            int i = listing.indexOf(name);
+            if (i >= 0 && (listing.kinds[i] & DIRECTORY) == 0) {
+                return null;
+            }
+        }
+        return list(new File(parent, name));
+    }
+
+    /**
+     * Whether an entry of a directory that has been listed just
+     * before is a symbolic link.
+     *
+     * @param parent the directory that has been listed.
+     * @param name the name of the entry.
+     * @return whether the entry is a symbolic link.
+     */
+    public boolean isSymbolicLink(File parent, String name) {
+        Listing listing = listings.get(parent.getAbsolutePath());
+        if (listing != null) {
+            int i = listing.indexOf(name);
+            if (i >= 0) {
+                return (listing.kinds[i] & SYMLINK) != 0;
+            }
+        }
+        return Files.isSymbolicLink(new File(parent, name).toPath());
+    }
+
+    /**
+     * Forgets everything known about the given directory.
+     * @param dir the directory.
+     */
+    public void invalidate(File dir) {
+        if (listings.remove(dir.getAbsolutePath()) != null) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Number of directories held in the index.
+     * @return the number of directories.
+     */
+    public int size() {
+        return listings.size();
+    }
+
+    /**
+     * Writes the index to its cache file if it has one and it has
+     * been modified.
+     * @throws IOException on error.
+     */
+    public synchronized void save() throws IOException {
+        if (cacheFile == null || !dirty) {
+            return;
+        }
+        File parent = cacheFile.getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                 Files.newOutputStream(cacheFile.toPath())))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(listings.size());
+            for (Map.Entry<String, Listing> e : listings.entrySet()) {
+                Listing l = e.getValue();
+                out.writeUTF(e.getKey());
+                out.writeLong(l.lastModified);
+                out.writeLong(l.listedAt);
+                out.writeInt(l.names.length);
+                for (int i = 0; i < l.names.length; i++) {
+                    out.writeUTF(l.names[i]);
+                    out.writeByte(l.kinds[i]);
+                }
+            }
+        }
+        dirty = false;
+    }
+
+    private void load() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                 Files.newInputStream(cacheFile.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return;
+            }
+            int count = in.readInt();
+            for (int c = 0; c < count; c++) {
+                String key = in.readUTF();
+                long lastModified = in.readLong();
+                long listedAt = in.readLong();
+                int n = in.readInt();
+                String[] names = new String[n];
+                byte[] kinds = new byte[n];
+                for (int i = 0; i < n; i++) {
+                    names[i] = in.readUTF();
+                    kinds[i] = in.readByte();
+                }
+                listings.put(key, new Listing(lastModified, listedAt, names, kinds));
+            }
+        }
+    }
+
+    private static Listing createListing(File dir, long lastModified) {
+        final long listedAt = System.currentTimeMillis();
+        final String[] names = dir.list();
+        if (names == null) {
+            return null;
+        }
+        final byte[] kinds = new byte[names.length];
+        for (int i = 0; i < names.length; i++) {
+            final Path p = dir.toPath().resolve(names[i]);
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(p,
+                    BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                if (attrs.isSymbolicLink()) {
+                    kinds[i] = Files.isDirectory(p) ? DIRECTORY | SYMLINK : SYMLINK;
+                } else if (attrs.isDirectory()) {
+                    kinds[i] = DIRECTORY;
+                }
+            } catch (IOException ex) {
+                // vanished in the meantime, treat it like a file and
+                // let the scanner sort it out
+                kinds[i] = 0;
+            }
+        }
+        return new Listing(lastModified, listedAt, names, kinds);
+    }
+
+    /**
+     * Saves the index.
+     * @param event ignored.
+     */
+    @Override
+    public void buildFinished(BuildEvent event) {
+        try {
+            save();
+        } catch (IOException ex) {
+            event.getProject().log("Failed to save scan index " + cacheFile
+                                   + ": " + ex.getMessage(), Project.MSG_WARN);
+        }
+    }
+
+    /**
+     * Empty implementation.
+     * @param event ignored.
+     */
+    @Override
+    public void buildStarted(BuildEvent event) {
+    }
+
+    /**
+     * Empty implementation.
+     * @param event ignored.
+     */
+    @Override
+    public void targetStarted(BuildEvent event) {
+    }
+
+    /**
+     * Empty implementation.
+     * @param event ignored.
+     */
+    @Override
+    public void targetFinished(BuildEvent event) {
+    }
+
+    /**
+     * Empty implementation.
+     * @param event ignored.
+     */
+    @Override
+    public void taskStarted(BuildEvent event) {
+    }
+
+    /**
+     * Empty implementation.
+     * @param event ignored.
+     */
+    @Override
+    public void taskFinished(BuildEvent event) {
+    }
+
+    /**
+     * Empty implementation.
+     * @param event ignored.
+     */
+    @Override
+    public void messageLogged(BuildEvent event) {
+    }
+
+    /**
+     * Immutable snapshot of a directory.
+     */
+    private static final class Listing {
+        private final long lastModified;
+        private final long listedAt;
+        private final String[] names;
+        private final byte[] kinds;
+        private volatile Map<String, Integer> positions;
+
+        private Listing(long lastModified, long listedAt, String[] names, byte[] kinds) {
+            this.lastModified = lastModified;
+            this.listedAt = listedAt;
+            this.names = names;
+            this.kinds = kinds;
+        }
+
+        private int indexOf(String name) {
+            Map<String, Integer> p = positions;
+            if (p == null) {
+                p = new HashMap<>(names.length * 4 / 3 + 1);
+                for (int i = 0; i < names.length; i++) {
+                    p.put(names[i], i);
+                }
+                positions = p;
+            }
+            Integer i = p.get(name);
+            return i == null ? -1 : i;
+        }
+    }
+}
@@ -30,6 +30,11 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
@@ -133,6 +138,38 @@ public class ZipFile implements Closeable {
      */
     private volatile boolean closed;
 
+    /**
+     * Offset of the first central directory record.
+     */
+    private long centralDirectoryOffset;
+
+    /**
+     * Whether entries are only created when they are asked for.
+     */
+    private final boolean lazy;
+
+    /**
+     * The central directory of a lazily read archive.
+     */
+    private ByteBuffer centralDirectory;
+
+    /**
+     * Positions of the records inside {@link #centralDirectory}.
+     */
+    private int[] recordOffsets;
+
+    /**
+     * Maps names to positions in {@link #recordOffsets} for lazily
+     * read archives, built on first lookup.
+     */
+    private volatile NameIndex nameIndex;
+
+    /**
+     * All entries of a lazily read archive, created on first
+     * enumeration.
+     */
+    private volatile List<ZipEntry> allEntries;
+
     // cached buffers
     private final byte[] DWORD_BUF = new byte[DWORD];
     private final byte[] WORD_BUF = new byte[WORD];
@@ -205,6 +242,43 @@ public class ZipFile implements Closeable {
      */
     public ZipFile(final File f, final String encoding, final boolean useUnicodeExtraFields)
         throws IOException {
+        this(f, encoding, useUnicodeExtraFields, false);
+    }
+
+    /**
+     * Opens the given file for reading, assuming the specified
+     * encoding for file names, optionally without reading the whole
+     * central directory up front.
+     *
+     * <p>In lazy mode the central directory is read into memory and
+     * only scanned for record boundaries when the archive is opened.
+     * Names are decoded and indexed when an entry is first looked up
+     * by name and ZipEntry instances - including the data of their
+     * local file headers - are only created when they are requested,
+     * so the methods looking up entries may throw IOExceptions. This
+     * makes opening large archives in order to read a few entries a
+     * lot cheaper.</p>
+     *
+     * <p>Entries returned by a lazily read archive are created anew
+     * for each request, they are equal to but not the same as
+     * entries returned by earlier requests. Their data is read using
+     * positional reads without locking, a thread that gets
+     * interrupted while reading closes the archive.</p>
+     *
+     * @param f the archive.
+     * @param encoding the encoding to use for file names, use null
+     * for the platform's default encoding
+     * @param useUnicodeExtraFields whether to use InfoZIP Unicode
+     * Extra Fields (if present) to set the file names.
+     * @param lazy whether to create entries on demand.
+     *
+     * @throws IOException if an error occurs while reading the file.
+     * @since Ant 1.10.6
+     */
+    public ZipFile(final File f, final String encoding, final boolean useUnicodeExtraFields,
+                   final boolean lazy)
+        throws IOException {
+        this.lazy = lazy;
         this.archiveName = f.getAbsolutePath();
         this.encoding = encoding;
         this.zipEncoding = ZipEncodingHelper.getZipEncoding(encoding);
@@ -212,9 +286,13 @@ public class ZipFile implements Closeable {
         archive = new RandomAccessFile(f, "r");
         boolean success = false;
         try {
-            final Map<ZipEntry, NameAndComment> entriesWithoutUTF8Flag =
-                populateFromCentralDirectory();
-            resolveLocalFileHeaderData(entriesWithoutUTF8Flag);
+            if (lazy) {
+                indexCentralDirectory();
+            } else {
+                final Map<ZipEntry, NameAndComment> entriesWithoutUTF8Flag =
+                    populateFromCentralDirectory();
+                resolveLocalFileHeaderData(entriesWithoutUTF8Flag);
+            }
             success = true;
         } finally {
             closed = !success;
@@ -273,9 +351,11 @@ public class ZipFile implements Closeable {
      * within the archive's central directory.</p>
      *
      * @return all entries as {@link ZipEntry} instances
+     * @throws IOException if the entries of a lazily read archive
+     * cannot be read.
      */
-    public Enumeration<ZipEntry> getEntries() {
-        return Collections.enumeration(entries);
+    public Enumeration<ZipEntry> getEntries() throws IOException {
+        return Collections.enumeration(lazy ? getAllEntries() : entries);
     }
 
     /**
@@ -285,11 +365,13 @@ public class ZipFile implements Closeable {
      * appear within the archive.</p>
      *
      * @return all entries as {@link ZipEntry} instances
+     * @throws IOException if the entries of a lazily read archive
+     * cannot be read.
      *
      * @since Ant 1.9.0
      */
-    public Enumeration<ZipEntry> getEntriesInPhysicalOrder() {
-        return entries.stream().sorted(OFFSET_COMPARATOR).collect(Collectors
+    public Enumeration<ZipEntry> getEntriesInPhysicalOrder() throws IOException {
+        return (lazy ? getAllEntries() : entries).stream().sorted(OFFSET_COMPARATOR).collect(Collectors
             .collectingAndThen(Collectors.toList(), Collections::enumeration));
     }
 
@@ -304,8 +386,14 @@ public class ZipFile implements Closeable {
      * @param name name of the entry.
      * @return the ZipEntry corresponding to the given name - or
      * {@code null} if not present.
+     * @throws IOException if the entries of a lazily read archive
+     * cannot be read.
      */
-    public ZipEntry getEntry(final String name) {
+    public ZipEntry getEntry(final String name) throws IOException {
+        if (lazy) {
+            final int index = getNameIndex().next(name, -1);
+            return index < 0 ? null : readEntry(index);
+        }
         final LinkedList<ZipEntry> entriesOfThatName = nameMap.get(name);
         return entriesOfThatName != null ? entriesOfThatName.getFirst() : null;
     }
@@ -317,9 +405,14 @@ public class ZipFile implements Closeable {
      * @param name name of the entry.
      * @return the Iterable&lt;ZipEntry&gt; corresponding to the
      * given name
+     * @throws IOException if the entries of a lazily read archive
+     * cannot be read.
      * @since 1.9.2
      */
-    public Iterable<ZipEntry> getEntries(final String name) {
+    public Iterable<ZipEntry> getEntries(final String name) throws IOException {
+        if (lazy) {
+            return readEntries(name);
+        }
         final List<ZipEntry> entriesOfThatName = nameMap.get(name);
         return entriesOfThatName != null ? entriesOfThatName
             : Collections.emptyList();
@@ -332,9 +425,17 @@ public class ZipFile implements Closeable {
      * @param name name of the entry.
      * @return the Iterable&lt;ZipEntry&gt; corresponding to the
      * given name
+     * @throws IOException if the entries of a lazily read archive
+     * cannot be read.
      * @since 1.9.2
      */
-    public Iterable<ZipEntry> getEntriesInPhysicalOrder(final String name) {
+    public Iterable<ZipEntry> getEntriesInPhysicalOrder(final String name)
+        throws IOException {
+        if (lazy) {
+            final List<ZipEntry> entriesOfThatName = readEntries(name);
+            entriesOfThatName.sort(OFFSET_COMPARATOR);
+            return entriesOfThatName;
+        }
         if (nameMap.containsKey(name)) {
             return nameMap.get(name).stream().sorted(OFFSET_COMPARATOR)
                 .collect(Collectors.toList());
@@ -395,6 +496,109 @@ public class ZipFile implements Closeable {
         }
     }
 
+    /**
+     * Returns an InputStream for reading the data of the given entry
+     * as it is stored inside the archive, without decompressing it.
+     *
+     * @param ze the entry to get the stream for.
+     * @return a stream to read the raw entry data from or null if the
+     * entry is not part of this archive.
+     * @since Ant 1.10.6
+     */
+    public InputStream getRawInputStream(final ZipEntry ze) {
+        if (!(ze instanceof Entry)) {
+            return null;
+        }
+        final OffsetEntry offsetEntry = ((Entry) ze).getOffsetEntry();
+        return new BoundedInputStream(offsetEntry.dataOffset, ze.getCompressedSize());
+    }
+
+    /**
+     * Transfers the data of the given entry as it is stored inside
+     * the archive to a channel.
+     *
+     * @param ze the entry to copy.
+     * @param target the channel to write to.
+     * @return the number of bytes transferred.
+     * @throws IOException on error or if the entry is not part of
+     * this archive.
+     */
+    long transferRawData(final ZipEntry ze, final WritableByteChannel target)
+        throws IOException {
+        if (!(ze instanceof Entry)) {
+            throw new ZipException(ze.getName() + " is not part of " + archiveName);
+        }
+        final FileChannel channel = archive.getChannel();
+        long position = ((Entry) ze).getOffsetEntry().dataOffset;
+        long remaining = ze.getCompressedSize();
+        while (remaining > 0) {
+            final long count = channel.transferTo(position, remaining, target);
+            if (count <= 0) {
+                throw new EOFException("Truncated data for entry " + ze.getName());
+            }
+            position += count;
+            remaining -= count;
+        }
+        return ze.getCompressedSize();
+    }
+
+    /**
+     * Number of bytes in front of the central directory that don't
+     * belong to any entry listed inside the central directory.
+     *
+     * <p>Those are the data of entries that have been replaced and
+     * old central directories of archives that new entries have been
+     * appended to - or a preamble like the one of self extracting
+     * archives.</p>
+     *
+     * @return the number of unused bytes.
+     * @throws IOException if the entries of a lazily read archive
+     * cannot be read.
+     * @since Ant 1.10.6
+     */
+    public long getUnusedBytes() throws IOException {
+        long used = 0;
+        for (ZipEntry ze : lazy ? getAllEntries() : entries) {
+            final OffsetEntry offsetEntry = ((Entry) ze).getOffsetEntry();
+            used += offsetEntry.dataOffset - offsetEntry.headerOffset
+                + ze.getCompressedSize();
+            if (ze.getGeneralPurposeBit().usesDataDescriptor()) {
+                used += ze.getCompressedSize() >= ZIP64_MAGIC
+                    || ze.getSize() >= ZIP64_MAGIC
+                    ? WORD + WORD + DWORD + DWORD : WORD + WORD + WORD + WORD;
+            }
+        }
+        return Math.max(0, centralDirectoryOffset - used);
+    }
+
+    /**
+     * Copies of all central directory records including their
+     * signatures in the order they appear inside the archive.
+     *
+     * <p>Only available for lazily read archives.</p>
+     *
+     * @return the records.
+     */
+    List<byte[]> getCentralDirectoryRecords() {
+        if (!lazy) {
+            throw new IllegalStateException(
+                "central directory records are only kept by lazily read archives");
+        }
+        final ByteBuffer cd = centralDirectory.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        final List<byte[]> records = new ArrayList<>(recordOffsets.length);
+        for (final int start : recordOffsets) {
+            final int lengths = start + WORD + CFH_OFFSET_FOR_FILENAME_LENGTH;
+            final byte[] record = new byte[WORD + CFH_LEN
+                + (cd.getShort(lengths) & 0xffff)
+                + (cd.getShort(lengths + SHORT) & 0xffff)
+                + (cd.getShort(lengths + 2 * SHORT) & 0xffff)];
+            cd.position(start);
+            cd.get(record);
+            records.add(record);
+        }
+        return records;
+    }
+
     public String getName() {
         return archiveName;
     }
@@ -442,6 +646,232 @@ public class ZipFile implements Closeable {
     private static final long CFH_SIG =
         ZipLong.getValue(ZipOutputStream.CFH_SIG);
 
+    /**
+     * Offset of the &quot;filename length&quot; field inside a
+     * &quot;central directory&quot; entry structure without
+     * signature, the lengths of extra field and comment follow it.
+     */
+    private static final int CFH_OFFSET_FOR_FILENAME_LENGTH =
+        /* version made by                 */ SHORT
+        /* version needed to extract       */ + SHORT
+        /* general purpose bit flag        */ + SHORT
+        /* compression method              */ + SHORT
+        /* last mod file time              */ + SHORT
+        /* last mod file date              */ + SHORT
+        /* crc-32                          */ + WORD
+        /* compressed size                 */ + WORD
+        /* uncompressed size               */ + WORD;
+
+    /**
+     * Offset of the general purpose bit flag inside a &quot;central
+     * directory&quot; entry structure without signature.
+     */
+    private static final int CFH_OFFSET_FOR_GPB =
+        /* version made by                 */ SHORT
+        /* version needed to extract       */ + SHORT;
+
+    /**
+     * Initial size of the table of central directory record
+     * positions of lazily read archives, doubled as needed.
+     */
+    private static final int INITIAL_RECORD_OFFSETS = 64;
+
+    /**
+     * Locates the central directory, reads it as a whole with a
+     * single positional read and records the position of each record
+     * without parsing it.
+     */
+    private void indexCentralDirectory() throws IOException {
+        positionAtCentralDirectory();
+        final long start = archive.getFilePointer();
+        centralDirectoryOffset = start;
+        final long length = archive.length() - start;
+        if (length > Integer.MAX_VALUE) {
+            throw new ZipException("central directory of " + archiveName
+                                   + " is too big to be read lazily");
+        }
+        final ByteBuffer cd = ByteBuffer.allocate((int) length);
+        readFully(cd, start);
+        cd.flip();
+        cd.order(ByteOrder.LITTLE_ENDIAN);
+
+        int[] offsets = new int[INITIAL_RECORD_OFFSETS];
+        int count = 0;
+        int pos = 0;
+        final int limit = cd.limit() - WORD - CFH_LEN;
+        while (pos <= limit && (cd.getInt(pos) & 0xffffffffL) == CFH_SIG) {
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, 2 * count);
+            }
+            offsets[count++] = pos;
+            final int lengths = pos + WORD + CFH_OFFSET_FOR_FILENAME_LENGTH;
+            pos += WORD + CFH_LEN + (cd.getShort(lengths) & 0xffff)
+                + (cd.getShort(lengths + SHORT) & 0xffff)
+                + (cd.getShort(lengths + 2 * SHORT) & 0xffff);
+        }
+        if (count == 0 && startsWithLocalFileHeader()) {
+            throw new IOException(
+                "central directory is empty, can't expand corrupt archive.");
+        }
+        centralDirectory = cd;
+        recordOffsets = Arrays.copyOf(offsets, count);
+    }
+
+    /**
+     * Creates the ZipEntry for the given central directory record of
+     * a lazily read archive, including the data only available from
+     * the local file header.
+     *
+     * @param index position of the record inside the central directory.
+     */
+    private Entry readEntry(final int index) throws IOException {
+        final ByteBuffer cd = centralDirectory.duplicate();
+        cd.position(recordOffsets[index] + WORD);
+        final byte[] cfh = new byte[CFH_LEN];
+        cd.get(cfh);
+        final byte[] fileName =
+            new byte[ZipShort.getValue(cfh, CFH_OFFSET_FOR_FILENAME_LENGTH)];
+        cd.get(fileName);
+        final byte[] cdExtraData =
+            new byte[ZipShort.getValue(cfh, CFH_OFFSET_FOR_FILENAME_LENGTH + SHORT)];
+        cd.get(cdExtraData);
+        final byte[] comment =
+            new byte[ZipShort.getValue(cfh, CFH_OFFSET_FOR_FILENAME_LENGTH + 2 * SHORT)];
+        cd.get(comment);
+
+        final Entry ze = createEntry(cfh, fileName, cdExtraData, comment);
+        final OffsetEntry offsetEntry = ze.getOffsetEntry();
+        final long offset = offsetEntry.headerOffset;
+        final ByteBuffer lengths = ByteBuffer.allocate(2 * SHORT);
+        readFully(lengths, offset + LFH_OFFSET_FOR_FILENAME_LENGTH);
+        final int fileNameLen = ZipShort.getValue(lengths.array(), 0);
+        final int extraFieldLen = ZipShort.getValue(lengths.array(), SHORT);
+        final byte[] localExtraData = new byte[extraFieldLen];
+        readFully(ByteBuffer.wrap(localExtraData), offset
+                  + LFH_OFFSET_FOR_FILENAME_LENGTH + SHORT + SHORT + fileNameLen);
+        ze.setExtra(localExtraData);
+        offsetEntry.dataOffset = offset + LFH_OFFSET_FOR_FILENAME_LENGTH
+            + SHORT + SHORT + fileNameLen + extraFieldLen;
+
+        if (!ze.getGeneralPurposeBit().usesUTF8ForNames() && useUnicodeExtraFields) {
+            ZipUtil.setNameAndCommentFromExtraFields(ze, fileName, comment);
+        }
+        return ze;
+    }
+
+    /**
+     * Decodes the name of the given central directory record of a
+     * lazily read archive without reading the local file header.
+     *
+     * @param cd a private view of the central directory.
+     * @param index position of the record inside the central directory.
+     */
+    private String readName(final ByteBuffer cd, final int index) throws IOException {
+        final int pos = recordOffsets[index] + WORD;
+        final GeneralPurposeBit gpFlag = GeneralPurposeBit.parse(
+            new byte[] {cd.get(pos + CFH_OFFSET_FOR_GPB),
+                        cd.get(pos + CFH_OFFSET_FOR_GPB + 1)}, 0);
+        final int extraLen =
+            cd.getShort(pos + CFH_OFFSET_FOR_FILENAME_LENGTH + SHORT) & 0xffff;
+        if (!gpFlag.usesUTF8ForNames() && useUnicodeExtraFields && extraLen > 0) {
+            // the name may be overridden by a Unicode extra field,
+            // that only needs the central directory record
+            final byte[] cfh = new byte[CFH_LEN];
+            cd.position(pos);
+            cd.get(cfh);
+            final byte[] fileName =
+                new byte[ZipShort.getValue(cfh, CFH_OFFSET_FOR_FILENAME_LENGTH)];
+            cd.get(fileName);
+            final byte[] cdExtraData = new byte[extraLen];
+            cd.get(cdExtraData);
+            final byte[] comment =
+                new byte[ZipShort.getValue(cfh, CFH_OFFSET_FOR_FILENAME_LENGTH + 2 * SHORT)];
+            cd.get(comment);
+            final Entry ze = createEntry(cfh, fileName, cdExtraData, comment);
+            ZipUtil.setNameAndCommentFromExtraFields(ze, fileName, comment);
+            return ze.getName();
+        }
+        final byte[] fileName =
+            new byte[cd.getShort(pos + CFH_OFFSET_FOR_FILENAME_LENGTH) & 0xffff];
+        cd.position(pos + CFH_LEN);
+        cd.get(fileName);
+        return (gpFlag.usesUTF8ForNames() ? ZipEncodingHelper.UTF8_ZIP_ENCODING
+                : zipEncoding).decode(fileName);
+    }
+
+    /**
+     * The name index of a lazily read archive, built on first use.
+     */
+    private NameIndex getNameIndex() throws IOException {
+        NameIndex index = nameIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = nameIndex;
+                if (index == null) {
+                    final ByteBuffer cd = centralDirectory.duplicate()
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                    final String[] names = new String[recordOffsets.length];
+                    for (int i = 0; i < names.length; i++) {
+                        names[i] = readName(cd, i);
+                    }
+                    index = new NameIndex(names);
+                    nameIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * All entries of a lazily read archive in central directory
+     * order, created on first use.
+     */
+    private List<ZipEntry> getAllEntries() throws IOException {
+        List<ZipEntry> all = allEntries;
+        if (all == null) {
+            synchronized (this) {
+                all = allEntries;
+                if (all == null) {
+                    final ZipEntry[] read = new ZipEntry[recordOffsets.length];
+                    for (int i = 0; i < read.length; i++) {
+                        read[i] = readEntry(i);
+                    }
+                    all = Collections.unmodifiableList(Arrays.asList(read));
+                    allEntries = all;
+                }
+            }
+        }
+        return all;
+    }
+
+    /**
+     * All entries of a lazily read archive with the given name in
+     * central directory order.
+     */
+    private List<ZipEntry> readEntries(final String name) throws IOException {
+        final List<ZipEntry> result = new ArrayList<>(1);
+        final NameIndex index = getNameIndex();
+        for (int i = index.next(name, -1); i >= 0; i = index.next(name, i)) {
+            result.add(readEntry(i));
+        }
+        return result;
+    }
+
+    /**
+     * Reads from the archive at the given position without changing
+     * the file pointer, filling the buffer completely.
+     */
+    private void readFully(final ByteBuffer buf, long position) throws IOException {
+        final FileChannel channel = archive.getChannel();
+        while (buf.hasRemaining()) {
+            final int read = channel.read(buf, position);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            position += read;
+        }
+    }
+
     /**
      * Reads the central directory of the given archive and populates
      * the internal tables with ZipEntry instances.
@@ -458,6 +888,7 @@ public class ZipFile implements Closeable {
         final Map<ZipEntry, NameAndComment> noUTF8Flag = new HashMap<>();
 
         positionAtCentralDirectory();
+        centralDirectoryOffset = archive.getFilePointer();
 
         archive.readFully(WORD_BUF);
         long sig = ZipLong.getValue(WORD_BUF);
@@ -488,17 +919,47 @@ public class ZipFile implements Closeable {
         readCentralDirectoryEntry(final Map<ZipEntry, NameAndComment> noUTF8Flag)
         throws IOException {
         archive.readFully(CFH_BUF);
+        final byte[] fileName =
+            new byte[ZipShort.getValue(CFH_BUF, CFH_OFFSET_FOR_FILENAME_LENGTH)];
+        archive.readFully(fileName);
+        final byte[] cdExtraData =
+            new byte[ZipShort.getValue(CFH_BUF, CFH_OFFSET_FOR_FILENAME_LENGTH + SHORT)];
+        archive.readFully(cdExtraData);
+        final byte[] comment =
+            new byte[ZipShort.getValue(CFH_BUF, CFH_OFFSET_FOR_FILENAME_LENGTH + 2 * SHORT)];
+        archive.readFully(comment);
+
+        final Entry ze = createEntry(CFH_BUF, fileName, cdExtraData, comment);
+        entries.add(ze);
+
+        if (!ze.getGeneralPurposeBit().usesUTF8ForNames() && useUnicodeExtraFields) {
+            noUTF8Flag.put(ze, new NameAndComment(fileName, comment));
+        }
+    }
+
+    /**
+     * Creates a ZipEntry from the parts of a central directory
+     * record.
+     *
+     * @param cfh the fixed size part of the record without signature.
+     * @param fileName the raw file name.
+     * @param cdExtraData the central directory extra data.
+     * @param comment the raw file comment.
+     */
+    private Entry createEntry(final byte[] cfh, final byte[] fileName,
+                              final byte[] cdExtraData, final byte[] comment)
+        throws IOException {
         int off = 0;
         final OffsetEntry offset = new OffsetEntry();
         final Entry ze = new Entry(offset);
 
-        final int versionMadeBy = ZipShort.getValue(CFH_BUF, off);
+        final int versionMadeBy = ZipShort.getValue(cfh, off);
         off += SHORT;
         ze.setPlatform((versionMadeBy >> BYTE_SHIFT) & NIBLET_MASK);
 
         off += SHORT; // skip version info
 
-        final GeneralPurposeBit gpFlag = GeneralPurposeBit.parse(CFH_BUF, off);
+        final GeneralPurposeBit gpFlag = GeneralPurposeBit.parse(cfh, off);
         final boolean hasUTF8Flag = gpFlag.usesUTF8ForNames();
         final ZipEncoding entryEncoding =
             hasUTF8Flag ? ZipEncodingHelper.UTF8_ZIP_ENCODING : zipEncoding;
@@ -506,62 +967,45 @@ public class ZipFile implements Closeable {
 
         off += SHORT;
 
-        ze.setMethod(ZipShort.getValue(CFH_BUF, off));
+        ze.setMethod(ZipShort.getValue(cfh, off));
         off += SHORT;
 
-        final long time = ZipUtil.dosToJavaTime(ZipLong.getValue(CFH_BUF, off));
+        final long time = ZipUtil.dosToJavaTime(ZipLong.getValue(cfh, off));
         ze.setTime(time);
         off += WORD;
 
-        ze.setCrc(ZipLong.getValue(CFH_BUF, off));
+        ze.setCrc(ZipLong.getValue(cfh, off));
         off += WORD;
 
-        ze.setCompressedSize(ZipLong.getValue(CFH_BUF, off));
+        ze.setCompressedSize(ZipLong.getValue(cfh, off));
         off += WORD;
 
-        ze.setSize(ZipLong.getValue(CFH_BUF, off));
+        ze.setSize(ZipLong.getValue(cfh, off));
         off += WORD;
 
-        final int fileNameLen = ZipShort.getValue(CFH_BUF, off);
-        off += SHORT;
-
-        final int extraLen = ZipShort.getValue(CFH_BUF, off);
-        off += SHORT;
-
-        final int commentLen = ZipShort.getValue(CFH_BUF, off);
-        off += SHORT;
+        off += 3 * SHORT; // skip lengths of name, extra and comment
 
-        final int diskStart = ZipShort.getValue(CFH_BUF, off);
+        final int diskStart = ZipShort.getValue(cfh, off);
         off += SHORT;
 
-        ze.setInternalAttributes(ZipShort.getValue(CFH_BUF, off));
+        ze.setInternalAttributes(ZipShort.getValue(cfh, off));
         off += SHORT;
 
-        ze.setExternalAttributes(ZipLong.getValue(CFH_BUF, off));
+        ze.setExternalAttributes(ZipLong.getValue(cfh, off));
         off += WORD;
 
-        final byte[] fileName = new byte[fileNameLen];
-        archive.readFully(fileName);
         ze.setName(entryEncoding.decode(fileName), fileName);
 
         // LFH offset,
-        offset.headerOffset = ZipLong.getValue(CFH_BUF, off);
+        offset.headerOffset = ZipLong.getValue(cfh, off);
         // data offset will be filled later
-        entries.add(ze);
 
-        final byte[] cdExtraData = new byte[extraLen];
-        archive.readFully(cdExtraData);
         ze.setCentralDirectoryExtra(cdExtraData);
 
         setSizesAndOffsetFromZip64Extra(ze, offset, diskStart);
 
-        final byte[] comment = new byte[commentLen];
-        archive.readFully(comment);
         ze.setComment(entryEncoding.decode(comment));
-
-        if (!hasUTF8Flag && useUnicodeExtraFields) {
-            noUTF8Flag.put(ze, new NameAndComment(fileName, comment));
-        }
+        return ze;
     }
 
     /**
@@ -932,6 +1376,11 @@ public class ZipFile implements Closeable {
                 }
                 return -1;
             }
+            if (lazy) {
+                final ByteBuffer single = ByteBuffer.allocate(1);
+                readFully(single, loc++);
+                return single.get(0) & 0xff;
+            }
             synchronized (archive) {
                 archive.seek(loc++);
                 return archive.read();
@@ -957,9 +1406,13 @@ public class ZipFile implements Closeable {
                 len = (int) remaining;
             }
             int ret;
-            synchronized (archive) {
-                archive.seek(loc);
-                ret = archive.read(b, off, len);
+            if (lazy) {
+                ret = archive.getChannel().read(ByteBuffer.wrap(b, off, len), loc);
+            } else {
+                synchronized (archive) {
+                    archive.seek(loc);
+                    ret = archive.read(b, off, len);
+                }
             }
             if (ret > 0) {
                 loc += ret;
@@ -977,6 +1430,60 @@ public class ZipFile implements Closeable {
         }
     }
 
+    /**
+     * Open addressing hash table mapping entry names to positions in
+     * the central directory, entries sharing a name are found in
+     * central directory order.
+     */
+    private static final class NameIndex {
+        private final String[] names;
+        /** position plus one, zero marks a free slot */
+        private final int[] slots;
+        private final int mask;
+
+        private NameIndex(final String[] names) {
+            this.names = names;
+            int capacity = Integer.highestOneBit(Math.max(names.length, 2) * 2 - 1) << 1;
+            slots = new int[capacity];
+            mask = capacity - 1;
+            for (int i = 0; i < names.length; i++) {
+                int slot = slot(names[i]);
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = i + 1;
+            }
+        }
+
+        /**
+         * Finds the next entry with the given name.
+         *
+         * @param name the name.
+         * @param previous the position returned by the last call or
+         * -1 to start the search.
+         * @return the position of the next entry or -1 if there isn't
+         * any.
+         */
+        private int next(final String name, final int previous) {
+            int slot = slot(name);
+            boolean found = previous < 0;
+            for (int candidate = slots[slot]; candidate != 0;
+                 candidate = slots[slot = (slot + 1) & mask]) {
+                if (candidate - 1 == previous) {
+                    found = true;
+                } else if (found && names[candidate - 1].equals(name)) {
+                    return candidate - 1;
+                }
+            }
+            return -1;
+        }
+
+        private int slot(final String name) {
+            final int h = name.hashCode();
+            return (h ^ (h >>> 16)) & mask;
+        }
+    }
+
     private static final class NameAndComment {
         private final byte[] name;
         private final byte[] comment;
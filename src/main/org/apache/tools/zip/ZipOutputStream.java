@@ -33,16 +33,29 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.zip.CRC32;
 import java.util.zip.Deflater;
 import java.util.zip.ZipException;
@@ -72,6 +85,12 @@ import java.util.zip.ZipException;
  * control is provided via {@link #setUseZip64}.  If the stream can not
  * user RandomAccessFile and you try to write a ZipEntry of
  * unknown size then Zip64 extensions will be disabled by default.</p>
+ *
+ * <p>Entries added via {@link #addDeflatedEntry addDeflatedEntry}
+ * can be compressed in the background by an executor set via {@link
+ * #setDeflateExecutor}.  They are written in the order they have
+ * been added and the resulting archive is identical to the one
+ * written by a single thread.</p>
  */
 public class ZipOutputStream extends FilterOutputStream {
 
@@ -119,6 +138,15 @@ public class ZipOutputStream extends FilterOutputStream {
      */
     private static final int DEFLATER_BLOCK_SIZE = 8192;
 
+    /**
+     * Maximum number of uncompressed bytes held by entries waiting
+     * to be written before {@link #addDeflatedEntry} waits for the
+     * oldest one.
+     */
+    private static final long MAX_PENDING_BYTES = 64 * 1024 * 1024;
+
+    private static final int RAW_COPY_BUFFER_SIZE = 8192;
+
     /**
      * Compression method for deflated entries.
      *
@@ -324,6 +352,48 @@ public class ZipOutputStream extends FilterOutputStream {
 
     private final Calendar calendarInstance = Calendar.getInstance();
 
+    /**
+     * Entries whose data has been copied as is, their sizes and CRC
+     * are known before the data is written.
+     */
+    private final Set<ZipEntry> rawEntries =
+        Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Executor compressing entries added via addDeflatedEntry, null
+     * if they are compressed by the calling thread.
+     */
+    private ExecutorService deflateExecutor;
+
+    /**
+     * Entries compressed in the background that have not been
+     * written, yet, in the order they have been added.
+     */
+    private final Deque<PendingEntry> pendingEntries = new ArrayDeque<>();
+
+    /**
+     * Uncompressed size of all pending entries.
+     */
+    private long pendingBytes = 0;
+
+    /**
+     * Length of the existing archive new entries are appended to, -1
+     * if the archive is written from scratch.
+     */
+    private long appendStart = -1;
+
+    /**
+     * Central directory records of the existing archive new entries
+     * are appended to.
+     */
+    private List<byte[]> existingRecords = Collections.emptyList();
+
+    /**
+     * Central directory records of the existing archive that are
+     * written to the new central directory.
+     */
+    private List<byte[]> retainedRecords = Collections.emptyList();
+
     /**
      * Creates a new ZIP OutputStream filtering the underlying stream.
      * @param out the outputstream to zip
@@ -342,23 +412,58 @@ public class ZipOutputStream extends FilterOutputStream {
      * @throws IOException on error
      */
     public ZipOutputStream(File file) throws IOException {
+        this(file, false);
+    }
+
+    /**
+     * Creates a new ZIP OutputStream writing to a File, optionally
+     * appending to an existing archive.
+     *
+     * <p>When appending, the entries of the existing archive are left
+     * where they are and new entries are written behind the
+     * existing data, followed by a new central directory. The new
+     * central directory lists all existing entries that don't share
+     * their name with an entry that has been added, so adding an
+     * entry replaces the existing one. The data of replaced entries
+     * and the old central directory remain inside the archive as
+     * unused bytes, see {@link ZipFile#getUnusedBytes}.</p>
+     *
+     * <p>If the stream is {@link #abort aborted} instead of being
+     * closed, the existing archive is restored.</p>
+     *
+     * @param file the file to zip to
+     * @param append whether to append to the archive if it exists
+     * @throws IOException on error
+     * @since Ant 1.10.6
+     */
+    public ZipOutputStream(File file, boolean append) throws IOException {
         super(null);
-        RandomAccessFile ranf = null;
-        try {
-            ranf = new RandomAccessFile(file, "rw");
-            ranf.setLength(0);
-        } catch (IOException e) {
-            if (ranf != null) {
-                try {
-                    ranf.close();
-                } catch (IOException inner) { // NOPMD
-                    // ignore
+        if (append && file.isFile()) {
+            try (ZipFile existing = new ZipFile(file, null, false, true)) {
+                existingRecords = existing.getCentralDirectoryRecords();
+            }
+            raf = new RandomAccessFile(file, "rw");
+            appendStart = raf.length();
+            raf.seek(appendStart);
+            written = appendStart;
+        } else {
+            RandomAccessFile ranf = null;
+            try {
+                ranf = new RandomAccessFile(file, "rw");
+                ranf.setLength(0);
+            } catch (IOException e) {
+                if (ranf != null) {
+                    try {
+                        ranf.close();
+                    } catch (IOException inner) { // NOPMD
+                        // ignore
+                    }
+                    ranf = null;
                 }
-                ranf = null;
+                out = Files.newOutputStream(file.toPath());
             }
-            out = Files.newOutputStream(file.toPath());
+            raf = ranf;
         }
-        raf = ranf;
     }
 
     /**
@@ -487,6 +592,251 @@ public class ZipOutputStream extends FilterOutputStream {
         zip64Mode = mode;
     }
 
+    /**
+     * Sets the executor used to compress entries added via {@link
+     * #addDeflatedEntry}.
+     *
+     * <p>The stream doesn't take ownership of the executor, it is
+     * the caller's responsibility to shut it down after the stream
+     * has been closed.</p>
+     *
+     * @param executor the executor, null makes the calling thread
+     * compress all entries.
+     * @since Ant 1.10.6
+     */
+    public void setDeflateExecutor(ExecutorService executor) {
+        deflateExecutor = executor;
+    }
+
+    /**
+     * Adds an entry together with its complete data.
+     *
+     * <p>If the entry is going to be {@link #DEFLATED} and an
+     * executor has been set via {@link #setDeflateExecutor} the data
+     * is compressed in the background and written once all entries
+     * added before have been written.  Otherwise this is the same as
+     * calling {@link #putNextEntry}, {@link #write} for each chunk and
+     * {@link #closeEntry}.</p>
+     *
+     * <p>Either way the archive will be the same as the one created
+     * by the second alternative, provided the chunks are the ones
+     * that would have been passed to write.</p>
+     *
+     * @param archiveEntry the entry.
+     * @param chunks the entry's data, the arrays must not be modified
+     * afterwards.
+     * @throws IOException on error
+     * @since Ant 1.10.6
+     */
+    public void addDeflatedEntry(ZipEntry archiveEntry, List<byte[]> chunks)
+        throws IOException {
+        if (finished) {
+            throw new IOException("Stream has already been finished");
+        }
+        final int entryMethod = archiveEntry.getMethod() == -1
+            ? method : archiveEntry.getMethod();
+        if (deflateExecutor == null || entryMethod != DEFLATED) {
+            putNextEntry(archiveEntry);
+            for (byte[] chunk : chunks) {
+                write(chunk, 0, chunk.length);
+            }
+            closeEntry();
+            return;
+        }
+        if (entry != null) {
+            closeEntry();
+        }
+        long size = 0;
+        for (byte[] chunk : chunks) {
+            size += chunk.length;
+        }
+        final int entryLevel = level;
+        pendingEntries.add(new PendingEntry(archiveEntry, size,
+            deflateExecutor.submit(() -> deflate(chunks, entryLevel))));
+        pendingBytes += size;
+        writePendingEntries(false);
+    }
+
+    /**
+     * Adds an entry whose data is copied as is from another archive
+     * without decompressing and compressing it again.
+     *
+     * <p>The entry's method, CRC, size and compressed size must be
+     * set.  Any Zip64 extended information extra field is recreated
+     * as needed.</p>
+     *
+     * @param archiveEntry the entry.
+     * @param rawData the entry's data as it is stored inside the
+     * archive, i.e. compressed if the entry's method is {@link
+     * #DEFLATED}.
+     * @throws IOException on error
+     * @since Ant 1.10.6
+     */
+    public void addRawEntry(ZipEntry archiveEntry, InputStream rawData)
+        throws IOException {
+        startRawEntry(archiveEntry);
+        final byte[] copyBuffer = new byte[RAW_COPY_BUFFER_SIZE];
+        int count;
+        while ((count = rawData.read(copyBuffer)) != -1) {
+            writeCounted(copyBuffer, 0, count);
+        }
+        finishRawEntry();
+    }
+
+    /**
+     * Adds an entry whose data is copied as is from an entry of
+     * another archive without decompressing and compressing it again.
+     *
+     * <p>The method, CRC, size and compressed size of the source
+     * entry are copied to the new entry.  If this stream writes to a
+     * file the data is transferred from channel to channel which may
+     * avoid copying it into the Java heap at all.</p>
+     *
+     * @param archiveEntry the entry to add.
+     * @param source the archive to copy from.
+     * @param sourceEntry the entry of source to copy.
+     * @throws IOException on error
+     * @since Ant 1.10.6
+     */
+    public void addRawEntry(ZipEntry archiveEntry, ZipFile source, ZipEntry sourceEntry)
+        throws IOException {
+        archiveEntry.setMethod(sourceEntry.getMethod());
+        archiveEntry.setCrc(sourceEntry.getCrc());
+        archiveEntry.setSize(sourceEntry.getSize());
+        archiveEntry.setCompressedSize(sourceEntry.getCompressedSize());
+        if (raf == null) {
+            try (InputStream in = source.getRawInputStream(sourceEntry)) {
+                if (in == null) {
+                    throw new ZipException(sourceEntry.getName() + " is not part of "
+                                           + source.getName());
+                }
+                addRawEntry(archiveEntry, in);
+            }
+            return;
+        }
+        startRawEntry(archiveEntry);
+        written += source.transferRawData(sourceEntry, raf.getChannel());
+        finishRawEntry();
+    }
+
+    private void startRawEntry(ZipEntry archiveEntry) throws IOException {
+        if (finished) {
+            throw new IOException("Stream has already been finished");
+        }
+        if (archiveEntry.getMethod() == -1 || archiveEntry.getCrc() == -1
+            || archiveEntry.getSize() == -1 || archiveEntry.getCompressedSize() == -1) {
+            throw new ZipException("method, CRC and sizes are required for raw entry "
+                                   + archiveEntry.getName());
+        }
+        writePendingEntries(true);
+        if (hasZip64Extra(archiveEntry)) {
+            // sizes may be stale, let putNextEntry decide whether it
+            // is needed at all
+            archiveEntry.removeExtraField(Zip64ExtendedInformationExtraField.HEADER_ID);
+        }
+        putNextEntryNow(archiveEntry, true);
+        entry.hasWritten = true;
+    }
+
+    private void finishRawEntry() throws IOException {
+        final long bytesWritten = written - entry.dataStart;
+        if (bytesWritten != entry.entry.getCompressedSize()) {
+            throw new ZipException("bad compressed size for entry "
+                                   + entry.entry.getName() + ": "
+                                   + entry.entry.getCompressedSize()
+                                   + " instead of " + bytesWritten);
+        }
+        closeEntry(checkIfNeedsZip64(getEffectiveZip64Mode(entry.entry)));
+    }
+
+    /**
+     * Writes entries compressed in the background.
+     *
+     * @param all whether to wait for all pending entries or only
+     * write those that are done (and as many as needed to keep the
+     * memory consumption at bay).
+     */
+    private void writePendingEntries(boolean all) throws IOException {
+        while (!pendingEntries.isEmpty()) {
+            final PendingEntry pending = pendingEntries.peekFirst();
+            if (!all && !pending.data.isDone() && pendingBytes <= MAX_PENDING_BYTES) {
+                return;
+            }
+            pendingEntries.removeFirst();
+            pendingBytes -= pending.size;
+            writePendingEntry(pending);
+        }
+    }
+
+    private void writePendingEntry(PendingEntry pending) throws IOException {
+        final DeflatedData data;
+        try {
+            data = pending.data.get();
+        } catch (InterruptedException ex) {
+            discardPendingEntries();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing "
+                                             + pending.entry.getName());
+        } catch (ExecutionException ex) {
+            discardPendingEntries();
+            throw new IOException("Failed to compress " + pending.entry.getName(),
+                                  ex.getCause());
+        }
+        putNextEntryNow(pending.entry, false);
+        ZipUtil.checkRequestedFeatures(entry.entry);
+        entry.hasWritten = true;
+        writeCounted(data.compressed, 0, data.compressedLength);
+
+        final Zip64Mode effectiveMode = getEffectiveZip64Mode(entry.entry);
+        entry.entry.setSize(data.size);
+        entry.entry.setCompressedSize(written - entry.dataStart);
+        entry.entry.setCrc(data.crc);
+        closeEntry(checkIfNeedsZip64(effectiveMode));
+    }
+
+    private void discardPendingEntries() {
+        for (PendingEntry pending : pendingEntries) {
+            pending.data.cancel(true);
+        }
+        pendingEntries.clear();
+        pendingBytes = 0;
+    }
+
+    /**
+     * Compresses data the same way {@link #writeDeflated} followed by
+     * {@link #flushDeflater} would.
+     */
+    private static DeflatedData deflate(List<byte[]> chunks, int level) {
+        final Deflater deflater = new Deflater(level, true);
+        try {
+            final CRC32 checksum = new CRC32();
+            final ExposedByteArrayOutputStream out = new ExposedByteArrayOutputStream();
+            final byte[] buffer = new byte[DEFLATER_BLOCK_SIZE];
+            long size = 0;
+            for (byte[] chunk : chunks) {
+                if (chunk.length == 0) {
+                    continue;
+                }
+                size += chunk.length;
+                checksum.update(chunk, 0, chunk.length);
+                for (int off = 0; off < chunk.length; off += DEFLATER_BLOCK_SIZE) {
+                    deflater.setInput(chunk, off,
+                                      Math.min(DEFLATER_BLOCK_SIZE, chunk.length - off));
+                    while (!deflater.needsInput()) {
+                        out.write(buffer, 0, deflater.deflate(buffer, 0, buffer.length));
+                    }
+                }
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer, 0, buffer.length));
+            }
+            return new DeflatedData(size, checksum.getValue(), out.getBuffer(), out.size());
+        } finally {
+            deflater.end();
+        }
+    }
+
     /**
      * {@inheritDoc}
      * @throws Zip64RequiredException if the archive's size exceeds 4
@@ -501,6 +851,8 @@ public class ZipOutputStream extends FilterOutputStream {
         if (entry != null) {
             closeEntry();
         }
+        writePendingEntries(true);
+        retainedRecords = selectRetainedRecords();
 
         cdOffset = written;
         writeCentralDirectoryInChunks();
@@ -509,14 +861,84 @@ public class ZipOutputStream extends FilterOutputStream {
         writeCentralDirectoryEnd();
         offsets.clear();
         entries.clear();
+        rawEntries.clear();
+        existingRecords = retainedRecords = Collections.emptyList();
         def.end();
         finished = true;
     }
 
+    /**
+     * Closes the archive without finishing it.
+     *
+     * <p>If this stream has been appending to an existing archive,
+     * the archive is truncated to its original length - which
+     * restores it to the state it had before. Otherwise the result
+     * will likely be a corrupt archive.</p>
+     *
+     * @throws IOException on error
+     * @since Ant 1.10.6
+     */
+    public void abort() throws IOException {
+        try {
+            if (appendStart >= 0 && !finished) {
+                raf.setLength(appendStart);
+            }
+        } finally {
+            destroy();
+        }
+    }
+
+    /**
+     * Central directory records of the existing archive whose names
+     * have not been used by any of the added entries.
+     */
+    private List<byte[]> selectRetainedRecords() {
+        if (existingRecords.isEmpty()) {
+            return existingRecords;
+        }
+        final Set<String> added = new HashSet<>();
+        for (ZipEntry ze : entries) {
+            added.add(ze.getName());
+        }
+        final List<byte[]> retained = new ArrayList<>(existingRecords.size());
+        for (byte[] record : existingRecords) {
+            final boolean utf8 = GeneralPurposeBit.parse(record, CFH_GPB_OFFSET)
+                .usesUTF8ForNames();
+            final byte[] name = Arrays.copyOfRange(record, CFH_FILENAME_OFFSET,
+                CFH_FILENAME_OFFSET + ZipShort.getValue(record, CFH_FILENAME_LENGTH_OFFSET));
+            try {
+                if (added.contains((utf8 ? ZipEncodingHelper.UTF8_ZIP_ENCODING
+                                    : zipEncoding).decode(name))) {
+                    continue;
+                }
+            } catch (IOException ex) {
+                // a name that can't be decoded can't have been added
+            }
+            retained.add(record);
+        }
+        return retained;
+    }
+
+    /**
+     * Number of entries listed in the central directory.
+     */
+    private int numberOfEntries() {
+        return entries.size() + retainedRecords.size();
+    }
+
     private void writeCentralDirectoryInChunks() throws IOException {
         final int NUM_PER_WRITE = 1000;
         final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(70 * NUM_PER_WRITE);
         int count = 0;
+        for (byte[] record : retainedRecords) {
+            // entries of the archive appended to keep their location
+            byteArrayOutputStream.write(record);
+            if (++count > NUM_PER_WRITE) {
+                writeCounted(byteArrayOutputStream.toByteArray());
+                byteArrayOutputStream.reset();
+                count = 0;
+            }
+        }
         for (ZipEntry ze : entries) {
             byteArrayOutputStream.write(createCentralFileHeader(ze));
             if (++count > NUM_PER_WRITE) {
@@ -554,7 +976,7 @@ public class ZipOutputStream extends FilterOutputStream {
     }
 
     private void closeEntry(boolean actuallyNeedsZip64) throws IOException {
-        if (raf != null) {
+        if (raf != null && !entry.raw) {
             rewriteSizesAndCrc(actuallyNeedsZip64);
         }
 
@@ -730,13 +1152,21 @@ public class ZipOutputStream extends FilterOutputStream {
         if (finished) {
             throw new IOException("Stream has already been finished");
         }
+        writePendingEntries(true);
+        putNextEntryNow(archiveEntry, false);
+    }
 
+    private void putNextEntryNow(ZipEntry archiveEntry, boolean raw) throws IOException {
         if (entry != null) {
             closeEntry();
         }
 
         entry = new CurrentEntry(archiveEntry);
+        entry.raw = raw;
         entries.add(entry.entry);
+        if (raw) {
+            rawEntries.add(entry.entry);
+        }
 
         setDefaults(entry.entry);
 
@@ -751,7 +1181,11 @@ public class ZipOutputStream extends FilterOutputStream {
             // descriptor or inserted later via RandomAccessFile
             ZipEightByteInteger size = ZipEightByteInteger.ZERO;
             ZipEightByteInteger compressedSize = ZipEightByteInteger.ZERO;
-            if (entry.entry.getMethod() == STORED
+            if (raw) {
+                // copied data, sizes are known
+                size = new ZipEightByteInteger(entry.entry.getSize());
+                compressedSize = new ZipEightByteInteger(entry.entry.getCompressedSize());
+            } else if (entry.entry.getMethod() == STORED
                 && entry.entry.getSize() != -1) {
                 // actually, we already know the sizes
                 size = new ZipEightByteInteger(entry.entry.getSize());
@@ -1081,11 +1515,11 @@ public class ZipOutputStream extends FilterOutputStream {
         //store method in local variable to prevent multiple method calls
         final int zipMethod = ze.getMethod();
 
-        putShort(versionNeededToExtract(zipMethod, hasZip64Extra(ze)),
+        putShort(versionNeededToExtract(ze, hasZip64Extra(ze)),
                  buf, LFH_VERSION_NEEDED_OFFSET);
 
         GeneralPurposeBit generalPurposeBit =
-            getGeneralPurposeBits(zipMethod, !encodable && fallbackToUTF8);
+            getGeneralPurposeBits(ze, !encodable && fallbackToUTF8);
         generalPurposeBit.encode(buf, LFH_GPB_OFFSET);
 
         // compression method
@@ -1094,7 +1528,7 @@ public class ZipOutputStream extends FilterOutputStream {
         ZipUtil.toDosTime(calendarInstance, ze.getTime(), buf, LFH_TIME_OFFSET);
 
         // CRC
-        if (zipMethod == DEFLATED || raf != null) {
+        if (!entry.raw && (zipMethod == DEFLATED || raf != null)) {
             System.arraycopy(LZERO, 0, buf, LFH_CRC_OFFSET, WORD);
         } else {
             putLong(ze.getCrc(), buf, LFH_CRC_OFFSET);
@@ -1108,6 +1542,9 @@ public class ZipOutputStream extends FilterOutputStream {
             // stream is seekable
             ZipLong.ZIP64_MAGIC.putLong(buf, LFH_COMPRESSED_SIZE_OFFSET);
             ZipLong.ZIP64_MAGIC.putLong(buf, LFH_ORIGINAL_SIZE_OFFSET);
+        } else if (entry.raw) {
+            putLong(ze.getCompressedSize(), buf, LFH_COMPRESSED_SIZE_OFFSET);
+            putLong(ze.getSize(), buf, LFH_ORIGINAL_SIZE_OFFSET);
         } else if (zipMethod == DEFLATED || raf != null) {
             System.arraycopy(LZERO, 0, buf, LFH_COMPRESSED_SIZE_OFFSET, WORD);
             System.arraycopy(LZERO, 0, buf, LFH_ORIGINAL_SIZE_OFFSET, WORD);
@@ -1172,7 +1609,7 @@ public class ZipOutputStream extends FilterOutputStream {
      * @since 1.1
      */
     protected void writeDataDescriptor(ZipEntry ze) throws IOException {
-        if (ze.getMethod() != DEFLATED || raf != null) {
+        if (!usesDataDescriptor(ze)) {
             return;
         }
         writeCounted(DD_SIG);
@@ -1254,8 +1691,8 @@ public class ZipOutputStream extends FilterOutputStream {
 
         final int zipMethod = ze.getMethod();
         final boolean encodable = zipEncoding.canEncode(ze.getName());
-        putShort(versionNeededToExtract(zipMethod, needsZip64Extra), buf, CFH_VERSION_NEEDED_OFFSET);
-        getGeneralPurposeBits(zipMethod, !encodable && fallbackToUTF8).encode(buf, CFH_GPB_OFFSET);
+        putShort(versionNeededToExtract(ze, needsZip64Extra), buf, CFH_VERSION_NEEDED_OFFSET);
+        getGeneralPurposeBits(ze, !encodable && fallbackToUTF8).encode(buf, CFH_GPB_OFFSET);
 
         // compression method
         putShort(zipMethod, buf, CFH_METHOD_OFFSET);
@@ -1353,7 +1790,7 @@ public class ZipOutputStream extends FilterOutputStream {
         writeCounted(ZERO);
 
         // number of entries
-        int numberOfEntries = entries.size();
+        int numberOfEntries = numberOfEntries();
         if (numberOfEntries > ZIP64_MAGIC_SHORT
             && zip64Mode == Zip64Mode.Never) {
             throw new Zip64RequiredException(Zip64RequiredException
@@ -1444,7 +1881,7 @@ public class ZipOutputStream extends FilterOutputStream {
 
         if (!hasUsedZip64
             && (cdOffset >= ZIP64_MAGIC || cdLength >= ZIP64_MAGIC
-                || entries.size() >= ZIP64_MAGIC_SHORT)) {
+                || numberOfEntries() >= ZIP64_MAGIC_SHORT)) {
             // actually "will use"
             hasUsedZip64 = true;
         }
@@ -1478,7 +1915,7 @@ public class ZipOutputStream extends FilterOutputStream {
         writeOut(LZERO);
 
         // number of entries
-        byte[] num = ZipEightByteInteger.getBytes(entries.size());
+        byte[] num = ZipEightByteInteger.getBytes(numberOfEntries());
         writeOut(num);
         writeOut(num);
 
@@ -1550,22 +1987,22 @@ public class ZipOutputStream extends FilterOutputStream {
         }
     }
 
-    private GeneralPurposeBit getGeneralPurposeBits(final int zipMethod, final boolean utfFallback) {
+    private GeneralPurposeBit getGeneralPurposeBits(final ZipEntry ze, final boolean utfFallback) {
         GeneralPurposeBit b = new GeneralPurposeBit();
         b.useUTF8ForNames(useUTF8Flag || utfFallback);
-        if (isDeflatedToOutputStream(zipMethod)) {
+        if (usesDataDescriptor(ze)) {
             b.useDataDescriptor(true);
         }
         return b;
     }
 
-    private int versionNeededToExtract(final int zipMethod, final boolean zip64) {
+    private int versionNeededToExtract(final ZipEntry ze, final boolean zip64) {
         if (zip64) {
             return ZIP64_MIN_VERSION;
         }
         // requires version 2 as we are going to store length info
         // in the data descriptor
-        return (isDeflatedToOutputStream(zipMethod))
+        return usesDataDescriptor(ze)
             ? DATA_DESCRIPTOR_MIN_VERSION : INITIAL_VERSION;
     }
 
@@ -1573,6 +2010,14 @@ public class ZipOutputStream extends FilterOutputStream {
         return zipMethod == DEFLATED && raf == null;
     }
 
+    /**
+     * Whether the entry's sizes and CRC are stored in a data
+     * descriptor following the data.
+     */
+    private boolean usesDataDescriptor(ZipEntry ze) {
+        return isDeflatedToOutputStream(ze.getMethod()) && !rawEntries.contains(ze);
+    }
+
     /**
      * Get the existing ZIP64 extended information extra field or
      * create a new one and add it to the entry.
@@ -1656,6 +2101,7 @@ public class ZipOutputStream extends FilterOutputStream {
      * @throws IOException if close() fails
      */
     void destroy() throws IOException {
+        discardPendingEntries();
         if (raf != null) {
             raf.close();
         }
@@ -1735,6 +2181,52 @@ public class ZipOutputStream extends FilterOutputStream {
          * the stream at all.</p>
          */
         private boolean hasWritten;
+        /**
+         * Whether the entry's data is copied without compressing it,
+         * its sizes and CRC are known in advance.
+         */
+        private boolean raw;
+    }
+
+    /**
+     * An entry that is being compressed in the background.
+     */
+    private static final class PendingEntry {
+        private final ZipEntry entry;
+        private final long size;
+        private final Future<DeflatedData> data;
+
+        private PendingEntry(ZipEntry entry, long size, Future<DeflatedData> data) {
+            this.entry = entry;
+            this.size = size;
+            this.data = data;
+        }
+    }
+
+    /**
+     * Result of compressing an entry in the background.
+     */
+    private static final class DeflatedData {
+        private final long size;
+        private final long crc;
+        private final byte[] compressed;
+        private final int compressedLength;
+
+        private DeflatedData(long size, long crc, byte[] compressed, int compressedLength) {
+            this.size = size;
+            this.crc = crc;
+            this.compressed = compressed;
+            this.compressedLength = compressedLength;
+        }
+    }
+
+    /**
+     * Provides access to the internal buffer to avoid copying it.
+     */
+    private static final class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+        private byte[] getBuffer() {
+            return buf;
+        }
     }
 
 }
@@ -20,6 +20,7 @@ package org.apache.tools.ant;
 
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
@@ -27,8 +28,14 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assume.assumeFalse;
 import static org.junit.Assume.assumeTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
@@ -36,7 +43,12 @@ import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 import org.apache.tools.ant.taskdefs.condition.Os;
+import org.apache.tools.ant.types.FileSet;
+import org.apache.tools.ant.types.Resource;
+import org.apache.tools.ant.types.resources.FileResource;
+import org.apache.tools.ant.types.selectors.FileSelector;
 import org.apache.tools.ant.types.selectors.TokenizedPath;
+import org.apache.tools.ant.util.AttributedFile;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -510,6 +522,162 @@ public class DirectoryScannerTest {
                 hasItem("alpha/beta/gamma/gamma.xml".replace('/', File.separatorChar)));
     }
 
+    @Test
+    public void testParallelScanReturnsSameResultsInSameOrder() {
+        buildRule.getProject().executeTarget("extended-setup");
+        File output = new File(buildRule.getProject().getProperty("output"));
+        String[][] patterns = {
+            {"**/*.xml"}, {"alpha/"}, {"alpha/beta/gamma/gamma.xml", "delta/**"}
+        };
+        for (String[] includes : patterns) {
+            DirectoryScanner sequential = new DirectoryScanner();
+            sequential.setBasedir(output);
+            sequential.setIncludes(includes);
+            sequential.setExcludes(new String[] {"**/gamma/**"});
+            sequential.scan();
+
+            DirectoryScanner parallel = new DirectoryScanner();
+            parallel.setBasedir(output);
+            parallel.setIncludes(includes);
+            parallel.setExcludes(new String[] {"**/gamma/**"});
+            parallel.setParallelScan(true);
+            parallel.scan();
+
+            assertArrayEquals(sequential.getIncludedFiles(), parallel.getIncludedFiles());
+            assertArrayEquals(sequential.getIncludedDirectories(),
+                              parallel.getIncludedDirectories());
+            assertArrayEquals(sequential.getExcludedFiles(), parallel.getExcludedFiles());
+            assertArrayEquals(sequential.getNotIncludedFiles(),
+                              parallel.getNotIncludedFiles());
+            assertArrayEquals(sequential.getNotIncludedDirectories(),
+                              parallel.getNotIncludedDirectories());
+        }
+    }
+
+    @Test
+    public void testParallelScanProhibitSymlinks() {
+        assumeTrue("Current system does not support Symlinks", supportsSymlinks);
+        buildRule.getProject().executeTarget("symlink-setup");
+        ds.setBasedir(new File(buildRule.getProject().getProperty("output")));
+        ds.setIncludes(new String[] {"alpha/", "delta/"});
+        ds.setFollowSymlinks(false);
+        ds.setParallelScan(true);
+        ds.scan();
+        compareFiles(ds, new String[] {}, new String[] {"alpha"});
+    }
+
+    @Test
+    public void testPrefetchAttributesReturnsSameResults() {
+        buildRule.getProject().executeTarget("extended-setup");
+        File output = new File(buildRule.getProject().getProperty("output"));
+        String[][] patterns = {
+            {"**/*.xml"}, {"alpha/"}, {"alpha/beta/gamma/gamma.xml", "delta/**"}
+        };
+        for (String[] includes : patterns) {
+            DirectoryScanner plain = new DirectoryScanner();
+            plain.setBasedir(output);
+            plain.setIncludes(includes);
+            plain.setExcludes(new String[] {"**/gamma/**"});
+            plain.scan();
+
+            for (boolean parallel : new boolean[] {false, true}) {
+                DirectoryScanner nio = new DirectoryScanner();
+                nio.setBasedir(output);
+                nio.setIncludes(includes);
+                nio.setExcludes(new String[] {"**/gamma/**"});
+                nio.setPrefetchAttributes(true);
+                nio.setParallelScan(parallel);
+                nio.scan();
+
+                assertArrayEquals(sorted(plain.getIncludedFiles()),
+                                  sorted(nio.getIncludedFiles()));
+                assertArrayEquals(sorted(plain.getIncludedDirectories()),
+                                  sorted(nio.getIncludedDirectories()));
+                assertArrayEquals(sorted(plain.getExcludedFiles()),
+                                  sorted(nio.getExcludedFiles()));
+                assertArrayEquals(sorted(plain.getNotIncludedFiles()),
+                                  sorted(nio.getNotIncludedFiles()));
+            }
+        }
+    }
+
+    @Test
+    public void testPrefetchAttributesPassesAttributesToSelectors() {
+        buildRule.getProject().executeTarget("extended-setup");
+        ds.setBasedir(new File(buildRule.getProject().getProperty("output")));
+        ds.setIncludes(new String[] {"**/*.xml"});
+        ds.setPrefetchAttributes(true);
+        final List<String> selected = new ArrayList<>();
+        ds.setSelectors(new FileSelector[] {(basedir, filename, file) -> {
+            assertTrue(filename, file instanceof AttributedFile);
+            assertTrue(filename, file.isFile());
+            selected.add(filename);
+            return true;
+        }});
+        ds.scan();
+        assertFalse(selected.isEmpty());
+        assertArrayEquals(sorted(selected.toArray(new String[0])),
+                          sorted(ds.getIncludedFiles()));
+    }
+
+    @Test
+    public void testResourcesDontKeepPrefetchedAttributes() throws IOException {
+        buildRule.getProject().executeTarget("extended-setup");
+        buildRule.getProject().setProperty(MagicNames.SCAN_ATTRIBUTES, "true");
+        FileSet fs = new FileSet();
+        fs.setProject(buildRule.getProject());
+        fs.setDir(new File(buildRule.getProject().getProperty("output")));
+        fs.setIncludes("**/*.xml");
+        List<Resource> resources = new ArrayList<>();
+        fs.forEach(resources::add);
+        assertFalse(resources.isEmpty());
+        for (Resource r : resources) {
+            File f = ((FileResource) r).getFile();
+            assertFalse(r.getName(), f instanceof AttributedFile);
+            Files.delete(f.toPath());
+            assertFalse(r.getName(), r.isExists());
+        }
+    }
+
+    @Test
+    public void testDeserializedAttributedFileReadsAttributes() throws Exception {
+        File dir = new File(buildRule.getProject().getProperty("output"));
+        File file = new File(dir, "attributed.txt");
+        Files.write(file.toPath(), new byte[] {1, 2, 3});
+        AttributedFile attributed = AttributedFile.read(dir, "attributed.txt");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(attributed);
+        }
+        AttributedFile copy;
+        try (ObjectInputStream in = new ObjectInputStream(
+                 new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (AttributedFile) in.readObject();
+        }
+        assertTrue(copy.exists());
+        assertTrue(copy.isFile());
+        assertEquals(3, copy.length());
+        assertEquals(attributed.lastModified(), copy.lastModified());
+    }
+
+    @Test
+    public void testPrefetchAttributesProhibitSymlinks() {
+        assumeTrue("Current system does not support Symlinks", supportsSymlinks);
+        buildRule.getProject().executeTarget("symlink-setup");
+        ds.setBasedir(new File(buildRule.getProject().getProperty("output")));
+        ds.setIncludes(new String[] {"alpha/", "delta/"});
+        ds.setFollowSymlinks(false);
+        ds.setPrefetchAttributes(true);
+        ds.scan();
+        compareFiles(ds, new String[] {}, new String[] {"alpha"});
+    }
+
+    private static String[] sorted(String[] names) {
+        String[] copy = names.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+
     @Test
     public void testContentsExcluded() {
         ds.setBasedir(new File("."));
@@ -42,6 +42,8 @@ public class ExecutorTest implements BuildListener  {
             = "org.apache.tools.ant.helper.SingleCheckExecutor";
     private static final String IGNORE_DEPS
             = "org.apache.tools.ant.helper.IgnoreDependenciesExecutor";
+    private static final String PARALLEL
+            = "org.apache.tools.ant.helper.ParallelExecutor";
 
     private static final Vector<String> TARGET_NAMES;
     static {
@@ -118,6 +120,22 @@ public class ExecutorTest implements BuildListener  {
         assertEquals(2, targetCount);
     }
 
+    @Test
+    public void testParallelExecutor() {
+        getProject(PARALLEL).executeTargets(TARGET_NAMES);
+        assertEquals(3, targetCount);
+    }
+
+    @Test
+    public void testParallelExecutorRunsTargetsConcurrently() {
+        Project p = getProject(PARALLEL);
+        p.setNewProperty("ant.executor.threads", "2");
+        Vector<String> targetNames = new Vector<>();
+        targetNames.add("concurrent");
+        p.executeTargets(targetNames);
+        assertEquals(3, targetCount);
+    }
+
     @Test
     public void testDefaultFailure() {
         thrown.expect(BuildException.class);
@@ -140,6 +158,17 @@ public class ExecutorTest implements BuildListener  {
         }
     }
 
+    @Test
+    public void testParallelFailure() {
+        thrown.expect(BuildException.class);
+        thrown.expectMessage("failfoo");
+        try {
+            getProject(PARALLEL, true).executeTargets(TARGET_NAMES);
+        } finally {
+            assertEquals(1, targetCount);
+        }
+    }
+
     @Test
     public void testIgnoreDependenciesFailure() {
         //no foo failure; foo is never executed as dependencies are ignored!
@@ -168,6 +197,17 @@ public class ExecutorTest implements BuildListener  {
         }
     }
 
+    @Test
+    public void testKeepGoingParallel() {
+        thrown.expect(BuildException.class);
+        thrown.expectMessage("failfoo");
+        try {
+            getProject(PARALLEL, true, true).executeTargets(TARGET_NAMES);
+        } finally {
+            assertEquals(1, targetCount);
+        }
+    }
+
     @Test
     public void testKeepGoingIgnoreDependencies() {
         thrown.expect(BuildException.class);
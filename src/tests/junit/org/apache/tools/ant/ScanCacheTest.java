@@ -0,0 +1,118 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.tools.ant;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.tools.ant.types.FileSet;
+import org.apache.tools.ant.util.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ScanCacheTest {
+
+    @Rule
+    public TemporaryFolder testFolder = new TemporaryFolder();
+
+    private Project project;
+    private File root;
+
+    @Before
+    public void setUp() throws IOException {
+        project = new Project();
+        project.init();
+        root = testFolder.newFolder("root");
+        new File(root, "a/b").mkdirs();
+        new File(root, "a/one.java").createNewFile();
+        new File(root, "a/b/two.java").createNewFile();
+        // results of scans right after a change are not trusted
+        long past = System.currentTimeMillis() - 10000;
+        for (String dir : new String[] {"..", "", "a", "a/b"}) {
+            new File(root, dir).setLastModified(past);
+        }
+    }
+
+    private FileSet newFileSet(String includes) {
+        FileSet fs = new FileSet();
+        fs.setProject(project);
+        fs.setDir(root);
+        fs.setIncludes(includes);
+        return fs;
+    }
+
+    @Test
+    public void testCacheIsOptIn() {
+        assertNull(ScanCache.getScanCache(project));
+        assertNotSame(newFileSet("**/*.java").getDirectoryScanner(),
+                      newFileSet("**/*.java").getDirectoryScanner());
+    }
+
+    @Test
+    public void testIdenticalFileSetsShareResults() {
+        project.setProperty(MagicNames.SCAN_CACHE, "true");
+        DirectoryScanner first = newFileSet("**/*.java").getDirectoryScanner();
+        assertSame(first, newFileSet("**/*.java").getDirectoryScanner());
+        assertNotSame(first, newFileSet("**/*.txt").getDirectoryScanner());
+        assertEquals(2, first.getIncludedFilesCount());
+    }
+
+    @Test
+    public void testNewFileInvalidatesResult() throws IOException {
+        project.setProperty(MagicNames.SCAN_CACHE, "true");
+        DirectoryScanner first = newFileSet("**/*.java").getDirectoryScanner();
+        File b = new File(root, "a/b");
+        new File(b, "three.java").createNewFile();
+        b.setLastModified(b.lastModified() + 10000);
+        DirectoryScanner second = newFileSet("**/*.java").getDirectoryScanner();
+        assertNotSame(first, second);
+        assertEquals(3, second.getIncludedFilesCount());
+    }
+
+    @Test
+    public void testResultIsNotTrustedWithinTimestampGranularity() throws IOException {
+        project.setProperty(MagicNames.SCAN_CACHE, "true");
+        File b = new File(root, "a/b");
+        b.setLastModified(System.currentTimeMillis());
+        DirectoryScanner first = newFileSet("**/*.java").getDirectoryScanner();
+        // a file system with coarse timestamps may not change b
+        long timestamp = b.lastModified();
+        new File(b, "three.java").createNewFile();
+        b.setLastModified(timestamp);
+        DirectoryScanner second = newFileSet("**/*.java").getDirectoryScanner();
+        assertNotSame(first, second);
+        assertEquals(3, second.getIncludedFilesCount());
+    }
+
+    @Test
+    public void testWriteHookInvalidatesResult() throws IOException {
+        project.setProperty(MagicNames.SCAN_CACHE, "true");
+        DirectoryScanner first = newFileSet("**/*.java").getDirectoryScanner();
+        FileUtils.getFileUtils().setFileLastModified(new File(root, "a/one.java"),
+                                                     System.currentTimeMillis());
+        assertNotSame(first, newFileSet("**/*.java").getDirectoryScanner());
+    }
+}
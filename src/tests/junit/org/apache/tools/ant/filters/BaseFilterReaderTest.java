@@ -0,0 +1,110 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.tools.ant.filters;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.tools.ant.util.FileUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BaseFilterReaderTest {
+
+    @Test
+    public void testLinesSpanningReadAheadBuffers() throws IOException {
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            String line = (i % 3 == 0 ? "keep " : "drop ") + i
+                + (i % 100 == 0 ? new String(new char[10000]).replace('\0', 'x') : "")
+                + "\n";
+            input.append(line);
+            if (i % 3 == 0) {
+                expected.append("> ").append(line);
+            }
+        }
+        input.append("keep last line without newline");
+        expected.append("> keep last line without newline");
+
+        LineContains.Contains keep = new LineContains.Contains();
+        keep.setValue("keep");
+        LineContains contains = new LineContains();
+        contains.addConfiguredContains(keep);
+        PrefixLines prefix = new PrefixLines();
+        prefix.setPrefix("> ");
+
+        Reader chain = prefix.chain(contains.chain(new StringReader(input.toString())));
+        assertEquals(expected.toString(), FileUtils.readFully(chain));
+        assertEquals(-1, chain.read());
+    }
+
+    @Test
+    public void testBulkReads() throws IOException {
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            input.append("line @a@ ").append(i).append(" and b\n");
+            expected.append("line value of a ").append(i).append(" and B\n");
+        }
+
+        ReplaceTokens.Token token = new ReplaceTokens.Token();
+        token.setKey("a");
+        token.setValue("value of a");
+        ReplaceTokens replaceTokens = new ReplaceTokens();
+        replaceTokens.addConfiguredToken(token);
+        TokenFilter.ReplaceString replace = new TokenFilter.ReplaceString();
+        replace.setFrom("b");
+        replace.setTo("B");
+        TokenFilter tokenFilter = new TokenFilter();
+        tokenFilter.addReplaceString(replace);
+
+        for (int size : new int[] {1, 7, 8192}) {
+            Reader chain = tokenFilter.chain(
+                replaceTokens.chain(new StringReader(input.toString())));
+            StringBuilder actual = new StringBuilder();
+            char[] buffer = new char[size];
+            int n;
+            while ((n = chain.read(buffer, 0, size)) != -1) {
+                actual.append(buffer, 0, n);
+            }
+            assertEquals(expected.toString(), actual.toString());
+        }
+    }
+
+    @Test
+    public void testMarkSupportOfTheFilteredReader() throws IOException {
+        // without tokens ReplaceTokens passes the characters through
+        Reader reader = new ReplaceTokens(new StringReader("abc"));
+        assertTrue(reader.markSupported());
+        reader.mark(2);
+        assertEquals('a', reader.read());
+        reader.reset();
+        assertEquals('a', reader.read());
+        assertFalse(new LineContains(new InputStreamReader(
+            new ByteArrayInputStream(new byte[0]), StandardCharsets.UTF_8)).markSupported());
+    }
+}
@@ -18,17 +18,33 @@
 
 package org.apache.tools.ant.taskdefs;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+
 import org.apache.tools.ant.BuildFileRule;
+import org.apache.tools.ant.types.FileSet;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
 
 public class ChecksumTest {
 
     @Rule
     public BuildFileRule buildRule = new BuildFileRule();
 
+    @Rule
+    public TemporaryFolder testFolder = new TemporaryFolder();
+
     @Before
     public void setUp() {
         buildRule.configureProject("src/etc/testcases/taskdefs/checksum.xml");
@@ -104,4 +120,68 @@ public class ChecksumTest {
         buildRule.executeTarget("verifyChecksumdirNoTotal");
     }
 
+    @Test
+    public void testVerifyTotalParallelUsesCache() {
+        buildRule.executeTarget("verifyTotalParallel");
+        buildRule.executeTarget("verifyTotalParallel");
+        assertThat(buildRule.getFullLog(), containsString("Using cached MD5 checksum"));
+    }
+
+    @Test
+    public void testCacheDoesntTrustFilesRewrittenWithinGranularity() throws IOException {
+        File f = testFolder.newFile("f");
+        File cache = new File(testFolder.getRoot(), "checksum.cache");
+        Files.write(f.toPath(), "first".getBytes());
+        long lastModified = f.lastModified();
+        assertEquals("8b04d5e3775d298e78455efc5ca404d5", checksumWithCache(f, cache, "first"));
+
+        // same size and - on a file system with coarse timestamps - same mtime
+        Files.write(f.toPath(), "other".getBytes());
+        f.setLastModified(lastModified);
+        assertEquals("795f3202b17cb6bc3d4b771d8c6c9eaf", checksumWithCache(f, cache, "other"));
+    }
+
+    private String checksumWithCache(File f, File cache, String property) {
+        Checksum checksum = new Checksum();
+        checksum.setProject(buildRule.getProject());
+        checksum.setFile(f);
+        checksum.setCacheFile(cache);
+        checksum.setProperty(property);
+        checksum.execute();
+        return buildRule.getProject().getProperty(property);
+    }
+
+    @Test
+    public void testLargeFilesInParallel() throws IOException, NoSuchAlgorithmException {
+        Random random = new Random(42);
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 3; i++) {
+            byte[] data = new byte[(i + 1) * 1024 * 1024 + i];
+            random.nextBytes(data);
+            Files.write(testFolder.newFile("f" + i).toPath(), data);
+            md.update(data);
+            for (byte b : md.digest()) {
+                expected.append(String.format("%02x", b & 0xff));
+            }
+        }
+
+        Checksum checksum = new Checksum();
+        checksum.setProject(buildRule.getProject());
+        checksum.setAlgorithm("SHA-256");
+        checksum.setThreads(3);
+        checksum.setPattern("{0}");
+        FileSet fs = new FileSet();
+        fs.setProject(buildRule.getProject());
+        fs.setDir(testFolder.getRoot());
+        checksum.addFileset(fs);
+        checksum.execute();
+
+        StringBuilder actual = new StringBuilder();
+        for (int i = 0; i < 3; i++) {
+            File f = new File(testFolder.getRoot(), "f" + i + ".SHA-256");
+            actual.append(new String(Files.readAllBytes(f.toPath())).trim());
+        }
+        assertEquals(expected.toString(), actual.toString());
+    }
 }
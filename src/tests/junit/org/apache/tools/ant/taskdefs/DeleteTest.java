@@ -18,12 +18,23 @@
 
 package org.apache.tools.ant.taskdefs;
 
+import java.io.File;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.tools.ant.BuildEvent;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.BuildFileRule;
+import org.apache.tools.ant.BuildListener;
+import org.apache.tools.ant.Project;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
 /**
  */
 public class DeleteTest {
@@ -120,4 +131,89 @@ public class DeleteTest {
     public void test17() {
         buildRule.executeTarget("test17");
     }
+
+    @Test
+    public void testParallelDir() {
+        buildRule.executeTarget("testParallelDir");
+    }
+
+    @Test
+    public void testParallelFileset() {
+        buildRule.executeTarget("testParallelFileset");
+    }
+
+    @Test
+    public void testParallelResources() {
+        buildRule.executeTarget("testParallelResources");
+    }
+
+    @Test
+    public void testParallelDeletionUsesRemoveDirForSubdirectories() {
+        buildRule.executeTarget("init");
+        File dir = new File(buildRule.getProject().getProperty("dir"));
+        File[] subdirs = dir.listFiles(File::isDirectory);
+        assertTrue(subdirs.length > 0);
+        Set<File> removed = ConcurrentHashMap.newKeySet();
+        Delete delete = new Delete() {
+            @Override
+            protected void removeDir(File d) {
+                removed.add(d);
+                super.removeDir(d);
+            }
+        };
+        delete.setProject(buildRule.getProject());
+        delete.setDir(dir);
+        delete.setThreads(4);
+        delete.execute();
+        assertFalse(dir.exists());
+        assertTrue(removed.contains(dir));
+        for (File subdir : subdirs) {
+            assertTrue(subdir + " has been removed", removed.contains(subdir));
+        }
+    }
+
+    @Test
+    public void testBackgroundDeletionCompletesWhenBuildFinishes() {
+        File output = buildRule.getOutputDir();
+        File parent = output.getAbsoluteFile().getParentFile();
+        String[] leftWhenFinished = new String[1];
+        buildRule.getProject().addBuildListener(new BuildListener() {
+            @Override
+            public void buildFinished(BuildEvent event) {
+                leftWhenFinished[0] = String.join(",", parent.list((dir, name) ->
+                    name.startsWith(output.getName() + ".") && name.endsWith(".deleting")));
+            }
+            @Override
+            public void buildStarted(BuildEvent event) {
+            }
+            @Override
+            public void targetStarted(BuildEvent event) {
+            }
+            @Override
+            public void targetFinished(BuildEvent event) {
+            }
+            @Override
+            public void taskStarted(BuildEvent event) {
+            }
+            @Override
+            public void taskFinished(BuildEvent event) {
+            }
+            @Override
+            public void messageLogged(BuildEvent event) {
+            }
+        });
+        buildRule.executeTarget("testBackground");
+        buildRule.getProject().fireBuildFinished(null);
+        // listeners that have been added earlier don't see the deletion running
+        assertEquals("", leftWhenFinished[0]);
+    }
+
+    @Test
+    public void testBackgroundDeletionIsNotAReference() {
+        buildRule.executeTarget("testBackground");
+        Project project = buildRule.getProject();
+        assertFalse(project.getReferences().values().stream()
+                    .anyMatch(r -> r.getClass().getName().contains("BackgroundDeletion")));
+        project.fireBuildFinished(null);
+    }
 }
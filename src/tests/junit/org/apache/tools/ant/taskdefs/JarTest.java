@@ -25,6 +25,10 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.jar.JarInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -245,6 +249,47 @@ public class JarTest {
         }
     }
 
+    @Test
+    public void testUpdateInPlaceRewritesJar() throws IOException {
+        buildRule.executeTarget("testUpdateInPlaceRewritesJar");
+        File jar = new File(getOutputDir(), tempJar);
+        try (JarInputStream in = new JarInputStream(Files.newInputStream(jar.toPath()))) {
+            assertEquals("second", in.getManifest().getMainAttributes().getValue("Foo"));
+            Set<String> names = new HashSet<>();
+            for (ZipEntry ze = in.getNextEntry(); ze != null; ze = in.getNextEntry()) {
+                assertTrue(ze.getName() + " is unique", names.add(ze.getName()));
+            }
+            assertTrue(names.contains("foo"));
+            assertTrue(names.contains("bar"));
+        }
+        try (ZipFile archive = new ZipFile(jar)) {
+            assertEquals(archive.size(), StreamUtils.enumerationAsStream(archive.entries())
+                         .map(ZipEntry::getName).distinct().count());
+        }
+    }
+
+    @Test
+    public void testIndexedUpdateInPlace() throws IOException {
+        buildRule.executeTarget("testIndexedUpdateInPlace");
+        try (ZipFile archive = new ZipFile(new File(getOutputDir(), tempJar))) {
+            assertTrue(archive.getEntry("a/foo") != null);
+            assertTrue(archive.getEntry("b/bar") != null);
+            ZipEntry ze = archive.getEntry("META-INF/INDEX.LIST");
+            try (BufferedReader r = new BufferedReader(new InputStreamReader(
+                archive.getInputStream(ze), StandardCharsets.UTF_8))) {
+                boolean foundA = false;
+                boolean foundB = false;
+                String line;
+                while ((line = r.readLine()) != null) {
+                    foundA |= "a".equals(line);
+                    foundB |= "b".equals(line);
+                }
+                assertTrue("retained package is indexed", foundA);
+                assertTrue("added package is indexed", foundB);
+            }
+        }
+    }
+
     // bugzilla report 16972
     @Test
     public void testRootFilesInIndex() throws IOException {
@@ -24,6 +24,7 @@ import org.apache.tools.ant.MagicNames;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.taskdefs.compilers.CompilerAdapter;
 import org.apache.tools.ant.taskdefs.compilers.CompilerAdapterFactory;
+import org.apache.tools.ant.taskdefs.compilers.DaemonJavac;
 import org.apache.tools.ant.taskdefs.compilers.Javac13;
 import org.apache.tools.ant.taskdefs.compilers.JavacExternal;
 
@@ -210,6 +211,16 @@ public class JavacTest {
         assertThat(adapter, instanceOf(JavacExternal.class));
     }
 
+    @Test
+    public void testDaemonCompilerIsForked() {
+        javac.setCompiler("daemon");
+        assertTrue(javac.isForkedJavac());
+        javac.setFork(true);
+        assertEquals("daemon", javac.getCompiler());
+        CompilerAdapter adapter = CompilerAdapterFactory.getCompiler(javac.getCompiler(), javac);
+        assertThat(adapter, instanceOf(DaemonJavac.class));
+    }
+
     @Test
     public void testSourceNoDefault() {
         assertNull(javac.getSource());
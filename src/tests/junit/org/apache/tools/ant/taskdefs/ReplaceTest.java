@@ -141,6 +141,34 @@ public class ReplaceTest {
         assertEquals(ts1, new File(buildRule.getOutputDir(), "test.txt").lastModified());
     }
 
+    /**
+     * Tokens are replaced anywhere in a file that is longer than the
+     * part scanned before replacing.
+     */
+    @Test
+    public void testLongFile() throws IOException {
+        File testFile = new File(buildRule.getOutputDir(), "long.txt");
+        StringBuilder text = new StringBuilder("@first@\n");
+        for (int i = 0; i < 50000; i++) {
+            text.append("filler ").append(i).append('\n');
+        }
+        Files.write(testFile.toPath(), text.append("@last@\n").toString().getBytes("US-ASCII"));
+        Replace replace = new Replace();
+        replace.setProject(buildRule.getProject());
+        replace.setFile(testFile);
+        replace.setEncoding("US-ASCII");
+        Replace.Replacefilter first = replace.createReplacefilter();
+        first.setToken("@first@");
+        first.setValue("1");
+        Replace.Replacefilter last = replace.createReplacefilter();
+        last.setToken("@last@");
+        last.setValue("2");
+        replace.execute();
+        String result = new String(Files.readAllBytes(testFile.toPath()), "US-ASCII");
+        assertTrue(result.startsWith("1\nfiller 0\n"));
+        assertTrue(result.endsWith("filler 49999\n2\n"));
+    }
+
     public void assertEqualContent(File expect, File result) throws IOException {
         assertTrue("Expected file " + result + " doesn't exist", result.exists());
 
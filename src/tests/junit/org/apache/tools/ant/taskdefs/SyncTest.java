@@ -18,7 +18,14 @@
 
 package org.apache.tools.ant.taskdefs;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
 import org.apache.tools.ant.BuildFileRule;
+import org.apache.tools.ant.FileUtilities;
+import org.apache.tools.ant.types.FileSet;
 import org.apache.tools.ant.util.FileUtils;
 import org.junit.Before;
 import org.junit.Rule;
@@ -26,6 +33,7 @@ import org.junit.Test;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -161,6 +169,35 @@ public class SyncTest {
         assertFileIsNotPresent(destDir + "/bar.txt");
     }
 
+    @Test
+    public void testManifestDoesntForceOverwriteOfLaterRuns() throws IOException {
+        File src = new File(buildRule.getOutputDir(), "src");
+        File dest = new File(buildRule.getOutputDir(), "dest");
+        File manifest = new File(buildRule.getOutputDir(), "sync.manifest");
+        File source = new File(src, "a.txt");
+        File target = new File(dest, "a.txt");
+        src.mkdirs();
+        Files.write(source.toPath(), "source".getBytes(StandardCharsets.UTF_8));
+
+        Sync sync = new Sync();
+        sync.setProject(buildRule.getProject());
+        sync.init();
+        sync.setTodir(dest);
+        sync.setManifest(manifest);
+        FileSet fs = new FileSet();
+        fs.setDir(src);
+        sync.addFileset(fs);
+        sync.execute();
+        // the manifest selects the files to copy
+        sync.execute();
+
+        // without a manifest the destination's timestamp counts again
+        manifest.delete();
+        Files.write(target.toPath(), "newer".getBytes(StandardCharsets.UTF_8));
+        target.setLastModified(source.lastModified() + 10000);
+        sync.execute();
+        assertEquals("newer", FileUtilities.getFileContents(target));
+    }
 
     public void assertFileIsPresent(String f) {
         assertTrue("Expected file " + f, buildRule.getProject().resolveFile(f).exists());
@@ -20,6 +20,8 @@ package org.apache.tools.ant.taskdefs;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -39,6 +41,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assume.assumeTrue;
 
 public class ZipTest {
@@ -208,6 +211,57 @@ public class ZipTest {
        buildRule.executeTarget("testCompressionLevel");
     }
 
+    @Test
+    public void testParallelDeflate() {
+       buildRule.executeTarget("testParallelDeflate");
+    }
+
+    @Test
+    public void testContentHashSkipsTouchedFiles() throws IOException {
+        buildRule.executeTarget("testContentHash");
+        File output = new File(buildRule.getProject().getProperty("output"));
+        File archive = new File(output, "hashed.zip");
+        long built = archive.lastModified();
+        File a = new File(output, "hashed/a.txt");
+        assertTrue(a.setLastModified(built + 10000));
+        buildRule.executeTarget("zipHashed");
+        assertEquals(built, archive.lastModified());
+
+        Files.write(a.toPath(), "changed".getBytes(StandardCharsets.US_ASCII));
+        assertTrue(a.setLastModified(built + 20000));
+        buildRule.executeTarget("zipHashed");
+        try (ZipFile f = new ZipFile(archive)) {
+            assertEquals(7, f.getEntry("a.txt").getSize());
+        }
+    }
+
+    @Test
+    public void testUpdateInPlace() throws IOException {
+        buildRule.executeTarget("testUpdateInPlace");
+        File output = new File(buildRule.getProject().getProperty("output"));
+        File archive = new File(output, "inplace.zip");
+        long built = archive.lastModified();
+        File a = new File(output, "inplace/a.txt");
+        Files.write(a.toPath(), "changed".getBytes(StandardCharsets.US_ASCII));
+        assertTrue(a.setLastModified(built + 10000));
+        buildRule.getProject().setProperty("compactionthreshold", "1");
+        buildRule.executeTarget("updateInPlace");
+        try (org.apache.tools.zip.ZipFile f = new org.apache.tools.zip.ZipFile(archive)) {
+            assertEquals(7, f.getEntry("a.txt").getSize());
+            assertEquals(1, f.getEntry("b.txt").getSize());
+            assertTrue(f.getUnusedBytes() > 0);
+        }
+
+        assertTrue(a.setLastModified(built + 20000));
+        buildRule.getProject().setProperty("compactionthreshold", "0");
+        buildRule.executeTarget("updateInPlace");
+        try (org.apache.tools.zip.ZipFile f = new org.apache.tools.zip.ZipFile(archive)) {
+            assertEquals(7, f.getEntry("a.txt").getSize());
+            assertEquals(1, f.getEntry("b.txt").getSize());
+            assertEquals(0, f.getUnusedBytes());
+        }
+    }
+
     // Bugzilla Report 33412
     @Test
     public void testDefaultExcludesAndUpdate() throws IOException {
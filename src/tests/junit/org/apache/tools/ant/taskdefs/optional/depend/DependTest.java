@@ -179,6 +179,26 @@ public class DependTest {
         buildRule.executeTarget("testcache");
     }
 
+    /**
+     * Test that dependencies analyzed in parallel and read from the
+     * cache lead to the same result as the closure test
+     */
+    @Test
+    public void testParallelCache() {
+        buildRule.executeTarget("src1setup");
+        buildRule.executeTarget("compile");
+
+        FileUtilities.rollbackTimestamps(new File(buildRule.getProject().getProperty("tempsrc.dir")), 5);
+        FileUtilities.rollbackTimestamps(new File(buildRule.getProject().getProperty("classes.dir")), 5);
+
+        buildRule.executeTarget("testparallelcache");
+        Hashtable<String, String> files = getResultFiles();
+        assertTrue("Depend did not leave correct number of files", files.size() <= 2);
+        assertThat("Result did not contain D.class", files, hasKey("D.class"));
+        assertTrue("Cache not written", new File(buildRule.getProject().getProperty("cache.dir"),
+            "dependencies.bin").exists());
+    }
+
     /**
      * Test the detection and warning of non public classes
      */
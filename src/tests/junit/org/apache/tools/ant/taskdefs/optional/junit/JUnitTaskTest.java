@@ -48,6 +48,7 @@ import javax.xml.xpath.XPathFactory;
 
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.BuildFileRule;
+import org.apache.tools.ant.FileUtilities;
 import org.apache.tools.ant.MagicNames;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.taskdefs.launcher.CommandLauncher;
@@ -79,6 +80,19 @@ public class JUnitTaskTest {
         assertEquals("true", buildRule.getProject().getProperty("crashed"));
     }
 
+    @Test
+    public void testCrashPerThread() throws IOException {
+        buildRule.executeTarget("crashPerThread");
+        assertEquals("true", buildRule.getProject().getProperty("crashed"));
+        // the crash is reported against the test that has been running
+        String crashed = FileUtilities.getFileContents(new File(buildRule.getOutputDir(),
+            "TEST-org.apache.tools.ant.taskdefs.optional.junit.VmCrash.xml"));
+        assertThat(crashed, containsString("Forked Java VM exited abnormally"));
+        String passed = FileUtilities.getFileContents(new File(buildRule.getOutputDir(),
+            "TEST-org.apache.tools.ant.taskdefs.optional.junit.NoVmCrash.xml"));
+        assertThat(passed, containsString("errors=\"0\""));
+    }
+
     @Test
     public void testNoCrash() {
         buildRule.executeTarget("nocrash");
@@ -125,6 +139,17 @@ public class JUnitTaskTest {
         assertResultFilesExist("testBatchTestForkOnceExtension", ".foo");
     }
 
+    @Test
+    public void testBatchTestForkPerThread() {
+        assertResultFilesExist("testBatchTestForkPerThread", ".xml");
+        File durations = new File(buildRule.getOutputDir(), "durations");
+        assertTrue("durations have been recorded", durations.isFile());
+        long recorded = durations.length();
+        // the second run orders the tests by the recorded durations
+        assertResultFilesExist("testBatchTestForkPerThread", ".xml");
+        assertEquals(recorded, durations.length());
+    }
+
 
     /* Bugzilla Report 42984 */
     //TODO This scenario works from command line, but not from JUnit ...
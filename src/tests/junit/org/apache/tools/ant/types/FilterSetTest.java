@@ -126,6 +126,21 @@ public class FilterSetTest {
         assertEquals(result, fs.replaceTokens(line));
     }
 
+    /**
+     * The hash returned by getFilterHash may be modified between two
+     * replacements.
+     */
+    @Test
+    public void testModifiedFilterHash() {
+        FilterSet fs = new FilterSet();
+        fs.addFilter("test", "value");
+        assertEquals("value @new@", fs.replaceTokens("@test@ @new@"));
+        fs.getFilterHash().put("new", "added");
+        assertEquals("value added", fs.replaceTokens("@test@ @new@"));
+        fs.getFilterHash().remove("test");
+        assertEquals("@test@ added", fs.replaceTokens("@test@ @new@"));
+    }
+
     @Test
     public void testNonInfiniteRecursiveMultipleOnSingleLine() {
         FilterSet filters = new FilterSet();
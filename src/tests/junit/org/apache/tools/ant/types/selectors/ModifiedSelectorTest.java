@@ -35,6 +35,7 @@ import org.apache.tools.ant.Task;
 import org.apache.tools.ant.types.Parameter;
 import org.apache.tools.ant.types.Path;
 import org.apache.tools.ant.types.selectors.modifiedselector.Algorithm;
+import org.apache.tools.ant.types.selectors.modifiedselector.BinaryfileCache;
 import org.apache.tools.ant.types.selectors.modifiedselector.Cache;
 import org.apache.tools.ant.types.selectors.modifiedselector.ChecksumAlgorithm;
 import org.apache.tools.ant.types.selectors.modifiedselector.DigestAlgorithm;
@@ -42,6 +43,7 @@ import org.apache.tools.ant.types.selectors.modifiedselector.EqualComparator;
 import org.apache.tools.ant.types.selectors.modifiedselector.HashvalueAlgorithm;
 import org.apache.tools.ant.types.selectors.modifiedselector.ModifiedSelector;
 import org.apache.tools.ant.types.selectors.modifiedselector.PropertiesfileCache;
+import org.apache.tools.ant.types.selectors.modifiedselector.StatDigestAlgorithm;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Rule;
@@ -50,6 +52,7 @@ import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.endsWith;
 import static org.hamcrest.Matchers.startsWith;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -310,6 +313,93 @@ public class ModifiedSelectorTest {
         assertFalse("Cachefile not deleted.", cachefile.exists());
     }
 
+    @Test
+    public void testBinaryfileCache() throws IOException {
+        BinaryfileCache cache = new BinaryfileCache();
+        File cachefile = new File(testFolder.getRoot(), "cache.bin");
+        cache.setCachefile(cachefile);
+        doTest(cache);
+        assertFalse("Cache file not deleted.", cachefile.exists());
+    }
+
+    /** Checks that appended and compacted entries are loaded again. */
+    @Test
+    public void testBinaryfileCacheAppendsAndCompacts() throws IOException {
+        File cachefile = new File(testFolder.getRoot(), "cache.bin");
+        BinaryfileCache cache = new BinaryfileCache(cachefile);
+        cache.put("key1", "value1");
+        cache.put("key2", "value2");
+        cache.save();
+        long initialLength = cachefile.length();
+
+        cache.put("key1", "value3");
+        cache.save();
+        assertTrue("Cachefile not appended to.", cachefile.length() > initialLength);
+        assertEquals("value3", new BinaryfileCache(cachefile).get("key1"));
+
+        boolean compacted = false;
+        for (int i = 0; i < 3000; i++) {
+            long length = cachefile.length();
+            cache.put("key2", "value" + i);
+            cache.save();
+            compacted |= cachefile.length() < length;
+        }
+        assertTrue("Cachefile not compacted.", compacted);
+
+        BinaryfileCache reloaded = new BinaryfileCache(cachefile);
+        assertEquals("value3", reloaded.get("key1"));
+        assertEquals("value2999", reloaded.get("key2"));
+    }
+
+    @Test
+    public void testBinaryfileCacheConcurrentPuts() throws Exception {
+        File cachefile = new File(testFolder.getRoot(), "cache.bin");
+        BinaryfileCache cache = new BinaryfileCache(cachefile);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t * 1000;
+            threads[t] = new Thread(() -> {
+                for (int i = offset; i < offset + 1000; i++) {
+                    cache.put("key" + i, "value" + i);
+                    if (i % 100 == 0) {
+                        cache.save();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        cache.save();
+
+        BinaryfileCache reloaded = new BinaryfileCache(cachefile);
+        for (int i = 0; i < 4000; i++) {
+            assertEquals("value" + i, reloaded.get("key" + i));
+        }
+    }
+
+    /** Checks whether a cache file is created. */
+    @Test
+    public void testCreateBinaryCacheViaModifiedSelector() {
+        File cachefile = new File(testFolder.getRoot(), "cache.bin");
+
+        ModifiedSelector s = new ModifiedSelector();
+        s.setDelayUpdate(false);
+        s.addParam("cache.cachefile", cachefile);
+
+        ModifiedSelector.CacheName cacheName = new ModifiedSelector.CacheName();
+        cacheName.setValue("binaryfile");
+        s.setCache(cacheName);
+
+        s.setUpdate(true);
+
+        selectorRule.selectionString(s);
+
+        assertTrue("Cache file is not created.", cachefile.exists());
+        assertTrue(s.getCache() instanceof BinaryfileCache);
+    }
+
     /** Checks whether a cache file is created. */
     @Test
     public void testCreatePropertiesCacheViaModifiedSelector() {
@@ -432,6 +522,71 @@ public class ModifiedSelectorTest {
         doTest(algo);
     }
 
+    @Test
+    public void testStatDigestAlgorithm() {
+        StatDigestAlgorithm algo = new StatDigestAlgorithm();
+        doTest(algo);
+    }
+
+    @Test
+    public void testStatDigestAlgorithmOnlyReadsChangedFiles() throws IOException {
+        File file = testFolder.newFile("stat.txt");
+        try (FileWriter out = new FileWriter(file)) {
+            out.write("content");
+        }
+        StatDigestAlgorithm algo = new StatDigestAlgorithm();
+        String value = algo.getValue(file);
+        String digest = value.substring(value.lastIndexOf(':') + 1);
+
+        // unchanged attributes - the digest is not computed again
+        String fake = value.substring(0, value.length() - digest.length()) + "cafe";
+        assertEquals(fake, algo.getValue(file, fake));
+
+        // only touched - the content is read, the new attributes are
+        // returned with the same digest
+        assertTrue(file.setLastModified(file.lastModified() - 10000));
+        String touched = algo.getValue(file, value);
+        assertNotEquals(value, touched);
+        assertEquals(digest, algo.getContentValue(touched));
+        assertEquals(algo.getContentValue(value), algo.getContentValue(touched));
+        assertNotEquals(fake, algo.getValue(file, fake));
+
+        // the new attributes are known now - not read again
+        String touchedFake = touched.substring(0, touched.length() - digest.length()) + "cafe";
+        assertEquals(touchedFake, algo.getValue(file, touchedFake));
+
+        try (FileWriter out = new FileWriter(file)) {
+            out.write("other content");
+        }
+        String changed = algo.getValue(file, value);
+        assertNotEquals(value, changed);
+        assertThat(changed, endsWith(new DigestAlgorithm().getValue(file)));
+    }
+
+    @Test
+    public void testStatDigestCachesTouchedFiles() throws IOException {
+        File file = testFolder.newFile("touched.txt");
+        try (FileWriter out = new FileWriter(file)) {
+            out.write("content");
+        }
+        ModifiedSelector s = new ModifiedSelector();
+        s.setDelayUpdate(false);
+        s.addParam("cache.cachefile", new File(testFolder.getRoot(), "touched.cache"));
+        ModifiedSelector.AlgorithmName algoName = new ModifiedSelector.AlgorithmName();
+        algoName.setValue("statdigest");
+        s.setAlgorithm(algoName);
+        s.setUpdate(true);
+        assertTrue(s.isSelected(file.getParentFile(), file.getName(), file));
+        String value = (String) s.getCache().get(file.getAbsolutePath());
+
+        assertTrue(file.setLastModified(file.lastModified() - 10000));
+        assertFalse(s.isSelected(file.getParentFile(), file.getName(), file));
+        String touched = (String) s.getCache().get(file.getAbsolutePath());
+        assertNotEquals("new attributes are cached", value, touched);
+        assertEquals(value.substring(value.lastIndexOf(':')),
+                     touched.substring(touched.lastIndexOf(':')));
+    }
+
     @Test
     public void testChecksumAlgorithm() {
         ChecksumAlgorithm algo = new ChecksumAlgorithm();
@@ -0,0 +1,127 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.tools.ant.util;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for org.apache.tools.ant.util.MultiStringMatcher.
+ */
+public class MultiStringMatcherTest {
+
+    @Test
+    public void testLeftmostMatchWins() {
+        MultiStringMatcher m = new MultiStringMatcher(Arrays.asList("cd", "bcde"), false);
+        MultiStringMatcher.Match match = m.find("abcdef", 0);
+        assertEquals(1, match.getPattern());
+        assertEquals(1, match.getStart());
+        assertEquals(5, match.getEnd());
+    }
+
+    @Test
+    public void testShortestAndLongest() {
+        MultiStringMatcher shortest = new MultiStringMatcher(Arrays.asList("abc", "ab"), false);
+        MultiStringMatcher longest = new MultiStringMatcher(Arrays.asList("abc", "ab"), true);
+        assertEquals(1, shortest.find("xabcx", 0).getPattern());
+        assertEquals(0, longest.find("xabcx", 0).getPattern());
+        assertEquals(1, longest.find("xabx", 0).getPattern());
+    }
+
+    @Test
+    public void testDuplicatesReportFirstPattern() {
+        MultiStringMatcher m = new MultiStringMatcher(Arrays.asList("a", "b", "a"), true);
+        assertEquals(0, m.find("ba", 1).getPattern());
+        assertEquals(3, m.getPatternCount());
+    }
+
+    @Test
+    public void testNoMatch() {
+        MultiStringMatcher m = new MultiStringMatcher(Arrays.asList("foo", "bar"), true);
+        assertNull(m.find("fobaz", 0));
+        assertNull(m.find("foo", 1));
+    }
+
+    @Test
+    public void testNonAsciiPatterns() {
+        MultiStringMatcher m =
+            new MultiStringMatcher(Arrays.asList("\u00e4\u00f6", "\u20ac"), true);
+        assertEquals(3, m.find("ab\u00e4\u20ac\u00e4\u00f6", 0).getStart());
+        assertEquals(4, m.find("ab\u00e4\u20ac\u00e4\u00f6", 4).getStart());
+    }
+
+    @Test
+    public void testSafePositionOfIncompleteInput() {
+        MultiStringMatcher m = new MultiStringMatcher(Arrays.asList("@foo@", "@x@"), true);
+        MultiStringMatcher.Match match = m.find("abc@fo", 0, 6, false);
+        assertFalse(match.isMatch());
+        assertEquals(3, match.getStart());
+
+        match = m.find("abcdef", 0, 6, false);
+        assertFalse(match.isMatch());
+        assertEquals(6, match.getStart());
+
+        match = m.find("abc@fo", 0, 6, true);
+        assertFalse(match.isMatch());
+        assertEquals(6, match.getStart());
+    }
+
+    @Test
+    public void testLongestMatchWaitsForMoreInput() {
+        MultiStringMatcher m = new MultiStringMatcher(Arrays.asList("ab", "abcd"), true);
+        MultiStringMatcher.Match match = m.find("xabc", 0, 4, false);
+        assertFalse(match.isMatch());
+        assertEquals(1, match.getStart());
+
+        match = m.find("xabcd", 0, 5, false);
+        assertTrue(match.isMatch());
+        assertEquals(1, match.getPattern());
+
+        match = m.find("xabce", 0, 5, false);
+        assertTrue(match.isMatch());
+        assertEquals(0, match.getPattern());
+
+        match = m.find("xabc", 0, 4, true);
+        assertTrue(match.isMatch());
+        assertEquals(0, match.getPattern());
+    }
+
+    @Test
+    public void testCollectFindsOverlappingPatternsAcrossParts() {
+        MultiStringMatcher m =
+            new MultiStringMatcher(Arrays.asList("she", "he", "hers", "his", "x"), false);
+        BitSet found = new BitSet();
+        int state = m.collect("ush", 0, 3, 0, found);
+        state = m.collect("ers", 0, 3, state, found);
+        assertEquals(BitSet.valueOf(new long[] {7}), found);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyPatternIsRejected() {
+        new MultiStringMatcher(Collections.singletonList(""), false);
+    }
+}
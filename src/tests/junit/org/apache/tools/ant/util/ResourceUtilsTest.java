@@ -18,20 +18,33 @@
 
 package org.apache.tools.ant.util;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.taskdefs.Echo;
 import org.apache.tools.ant.types.Resource;
 import org.apache.tools.ant.types.ResourceFactory;
+import org.apache.tools.ant.types.resources.FileResource;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Tests for org.apache.tools.ant.util.ResourceUtils.
  */
 public class ResourceUtilsTest implements ResourceFactory, FileNameMapper {
 
+    @Rule
+    public TemporaryFolder testFolder = new TemporaryFolder();
+
     private Echo taskINeedForLogging = new Echo();
 
     @Before
@@ -49,6 +62,50 @@ public class ResourceUtilsTest implements ResourceFactory, FileNameMapper {
         assertEquals(1, toNew.length);
     }
 
+    @Test
+    public void testHardlinkStrategySharesContent() throws IOException {
+        File source = createSource();
+        File dest = new File(testFolder.getRoot(), "sub/dest.txt");
+        copy(source, dest, ResourceUtils.CopyStrategy.HARDLINK);
+        assertTrue(Files.isSameFile(source.toPath(), dest.toPath()));
+        assertEquals("content", read(dest));
+    }
+
+    @Test
+    public void testCloneStrategyCreatesIndependentCopy() throws IOException {
+        File source = createSource();
+        File dest = new File(testFolder.getRoot(), "sub/dest.txt");
+        testFolder.newFolder("sub");
+        Files.write(dest.toPath(), "old content".getBytes(StandardCharsets.UTF_8));
+        copy(source, dest, ResourceUtils.CopyStrategy.CLONE);
+        assertFalse(Files.isSameFile(source.toPath(), dest.toPath()));
+        assertEquals("content", read(dest));
+    }
+
+    @Test
+    public void testStrategyDoesntDestroySelfCopy() throws IOException {
+        File source = createSource();
+        copy(source, source, ResourceUtils.CopyStrategy.HARDLINK);
+        assertEquals("content", read(source));
+    }
+
+    private File createSource() throws IOException {
+        File source = testFolder.newFile("source.txt");
+        Files.write(source.toPath(), "content".getBytes(StandardCharsets.UTF_8));
+        return source;
+    }
+
+    private static void copy(File source, File dest, ResourceUtils.CopyStrategy strategy)
+        throws IOException {
+        ResourceUtils.copyResource(new FileResource(source), new FileResource(dest),
+                                   null, null, true, false, false, null, null,
+                                   null, false, strategy);
+    }
+
+    private static String read(File f) throws IOException {
+        return new String(Files.readAllBytes(f.toPath()), StandardCharsets.UTF_8);
+    }
+
     /* ============ ResourceFactory interface ====================== */
     public Resource getResource(String name) {
         return new Resource(name); // implies lastModified == 0
@@ -0,0 +1,131 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.tools.ant.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.tools.ant.DirectoryScanner;
+import org.apache.tools.ant.MagicNames;
+import org.apache.tools.ant.Project;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ScanIndexTest {
+
+    @Rule
+    public TemporaryFolder testFolder = new TemporaryFolder();
+
+    private File root;
+
+    @Before
+    public void setUp() throws IOException {
+        root = testFolder.newFolder("root");
+        new File(root, "a/b").mkdirs();
+        new File(root, "a/one.txt").createNewFile();
+        new File(root, "a/b/two.txt").createNewFile();
+        new File(root, "three.java").createNewFile();
+    }
+
+    @Test
+    public void testListIsLikeFileList() {
+        ScanIndex index = new ScanIndex();
+        assertArrayEquals(sorted(root.list()), sorted(index.list(root)));
+        assertNull(index.list(new File(root, "three.java")));
+        assertNull(index.list(root, "three.java"));
+        assertNull(index.list(new File(root, "missing")));
+        assertArrayEquals(sorted(new File(root, "a").list()), sorted(index.list(root, "a")));
+    }
+
+    @Test
+    public void testChangedDirectoryIsListedAgain() throws IOException {
+        ScanIndex index = new ScanIndex();
+        File a = new File(root, "a");
+        index.list(a);
+        new File(a, "new.txt").createNewFile();
+        a.setLastModified(a.lastModified() + 10000);
+        assertTrue(Arrays.asList(index.list(a)).contains("new.txt"));
+    }
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        File cache = new File(testFolder.getRoot(), "scan.idx");
+        ScanIndex index = new ScanIndex(cache);
+        index.list(root);
+        index.list(root, "a");
+        index.save();
+        assertTrue(cache.isFile());
+        ScanIndex loaded = new ScanIndex(cache);
+        assertEquals(2, loaded.size());
+        assertArrayEquals(sorted(root.list()), sorted(loaded.list(root)));
+    }
+
+    @Test
+    public void testScannerResultsAreUnchanged() {
+        DirectoryScanner plain = new DirectoryScanner();
+        plain.setBasedir(root);
+        plain.setIncludes(new String[] {"**/*.txt"});
+        plain.scan();
+
+        ScanIndex index = new ScanIndex();
+        for (int i = 0; i < 2; i++) {
+            DirectoryScanner indexed = new DirectoryScanner();
+            indexed.setBasedir(root);
+            indexed.setIncludes(new String[] {"**/*.txt"});
+            indexed.setScanIndex(index);
+            indexed.scan();
+            assertArrayEquals(sorted(plain.getIncludedFiles()),
+                              sorted(indexed.getIncludedFiles()));
+            assertArrayEquals(sorted(plain.getIncludedDirectories()),
+                              sorted(indexed.getIncludedDirectories()));
+        }
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    public void testIndexIsOptIn() {
+        Project p = new Project();
+        p.init();
+        assertNull(ScanIndex.getScanIndex(p));
+        p.setProperty(MagicNames.SCAN_INDEX, "true");
+        ScanIndex index = ScanIndex.getScanIndex(p);
+        assertSame(index, ScanIndex.getScanIndex(p));
+        assertTrue(p.getBuildListeners().contains(index));
+
+        Project sub = p.createSubProject();
+        sub.addBuildListener(index);
+        sub.setProperty(MagicNames.SCAN_INDEX, "true");
+        assertSame(index, ScanIndex.getScanIndex(sub));
+    }
+
+    private static String[] sorted(String[] names) {
+        String[] copy = names.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.tools.zip;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ZipFileTest {
+
+    @Rule
+    public TemporaryFolder testFolder = new TemporaryFolder();
+
+    private File archive;
+
+    @Before
+    public void setUp() throws IOException {
+        archive = testFolder.newFile("test.zip");
+        try (ZipOutputStream zos = new ZipOutputStream(archive)) {
+            zos.setEncoding("UTF-8");
+            zos.setUseLanguageEncodingFlag(false);
+            zos.setCreateUnicodeExtraFields(
+                ZipOutputStream.UnicodeExtraFieldPolicy.ALWAYS);
+            writeEntry(zos, "a.txt", ZipEntry.DEFLATED, "first a");
+            writeEntry(zos, "dir/", ZipEntry.STORED, "");
+            writeEntry(zos, "dir/b.txt", ZipEntry.STORED, "b");
+            writeEntry(zos, "\u00e4\u00f6\u00fc.txt", ZipEntry.DEFLATED, "umlauts");
+            writeEntry(zos, "a.txt", ZipEntry.STORED, "second a");
+            for (int i = 0; i < 100; i++) {
+                writeEntry(zos, "many/" + i, ZipEntry.DEFLATED, String.valueOf(i));
+            }
+        }
+    }
+
+    @Test
+    public void testLazyAndEagerModeReturnTheSameEntries() throws IOException {
+        try (ZipFile eager = new ZipFile(archive, "ISO-8859-1", true, false);
+             ZipFile lazy = new ZipFile(archive, "ISO-8859-1", true, true)) {
+            List<ZipEntry> expected = Collections.list(eager.getEntries());
+            List<ZipEntry> actual = Collections.list(lazy.getEntries());
+            assertEquals(105, expected.size());
+            assertEquals(expected, actual);
+            assertEquals(Collections.list(eager.getEntriesInPhysicalOrder()),
+                         Collections.list(lazy.getEntriesInPhysicalOrder()));
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getName(), actual.get(i).getName());
+                assertArrayEquals(expected.get(i).getExtra(), actual.get(i).getExtra());
+                assertArrayEquals(read(eager, expected.get(i)), read(lazy, actual.get(i)));
+            }
+        }
+    }
+
+    @Test
+    public void testLazyLookups() throws IOException {
+        try (ZipFile lazy = new ZipFile(archive, "ISO-8859-1", true, true)) {
+            assertEquals("first a", new String(read(lazy, lazy.getEntry("a.txt")),
+                                               StandardCharsets.UTF_8));
+            assertEquals("umlauts",
+                         new String(read(lazy, lazy.getEntry("\u00e4\u00f6\u00fc.txt")),
+                                    StandardCharsets.UTF_8));
+            assertEquals("42", new String(read(lazy, lazy.getEntry("many/42")),
+                                          StandardCharsets.UTF_8));
+            assertTrue(lazy.getEntry("dir/").isDirectory());
+            assertNull(lazy.getEntry("missing"));
+            assertFalse(lazy.getEntries("missing").iterator().hasNext());
+
+            List<String> duplicates = new ArrayList<>();
+            for (ZipEntry ze : lazy.getEntries("a.txt")) {
+                duplicates.add(new String(read(lazy, ze), StandardCharsets.UTF_8));
+            }
+            assertEquals(2, duplicates.size());
+            assertEquals("first a", duplicates.get(0));
+            assertEquals("second a", duplicates.get(1));
+        }
+    }
+
+    @Test
+    public void testLazyModeReadsArchiveWithoutEntries() throws IOException {
+        File empty = testFolder.newFile("empty.zip");
+        new ZipOutputStream(empty).close();
+        try (ZipFile lazy = new ZipFile(empty, null, true, true)) {
+            assertFalse(lazy.getEntries().hasMoreElements());
+            assertNull(lazy.getEntry("a.txt"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testLazyLookupOfBrokenEntryThrowsIOException() throws IOException {
+        byte[] data = Files.readAllBytes(archive.toPath());
+        // point the first central directory record beyond the end of the archive
+        for (int i = 0; i < data.length - 4; i++) {
+            if (data[i] == 'P' && data[i + 1] == 'K' && data[i + 2] == 1 && data[i + 3] == 2) {
+                data[i + 42] = 0;
+                data[i + 43] = 0;
+                data[i + 44] = 0;
+                data[i + 45] = 0x70;
+                break;
+            }
+        }
+        Files.write(archive.toPath(), data);
+        try (ZipFile lazy = new ZipFile(archive, "ISO-8859-1", true, true)) {
+            lazy.getEntry("a.txt");
+        }
+    }
+
+    private static void writeEntry(ZipOutputStream zos, String name, int method,
+                                   String content) throws IOException {
+        byte[] data = content.getBytes(StandardCharsets.UTF_8);
+        ZipEntry ze = new ZipEntry(name);
+        ze.setMethod(method);
+        if (method == ZipEntry.STORED) {
+            java.util.zip.CRC32 crc = new java.util.zip.CRC32();
+            crc.update(data);
+            ze.setCrc(crc.getValue());
+            ze.setSize(data.length);
+        }
+        zos.putNextEntry(ze);
+        zos.write(data);
+        zos.closeEntry();
+    }
+
+    private static byte[] read(ZipFile zf, ZipEntry ze) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = zf.getInputStream(ze)) {
+            byte[] buf = new byte[3];
+            int n;
+            while ((n = in.read(buf)) >= 0) {
+                out.write(buf, 0, n);
+            }
+        }
+        return out.toByteArray();
+    }
+}
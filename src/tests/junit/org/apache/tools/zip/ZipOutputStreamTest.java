@@ -19,15 +19,38 @@
 package org.apache.tools.zip;
 
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class ZipOutputStreamTest {
 
+    @Rule
+    public TemporaryFolder testFolder = new TemporaryFolder();
+
     private Date time;
     private ZipLong zl;
 
@@ -70,4 +93,188 @@ public class ZipOutputStreamTest {
                      ZipUtil.adjustToLong(2 * Integer.MAX_VALUE));
     }
 
+    @Test
+    public void testBackgroundDeflateCreatesIdenticalArchive() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            File serialFile = testFolder.newFile("serial.zip");
+            File parallelFile = testFolder.newFile("parallel.zip");
+            writeArchive(new ZipOutputStream(serialFile), null);
+            writeArchive(new ZipOutputStream(parallelFile), executor);
+            assertArrayEquals(Files.readAllBytes(serialFile.toPath()),
+                              Files.readAllBytes(parallelFile.toPath()));
+
+            ByteArrayOutputStream serial = new ByteArrayOutputStream();
+            ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+            writeArchive(new ZipOutputStream(serial), null);
+            writeArchive(new ZipOutputStream(parallel), executor);
+            assertArrayEquals(serial.toByteArray(), parallel.toByteArray());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void writeArchive(ZipOutputStream zos, ExecutorService executor)
+        throws IOException {
+        Random random = new Random(42);
+        zos.setDeflateExecutor(executor);
+        zos.setLevel(9);
+        try {
+            for (int i = 0; i < 20; i++) {
+                ZipEntry ze = new ZipEntry("entry" + i + ".txt");
+                ze.setTime(0);
+                List<byte[]> chunks = new ArrayList<>();
+                for (int j = 0; j < i % 4; j++) {
+                    byte[] chunk = new byte[random.nextInt(20000) + 1];
+                    for (int k = 0; k < chunk.length; k++) {
+                        chunk[k] = (byte) ('a' + random.nextInt(i + 1));
+                    }
+                    chunks.add(chunk);
+                }
+                zos.addDeflatedEntry(ze, chunks);
+                if (i % 5 == 0) {
+                    ZipEntry dir = new ZipEntry("dir" + i + "/");
+                    dir.setTime(0);
+                    zos.putNextEntry(dir);
+                    zos.closeEntry();
+                }
+            }
+        } finally {
+            zos.close();
+        }
+    }
+
+    @Test
+    public void testRawEntriesCanBeReadBack() throws IOException {
+        File source = testFolder.newFile("source.zip");
+        ZipOutputStream zos = new ZipOutputStream(source);
+        try {
+            writeEntry(zos, "deflated.txt", ZipEntry.DEFLATED, "Hello, world!\n", 1000);
+            writeEntry(zos, "stored.txt", ZipEntry.STORED, "Hello, stored world!\n", 10);
+            writeEntry(zos, "empty.txt", ZipEntry.DEFLATED, "", 0);
+        } finally {
+            zos.close();
+        }
+
+        File copy = testFolder.newFile("copy.zip");
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        try (ZipFile zf = new ZipFile(source)) {
+            ZipOutputStream fileOut = new ZipOutputStream(copy);
+            ZipOutputStream streamOut = new ZipOutputStream(streamed);
+            try {
+                for (ZipEntry ze : Collections.list(zf.getEntries())) {
+                    fileOut.addRawEntry(new ZipEntry(ze.getName()), zf, ze);
+                    streamOut.addRawEntry(new ZipEntry(ze.getName()), zf, ze);
+                }
+            } finally {
+                fileOut.close();
+                streamOut.close();
+            }
+
+            try (ZipFile copied = new ZipFile(copy)) {
+                for (ZipEntry ze : Collections.list(zf.getEntries())) {
+                    ZipEntry c = copied.getEntry(ze.getName());
+                    assertEquals(ze.getMethod(), c.getMethod());
+                    assertEquals(ze.getCompressedSize(), c.getCompressedSize());
+                    assertArrayEquals(readAll(zf.getInputStream(ze)),
+                                      readAll(copied.getInputStream(c)));
+                }
+            }
+            // java.util.zip verifies sizes and CRCs while streaming
+            try (ZipInputStream zis = new ZipInputStream(
+                     new ByteArrayInputStream(streamed.toByteArray()))) {
+                for (ZipEntry ze : Collections.list(zf.getEntries())) {
+                    java.util.zip.ZipEntry c = zis.getNextEntry();
+                    assertEquals(ze.getName(), c.getName());
+                    assertArrayEquals(readAll(zf.getInputStream(ze)), readAll(zis));
+                }
+                assertNull(zis.getNextEntry());
+            }
+        }
+    }
+
+    @Test(expected = ZipException.class)
+    public void testRawEntryRequiresSizes() throws IOException {
+        ZipOutputStream zos = new ZipOutputStream(new ByteArrayOutputStream());
+        try {
+            ZipEntry ze = new ZipEntry("foo");
+            ze.setMethod(ZipEntry.DEFLATED);
+            zos.addRawEntry(ze, new ByteArrayInputStream(new byte[0]));
+        } finally {
+            zos.destroy();
+        }
+    }
+
+    @Test
+    public void testAppendReplacesEntriesWithTheSameName() throws IOException {
+        File archive = testFolder.newFile("append.zip");
+        try (ZipOutputStream zos = new ZipOutputStream(archive)) {
+            writeEntry(zos, "a.txt", ZipEntry.DEFLATED, "a", 100);
+            writeEntry(zos, "b.txt", ZipEntry.STORED, "b", 100);
+        }
+        long originalLength = archive.length();
+        try (ZipFile zf = new ZipFile(archive)) {
+            assertEquals(0, zf.getUnusedBytes());
+        }
+
+        try (ZipOutputStream zos = new ZipOutputStream(archive, true)) {
+            writeEntry(zos, "b.txt", ZipEntry.DEFLATED, "new b", 100);
+            writeEntry(zos, "c.txt", ZipEntry.DEFLATED, "c", 100);
+        }
+        assertTrue(archive.length() > originalLength);
+        try (ZipFile zf = new ZipFile(archive)) {
+            List<String> names = new ArrayList<>();
+            for (ZipEntry ze : Collections.list(zf.getEntries())) {
+                names.add(ze.getName());
+            }
+            assertEquals(Arrays.asList("a.txt", "b.txt", "c.txt"), names);
+            assertEquals(100, readAll(zf.getInputStream(zf.getEntry("a.txt"))).length);
+            assertEquals(500, readAll(zf.getInputStream(zf.getEntry("b.txt"))).length);
+            assertEquals(100, readAll(zf.getInputStream(zf.getEntry("c.txt"))).length);
+            assertTrue(zf.getUnusedBytes() > 100);
+        }
+        // java.util.zip agrees
+        try (java.util.zip.ZipFile zf = new java.util.zip.ZipFile(archive)) {
+            assertEquals(3, zf.size());
+        }
+    }
+
+    @Test
+    public void testAbortedAppendRestoresArchive() throws IOException {
+        File archive = testFolder.newFile("abort.zip");
+        try (ZipOutputStream zos = new ZipOutputStream(archive)) {
+            writeEntry(zos, "a.txt", ZipEntry.DEFLATED, "a", 100);
+        }
+        byte[] original = Files.readAllBytes(archive.toPath());
+        ZipOutputStream zos = new ZipOutputStream(archive, true);
+        writeEntry(zos, "b.txt", ZipEntry.DEFLATED, "b", 100);
+        zos.abort();
+        assertArrayEquals(original, Files.readAllBytes(archive.toPath()));
+    }
+
+    private static void writeEntry(ZipOutputStream zos, String name, int method,
+                                   String text, int repetitions) throws IOException {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        for (int i = 0; i < repetitions; i++) {
+            data.write(text.getBytes("UTF-8"));
+        }
+        byte[] bytes = data.toByteArray();
+        ZipEntry ze = new ZipEntry(name);
+        ze.setMethod(method);
+        ze.setTime(0);
+        zos.putNextEntry(ze);
+        zos.write(bytes, 0, bytes.length);
+        zos.closeEntry();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            out.write(buffer, 0, count);
+        }
+        return out.toByteArray();
+    }
+
 }